@@ -10,9 +10,11 @@ import play.exceptions.UnexpectedException;
 import play.inject.Injector;
 import play.jte.JtePlugin;
 import play.libs.IO;
+import play.mvc.AssetManifest;
 import play.mvc.Http;
 import play.mvc.Router;
 import play.plugins.PluginCollection;
+import play.server.ResponseCompression;
 import play.templates.TemplateLoader;
 import play.utils.OrderSafeProperties;
 
@@ -614,6 +616,8 @@ public class Play implements Serializable {
             }
             Router.load(Play.ctxPath);
             JtePlugin.precompile();
+            ResponseCompression.precompressStatic();
+            AssetManifest.precompile();
             start = System.currentTimeMillis();
             TemplateLoader.getAllTemplate();
             if (Logger.isTraceEnabled()) {
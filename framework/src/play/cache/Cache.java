@@ -7,6 +7,7 @@ import play.libs.Time;
 
 import java.io.NotSerializableException;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -22,6 +23,11 @@ public abstract class Cache {
     public static CacheImpl cacheImpl;
 
 
+    /**
+     * The serializer used by the caches living outside the JVM
+     */
+    private static CacheSerializer serializer;
+
     private static final int warmupPeriodMs = Integer.valueOf(Play.configuration.getProperty("play.cache.warmupPeriodMs", "60000"));
 
     /**
@@ -246,6 +252,7 @@ public abstract class Cache {
      * Initialize the cache system.
      */
     public static void init() {
+        serializer = CacheSerializer.fromConfiguration();
         if (Play.configuration.getProperty("memcached", "disabled").equals("enabled")) {
             try {
                 cacheImpl = MemcachedImpl.getInstance(true);
@@ -258,7 +265,11 @@ public abstract class Cache {
         } else if(Play.configuration.getProperty("redis.cache", "disabled").equals("enabled")){
             if (Play.configuration.containsKey("redis.cache.url")) {
                 try {
-                    cacheImpl = RedisCacheImpl.getInstance();
+                    if (Play.configuration.getProperty("redis.cache.near", "disabled").equals("enabled")) {
+                        cacheImpl = NearCacheImpl.getInstance();
+                    } else {
+                        cacheImpl = RedisCacheImpl.getInstance();
+                    }
                 }catch (Exception e) {
                     Logger.error(e, "Error while connecting to redis : %s", e.getMessage());
                     Logger.warn("Fallback to local cache");
@@ -273,6 +284,17 @@ public abstract class Cache {
         }
     }
 
+    /**
+     * The serializer used by the Redis and memcached caches, see <code>play.cache.serializer</code>.
+     * @return The configured serializer
+     */
+    public static CacheSerializer serializer() {
+        if (serializer == null) {
+            serializer = CacheSerializer.fromConfiguration();
+        }
+        return serializer;
+    }
+
     /**
      * Stop the cache system.
      */
@@ -289,20 +311,34 @@ public abstract class Cache {
         }
     }
 
+    /**
+     * Counters of the cache implementation.
+     * @return Map of counter names (hits, misses, evictions...) &amp; values, empty if the implementation doesn't keep any
+     */
+    public static Map<String, Long> stats() {
+        return cacheImpl == null ? Collections.emptyMap() : cacheImpl.stats();
+    }
+
     public static Map<String, Object> getAll() {
         return cacheImpl.getAll();
     }
 
+    /**
+     * Bulk set, the elements expire after the default expiration (30 days).
+     * @param map Map of keys &amp; values
+     */
     public static void putAll(Map<String, Object> map) {
-        map.forEach((key, value) -> {
-            set(key, value);
-        });
+        putAll(map, null);
     }
 
+    /**
+     * Bulk set, in one round-trip when the implementation supports it.
+     * @param map Map of keys &amp; values
+     * @param expiration Ex: 10s, 3mn, 8h
+     */
     public static void putAll(Map<String, Object> map, String expiration) {
-        map.forEach((key, value) -> {
-            set(key, value, expiration);
-        });
+        map.values().forEach(Cache::checkSerializable);
+        cacheImpl.set(map, Time.parseDuration(expiration));
     }
 }
 
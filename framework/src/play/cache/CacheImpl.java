@@ -1,5 +1,6 @@
 package play.cache;
 
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -25,6 +26,13 @@ public interface CacheImpl {
 
     Map<String, Object> get(String[] keys);
 
+    /**
+     * Set several elements with the same expiration. Implementations backed by a remote store send them in one batch.
+     */
+    default void set(Map<String, Object> values, int expiration) {
+        values.forEach((key, value) -> set(key, value, expiration));
+    }
+
     long incr(String key, int by);
 
     long decr(String key, int by);
@@ -38,4 +46,11 @@ public interface CacheImpl {
     void stop();
 
     Map<String, Object> getAll();
+
+    /**
+     * Counters of the cache (hits, misses, evictions...), empty when the implementation doesn't keep any
+     */
+    default Map<String, Long> stats() {
+        return Collections.emptyMap();
+    }
 }
@@ -0,0 +1,40 @@
+package play.cache;
+
+import play.Play;
+import play.exceptions.ConfigurationException;
+import play.utils.Utils;
+
+import java.io.IOException;
+
+/**
+ * Turns cached values into bytes for the caches living outside the JVM (Redis, memcached).
+ * <p>
+ * Selected with <code>play.cache.serializer</code>: <code>compact</code> (default), <code>java</code> or the name of a
+ * class implementing this interface with a no-arg constructor.
+ */
+public interface CacheSerializer {
+
+    byte[] serialize(Object value) throws IOException;
+
+    Object deserialize(byte[] data) throws IOException, ClassNotFoundException;
+
+    /**
+     * The serializer configured in application.conf
+     */
+    static CacheSerializer fromConfiguration() {
+        String name = Play.configuration.getProperty("play.cache.serializer", "compact");
+        int threshold = (int) Utils.parseSize(Play.configuration.getProperty("play.cache.serializer.compressThreshold", "4KB"));
+        switch (name) {
+            case "compact":
+                return new CompactCacheSerializer(threshold);
+            case "java":
+                return new JavaCacheSerializer();
+            default:
+                try {
+                    return (CacheSerializer) Class.forName(name, true, Play.classloader).getDeclaredConstructor().newInstance();
+                } catch (Exception e) {
+                    throw new ConfigurationException("Bad configuration for play.cache.serializer: " + name + " (" + e + ")");
+                }
+        }
+    }
+}
@@ -2,105 +2,154 @@ package play.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import play.Logger;
+import play.Play;
+import play.utils.Utils;
 
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Cache implementasi menggunakan Caffeine
  * Ref : https://github.com/ben-manes/caffeine
+ * <p>
+ * One cache for all the keys, bounded by <code>play.cache.maxMemory</code> (default a quarter of the heap). Each
+ * entry expires after its own expiration, an expiration of 0 keeps it until it is evicted.
+ * <p>
+ * The size of an entry is estimated with a shallow walk of the value (see {@link #sizeOf(Object)}): deep object graphs
+ * are undercounted, the bound is approximate.
  */
 public class CaffeineImpl implements CacheImpl {
 
+    /**
+     * Size counted for an object past the depth of {@link #sizeOf(Object)}
+     */
+    static final long OBJECT_SIZE = 64;
+    /**
+     * Levels of collections and fields looked at to estimate a size
+     */
+    private static final int DEPTH = 3;
+    /**
+     * Elements weighed in a bigger collection, the others are counted at their average
+     */
+    private static final int SAMPLE = 32;
+
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    // the JDK classes are not open to reflection: their fields are only counted
+                    if (!Modifier.isStatic(field.getModifiers()) && (field.getType().isPrimitive() || field.trySetAccessible())) {
+                        fields.add(field);
+                    } else if (!Modifier.isStatic(field.getModifiers())) {
+                        fields.add(null);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
     private static CaffeineImpl uniqueInstance;
 
-    final ConcurrentMap<String, Cache> cacheMap = new ConcurrentHashMap<>(16);
+    final Cache<String, Entry> cache;
+    private final long maxMemory;
 
+    CaffeineImpl(long maxMemory) {
+        this.maxMemory = maxMemory;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxMemory)
+                .weigher((String key, Entry entry) -> entry.weight)
+                .expireAfter(new EntryExpiry())
+                .recordStats()
+                .build();
+    }
 
-    public static CaffeineImpl newInstance() {
-        if(uniqueInstance == null)
-            uniqueInstance = new CaffeineImpl();
+    public static synchronized CaffeineImpl newInstance() {
+        if (uniqueInstance == null) {
+            String maxMemory = Play.configuration == null ? null : Play.configuration.getProperty("play.cache.maxMemory");
+            uniqueInstance = new CaffeineImpl(maxMemory == null ? Runtime.getRuntime().maxMemory() / 4 : Utils.parseSize(maxMemory));
+        }
         return uniqueInstance;
     }
 
     @Override
     public void add(String key, Object value, int expiration) {
-        if (get(key) != null || value == null) {
+        if (value == null) {
             return;
         }
-        Cache newCache = Caffeine.newBuilder().expireAfterWrite(expiration, TimeUnit.SECONDS).build();
-        newCache.put(key, value);
-        cacheMap.put(key, newCache);
+        cache.asMap().putIfAbsent(key, new Entry(key, value, expiration));
     }
 
     @Override
     public void clear() {
-        cacheMap.clear();
+        cache.invalidateAll();
     }
 
     @Override
     public long decr(String key, int by) {
-        Object obj = get(key);
-        if (obj == null) {
-            return -1;
-        }
-        long nv = ((Number)obj).longValue() - by;
-        Cache newCache = Caffeine.newBuilder().expireAfterWrite(nv, TimeUnit.SECONDS).build();
-        newCache.put(key, nv);
-        cacheMap.put(key, newCache);
-        return nv;
+        return incr(key, -by);
     }
 
     @Override
     public void delete(String key) {
-        Cache cache = cacheMap.get(key);
-        if (cache != null && cache.getIfPresent(key) != null) {
-            cache.cleanUp();
-        }
-        cacheMap.remove(key);
+        cache.invalidate(key);
     }
 
     @Override
     public Object get(String key) {
-        Cache cache = cacheMap.get(key);
-        return cache != null ? cache.getIfPresent(key):null;
+        Entry entry = cache.getIfPresent(key);
+        return entry != null ? entry.value : null;
     }
 
     @Override
     public Map<String, Object> get(String[] keys) {
+        Map<String, Entry> entries = cache.getAllPresent(Arrays.asList(keys));
         Map<String, Object> result = new HashMap<>(keys.length);
         for (String key : keys) {
-            result.put(key, get(key));
+            Entry entry = entries.get(key);
+            result.put(key, entry != null ? entry.value : null);
         }
         return result;
     }
 
     @Override
-    public long incr(String key, int by) {
-        Object obj = get(key);
-        if (obj == null) {
-            return -1;
-        }
-        long nv = ((Number) obj).longValue() + by;
-        Cache newCache = Caffeine.newBuilder().expireAfterWrite(nv, TimeUnit.SECONDS).build();
-        newCache.put(key, nv);
-        cacheMap.put(key, newCache);
-        return nv;
+    public void set(Map<String, Object> values, int expiration) {
+        Map<String, Entry> entries = new HashMap<>(values.size());
+        values.forEach((key, value) -> {
+            if (value != null) {
+                entries.put(key, new Entry(key, value, expiration));
+            }
+        });
+        cache.putAll(entries);
+    }
 
+    @Override
+    public long incr(String key, int by) {
+        Entry entry = cache.asMap().computeIfPresent(key, (k, current) ->
+                new Entry(k, ((Number) current.value).longValue() + by, Entry.KEEP_EXPIRATION));
+        return entry == null ? -1 : (Long) entry.value;
     }
 
     @Override
     public void replace(String key, Object value, int expiration) {
-        if (get(key) == null || value == null) {
+        if (value == null) {
             return;
         }
-        Cache newCcache = Caffeine.newBuilder().expireAfterWrite(expiration, TimeUnit.SECONDS).build();
-        newCcache.put(key, value);
-        cacheMap.put(key, newCcache);
+        cache.asMap().replace(key, new Entry(key, value, expiration));
     }
 
     @Override
@@ -148,22 +197,159 @@ public class CaffeineImpl implements CacheImpl {
 
     @Override
     public void set(String key, Object value, int expiration) {
-        if(value == null)
+        if (value == null)
             return;
-        Cache cache = Caffeine.newBuilder().expireAfterWrite(expiration, TimeUnit.SECONDS).build();
-        cache.put(key, value);
-        cacheMap.put(key, cache);
+        cache.put(key, new Entry(key, value, expiration));
+    }
+
+    /**
+     * Same as {@link #set(String, Object, int)}, with the size of the value when the caller knows it, such as the length
+     * of its serialized form
+     */
+    void set(String key, Object value, int expiration, long size) {
+        if (value == null)
+            return;
+        cache.put(key, new Entry(key, value, expiration, size));
     }
 
     @Override
     public void stop() {
-        cacheMap.clear();
+        cache.invalidateAll();
+        cache.cleanUp();
     }
 
     @Override
     public Map<String, Object> getAll() {
-        Map<String, Object> result = new HashMap<>(cacheMap.size());
-        result.putAll(cacheMap);
+        Map<String, Object> result = new HashMap<>((int) cache.estimatedSize());
+        cache.asMap().forEach((key, entry) -> result.put(key, entry.value));
         return result;
     }
+
+    @Override
+    public Map<String, Long> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Long> result = new LinkedHashMap<>(8);
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        result.put("size", cache.estimatedSize());
+        result.put("weight", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        result.put("maxWeight", maxMemory);
+        return result;
+    }
+
+    /**
+     * A cached value with its expiration and its estimated size
+     */
+    static final class Entry {
+        /**
+         * incr/decr keep the expiration of the value they update
+         */
+        static final int KEEP_EXPIRATION = -1;
+
+        final Object value;
+        final int expiration;
+        final int weight;
+
+        Entry(String key, Object value, int expiration) {
+            this(key, value, expiration, sizeOf(value));
+        }
+
+        Entry(String key, Object value, int expiration, long size) {
+            this.value = value;
+            this.expiration = expiration;
+            this.weight = (int) Math.min(Integer.MAX_VALUE, 48 + 2L * key.length() + size);
+        }
+    }
+
+    private static final class EntryExpiry implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return nanos(entry.expiration);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return entry.expiration == Entry.KEEP_EXPIRATION ? currentDuration : nanos(entry.expiration);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private static long nanos(int expiration) {
+            return expiration <= 0 ? Long.MAX_VALUE : TimeUnit.SECONDS.toNanos(expiration);
+        }
+    }
+
+    /**
+     * Rough size in bytes of a cached value, without serializing it. Collections, maps, arrays and the fields of the
+     * objects are walked {@link #DEPTH} levels deep, only {@link #SAMPLE} elements of a collection are looked at.
+     */
+    static long sizeOf(Object value) {
+        return sizeOf(value, DEPTH);
+    }
+
+    private static long sizeOf(Object value, int depth) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof byte[] bytes) {
+            return 16L + bytes.length;
+        }
+        if (value instanceof String string) {
+            return 40L + string.length();
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum) {
+            return 16L;
+        }
+        if (depth == 0) {
+            return OBJECT_SIZE;
+        }
+        if (value instanceof Collection<?> collection) {
+            return 64L + sizeOf(collection, collection.size(), 8, depth);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return 64L + sizeOf(map.entrySet(), map.size(), 32, depth);
+        }
+        if (value instanceof Map.Entry<?, ?> entry) {
+            return sizeOf(entry.getKey(), depth) + sizeOf(entry.getValue(), depth);
+        }
+        if (value instanceof Object[] array) {
+            return 16L + sizeOf(Arrays.asList(array), array.length, 8, depth);
+        }
+        if (value.getClass().isArray()) {
+            return 16L + 8L * Array.getLength(value);
+        }
+        long size = 16;
+        for (Field field : FIELDS.get(value.getClass())) {
+            size += 8;
+            if (field != null && !field.getType().isPrimitive()) {
+                try {
+                    size += sizeOf(field.get(value), depth - 1);
+                } catch (IllegalAccessException e) {
+                    size += OBJECT_SIZE;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The elements of a collection, extrapolated from the first ones
+     */
+    private static long sizeOf(Iterable<?> elements, int count, long perElement, int depth) {
+        long size = 0;
+        int weighed = 0;
+        for (Object element : elements) {
+            if (weighed == SAMPLE) {
+                break;
+            }
+            size += perElement + sizeOf(element, depth - 1);
+            weighed++;
+        }
+        return weighed == 0 ? 0 : size * count / weighed;
+    }
 }
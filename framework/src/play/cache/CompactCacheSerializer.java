@@ -0,0 +1,700 @@
+package play.cache;
+
+import play.db.jdbc.BaseTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary codec for cached values.
+ * <p>
+ * Strings, numbers, dates, enums, the usual collections and the fields of {@link BaseTable} models are written with a
+ * one byte tag, without Java serialization. A model is written as its class name (once per value, then an index)
+ * followed by its fields, read and written through handles computed once per class; the layout is checked on read so a
+ * value cached before the model changed is read as a miss. Anything else falls back to Java serialization.
+ * <p>
+ * Values bigger than <code>compressThreshold</code> bytes are deflated (negative to never compress). Data written by
+ * {@link JavaCacheSerializer} is still read.
+ */
+public class CompactCacheSerializer implements CacheSerializer {
+
+    private static final byte MAGIC = (byte) 0xCA;
+    private static final byte PLAIN = 0;
+    private static final byte DEFLATED = 1;
+
+    private static final byte NULL = 0, STRING = 1, INT = 2, LONG = 3, DOUBLE = 4, FLOAT = 5, SHORT = 6, BYTE = 7, TRUE = 8,
+            FALSE = 9, CHAR = 10, BYTES = 11, DATE = 12, TIMESTAMP = 13, SQL_DATE = 14, BIG_DECIMAL = 15, BIG_INTEGER = 16,
+            UUID_ = 17, LOCAL_DATE = 18, LOCAL_DATE_TIME = 19, INSTANT = 20, ENUM = 21, ARRAY_LIST = 22, HASH_MAP = 23,
+            LINKED_HASH_MAP = 24, HASH_SET = 25, LINKED_HASH_SET = 26, MODEL = 27, REF = 28, JAVA = 29;
+
+    private static final ClassValue<Layout> layouts = new ClassValue<>() {
+        @Override
+        protected Layout computeValue(Class<?> type) {
+            return Layout.of(type);
+        }
+    };
+
+    private final int compressThreshold;
+
+    public CompactCacheSerializer() {
+        this(4096);
+    }
+
+    public CompactCacheSerializer(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws IOException {
+        Output out = new Output(256);
+        out.writeByte(MAGIC);
+        out.writeByte(PLAIN);
+        new Writer(out).write(value);
+        byte[] data = out.toByteArray();
+        if (compressThreshold < 0 || data.length - 2 <= compressThreshold) {
+            return data;
+        }
+        return deflate(data);
+    }
+
+    @Override
+    public Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        if (data.length > 1 && data[0] == (byte) 0xAC && data[1] == (byte) 0xED) {
+            // Java serialization stream magic
+            return JavaCacheSerializer.read(new ByteArrayInputStream(data));
+        }
+        if (data.length < 2 || data[0] != MAGIC) {
+            throw new StreamCorruptedException("Not a cached value");
+        }
+        Input in = data[1] == DEFLATED ? new Input(inflate(data), 0) : new Input(data, 2);
+        try {
+            return new Reader(in).read();
+        } catch (StaleLayoutException e) {
+            return null;
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data, 2, data.length - 2);
+            deflater.finish();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2);
+            bos.write(MAGIC);
+            bos.write(DEFLATED);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                bos.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return bos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 2, data.length - 2);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new EOFException("Truncated cached value");
+                }
+                bos.write(buffer, 0, n);
+            }
+            return bos.toByteArray();
+        } catch (DataFormatException e) {
+            throw new StreamCorruptedException(e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static final class Writer {
+        private final Output out;
+        private final Map<Class<?>, Integer> classes = new HashMap<>();
+        private final Map<Object, Integer> models = new IdentityHashMap<>();
+
+        Writer(Output out) {
+            this.out = out;
+        }
+
+        void write(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof String s) {
+                out.writeByte(STRING);
+                writeString(s);
+            } else if (value instanceof Integer i) {
+                out.writeByte(INT);
+                writeVarLong(i);
+            } else if (value instanceof Long l) {
+                out.writeByte(LONG);
+                writeVarLong(l);
+            } else if (value instanceof Boolean b) {
+                out.writeByte(b ? TRUE : FALSE);
+            } else if (value instanceof Double d) {
+                out.writeByte(DOUBLE);
+                out.writeDouble(d);
+            } else if (value instanceof Float f) {
+                out.writeByte(FLOAT);
+                out.writeFloat(f);
+            } else if (value instanceof Short s) {
+                out.writeByte(SHORT);
+                out.writeShort(s);
+            } else if (value instanceof Byte b) {
+                out.writeByte(BYTE);
+                out.writeByte(b);
+            } else if (value instanceof Character c) {
+                out.writeByte(CHAR);
+                out.writeChar(c);
+            } else if (value instanceof byte[] bytes) {
+                out.writeByte(BYTES);
+                writeVarLong(bytes.length);
+                out.write(bytes);
+            } else if (value.getClass() == java.sql.Timestamp.class) {
+                java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+                out.writeByte(TIMESTAMP);
+                writeVarLong(timestamp.getTime());
+                writeVarLong(timestamp.getNanos());
+            } else if (value.getClass() == java.sql.Date.class) {
+                out.writeByte(SQL_DATE);
+                writeVarLong(((java.sql.Date) value).getTime());
+            } else if (value.getClass() == Date.class) {
+                out.writeByte(DATE);
+                writeVarLong(((Date) value).getTime());
+            } else if (value.getClass() == BigDecimal.class) {
+                out.writeByte(BIG_DECIMAL);
+                writeString(value.toString());
+            } else if (value.getClass() == BigInteger.class) {
+                out.writeByte(BIG_INTEGER);
+                writeBytes(((BigInteger) value).toByteArray());
+            } else if (value instanceof UUID uuid) {
+                out.writeByte(UUID_);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+            } else if (value instanceof LocalDate date) {
+                out.writeByte(LOCAL_DATE);
+                writeVarLong(date.toEpochDay());
+            } else if (value instanceof LocalDateTime dateTime) {
+                out.writeByte(LOCAL_DATE_TIME);
+                writeVarLong(dateTime.toLocalDate().toEpochDay());
+                writeVarLong(dateTime.toLocalTime().toNanoOfDay());
+            } else if (value instanceof Instant instant) {
+                out.writeByte(INSTANT);
+                writeVarLong(instant.getEpochSecond());
+                writeVarLong(instant.getNano());
+            } else if (value instanceof Enum<?> e) {
+                out.writeByte(ENUM);
+                writeClass(e.getDeclaringClass());
+                writeString(e.name());
+            } else if (value.getClass() == ArrayList.class) {
+                out.writeByte(ARRAY_LIST);
+                writeElements((Collection<?>) value);
+            } else if (value.getClass() == HashSet.class) {
+                out.writeByte(HASH_SET);
+                writeElements((Collection<?>) value);
+            } else if (value.getClass() == LinkedHashSet.class) {
+                out.writeByte(LINKED_HASH_SET);
+                writeElements((Collection<?>) value);
+            } else if (value.getClass() == HashMap.class) {
+                out.writeByte(HASH_MAP);
+                writeEntries((Map<?, ?>) value);
+            } else if (value.getClass() == LinkedHashMap.class) {
+                out.writeByte(LINKED_HASH_MAP);
+                writeEntries((Map<?, ?>) value);
+            } else if (value instanceof BaseTable && layouts.get(value.getClass()).supported()) {
+                writeModel(value);
+            } else {
+                out.writeByte(JAVA);
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                    oos.writeObject(value);
+                }
+                writeBytes(bos.toByteArray());
+            }
+        }
+
+        private void writeModel(Object value) throws IOException {
+            Integer ref = models.get(value);
+            if (ref != null) {
+                out.writeByte(REF);
+                writeVarLong(ref);
+                return;
+            }
+            models.put(value, models.size());
+            Layout layout = layouts.get(value.getClass());
+            out.writeByte(MODEL);
+            writeClass(value.getClass());
+            out.writeInt(layout.hash);
+            for (MethodHandle getter : layout.getters) {
+                write(layout.get(getter, value));
+            }
+        }
+
+        private void writeElements(Collection<?> values) throws IOException {
+            writeVarLong(values.size());
+            for (Object value : values) {
+                write(value);
+            }
+        }
+
+        private void writeEntries(Map<?, ?> map) throws IOException {
+            writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                write(entry.getKey());
+                write(entry.getValue());
+            }
+        }
+
+        private void writeClass(Class<?> type) throws IOException {
+            Integer index = classes.get(type);
+            if (index != null) {
+                writeVarLong(index + 1);
+            } else {
+                classes.put(type, classes.size());
+                writeVarLong(0);
+                writeString(type.getName());
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            writeBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            // zig-zag then 7 bits per byte
+            long v = (value << 1) ^ (value >> 63);
+            while ((v & ~0x7FL) != 0) {
+                out.writeByte((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            out.writeByte((int) v);
+        }
+    }
+
+    private static final class Reader {
+        private final Input in;
+        private final List<Class<?>> classes = new ArrayList<>();
+        private final List<Object> models = new ArrayList<>();
+
+        Reader(Input in) {
+            this.in = in;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Object read() throws IOException, ClassNotFoundException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case INT:
+                    return (int) readVarLong();
+                case LONG:
+                    return readVarLong();
+                case DOUBLE:
+                    return in.readDouble();
+                case FLOAT:
+                    return in.readFloat();
+                case SHORT:
+                    return in.readShort();
+                case BYTE:
+                    return in.readByte();
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case CHAR:
+                    return in.readChar();
+                case BYTES:
+                    return readBytes();
+                case DATE:
+                    return new Date(readVarLong());
+                case TIMESTAMP: {
+                    java.sql.Timestamp timestamp = new java.sql.Timestamp(readVarLong());
+                    timestamp.setNanos((int) readVarLong());
+                    return timestamp;
+                }
+                case SQL_DATE:
+                    return new java.sql.Date(readVarLong());
+                case BIG_DECIMAL:
+                    return new BigDecimal(readString());
+                case BIG_INTEGER:
+                    return new BigInteger(readBytes());
+                case UUID_:
+                    return new UUID(in.readLong(), in.readLong());
+                case LOCAL_DATE:
+                    return LocalDate.ofEpochDay(readVarLong());
+                case LOCAL_DATE_TIME:
+                    return LocalDateTime.of(LocalDate.ofEpochDay(readVarLong()), LocalTime.ofNanoOfDay(readVarLong()));
+                case INSTANT:
+                    return Instant.ofEpochSecond(readVarLong(), readVarLong());
+                case ENUM:
+                    return Enum.valueOf((Class) readClass(), readString());
+                case ARRAY_LIST: {
+                    int size = readSize();
+                    return readElements(new ArrayList<>(size), size);
+                }
+                case HASH_SET: {
+                    int size = readSize();
+                    return readElements(new HashSet<>(capacity(size)), size);
+                }
+                case LINKED_HASH_SET: {
+                    int size = readSize();
+                    return readElements(new LinkedHashSet<>(capacity(size)), size);
+                }
+                case HASH_MAP: {
+                    int size = readSize();
+                    return readEntries(new HashMap<>(capacity(size)), size);
+                }
+                case LINKED_HASH_MAP: {
+                    int size = readSize();
+                    return readEntries(new LinkedHashMap<>(capacity(size)), size);
+                }
+                case MODEL:
+                    return readModel();
+                case REF:
+                    return models.get((int) readVarLong());
+                case JAVA:
+                    return JavaCacheSerializer.read(new ByteArrayInputStream(readBytes()));
+                default:
+                    throw new StreamCorruptedException("Unknown tag " + tag);
+            }
+        }
+
+        private Object readModel() throws IOException, ClassNotFoundException {
+            Class<?> type = readClass();
+            Layout layout = layouts.get(type);
+            if (!layout.supported() || in.readInt() != layout.hash) {
+                throw new StaleLayoutException();
+            }
+            Object model;
+            try {
+                model = (Object) layout.constructor.invokeExact();
+            } catch (Throwable e) {
+                throw new InvalidClassException(type.getName(), "cannot be instantiated: " + e);
+            }
+            models.add(model);
+            for (MethodHandle setter : layout.setters) {
+                layout.set(setter, model, read());
+            }
+            return model;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private Collection readElements(Collection values, int size) throws IOException, ClassNotFoundException {
+            for (int i = 0; i < size; i++) {
+                values.add(read());
+            }
+            return values;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private Map readEntries(Map map, int size) throws IOException, ClassNotFoundException {
+            for (int i = 0; i < size; i++) {
+                map.put(read(), read());
+            }
+            return map;
+        }
+
+        private int readSize() throws IOException {
+            int size = (int) readVarLong();
+            if (size < 0) {
+                throw new StreamCorruptedException("Negative size");
+            }
+            return size;
+        }
+
+        private static int capacity(int size) {
+            return Math.max(16, (int) (size / 0.75f) + 1);
+        }
+
+        private Class<?> readClass() throws IOException, ClassNotFoundException {
+            int index = (int) readVarLong();
+            if (index > 0) {
+                return classes.get(index - 1);
+            }
+            Class<?> type = Class.forName(readString(), false, JavaCacheSerializer.classLoader());
+            classes.add(type);
+            return type;
+        }
+
+        private String readString() throws IOException {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+
+        private byte[] readBytes() throws IOException {
+            byte[] bytes = new byte[readSize()];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        private long readVarLong() throws IOException {
+            long v = 0;
+            int shift = 0;
+            while (true) {
+                byte b = in.readByte();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+                shift += 7;
+                if (shift > 63) {
+                    throw new StreamCorruptedException("Malformed number");
+                }
+            }
+            return (v >>> 1) ^ -(v & 1);
+        }
+    }
+
+    /**
+     * Growable buffer, {@link java.io.DataOutputStream} without the synchronized stream below it
+     */
+    private static final class Output {
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void ensure(int n) {
+            if (size + n > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + n));
+            }
+        }
+
+        void writeByte(int v) {
+            ensure(1);
+            buffer[size++] = (byte) v;
+        }
+
+        void writeShort(int v) {
+            ensure(2);
+            buffer[size++] = (byte) (v >>> 8);
+            buffer[size++] = (byte) v;
+        }
+
+        void writeChar(int v) {
+            writeShort(v);
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeFloat(float v) {
+            writeInt(Float.floatToIntBits(v));
+        }
+
+        void writeDouble(double v) {
+            writeLong(Double.doubleToLongBits(v));
+        }
+
+        void write(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static final class Input {
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        private void require(int n) throws EOFException {
+            if (position + n > buffer.length) {
+                throw new EOFException("Truncated cached value");
+            }
+        }
+
+        byte readByte() throws EOFException {
+            require(1);
+            return buffer[position++];
+        }
+
+        short readShort() throws EOFException {
+            require(2);
+            return (short) (((buffer[position++] & 0xFF) << 8) | (buffer[position++] & 0xFF));
+        }
+
+        char readChar() throws EOFException {
+            return (char) readShort();
+        }
+
+        int readInt() throws EOFException {
+            require(4);
+            int v = 0;
+            for (int i = 0; i < 4; i++) {
+                v = (v << 8) | (buffer[position++] & 0xFF);
+            }
+            return v;
+        }
+
+        long readLong() throws EOFException {
+            require(8);
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (buffer[position++] & 0xFF);
+            }
+            return v;
+        }
+
+        float readFloat() throws EOFException {
+            return Float.intBitsToFloat(readInt());
+        }
+
+        double readDouble() throws EOFException {
+            return Double.longBitsToDouble(readLong());
+        }
+
+        void readFully(byte[] bytes) throws EOFException {
+            require(bytes.length);
+            System.arraycopy(buffer, position, bytes, 0, bytes.length);
+            position += bytes.length;
+        }
+    }
+
+    /**
+     * The fields of a model class, in a stable order, with a hash of their names and types
+     */
+    private static final class Layout {
+        private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+        private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+        final MethodHandle constructor;
+        final MethodHandle[] getters;
+        final MethodHandle[] setters;
+        final int hash;
+
+        private Layout(MethodHandle constructor, MethodHandle[] getters, MethodHandle[] setters, int hash) {
+            this.constructor = constructor;
+            this.getters = getters;
+            this.setters = setters;
+            this.hash = hash;
+        }
+
+        boolean supported() {
+            return constructor != null;
+        }
+
+        Object get(MethodHandle getter, Object model) throws IOException {
+            try {
+                return (Object) getter.invokeExact(model);
+            } catch (Throwable e) {
+                throw new IOException(e);
+            }
+        }
+
+        void set(MethodHandle setter, Object model, Object value) throws IOException {
+            try {
+                setter.invokeExact(model, value);
+            } catch (Throwable e) {
+                throw new InvalidClassException(model.getClass().getName(), "cannot set a field: " + e);
+            }
+        }
+
+        static Layout of(Class<?> type) {
+            if (!BaseTable.class.isAssignableFrom(type) || Modifier.isAbstract(type.getModifiers())) {
+                return new Layout(null, null, null, 0);
+            }
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+                MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class));
+                List<Field> fields = new ArrayList<>();
+                for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                    List<Field> declared = new ArrayList<>();
+                    for (Field field : c.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                            declared.add(field);
+                        }
+                    }
+                    declared.sort(Comparator.comparing(Field::getName));
+                    fields.addAll(0, declared);
+                }
+                MethodHandle[] getters = new MethodHandle[fields.size()];
+                MethodHandle[] setters = new MethodHandle[fields.size()];
+                StringBuilder signature = new StringBuilder(type.getName());
+                for (int i = 0; i < getters.length; i++) {
+                    Field field = fields.get(i);
+                    if (Modifier.isFinal(field.getModifiers())) {
+                        // Final fields can't be set back
+                        return new Layout(null, null, null, 0);
+                    }
+                    MethodHandles.Lookup fieldLookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+                    getters[i] = fieldLookup.unreflectGetter(field).asType(GETTER);
+                    setters[i] = fieldLookup.unreflectSetter(field).asType(SETTER);
+                    signature.append(';').append(field.getName()).append(':').append(field.getType().getName());
+                }
+                return new Layout(constructor.asType(MethodType.methodType(Object.class)), getters, setters, signature.toString().hashCode());
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return new Layout(null, null, null, 0);
+            }
+        }
+    }
+
+    /**
+     * The model class changed since the value was cached
+     */
+    private static final class StaleLayoutException extends IOException {
+        StaleLayoutException() {
+            super(null, null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package play.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Channel used by {@link NearCacheImpl} to tell the other nodes which keys they must drop from their local tier, and
+ * by the index of <code>@CacheMerdeka</code> to broadcast the generation of a model.
+ */
+public interface InvalidationBus {
+
+    void publish(String message);
+
+    /**
+     * @param listener
+     *            called with every message published by any node, this one included
+     * @param reset
+     *            called when messages may have been lost (reconnection)
+     */
+    void subscribe(Consumer<String> listener, Runnable reset);
+
+    void close();
+}
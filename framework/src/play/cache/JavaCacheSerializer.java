@@ -0,0 +1,51 @@
+package play.cache;
+
+import play.Play;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * Plain Java serialization, classes resolved with the application classloader
+ */
+public class JavaCacheSerializer implements CacheSerializer {
+
+    @Override
+    public byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(value);
+        }
+        return bos.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        return read(new ByteArrayInputStream(data));
+    }
+
+    static Object read(InputStream input) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(input) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader());
+                } catch (ClassNotFoundException e) {
+                    // Primitive types
+                    return super.resolveClass(desc);
+                }
+            }
+        }) {
+            return in.readObject();
+        }
+    }
+
+    static ClassLoader classLoader() {
+        return Play.classloader != null ? Play.classloader : JavaCacheSerializer.class.getClassLoader();
+    }
+}
@@ -55,14 +55,7 @@ public class MemcachedImpl implements CacheImpl {
             @Override
             protected Object deserialize(byte[] data) {
                 try {
-                    return new ObjectInputStream(new ByteArrayInputStream(data)) {
-
-                        @Override
-                        protected Class<?> resolveClass(ObjectStreamClass desc)
-                                throws ClassNotFoundException {
-                            return Class.forName(desc.getName(), false, Play.classloader);
-                        }
-                    }.readObject();
+                    return Cache.serializer().deserialize(data);
                 } catch (Exception e) {
                     Logger.error(e, "Could not deserialize");
                 }
@@ -72,10 +65,7 @@ public class MemcachedImpl implements CacheImpl {
             @Override
             protected byte[] serialize(Object object) {
                 try {
-                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                    new ObjectOutputStream(bos).writeObject(object);
-                    return bos.toByteArray();
-
+                    return Cache.serializer().serialize(object);
                 } catch (IOException e) {
                     Logger.error(e, "Could not serialize");
                 }
@@ -164,6 +154,18 @@ public class MemcachedImpl implements CacheImpl {
         return Collections.<String, Object>emptyMap();
     }
 
+    @Override
+    public void set(Map<String, Object> values, int expiration) {
+        // noreply commands are written back to back without waiting for each answer
+        try {
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                client.setWithNoReply(entry.getKey(), expiration, entry.getValue(), tc);
+            }
+        } catch (Exception e) {
+            Logger.error(e, "[MemcachedImpl] set - %s", e.getMessage());
+        }
+    }
+
     @Override
     public long incr(String key, int by) {
         try {
@@ -0,0 +1,284 @@
+package play.cache;
+
+import play.Logger;
+import play.Play;
+import play.libs.Time;
+import play.templates.JavaExtensions;
+import play.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two level cache: a bounded local tier ({@link CaffeineImpl}) in front of a shared cache (Redis).
+ * <p>
+ * Reads are served from the local tier when possible. Every write goes to the shared cache, and the key is dropped
+ * from the local tier of every node through an {@link InvalidationBus}. Values stay at most
+ * <code>redis.cache.near.ttl</code> in the local tier, which bounds how stale a node can be if a message is lost.
+ * <p>
+ * The local tier returns the same instance to every caller: cached values must not be modified.
+ */
+public class NearCacheImpl implements CacheImpl {
+
+    private static final char DELETE = 'D';
+    private static final char CLEAR = 'C';
+    /**
+     * Several keys, separated by a new line
+     */
+    private static final char DELETE_KEYS = 'K';
+
+    private static NearCacheImpl uniqueInstance;
+
+    final CacheImpl remote;
+    final CaffeineImpl local;
+    private final InvalidationBus bus;
+    private final int localTtl;
+    private final String nodeId = UUID.randomUUID().toString();
+    /**
+     * Bumped on each invalidation, a value read from the shared cache is not kept locally if it changed meanwhile
+     */
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder remoteGets = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    NearCacheImpl(CacheImpl remote, InvalidationBus bus, long localMaxMemory, int localTtl) {
+        this.remote = remote;
+        this.local = new CaffeineImpl(localMaxMemory);
+        this.bus = bus;
+        this.localTtl = localTtl;
+        bus.subscribe(this::onMessage, this::onReset);
+    }
+
+    static NearCacheImpl getInstance() throws Exception {
+        if (uniqueInstance == null) {
+            RedisCacheImpl redis = RedisCacheImpl.getInstance();
+            String channel = Play.configuration.getProperty("redis.cache.near.channel", "play-cache-invalidation");
+            long maxMemory = Utils.parseSize(Play.configuration.getProperty("redis.cache.near.maxMemory", "64MB"));
+            int ttl = Time.parseDuration(Play.configuration.getProperty("redis.cache.near.ttl", "30s"));
+            uniqueInstance = new NearCacheImpl(redis, new RedisInvalidationBus(redis.jedisPool, channel), maxMemory, ttl);
+            Logger.info("Redis near cache enabled (local tier %s, ttl %ss)", JavaExtensions.formatSize(maxMemory), ttl);
+        }
+        return uniqueInstance;
+    }
+
+    @Override
+    public void add(String key, Object value, int expiration) {
+        remote.add(key, value, expiration);
+        invalidate(key);
+    }
+
+    @Override
+    public boolean safeAdd(String key, Object value, int expiration) {
+        boolean added = remote.safeAdd(key, value, expiration);
+        invalidate(key);
+        return added;
+    }
+
+    @Override
+    public void set(String key, Object value, int expiration) {
+        remote.set(key, value, expiration);
+        invalidate(key);
+    }
+
+    @Override
+    public boolean safeSet(String key, Object value, int expiration) {
+        boolean set = remote.safeSet(key, value, expiration);
+        invalidate(key);
+        return set;
+    }
+
+    @Override
+    public void replace(String key, Object value, int expiration) {
+        remote.replace(key, value, expiration);
+        invalidate(key);
+    }
+
+    @Override
+    public boolean safeReplace(String key, Object value, int expiration) {
+        boolean replaced = remote.safeReplace(key, value, expiration);
+        invalidate(key);
+        return replaced;
+    }
+
+    @Override
+    public Object get(String key) {
+        Object value = local.get(key);
+        if (value != null) {
+            return value;
+        }
+        long before = generation.get();
+        remoteGets.increment();
+        RedisCacheImpl.Sized sized = remote instanceof RedisCacheImpl redis ? redis.getSized(key) : sized(remote.get(key));
+        if (sized == null) {
+            return null;
+        }
+        if (generation.get() == before) {
+            // weighed by the length read from the shared cache, never serialized again
+            local.set(key, sized.value(), localTtl, sized.size());
+        }
+        return sized.value();
+    }
+
+    /**
+     * A value read from a shared cache that does not give its size
+     */
+    private static RedisCacheImpl.Sized sized(Object value) {
+        return value == null ? null : new RedisCacheImpl.Sized(value, (int) CaffeineImpl.sizeOf(value));
+    }
+
+    @Override
+    public Map<String, Object> get(String[] keys) {
+        Map<String, Object> result = local.get(keys);
+        List<String> missing = new ArrayList<>();
+        result.forEach((key, value) -> {
+            if (value == null) {
+                missing.add(key);
+            }
+        });
+        if (missing.isEmpty()) {
+            return result;
+        }
+        long before = generation.get();
+        remoteGets.increment();
+        String[] remoteKeys = missing.toArray(new String[0]);
+        Map<String, RedisCacheImpl.Sized> values;
+        if (remote instanceof RedisCacheImpl redis) {
+            values = redis.getSized(remoteKeys);
+        } else {
+            values = new HashMap<>(remoteKeys.length);
+            remote.get(remoteKeys).forEach((key, value) -> values.put(key, sized(value)));
+        }
+        boolean keep = generation.get() == before;
+        values.forEach((key, sized) -> {
+            if (sized != null) {
+                result.put(key, sized.value());
+                if (keep) {
+                    local.set(key, sized.value(), localTtl, sized.size());
+                }
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void set(Map<String, Object> values, int expiration) {
+        if (values.isEmpty()) {
+            return;
+        }
+        remote.set(values, expiration);
+        generation.incrementAndGet();
+        StringBuilder message = new StringBuilder().append(DELETE_KEYS).append(nodeId);
+        for (String key : values.keySet()) {
+            local.delete(key);
+            message.append('\n').append(key);
+        }
+        publish(message.toString());
+    }
+
+    @Override
+    public long incr(String key, int by) {
+        long value = remote.incr(key, by);
+        invalidate(key);
+        return value;
+    }
+
+    @Override
+    public long decr(String key, int by) {
+        long value = remote.decr(key, by);
+        invalidate(key);
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        generation.incrementAndGet();
+        local.clear();
+        publish(CLEAR + nodeId);
+    }
+
+    @Override
+    public void delete(String key) {
+        remote.delete(key);
+        invalidate(key);
+    }
+
+    @Override
+    public boolean safeDelete(String key) {
+        boolean deleted = remote.safeDelete(key);
+        invalidate(key);
+        return deleted;
+    }
+
+    @Override
+    public void stop() {
+        bus.close();
+        local.stop();
+        remote.stop();
+    }
+
+    @Override
+    public Map<String, Object> getAll() {
+        return remote.getAll();
+    }
+
+    @Override
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>(local.stats());
+        stats.put("remoteGets", remoteGets.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private void invalidate(String key) {
+        generation.incrementAndGet();
+        local.delete(key);
+        publish(DELETE + nodeId + ' ' + key);
+    }
+
+    private void publish(String message) {
+        try {
+            bus.publish(message);
+        } catch (Exception e) {
+            Logger.error(e, "RedisCache - cannot publish invalidation : %s", e.getMessage());
+        }
+    }
+
+    private void onMessage(String message) {
+        if (message.charAt(0) == DELETE_KEYS) {
+            String[] parts = message.split("\n", -1);
+            if (parts[0].substring(1).equals(nodeId)) {
+                return;
+            }
+            invalidations.increment();
+            generation.incrementAndGet();
+            for (int i = 1; i < parts.length; i++) {
+                local.delete(parts[i]);
+            }
+            return;
+        }
+        int space = message.indexOf(' ');
+        String sender = message.substring(1, space < 0 ? message.length() : space);
+        if (sender.equals(nodeId)) {
+            return;
+        }
+        invalidations.increment();
+        generation.incrementAndGet();
+        if (message.charAt(0) == CLEAR) {
+            local.clear();
+        } else if (message.charAt(0) == DELETE && space > 0) {
+            local.delete(message.substring(space + 1));
+        }
+    }
+
+    private void onReset() {
+        generation.incrementAndGet();
+        local.clear();
+    }
+}
@@ -6,11 +6,13 @@ import play.Logger;
 import play.Play;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.exceptions.JedisDataException;
 
 import java.io.*;
 import java.net.URI;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -39,6 +41,19 @@ public class RedisCacheImpl implements CacheImpl {
         return uniqueInstance;
     }
 
+    /**
+     * The Redis connections behind a cache implementation, null if it doesn't use Redis
+     */
+    public static JedisPool pool(CacheImpl cacheImpl) {
+        if (cacheImpl instanceof RedisCacheImpl redis) {
+            return redis.jedisPool;
+        }
+        if (cacheImpl instanceof NearCacheImpl near) {
+            return pool(near.remote);
+        }
+        return null;
+    }
+
     @Override
     public void add(String key, Object value, int expiration) {
     	try(Jedis client = jedisPool.getResource()){
@@ -70,21 +85,11 @@ public class RedisCacheImpl implements CacheImpl {
     }
 
     private static byte[] toByteArray(Object o) {
-        ObjectOutputStream out = null;
         try {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream() ;
-            out = new ObjectOutputStream(bos) ;
-            out.writeObject(o);
-            return bos.toByteArray();
+            return Cache.serializer().serialize(o);
         } catch (IOException e) {
             Logger.error(e, e.getMessage());
             return null;
-        } finally {
-            try {
-                if (out != null) out.close();
-            } catch (IOException e2) {
-                throw new RuntimeException(e2);
-            }
         }
     }
 
@@ -120,11 +125,25 @@ public class RedisCacheImpl implements CacheImpl {
 
     @Override
     public Object get(String key) {
+        Sized sized = getSized(key);
+        return sized == null ? null : sized.value();
+    }
+
+    /**
+     * A cached value with the length of its serialized form
+     */
+    record Sized(Object value, int size) {
+    }
+
+    /**
+     * Same as {@link #get(String)}, with the size of the value
+     */
+    Sized getSized(String key) {
     	try(Jedis client = jedisPool.getResource()){
     		byte[] bytes = client.get(key.getBytes());
     		if (bytes == null) 
     			return null;
-    		return fromByteArray(bytes);
+    		return new Sized(fromByteArray(bytes), bytes.length);
     	}
     }
     
@@ -137,40 +156,71 @@ public class RedisCacheImpl implements CacheImpl {
     }
 
     private static Object fromByteArray(byte[] bytes) {
-        ObjectInputStream in = null;
         try {
-            in = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
-                @Override
-                protected Class<?> resolveClass(ObjectStreamClass desc)
-                        throws IOException, ClassNotFoundException {
-                    return Class.forName(desc.getName(), false, Play.classloader);
-                }
-            };
-            return in.readObject();
+            return Cache.serializer().deserialize(bytes);
         } catch (Exception e) {
             throw new RuntimeException(e);
-        } finally {
-            try {
-                if (in != null) in.close();
-            } catch (IOException e2) {
-                throw new RuntimeException(e2);
-            }
         }
     }
 
     @Override
     public Map<String, Object> get(String[] keys) {
         Map<String, Object> result = new HashMap<>(keys.length);
-        for (String key : keys) {
-            result.put(key, get(key));
+        getSized(keys).forEach((key, sized) -> result.put(key, sized == null ? null : sized.value()));
+        return result;
+    }
+
+    /**
+     * Same as {@link #get(String[])}, with the size of the values
+     */
+    Map<String, Sized> getSized(String[] keys) {
+        Map<String, Sized> result = new HashMap<>(keys.length);
+        if (keys.length == 0) {
+            return result;
+        }
+        byte[][] rawKeys = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            rawKeys[i] = keys[i].getBytes();
+        }
+        // MGET: one round-trip for all the keys
+        List<byte[]> values;
+        try(Jedis client = jedisPool.getResource()){
+            values = client.mget(rawKeys);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            byte[] bytes = values.get(i);
+            result.put(keys[i], bytes == null ? null : new Sized(fromByteArray(bytes), bytes.length));
         }
         return result;
     }
 
+    @Override
+    public void set(Map<String, Object> values, int expiration) {
+        if (values.isEmpty()) {
+            return;
+        }
+        try(Jedis client = jedisPool.getResource()){
+            Pipeline pipeline = client.pipelined();
+            values.forEach((key, value) -> {
+                byte[] bytes = toByteArray(value);
+                if (bytes == null) {
+                    return;
+                }
+                if (expiration > 0) {
+                    pipeline.setex(key.getBytes(), expiration, bytes);
+                } else {
+                    pipeline.set(key.getBytes(), bytes);
+                }
+            });
+            pipeline.sync();
+        }
+    }
+
     @Override
     public long incr(String key, int by) {
         try(Jedis client = jedisPool.getResource()){
-        	 Object cacheValue = client.get(key);
+        	 byte[] bytes = client.get(key.getBytes());
+        	 Object cacheValue = bytes == null ? null : fromByteArray(bytes);
              long sum = 0L;
         	if (cacheValue == null) {
     			Long newCacheValueLong = Long.valueOf((long) by);
@@ -194,7 +244,8 @@ public class RedisCacheImpl implements CacheImpl {
     @Override
     public long decr(String key, int by) {
         try(Jedis client = jedisPool.getResource()){
-        	 Object cacheValue = client.get(key);
+        	 byte[] bytes = client.get(key.getBytes());
+        	 Object cacheValue = bytes == null ? null : fromByteArray(bytes);
              long difference = 0L;
         	if (cacheValue == null) {
     			Long newCacheValueLong = Long.valueOf((long) -by);
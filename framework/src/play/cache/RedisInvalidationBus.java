@@ -0,0 +1,78 @@
+package play.cache;
+
+import play.Logger;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.function.Consumer;
+
+/**
+ * Invalidation messages sent over a Redis pub/sub channel. The subscription runs on its own thread and is opened again
+ * when the connection is lost.
+ */
+public class RedisInvalidationBus implements InvalidationBus {
+
+    private final JedisPool jedisPool;
+    private final String channel;
+    private volatile boolean closed;
+    private volatile JedisPubSub pubSub;
+    private Thread thread;
+
+    public RedisInvalidationBus(JedisPool jedisPool, String channel) {
+        this.jedisPool = jedisPool;
+        this.channel = channel;
+    }
+
+    @Override
+    public void publish(String message) {
+        try (Jedis client = jedisPool.getResource()) {
+            client.publish(channel, message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener, Runnable reset) {
+        thread = Thread.ofVirtual().name("cache-invalidation").start(() -> {
+            boolean first = true;
+            while (!closed) {
+                try (Jedis client = jedisPool.getResource()) {
+                    if (!first) {
+                        reset.run();
+                    }
+                    first = false;
+                    pubSub = new JedisPubSub() {
+                        @Override
+                        public void onMessage(String channel, String message) {
+                            listener.accept(message);
+                        }
+                    };
+                    client.subscribe(pubSub, channel);
+                } catch (Exception e) {
+                    if (closed) {
+                        return;
+                    }
+                    Logger.warn(e, "RedisCache - invalidation channel %s lost, reconnecting", channel);
+                    reset.run();
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        JedisPubSub current = pubSub;
+        if (current != null && current.isSubscribed()) {
+            current.unsubscribe();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
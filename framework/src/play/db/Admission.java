@@ -0,0 +1,200 @@
+package play.db;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import play.Logger;
+import play.exceptions.DatabaseException;
+import play.mvc.Http;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+
+/**
+ * Admission control in front of the pool of a datasource: a virtual thread per request costs nothing, so a spike would
+ * park thousands of them in the pool until they all time out together. The invocations wait their turn (first come,
+ * first served) for one of the connections of the pool, the queue has a maximum length, and the ones that do not fit
+ * or wait too long are answered right away with a 503 and a <code>Retry-After</code> header.
+ * <ul>
+ * <li><code>db.[name].admission</code>: enable it (default false)</li>
+ * <li><code>db.[name].admission.permits</code>: connections in use at the same time (default
+ * <code>db.pool.maxSize</code>)</li>
+ * <li><code>db.[name].admission.maxQueue</code>: invocations waiting for a connection (default 100)</li>
+ * <li><code>db.[name].admission.timeout</code>: longest wait in the queue, in milliseconds (default 5000)</li>
+ * <li><code>db.[name].admission.retryAfter</code>: the <code>Retry-After</code> of the rejected requests, in seconds
+ * (default 1)</li>
+ * </ul>
+ * The permit is held with the connection and given back when the connection is closed.
+ */
+public final class Admission {
+
+    private static final Gauge queueDepth = Gauge.build().name("db_admission_queue")
+            .help("Invocations waiting for a database connection.").labelNames("db").register();
+    private static final Summary waitTime = Summary.build().name("db_admission_wait_seconds")
+            .help("Time waited for the admission to a database.").labelNames("db", "action").register();
+    private static final Counter rejections = Counter.build().name("db_admission_rejected_total")
+            .help("Invocations rejected with a 503 by the admission to a database.").labelNames("db", "action").register();
+
+    /**
+     * The database is saturated: the request is answered with a 503, see <code>NettyInvocation</code>
+     */
+    public static class RejectedException extends DatabaseException {
+
+        private final int retryAfter;
+
+        public RejectedException(String message, int retryAfter) {
+            super(message);
+            this.retryAfter = retryAfter;
+        }
+
+        /**
+         * @return the delay before the client retries, in seconds
+         */
+        public int getRetryAfter() {
+            return retryAfter;
+        }
+
+        /**
+         * @return the rejection causing this error, or null
+         */
+        public static RejectedException find(Throwable e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof RejectedException rejected) {
+                    return rejected;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String getErrorTitle() {
+            return "Service unavailable";
+        }
+    }
+
+    final String name;
+    private final Semaphore permits;
+    private final int size;
+    private final int maxQueue;
+    private final long timeout;
+    private final int retryAfter;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    Admission(String name, int permits, int maxQueue, long timeout, int retryAfter) {
+        this.name = name;
+        this.size = permits;
+        this.permits = new Semaphore(permits, true);
+        this.maxQueue = maxQueue;
+        this.timeout = timeout;
+        this.retryAfter = retryAfter;
+        queueDepth.setChild(new Gauge.Child() {
+            @Override
+            public double get() {
+                return Admission.this.permits.getQueueLength();
+            }
+        }, name);
+    }
+
+    /**
+     * @return null when the admission control is off for this database
+     */
+    static Admission create(String name, Configuration dbConfig) {
+        if (!Boolean.parseBoolean(dbConfig.getProperty("db.admission", "false"))) {
+            return null;
+        }
+        return new Admission(name,
+                parseInt(dbConfig.getProperty("db.admission.permits", dbConfig.getProperty("db.pool.maxSize", "100"))),
+                parseInt(dbConfig.getProperty("db.admission.maxQueue", "100")),
+                parseLong(dbConfig.getProperty("db.admission.timeout", "5000")),
+                parseInt(dbConfig.getProperty("db.admission.retryAfter", "1")));
+    }
+
+    /**
+     * Wait for a permit, then take a connection of the pool. Closing the connection gives the permit back.
+     *
+     * @throws RejectedException
+     *             the queue is full, or the permit did not come in time
+     */
+    Connection getConnection(DataSource dataSource) throws SQLException {
+        Http.Request request = Http.Request.current();
+        String action = request != null && request.action != null ? request.action : "job";
+        try {
+            // tryAcquire() would take a free permit before the invocations already waiting
+            if (!permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                if (permits.getQueueLength() >= maxQueue) {
+                    throw reject(action, "queue full");
+                }
+                long start = System.nanoTime();
+                boolean acquired = permits.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+                waitTime.labels(name, action).observe((System.nanoTime() - start) / 1e9);
+                if (!acquired) {
+                    throw reject(action, "no connection within " + timeout + "ms");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject(action, "interrupted");
+        }
+        try {
+            Connection connection = dataSource.getConnection();
+            admitted.increment();
+            return release(connection);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private RejectedException reject(String action, String reason) {
+        rejected.increment();
+        rejections.labels(name, action).inc();
+        if (Logger.isDebugEnabled()) {
+            Logger.debug("Database %s rejects %s: %s", name, action, reason);
+        }
+        return new RejectedException("Database " + name + " is saturated (" + reason + ")", retryAfter);
+    }
+
+    /**
+     * The connection, giving its permit back once it is closed
+     */
+    private Connection release(Connection connection) {
+        AtomicBoolean closed = new AtomicBoolean();
+        InvocationHandler handler = (proxy, method, args) -> {
+            boolean close = method.getName().equals("close") && closed.compareAndSet(false, true);
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (close) {
+                    permits.release();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("permits", (long) size);
+        result.put("inUse", (long) (size - permits.availablePermits()));
+        result.put("queued", (long) permits.getQueueLength());
+        result.put("admitted", admitted.sum());
+        result.put("rejected", rejected.sum());
+        return result;
+    }
+}
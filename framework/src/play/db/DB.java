@@ -6,6 +6,8 @@ import play.Logger;
 import play.db.jdbc.BaseTable;
 import play.db.jdbc.BaseTableDao;
 import play.db.jpa.NoTransaction;
+import play.db.jpa.ReadOnly;
+import play.db.jpa.Transactional;
 import play.exceptions.DatabaseException;
 import play.libs.SupplierWithException;
 
@@ -20,6 +22,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -35,6 +38,27 @@ public class DB {
      */
     protected static final Map<String, ExtendedDatasource> datasources = new ConcurrentHashMap<>();
 
+    /**
+     * The read replicas of the datasources that declare some.
+     * @see Replicas
+     */
+    protected static final Map<String, Replicas> replicas = new ConcurrentHashMap<>();
+
+    /**
+     * The admission control of the datasources that enable it.
+     * @see Admission
+     */
+    protected static final Map<String, Admission> admissions = new ConcurrentHashMap<>();
+
+    /**
+     * The datasources whose reads borrow a connection per statement (<code>db.lazyConnection=true</code>).
+     * @see #borrowConnection(String, boolean)
+     */
+    protected static final Set<String> lazyConnections = ConcurrentHashMap.newKeySet();
+
+    /** the key of the replica connection of a database, among the connections of the current thread */
+    private static final String REPLICA = "@replica";
+
     public static class ExtendedDatasource {
 
         /**
@@ -66,6 +90,9 @@ public class DB {
 
     static final ThreadLocal<Map<String, Connection>> localConnection = new ThreadLocal<>();
 
+    /** time spent by the current invocation waiting for the pools, in nanoseconds */
+    private static final ThreadLocal<long[]> connectionWait = new ThreadLocal<>();
+
     public static DataSource getDataSource(String name) {
         ExtendedDatasource datasource = datasources.get(name);
         return datasource == null ? null : datasource.getDataSource();
@@ -75,6 +102,14 @@ public class DB {
         return getDataSource(DEFAULT);
     }
 
+    public static Replicas getReplicas(String name) {
+        return replicas.get(name);
+    }
+
+    public static Admission getAdmission(String name) {
+        return admissions.get(name);
+    }
+
     public static Connection getConnection(String name, boolean autocommit) {
         try {
             Connection connection = getDataSource(name).getConnection();
@@ -159,12 +194,18 @@ public class DB {
      */
     public static Connection getConnection(String name) {
         try {
+            if (!replicas.isEmpty() && isReadOnly(name)) {
+                Connection connection = getReplicaConnection(name);
+                if (connection != null) {
+                    return connection;
+                }
+            }
             Connection localConnection = getLocalConnection(name);
             if (localConnection != null) {
                 return localConnection;
             }
             // We have no connection
-            Connection connection = getDataSource(name).getConnection();
+            Connection connection = acquire(getDataSource(name), admissions.get(name));
             InvocationContext context = InvocationContext.current();
             if (context == null || context.getAnnotation(NoTransaction.class) == null) {
                 connection.setAutoCommit(false);
@@ -177,6 +218,8 @@ public class DB {
                 throw new DatabaseException("No database found. Check the configuration of your application.", e);
             }
             throw e;
+        } catch (Admission.RejectedException e) {
+            throw e;
         } catch (Exception e) {
             // Exception
             throw new DatabaseException(e.getMessage());
@@ -187,6 +230,126 @@ public class DB {
         return getConnection(DEFAULT);
     }
 
+    /**
+     * Open a read only connection on a replica for the current thread, or on the primary when there is no replica
+     * available. The replica connection is in autocommit, its reads do not see the pending writes of the primary
+     * connection.
+     *
+     * @return A valid SQL connection
+     */
+    public static Connection getReadConnection(String name) {
+        try {
+            Connection connection = getReplicaConnection(name);
+            return connection != null ? connection : getConnection(name);
+        } catch (SQLException e) {
+            throw new DatabaseException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A connection for a single read, for the datasources with <code>db.lazyConnection=true</code>: it is taken from
+     * the pool (a replica for {@link ReadOnly} actions) in autocommit, and the caller closes it right after the read,
+     * so that the invocation does not hold a connection while it renders or calls other services. The transaction of
+     * the invocation only starts with its first write, through {@link #getConnection(String)}.
+     *
+     * @param replica
+     *            read from a replica when one is available
+     * @return null when the read must use the connection of the invocation: the mode is off, or a connection (a
+     *         transaction) is already open
+     */
+    public static Connection borrowConnection(String name, boolean replica) {
+        if (!lazyConnections.contains(name)) {
+            return null;
+        }
+        try {
+            if (getLocalConnection(name) != null || getLocalConnection(name + REPLICA) != null) {
+                return null;
+            }
+            Replicas replicas = DB.replicas.get(name);
+            if (replicas != null && (replica || isReadOnly(name))) {
+                Connection connection = replicas.getConnection();
+                if (connection != null) {
+                    return connection;
+                }
+            }
+            Connection connection = acquire(getDataSource(name), admissions.get(name));
+            connection.setAutoCommit(true);
+            return connection;
+        } catch (NullPointerException e) {
+            if (getDataSource(name) == null) {
+                throw new DatabaseException("No database found. Check the configuration of your application.", e);
+            }
+            throw e;
+        } catch (SQLException e) {
+            throw new DatabaseException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Take a connection from a pool, the waiting time is added to the one of the invocation
+     *
+     * @param admission
+     *            the admission control of the datasource, or null
+     */
+    static Connection acquire(DataSource dataSource, Admission admission) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return admission != null ? admission.getConnection(dataSource) : dataSource.getConnection();
+        } finally {
+            long[] wait = connectionWait.get();
+            if (wait == null) {
+                connectionWait.set(wait = new long[1]);
+            }
+            wait[0] += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * The time the current invocation waited for connections, and start again from zero
+     *
+     * @return -1 when the invocation took no connection
+     */
+    public static long connectionWait() {
+        long[] wait = connectionWait.get();
+        if (wait == null) {
+            return -1;
+        }
+        connectionWait.remove();
+        return wait[0];
+    }
+
+    private static Connection getReplicaConnection(String name) throws SQLException {
+        Replicas replicas = DB.replicas.get(name);
+        if (replicas == null) {
+            return null;
+        }
+        Connection connection = getLocalConnection(name + REPLICA);
+        if (connection == null) {
+            connection = replicas.getConnection();
+            if (connection != null) {
+                registerLocalConnection(name + REPLICA, connection);
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * @return true when the current action is annotated with {@link ReadOnly} or
+     *         <code>@Transactional(readOnly = true)</code> for this database
+     */
+    private static boolean isReadOnly(String name) {
+        InvocationContext context = InvocationContext.current();
+        if (context == null) {
+            return false;
+        }
+        ReadOnly readOnly = context.getAnnotation(ReadOnly.class);
+        if (readOnly != null) {
+            return readOnly.value().equals(name);
+        }
+        Transactional transactional = context.getAnnotation(Transactional.class);
+        return transactional != null && transactional.readOnly() && transactional.value().equals(name);
+    }
+
     /**
      * Execute an SQL update
      * 
@@ -251,6 +414,11 @@ public class DB {
      * Destroy the datasource
      */
     public static void destroy(String name) {
+        admissions.remove(name);
+        Replicas replicas = DB.replicas.remove(name);
+        if (replicas != null) {
+            replicas.destroy();
+        }
         try {
             ExtendedDatasource extDatasource = datasources.get(name);
             if (extDatasource != null && extDatasource.getDestroyMethod() != null) {
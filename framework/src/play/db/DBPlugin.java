@@ -1,5 +1,6 @@
 package play.db;
 
+import io.prometheus.client.Summary;
 import org.apache.commons.lang3.StringUtils;
 import org.sql2o.converters.Convert;
 import org.sql2o.quirks.Quirks;
@@ -15,6 +16,7 @@ import play.db.jdbc.DefaultResultSetBuilder;
 import play.db.jdbc.JdbcEnhancer;
 import play.exceptions.DatabaseException;
 import play.libs.Crypto;
+import play.mvc.Http.Request;
 import play.mvc.Http.Response;
 import play.mvc.Scope;
 
@@ -34,6 +36,9 @@ public class DBPlugin extends PlayPlugin {
 
     public static String url = "";
 
+    private static final Summary connectionWait = Summary.build().name("db_connection_wait_seconds")
+            .help("Time an invocation waited for database connections.").labelNames("action").register();
+
     public final Pattern MYSQL_PATTERN = Pattern.compile("^mysql:(//)?((?<user>[a-zA-Z0-9_]+)(:(?<pwd>[^@]+))?@)?((?<host>[^/]+)/)?(?<name>[a-zA-Z0-9_]+)(\\?)?(?<parameters>[^\\s]+)?$");
     public final Pattern MARIADB_PATTERN = Pattern.compile("^maridb:(//)?((?<user>[a-zA-Z0-9_]+)(:(?<pwd>[^@]+))?@)?((?<host>[^/]+)/)?(?<name>[a-zA-Z0-9_]+)(\\?)?(?<parameters>[^\\s]+)?$");
     public final Pattern POSTGRES_PATTERN= Pattern.compile("^postgres:(//)?((?<user>[a-zA-Z0-9_]+)(:(?<pwd>[^@]+))?@)?((?<host>[^/]+)/)?(?<name>[^\\s]+)$");
@@ -54,6 +59,17 @@ public class DBPlugin extends PlayPlugin {
                 for (String name : dbNames) {
                 	dbName = name;
                     Configuration dbConfig = new Configuration(dbName);                    
+                    if (Boolean.parseBoolean(dbConfig.getProperty("db.lazyConnection", "false"))) {
+                        DB.lazyConnections.add(dbName);
+                    } else {
+                        DB.lazyConnections.remove(dbName);
+                    }
+                    Admission admission = Admission.create(dbName, dbConfig);
+                    if (admission != null) {
+                        DB.admissions.put(dbName, admission);
+                    } else {
+                        DB.admissions.remove(dbName);
+                    }
                     boolean isJndiDatasource = false;
                     String datasourceName = dbConfig.getProperty("db", "");
 
@@ -114,6 +130,10 @@ public class DBPlugin extends PlayPlugin {
                         url = testDataSource(ds);
                         Logger.info("Connected to %s for %s", url, dbName);
                         DB.datasources.put(dbName, extDs);
+                        Replicas replicas = Replicas.create(dbName, dbConfig, factory);
+                        if (replicas != null) {
+                            DB.replicas.put(dbName, replicas);
+                        }
                         // custome set for sql2o
                         Convert.registerEnumConverter(new DefaultEnumConverterFactory());
                         if(!DB.quirks.containsKey(dbName)) {
@@ -151,6 +171,11 @@ public class DBPlugin extends PlayPlugin {
     @Override
     public void invocationFinally() {
         DB.closeAll();
+        long wait = DB.connectionWait();
+        if (wait >= 0) {
+            Request request = Request.current();
+            connectionWait.labels(request != null && request.action != null ? request.action : "job").observe(wait / 1e9);
+        }
     }
     
     // Method ini pernah dihilangkan oleh AA tapi menyebabkan error
@@ -46,6 +46,7 @@ public class HikariDataSourceFactory implements DataSourceFactory {
 				ds.setConnectionTestQuery("/* ping */ SELECT 1");
 			}
 		}
+		statementCache(ds, dbConfig.getProperty("db.driver"), parseInt(dbConfig.getProperty("db.pool.statementCache.size", "0")));
 		ds.setMetricsTrackerFactory(new PrometheusMetricsTrackerFactory());
 		// This check is not required, but here to make it clear that nothing changes
 		// for people
@@ -56,6 +57,31 @@ public class HikariDataSourceFactory implements DataSourceFactory {
 		return ds;
 	}
 
+	/**
+	 * Hikari has no statement cache of its own and leaves it to the driver: enable the PreparedStatement cache of each
+	 * pooled connection, 0 keeps the driver defaults.
+	 */
+	static void statementCache(HikariConfig ds, String driverClass, int size) {
+		if (size <= 0 || driverClass == null) {
+			return;
+		}
+		switch (driverClass) {
+			case "com.mysql.cj.jdbc.Driver", "com.mysql.jdbc.Driver" -> {
+				ds.addDataSourceProperty("cachePrepStmts", "true");
+				ds.addDataSourceProperty("prepStmtCacheSize", String.valueOf(size));
+				ds.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+				ds.addDataSourceProperty("useServerPrepStmts", "true");
+			}
+			case "org.mariadb.jdbc.Driver" -> {
+				ds.addDataSourceProperty("cachePrepStmts", "true");
+				ds.addDataSourceProperty("prepStmtCacheSize", String.valueOf(size));
+				ds.addDataSourceProperty("useServerPrepStmts", "true");
+			}
+			case "org.postgresql.Driver" -> ds.addDataSourceProperty("preparedStatementCacheQueries", String.valueOf(size));
+			default -> Logger.warn("db.pool.statementCache.size is not supported by %s", driverClass);
+		}
+	}
+
 	@Override
 	public String getStatus() throws SQLException {
 		StringWriter sw = new StringWriter();
@@ -86,6 +112,16 @@ public class HikariDataSourceFactory implements DataSourceFactory {
 			out.println("<tr><td>Login timeout</td><td>"+datasource.getLoginTimeout()+"</td></tr>");	
 			out.println("<tr><td>Connection timeout</td><td>"+datasource.getConnectionTimeout()+"</td></tr>");	
 			out.println("<tr><td>Test query</td><td>"+datasource.getConnectionTestQuery()+"</td></tr>");	
+			Admission admission = DB.getAdmission(dbName);
+			if (admission != null) {
+				admission.stats().forEach((name, value) -> out.println("<tr><td>Admission "+name+"</td><td>"+value+"</td></tr>"));
+			}
+			Replicas replicas = DB.getReplicas(dbName);
+			if (replicas != null) {
+				for (Replicas.Replica replica : replicas.getReplicas()) {
+					out.println("<tr><td>Replica</td><td>"+replica.getUrl()+" ("+(replica.isHealthy() ? "up" : "down")+", lag "+replica.getLag()+"ms)</td></tr>");
+				}
+			}
 			out.println("</table></p>");
 		}
 		return sw.toString();
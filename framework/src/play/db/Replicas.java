@@ -0,0 +1,229 @@
+package play.db;
+
+import play.Logger;
+import play.libs.Time;
+
+import javax.sql.DataSource;
+import java.beans.PropertyVetoException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The read replicas of a database, used by the {@link play.db.jpa.ReadOnly} actions and the queries built with
+ * <code>QueryBuilder.usingReplica()</code>.
+ * <ul>
+ * <li><code>db.[name].replicas</code>: the JDBC urls of the replicas, separated by commas. The driver, the user, the
+ * password and the pool settings are the ones of the primary</li>
+ * <li><code>db.[name].replicas.user</code>, <code>db.[name].replicas.pass</code>: when the replicas use another
+ * account</li>
+ * <li><code>db.[name].replicas.maxLag</code>: a replica further behind the primary is skipped (default 10s)</li>
+ * <li><code>db.[name].replicas.checkInterval</code>: time between two health checks of a replica (default 5s)</li>
+ * <li><code>db.[name].replicas.lagQuery</code>: returns the lag in milliseconds, the default reads the replication
+ * status of PostgreSQL and MySQL/MariaDB. Other databases are only checked for a valid connection</li>
+ * </ul>
+ * The replicas are taken in turn. A replica that fails a check, or a connection, is skipped until its next successful
+ * check, and the primary is used when no replica is left.
+ */
+public final class Replicas {
+
+    private static final String POSTGRESQL_LAG = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END";
+    private static final String MYSQL_LAG = "SHOW SLAVE STATUS";
+
+    public static final class Replica {
+
+        final String url;
+        final DataSource dataSource;
+        volatile boolean healthy = true;
+        volatile long lag;
+        volatile long checkedAt;
+        private final AtomicBoolean checking = new AtomicBoolean();
+
+        Replica(String url, DataSource dataSource) {
+            this.url = url;
+            this.dataSource = dataSource;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        /**
+         * @return the replication lag in milliseconds, at the last check
+         */
+        public long getLag() {
+            return lag;
+        }
+    }
+
+    final String name;
+    final List<Replica> replicas;
+    private final long maxLag;
+    private final long checkInterval;
+    private final String lagQuery;
+    private final AtomicInteger next = new AtomicInteger();
+
+    Replicas(String name, List<Replica> replicas, long maxLag, long checkInterval, String lagQuery) {
+        this.name = name;
+        this.replicas = replicas;
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+        this.lagQuery = lagQuery;
+    }
+
+    /**
+     * @return null when no replica is declared for this database
+     */
+    static Replicas create(String name, Configuration dbConfig, DataSourceFactory factory) throws PropertyVetoException, SQLException {
+        String urls = dbConfig.getProperty("db.replicas");
+        if (urls == null || urls.isBlank()) {
+            return null;
+        }
+        List<Replica> replicas = new ArrayList<>();
+        // a JDBC url may hold commas itself (multiple hosts), split before each url only
+        for (String url : urls.trim().split("\\s*,\\s*(?=jdbc:)")) {
+            Configuration replicaConfig = new Configuration(name) {
+                @Override
+                public String getProperty(String key, String defaultString) {
+                    return switch (key) {
+                        case "db.url" -> url;
+                        case "db.user", "db.pass" -> super.getProperty("db.replicas." + key.substring(3), super.getProperty(key, defaultString));
+                        default -> super.getProperty(key, defaultString);
+                    };
+                }
+            };
+            replicas.add(new Replica(url, factory.createDataSource(replicaConfig)));
+        }
+        Replicas result = new Replicas(name, replicas,
+                Time.parseDuration(dbConfig.getProperty("db.replicas.maxLag", "10s")) * 1000L,
+                Time.parseDuration(dbConfig.getProperty("db.replicas.checkInterval", "5s")) * 1000L,
+                dbConfig.getProperty("db.replicas.lagQuery"));
+        for (Replica replica : replicas) {
+            result.check(replica);
+            Logger.info("Replica %s for %s: %s", replica.url, name, replica.healthy ? "up" : "down");
+        }
+        return result;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * The next replica in turn that passed its last check and is close enough to the primary. The stale checks are
+     * run in the background, the caller never waits for them.
+     *
+     * @return null when the primary must be used
+     */
+    Replica pick() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (System.currentTimeMillis() - replica.checkedAt > checkInterval && replica.checking.compareAndSet(false, true)) {
+                Thread.ofVirtual().name("db-replica-check").start(() -> check(replica));
+            }
+            if (replica.healthy && replica.lag <= maxLag) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Open a read only connection, in autocommit: there is nothing to commit or roll back on a replica.
+     *
+     * @return null when no replica can be used
+     */
+    Connection getConnection() {
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = pick();
+            if (replica == null) {
+                return null;
+            }
+            try {
+                Connection connection = DB.acquire(replica.dataSource, null);
+                connection.setAutoCommit(true);
+                connection.setReadOnly(true);
+                return connection;
+            } catch (SQLException e) {
+                replica.healthy = false;
+                Logger.warn("Replica %s for %s is down: %s", replica.url, name, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    void check(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection()) {
+            String query = lagQuery != null ? lagQuery : defaultLagQuery(connection.getMetaData().getDatabaseProductName());
+            replica.lag = query == null ? 0 : lag(connection, query);
+            boolean healthy = connection.isValid(5);
+            if (healthy != replica.healthy) {
+                Logger.info("Replica %s for %s is %s", replica.url, name, healthy ? "up" : "down");
+            }
+            replica.healthy = healthy;
+        } catch (SQLException e) {
+            if (replica.healthy) {
+                Logger.warn("Replica %s for %s is down: %s", replica.url, name, e.getMessage());
+            }
+            replica.healthy = false;
+        } finally {
+            replica.checkedAt = System.currentTimeMillis();
+            replica.checking.set(false);
+        }
+    }
+
+    static String defaultLagQuery(String productName) {
+        String product = productName == null ? "" : productName.toLowerCase(Locale.ROOT);
+        if (product.contains("postgres")) {
+            return POSTGRESQL_LAG;
+        }
+        if (product.contains("mysql") || product.contains("mariadb")) {
+            return MYSQL_LAG;
+        }
+        return null;
+    }
+
+    private static long lag(Connection connection, String query) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(query)) {
+            if (!rs.next()) {
+                // not a replica (SHOW SLAVE STATUS is empty), it cannot be late
+                return 0;
+            }
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if ("Seconds_Behind_Master".equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                    long seconds = rs.getLong(i);
+                    // null when the replication is stopped
+                    return rs.wasNull() ? Long.MAX_VALUE : seconds * 1000;
+                }
+            }
+            return rs.getLong(1);
+        }
+    }
+
+    void destroy() {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    Logger.error(e, "Couldn't destroy the replica %s", replica.url);
+                }
+            }
+        }
+    }
+}
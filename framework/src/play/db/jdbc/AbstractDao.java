@@ -182,8 +182,8 @@ public class AbstractDao<T extends GenericModel> implements Dao<T> {
     }
 
     public T findById(Object id) {
-        return QueryBuilder.create(SQL_SELECT_ID).createQuery()
-                .setParameter(primaryKeyNames.get(0), id).executeAndFetchFirst(clazz);
+        return QueryBuilder.create(SQL_SELECT_ID)
+                .read(q -> q.setParameter(primaryKeyNames.get(0), id).executeAndFetchFirst(clazz));
     }
 
     public List<T> findAll() {
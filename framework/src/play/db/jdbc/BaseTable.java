@@ -7,6 +7,8 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 import play.Logger;
 import play.Play;
 import play.cache.Cache;
+import play.cache.CacheImpl;
+import play.libs.Time;
 import play.mvc.Scope;
 
 import java.io.Serializable;
@@ -30,15 +32,42 @@ public abstract class BaseTable implements Serializable {
 		return getClass();
 	}//menyimpan informasi tentang class yg extend
 
-	private static String getKeyOfModel(Class<? extends BaseTable> clz)
+	private static volatile CacheMerdekaIndex cacheIndex;
+	private static volatile CacheImpl cacheIndexImpl;
+
+	/**Index dari key Cache @CacheMerdeka, dibuat ulang jika implementasi Cache berganti (Cache.init)
+	 */
+	static CacheMerdekaIndex cacheIndex()
+	{
+		CacheImpl impl=Cache.cacheImpl;
+		CacheMerdekaIndex index=cacheIndex;
+		if(index==null || cacheIndexImpl!=impl)
+		{
+			synchronized (BaseTable.class)
+			{
+				if(cacheIndex==null || cacheIndexImpl!=impl)
+				{
+					if(cacheIndex!=null)
+						cacheIndex.close();
+					cacheIndex=CacheMerdekaIndex.create(impl);
+					cacheIndexImpl=impl;
+				}
+				index=cacheIndex;
+			}
+		}
+		return index;
+	}
+
+	private static String getKey(Class<? extends BaseTable> clz, long generation, String methodName, Object id)
 	{
-		return CacheMerdeka.class.getName() +  "$" + clz.getName();
+		return clz.getName() + "@" + generation + "." + methodName + "#" + id;
 	}
 
 	protected String[] pk() { // kolom primary key
 		return  null;
 	}
 	/**Menambahkan instance dari BaseTable atau List<BaseTable> ke Cache
+	 * Key dicatat di CacheMerdekaIndex untuk id tsb, id null dipakai untuk hasil yang mencakup banyak instance (findAll)
 	 */
 	protected static void addToCache(Class<? extends BaseTable> clz, String methodName, Object id, Object value, String expiration)
 	{
@@ -46,81 +75,90 @@ public abstract class BaseTable implements Serializable {
 		if(disableCacheMerdeka)
 			return;
 
-		String key=String.format("%s.%s#%s", clz.getName(), methodName, id);
+		CacheMerdekaIndex index=cacheIndex();
+		long generation=index.generation(clz.getName());
+		String key=getKey(clz, generation, methodName, id);
 		Cache.set(key, value, expiration);
+		index.track(clz.getName(), generation, Collections.singletonMap(id, key), Time.parseDuration(expiration));
+	}
 
-		@SuppressWarnings("unchecked")
-		/*cacheTracker menyimpan key-key dari model yg di-cache.
-		 *caheTraker's key adalah parameter id. Artinya untuk id tertentu bisa ada beberapa
-		 *cache karena berbeda methodName
-		 *
-		 */
-				Map<Object, Set<String>> cacheTracker=(Map<Object, Set<String>>) Cache.get(getKeyOfModel(clz));
-		Set<String> listOfCacheKey;
-		if(cacheTracker==null)
-		{
-			cacheTracker=new HashMap<>();
-			listOfCacheKey= new HashSet<>();
-			cacheTracker.put(id,listOfCacheKey);
-			Cache.set(getKeyOfModel(clz), cacheTracker, "12h");
-		}
-		else
-		{
-			listOfCacheKey=cacheTracker.get(id);
-			if(listOfCacheKey==null)
-				listOfCacheKey= new HashSet<>();
-			cacheTracker.put(id,listOfCacheKey);
-		}
-		listOfCacheKey.add(key);
+	/**Menambahkan banyak instance sekaligus ke Cache, dikirim dalam satu batch (lihat Cache.putAll)
+	 * @param values map id ke instance
+	 */
+	protected static void addAllToCache(Class<? extends BaseTable> clz, String methodName, Map<?, ?> values, String expiration)
+	{
+		if(disableCacheMerdeka || values.isEmpty())
+			return;
+
+		CacheMerdekaIndex index=cacheIndex();
+		long generation=index.generation(clz.getName());
+		Map<String, Object> entries=new HashMap<>(values.size());
+		Map<Object, String> keys=new HashMap<>(values.size());
+		values.forEach((id, value) -> {
+			String key=getKey(clz, generation, methodName, id);
+			entries.put(key, value);
+			keys.put(id, key);
+		});
+		Cache.putAll(entries, expiration);
+		index.track(clz.getName(), generation, keys, Time.parseDuration(expiration));
 	}
 
 	protected static Object getFromCache(Class<? extends BaseTable> clz, String methodName, Object id)
 	{
-		String key=String.format("%s.%s#%s", clz.getName(), methodName, id);
-		return Cache.get(key);
+		return Cache.get(getKey(clz, cacheIndex().generation(clz.getName()), methodName, id));
+	}
+
+	/**Mengambil banyak instance sekaligus dari Cache (satu round-trip, lihat Cache.get(String...))
+	 * @return map id ke instance, hanya yang ada di Cache
+	 */
+	protected static Map<Object, Object> getAllFromCache(Class<? extends BaseTable> clz, String methodName, Collection<?> ids)
+	{
+		Map<Object, Object> result=new HashMap<>(ids.size());
+		if(ids.isEmpty())
+			return result;
+		long generation=cacheIndex().generation(clz.getName());
+		String[] keys=new String[ids.size()];
+		Object[] idArray=ids.toArray();
+		for(int i=0; i<idArray.length; i++)
+			keys[i]=getKey(clz, generation, methodName, idArray[i]);
+		Map<String, Object> values=Cache.get(keys);
+		if(values==null)
+			return result;
+		for(int i=0; i<idArray.length; i++)
+		{
+			Object value=values.get(keys[i]);
+			if(value!=null)
+				result.put(idArray[i], value);
+		}
+		return result;
 	}
 
 	/**Remove Cache with specific ID for a class.
 	 * Ini dipanggil pada
 	 * 1. save();
 	 * 2. delete();
+	 * Cache yang mencakup banyak instance (id null, mis. findAll) ikut dihapus.
 	 * @param clz
-	 * @param id, if null means remove all ID for a Class
+	 * @param id nilai primary key dari instance
 	 */
-	protected static  void removeCacheAfterSaveOrDelete(Class<? extends BaseTable> clz, Object id)
+	protected static void removeCacheAfterSaveOrDelete(Class<? extends BaseTable> clz, Object id)
 	{
-		//Jika ada Object yg di-save maka remove semua Cache Value yg terkait dengan  id ini
-		@SuppressWarnings("unchecked")
-		Map<Object, Set<String>> cacheTracker=(Map<Object, Set<String>>) Cache.get(getKeyOfModel(clz));
-		if(cacheTracker!=null)
-		{
-			Set<String>  listOfCacheKey=cacheTracker.get(id);
-			if(listOfCacheKey!=null)
-				for(String cacheKey: listOfCacheKey)
-					Cache.safeDelete(cacheKey);
-			cacheTracker.remove(id);
-		}
+		CacheMerdekaIndex index=cacheIndex();
+		for(String cacheKey: index.remove(clz.getName(), id))
+			Cache.safeDelete(cacheKey);
+		if(id!=null)
+			for(String cacheKey: index.remove(clz.getName(), null))
+				Cache.safeDelete(cacheKey);
 	}
 
 	/**Remove all instances of clz in Cache
-	 * DIpanggil oleh static method BaseTable.delete() dan variannya
+	 * DIpanggil oleh static method BaseTable.delete() dan variannya.
+	 * Cukup menaikkan generation dari clz, key lama tidak dibaca lagi dan expired sendiri.
 	 * @param clz
 	 */
 	public static void clearCacheOfClass(Class<? extends BaseTable> clz)
 	{
-		@SuppressWarnings("unchecked")
-		//dapatkan cacheTracker dari clz
-		Map<Object, Set<String>> cacheTracker=(Map<Object, Set<String>>) Cache.get(getKeyOfModel(clz));
-		if(cacheTracker!=null)
-		{
-			//untuk setiap value di cacheTracker, lakukan penghapusan
-			for(Set<String>  listOfCacheKey:cacheTracker.values())
-			{
-				for(String cacheKey: listOfCacheKey)
-					Cache.safeDelete(cacheKey);
-			}
-			Cache.safeDelete(getKeyOfModel(clz));
-		}
+		cacheIndex().clear(clz.getName());
 	}
 
 	/**Digunakan untuk clear Cache atas semua instance dari Model ini.
@@ -172,6 +210,16 @@ public abstract class BaseTable implements Serializable {
 		throw new UnsupportedOperationException(EXCEPTION);
 	}
 
+	/**findByIds: banyak object sekaligus, urut sesuai ids, id yang tidak ditemukan dilewati.
+	 * Jika memakai @CacheMerdeka, semua id diambil dari Cache dalam satu round-trip dan sisanya dengan satu query IN (...).
+	 * Tidak diijinkan jika PK lebih dari 1 kolom.
+	 * @param ids
+	 * @return
+	 */
+	public static <T extends BaseTable> List<T> findByIds(Collection<?> ids) {
+		throw new UnsupportedOperationException(EXCEPTION);
+	}
+
 	public void delete() {
 		throw new UnsupportedOperationException(EXCEPTION);
 	}
@@ -403,7 +451,7 @@ public abstract class BaseTable implements Serializable {
 
 	public String getNonPrimaryKeys()
 	{
-		return null;
+		return TableMeta.of(getClass()).nonPrimaryKeys;
 	}
 
 	@Override
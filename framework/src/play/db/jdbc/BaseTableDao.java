@@ -2,23 +2,23 @@ package play.db.jdbc;
 
 import org.apache.commons.lang3.StringUtils;
 import play.Logger;
-import play.db.DB;
 import play.utils.Utils;
 
-import javax.persistence.MappedSuperclass;
-import javax.persistence.PersistenceUnit;
-import javax.persistence.Transient;
-import java.io.Serializable;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 public class BaseTableDao<T extends BaseTable> {
 
     private final Class<T> clazz;
+    private final TableMeta meta;
     private final String table;
     private final String dbname;
     private final String nextSequenceFunction;
@@ -34,6 +34,11 @@ public class BaseTableDao<T extends BaseTable> {
     private final String duration;
     private final boolean useCacheMerdeka;
     private final String[] generatedKey;
+    volatile BulkUpsert.Dialect dialect;
+    /**
+     * Jumlah maksimum id dalam satu IN (...) findByIds, beberapa DB membatasi panjang list
+     */
+    private static final int FIND_BY_IDS_BATCH = 500;
 
     public static <T extends BaseTable> BaseTableDao getInstance(Class<T> clazz) {
         return new BaseTableDao(clazz);
@@ -41,110 +46,23 @@ public class BaseTableDao<T extends BaseTable> {
 
     BaseTableDao(Class<T> clazz) {
         this.clazz = clazz;
-        Table tableAnn =(Table)clazz.getAnnotation(Table.class);
-        String table = tableAnn.name();
-        String dbname = DB.DEFAULT;
-        PersistenceUnit pu = (PersistenceUnit)clazz.getAnnotation(PersistenceUnit.class);
-        if (pu != null) {
-            dbname = pu.name();
-        }
-        this.dbname = dbname;
-        //apakah ada anotasi @CacheMerdeka
-        String duration=null;
-        boolean useCacheMerdeka=false;
-        if(clazz.getAnnotation(CacheMerdeka.class) != null)
-        {
-            useCacheMerdeka=true;
-            CacheMerdeka cache= clazz.getAnnotation(CacheMerdeka.class);
-            duration=cache.duration();
-            //class ini harus implement Serializable
-            if(!Serializable.class.isAssignableFrom(clazz)){
-                throw new RuntimeException("class implement serializable");
-            }
-        }
-        this.useCacheMerdeka = useCacheMerdeka;
-        this.duration = duration;
-        if(Utils.isEmpty(table)) {
-            String[] arrayTable = StringUtils.split(clazz.getName(), ".");
-            if(arrayTable.length > 1)
-                table=arrayTable[arrayTable.length - 1];// ambil nama class tanpa nama packagenya
-            else
-                table = clazz.getName();
-        }
-        if(!Utils.isEmpty(tableAnn.schema()))
-            table = tableAnn.schema()+"."+table;
-        this.table = table.toLowerCase(); //  nama table di set lower case agar membedakan dengan syntak SQL
-        StringBuilder strField=new StringBuilder();
-        StringBuilder strInsert=new StringBuilder();
-        StringBuilder strFieldAuto = new StringBuilder();
-        StringBuilder strInsertAuto = new StringBuilder();
-        StringBuilder strUpdate=new StringBuilder();
-        StringBuilder strWhere=new StringBuilder();
-        List<Field> listField = new ArrayList<>(Arrays.asList(clazz.getDeclaredFields()));
-        if(clazz.getSuperclass() != null && clazz.getSuperclass().getAnnotation(MappedSuperclass.class) != null) {
-            listField.addAll(Arrays.asList(clazz.getSuperclass().getDeclaredFields()));
-        }
-        List<Field> primaryKey = new ArrayList<>();
-        this.primaryKeyNames=new ArrayList();
-        String nextSequenceFunction = null;
-        String[] generatedKey = null;
-        for (Field field : listField) {
-            //tambahkan kecuali yang transient atau static modifier (10)
-            if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()) || field.getAnnotation(Transient.class) != null)
-                continue;
-            //Check apakah ini PrimaryKey
-            append(strField, field.getName(), ",");
-            append(strInsert, ":"+field.getName(), ",");
-            if (field.getAnnotation(Id.class) != null) {
-                if (field.getType().isPrimitive())
-                    Logger.error("PrimaryKey column should not be primitive, class: %s, field: %s", clazz.getName(), field.getName());
-                primaryKey.add(field);
-                primaryKeyNames.add(field.getName());
-
-                Id ann = (Id) field.getAnnotation(Id.class);
-                if (!ann.sequence().isEmpty()) { // jika memakai sequence , definisikan pakai function sequence ny
-                    String sequenceName = !Utils.isEmpty(ann.schema()) ?ann.schema()+"."+ann.sequence() : ann.sequence();
-                    nextSequenceFunction = ann.function() + "('"+sequenceName+"')";
-                }
-                if(ann.generated())
-                    generatedKey = new String[]{field.getName()};
-                append(strWhere, field.getName()+"=:"+field.getName(), " AND ");
-            } else {
-                append(strUpdate, field.getName()+"=:"+field.getName(), ",");
-                append(strFieldAuto, field.getName(), ",");
-                append(strInsertAuto, ":"+field.getName(), ",");
-            }
-            if (field.getAnnotation(JsonType.class) != null) {
-                strInsert.append("::JSON");
-                strUpdate.append("::JSON");
-            }
-            if (field.getAnnotation(JsonBinaryType.class) != null) {
-                strInsert.append("::JSONB");
-                strUpdate.append("::JSONB");
-            }
-        }
-        String id_count = "*";
-        if(primaryKey.isEmpty()) {
-            Logger.error("Error in class: " + clazz.getName() + " No @play.db.jdbc.Id column was specified");
-        } else {
-            id_count = primaryKey.get(0).getName();
-        }
-        this.nextSequenceFunction = nextSequenceFunction;
-        this.generatedKey = generatedKey;
-        SQL_SELECT = "SELECT "+strField+" FROM "+table;
-        SQL_SELECT_ID = "SELECT "+strField+" FROM "+table+" WHERE "+strWhere;
-        SQL_DELETE_ID = "DELETE FROM "+table+" WHERE "+strWhere;
-        SQL_DELETE = "DELETE FROM "+table;
-        SQL_COUNT_ID = "SELECT COUNT("+id_count+") FROM "+table;
-        SQL_INSERT = "INSERT INTO "+table+"("+strField+") VALUES ("+strInsert+")";
-        SQL_UPDATE = "UPDATE "+table+" SET "+strUpdate+" WHERE "+strWhere;
-        SQL_INSERT_AUTO = "INSERT INTO "+table+"("+strFieldAuto+") VALUES ("+strInsertAuto+")";
-    }
-
-    private void append(StringBuilder sql, String commandAdd, String separator) {
-        if(sql.length() > 0)
-            sql.append(separator);
-        sql.append(commandAdd);
+        TableMeta meta = TableMeta.of(clazz);
+        this.meta = meta;
+        this.table = meta.table;
+        this.dbname = meta.dbname;
+        this.useCacheMerdeka = meta.useCacheMerdeka;
+        this.duration = meta.duration;
+        this.primaryKeyNames = meta.primaryKeyNames;
+        this.nextSequenceFunction = meta.nextSequenceFunction;
+        this.generatedKey = meta.generatedKey;
+        SQL_SELECT = meta.sqlSelect;
+        SQL_SELECT_ID = meta.sqlSelectId;
+        SQL_DELETE_ID = meta.sqlDeleteId;
+        SQL_DELETE = meta.sqlDelete;
+        SQL_COUNT_ID = meta.sqlCountId;
+        SQL_INSERT = meta.sqlInsert;
+        SQL_UPDATE = meta.sqlUpdate;
+        SQL_INSERT_AUTO = meta.sqlInsertAuto;
     }
 
     public String getTableName(){
@@ -156,7 +74,11 @@ public class BaseTableDao<T extends BaseTable> {
     }
 
     public String getPrimaryKeys(){
-        return StringUtils.join(primaryKeyNames, ',');
+        return meta.primaryKeys;
+    }
+
+    public String getNonPrimaryKeys(){
+        return meta.nonPrimaryKeys;
     }
 
     public long count() {
@@ -182,12 +104,56 @@ public class BaseTableDao<T extends BaseTable> {
         if(useCacheMerdeka) {
             T obj = (T)BaseTable.getFromCache(clazz, "findById()", id);
             if(obj == null){
-                obj = QueryBuilder.create(SQL_SELECT_ID).createQuery().setParameter(primaryKeyNames.get(0), id).executeAndFetchFirst(clazz);
+                obj = QueryBuilder.create(SQL_SELECT_ID).read(q -> q.setParameter(primaryKeyNames.get(0), id).executeAndFetchFirst(clazz));
                 BaseTable.addToCache(clazz, "findById()", id, obj, duration);
             }
             return obj;
         }
-        return QueryBuilder.create(SQL_SELECT_ID).createQuery().setParameter(primaryKeyNames.get(0), id).executeAndFetchFirst(clazz);
+        return QueryBuilder.create(SQL_SELECT_ID).read(q -> q.setParameter(primaryKeyNames.get(0), id).executeAndFetchFirst(clazz));
+    }
+
+    public List<T> findByIds(Collection<?> ids) {
+        List<T> result = new ArrayList<>();
+        if(Utils.isEmpty(ids))
+            return result;
+        if(primaryKeyNames.size() != 1)
+            throw new UnsupportedOperationException("findByIds requires a single primary key column, class: " + clazz.getName());
+        // id dari parameter dan dari DB bisa berbeda tipe (Integer/Long), dicocokkan lewat String-nya seperti key Cache
+        Map<String, T> found = new HashMap<>(ids.size());
+        Set<Object> missing = new LinkedHashSet<>(ids);
+        if(useCacheMerdeka) {
+            Map<Object, Object> cached = BaseTable.getAllFromCache(clazz, "findById()", missing);
+            cached.forEach((id, obj) -> found.put(String.valueOf(id), (T) obj));
+            missing.removeAll(cached.keySet());
+        }
+        if(!missing.isEmpty()) {
+            TableMeta.Column column = meta.primaryKey[0];
+            Map<Object, T> loaded = new HashMap<>(missing.size());
+            List<Object> params = new ArrayList<>(missing);
+            for (int from = 0; from < params.size(); from += FIND_BY_IDS_BATCH) {
+                List<Object> batch = params.subList(from, Math.min(from + FIND_BY_IDS_BATCH, params.size()));
+                String sql = SQL_SELECT + " WHERE " + primaryKeyNames.get(0) + " IN (" + StringUtils.repeat("?", ",", batch.size()) + ")";
+                for (T obj : Query.findList(QueryBuilder.create(sql, batch.toArray()).using(dbname), clazz)) {
+                    found.put(String.valueOf(column.get(obj)), obj);
+                }
+            }
+            if(useCacheMerdeka) {
+                for (Object id : missing) {
+                    T obj = found.get(String.valueOf(id));
+                    if(obj != null)
+                        loaded.put(id, obj);
+                }
+                BaseTable.addAllToCache(clazz, "findById()", loaded, duration);
+            }
+        }
+        // satu kali per id, walaupun diberikan sebagai Integer dan Long
+        Set<String> added = new HashSet<>(ids.size());
+        for (Object id : ids) {
+            T obj = found.get(String.valueOf(id));
+            if(obj != null && added.add(String.valueOf(id)))
+                result.add(obj);
+        }
+        return result;
     }
 
     public List<T> findAll() {
@@ -226,7 +192,7 @@ public class BaseTableDao<T extends BaseTable> {
 
     public void delete(T obj) {
         obj.preDelete();
-        BaseTable.removeCacheAfterSaveOrDelete(clazz, primaryKeyNames.get(0));
+        removeCache(obj);
         Query.bindUpdate(QueryBuilder.create(SQL_DELETE_ID).using(dbname), obj);
     }
 
@@ -248,11 +214,23 @@ public class BaseTableDao<T extends BaseTable> {
     }
 
     public void clearCache() {
-        BaseTable.clearCacheOfClass(clazz);
+        if(useCacheMerdeka)
+            BaseTable.clearCacheOfClass(clazz);
+    }
+
+    // hapus Cache yang terkait dengan id dari obj, jika PK lebih dari 1 kolom semua Cache dari class ini
+    private void removeCache(T obj) {
+        if(!useCacheMerdeka)
+            return;
+        if(primaryKeyNames.size() != 1) {
+            BaseTable.clearCacheOfClass(clazz);
+            return;
+        }
+        BaseTable.removeCacheAfterSaveOrDelete(clazz, meta.primaryKey[0].get(obj));
     }
 
     private boolean isObjectExisit(T obj) {
-        return QueryBuilder.create(SQL_SELECT_ID).createQuery().bind(obj).executeAndFetchFirst(clazz) != null;
+        return QueryBuilder.create(SQL_SELECT_ID).read(q -> q.bind(obj).executeAndFetchFirst(clazz)) != null;
     }
 
     public void save(T obj) {
@@ -262,15 +240,13 @@ public class BaseTableDao<T extends BaseTable> {
             String query = SQL_INSERT;
             obj.prePersist();
             boolean insert = false;
-            for (String o : primaryKeyNames) {
-                Field field = clazz.getField(o);
-                field.setAccessible(true);
-                Object objpk = field.get(obj);
+            for (TableMeta.Column column : meta.primaryKey) {
+                Object objpk = column.get(obj);
                 if (Objects.isNull(objpk)) {
                     insert = true;
                     if (!Utils.isEmpty(nextSequenceFunction)) {
-                        Object key = Query.findObject("SELECT " + nextSequenceFunction, field.getType());
-                        field.set(obj, key);
+                        Object key = Query.findObject("SELECT " + nextSequenceFunction, column.type);
+                        column.set(obj, key);
                     } else if(Objects.isNull(objpk) && !Utils.isEmpty(generatedKey)) {
                         query = SQL_INSERT_AUTO;
                     }
@@ -282,19 +258,16 @@ public class BaseTableDao<T extends BaseTable> {
             Query q = insert ? QueryBuilder.create(query).createQuery(generatedKey) : QueryBuilder.create(SQL_UPDATE).createQuery();
             q.bind(obj).executeUpdate();
             if(!Utils.isEmpty(generatedKey)) {
-                for (String o : generatedKey) {
-                    Field field = clazz.getField(o);
-                    Object key = q.getKey(field.getType());
-                    Object objfield = field.get(obj);
+                for (TableMeta.Column column : meta.generatedKeyColumns) {
+                    Object key = q.getKey(column.type);
+                    Object objfield = column.get(obj);
                     if (Objects.isNull(objfield) && key != null) {
-                        field.set(obj, key);
+                        column.set(obj, key);
                     }
                 }
             }
             obj.postPersist();
-            if(primaryKeyNames.size() == 1){//tambahkan statement untuk clear cache, khusus jika PK ada 1 kolom
-                BaseTable.removeCacheAfterSaveOrDelete(obj.getClass(), primaryKeyNames.get(0));
-            }
+            removeCache(obj);
         }catch(Exception e){
             throw new RuntimeException(e);
         }
@@ -307,14 +280,12 @@ public class BaseTableDao<T extends BaseTable> {
             String query = SQL_INSERT;
             obj.prePersist();
             Object objpk = null;
-            for (String o : primaryKeyNames) {
-                Field field = clazz.getField(o);
-                field.setAccessible(true);
-                objpk = field.get(obj);
+            for (TableMeta.Column column : meta.primaryKey) {
+                objpk = column.get(obj);
                 if (Objects.isNull(objpk)) {
                     if (!Utils.isEmpty(nextSequenceFunction)) {
-                        Object key = Query.findObject("SELECT " + nextSequenceFunction, field.getType());
-                        field.set(obj, key);
+                        Object key = Query.findObject("SELECT " + nextSequenceFunction, column.type);
+                        column.set(obj, key);
                     } else if(!Utils.isEmpty(generatedKey)) {
                         query = SQL_INSERT_AUTO;
                     }
@@ -323,28 +294,53 @@ public class BaseTableDao<T extends BaseTable> {
             Query q = QueryBuilder.create(query).createQuery(generatedKey);
             q.bind(obj).executeUpdate();
             if(!Utils.isEmpty(generatedKey)) {
-               for(String o: generatedKey) {
-                   Field field = clazz.getField(o);
-                   Object key = q.getKey(field.getType());
-                   objpk = field.get(obj);
+               for (TableMeta.Column column : meta.generatedKeyColumns) {
+                   Object key = q.getKey(column.type);
+                   objpk = column.get(obj);
                    if (Objects.isNull(objpk) && key != null) {
-                       field.setAccessible(true);
-                       field.set(obj, key);
+                       column.set(obj, key);
                    }
                }
             }
             obj.postPersist();
-            if(primaryKeyNames.size() == 1){//tambahkan statement untuk clear cache, khusus jika PK ada 1 kolom
-                BaseTable.removeCacheAfterSaveOrDelete(obj.getClass(), primaryKeyNames.get(0));
-            }
+            removeCache(obj);
         }catch(Exception e){
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Simpan banyak row sekaligus. Di PostgreSQL dan MySQL/MariaDB memakai upsert (ON CONFLICT / ON DUPLICATE KEY)
+     * dalam JDBC batch sebesar <code>jdbc.batchSize</code>, tanpa memeriksa keberadaan setiap row;
+     * nilai sequence untuk row baru diambil dalam satu query.
+     */
     public void saveAll(List<T> params) {
         if(Utils.isEmpty(primaryKeyNames) || Utils.isEmpty(SQL_UPDATE) || Utils.isEmpty(params))
             return;
+        BulkUpsert.Dialect dialect = dialect();
+        String upsert = BulkUpsert.upsertSql(meta, dialect);
+        if(upsert == null) {
+            saveAllEach(params);
+            return;
+        }
+        for (T obj : params) {
+            obj.prePersist();
+        }
+        allocateKeys(params, dialect);
+        List<T> paramsUpsert = new ArrayList<>(params.size());
+        List<T> paramsGenerated = new ArrayList<>();
+        splitGenerated(params, paramsUpsert, paramsGenerated);
+        executeBatches(upsert, paramsUpsert, false);
+        executeBatches(SQL_INSERT_AUTO, paramsGenerated, true);
+        for (T obj : params) {
+            obj.postPersist();
+        }
+        // bulk: satu kenaikan generation lebih murah daripada menghapus Cache per id
+        clearCache();
+    }
+
+    // saveAll untuk database tanpa upsert: periksa setiap row apakah insert atau update
+    private void saveAllEach(List<T> params) {
         try {
             String query = SQL_INSERT;
             Class type = null;
@@ -353,15 +349,14 @@ public class BaseTableDao<T extends BaseTable> {
             for (T obj : params) {
                 obj.prePersist();
                 boolean insert = false;
-                for (String o : primaryKeyNames) {
-                    Field field = clazz.getField(o);
-                    type = field.getType();
-                    Object objpk = field.get(obj);
+                for (TableMeta.Column column : meta.primaryKey) {
+                    type = column.type;
+                    Object objpk = column.get(obj);
                     if (Objects.isNull(objpk)) {
                         insert = true;
                         if (!Utils.isEmpty(nextSequenceFunction)) {
-                            Object key = Query.findObject("SELECT " + nextSequenceFunction, field.getType());
-                            field.set(obj, key);
+                            Object key = Query.findObject(QueryBuilder.create("SELECT " + nextSequenceFunction).using(dbname), column.type);
+                            column.set(obj, key);
                         } else if(!Utils.isEmpty(generatedKey)) {
                             query = SQL_INSERT_AUTO;
                         }
@@ -375,18 +370,13 @@ public class BaseTableDao<T extends BaseTable> {
                     paramsUpdate.add(obj);
             }
             if(!Utils.isEmpty(paramsInsert)) {
-                List keys = Query.bindUpdateAll(query, paramsInsert, generatedKey, type);
+                List keys = Query.bindUpdateAll(QueryBuilder.create(query).using(dbname), paramsInsert, generatedKey, type);
                 // after execute
                 int i = 0;
-                for (T obj : params) {
-                    if(!Utils.isEmpty(generatedKey)) {
-                        for(String o: generatedKey) {
-                            Field field = clazz.getField(o);
-                            Object objpk = field.get(obj);
-                            if (Objects.isNull(objpk) && keys.get(i) != null) {
-                                field.setAccessible(true);
-                                field.set(obj, keys.get(i));
-                            }
+                for (T obj : paramsInsert) {
+                    for (TableMeta.Column column : meta.generatedKeyColumns) {
+                        if (Objects.isNull(column.get(obj)) && keys != null && i < keys.size() && keys.get(i) != null) {
+                            column.set(obj, keys.get(i));
                         }
                     }
                     obj.postPersist();
@@ -394,11 +384,12 @@ public class BaseTableDao<T extends BaseTable> {
                 }
             }
             if(!Utils.isEmpty(paramsUpdate)) {
-                Query.bindUpdateAll(SQL_UPDATE, paramsUpdate);
-                for (T obj : params) {
+                Query.bindUpdateAll(QueryBuilder.create(SQL_UPDATE).using(dbname), paramsUpdate);
+                for (T obj : paramsUpdate) {
                     obj.postPersist();
                 }
             }
+            clearCache();
         }catch(Exception e){
             throw new RuntimeException(e);
         }
@@ -412,44 +403,99 @@ public class BaseTableDao<T extends BaseTable> {
     public void insertAll(List<T> params) {
         if(Utils.isEmpty(primaryKeyNames) || Utils.isEmpty(SQL_INSERT) || Utils.isEmpty(params))
             return;
-        try {
-            String query = SQL_INSERT;
-            Class type = null;
-            for (T obj : params) {
-                obj.prePersist();
-                for (String o : primaryKeyNames) {
-                    Field field = clazz.getField(o);
-                    type = field.getType();
-                    Object objpk = field.get(obj);
-                    if (Objects.isNull(objpk)) {
-                        if (!Utils.isEmpty(nextSequenceFunction)) {
-                            Object key = Query.findObject("SELECT " + nextSequenceFunction, field.getType());
-                            field.set(obj, key);
-                        } else if(!Utils.isEmpty(generatedKey)) {
-                            query = SQL_INSERT_AUTO;
-                        }
-                    }
+        for (T obj : params) {
+            obj.prePersist();
+        }
+        allocateKeys(params, dialect());
+        List<T> paramsInsert = new ArrayList<>(params.size());
+        List<T> paramsGenerated = new ArrayList<>();
+        splitGenerated(params, paramsInsert, paramsGenerated);
+        executeBatches(SQL_INSERT, paramsInsert, false);
+        executeBatches(SQL_INSERT_AUTO, paramsGenerated, true);
+        for (T obj : params) {
+            obj.postPersist();
+        }
+        clearCache();
+    }
+
+    private BulkUpsert.Dialect dialect() {
+        BulkUpsert.Dialect current = dialect;
+        if(current == null) {
+            current = BulkUpsert.dialect(dbname);
+            dialect = current;
+        }
+        return current;
+    }
+
+    // isi primary key yang null dari sequence, di PostgreSQL semua nilai diambil dalam satu query
+    private void allocateKeys(List<T> params, BulkUpsert.Dialect dialect) {
+        if(Utils.isEmpty(nextSequenceFunction))
+            return;
+        List<T> rows = new ArrayList<>();
+        List<TableMeta.Column> columns = new ArrayList<>();
+        for (T obj : params) {
+            for (TableMeta.Column column : meta.primaryKey) {
+                if (Objects.isNull(column.get(obj))) {
+                    rows.add(obj);
+                    columns.add(column);
                 }
             }
-            List keys = Query.bindUpdateAll(query, params, generatedKey, type);
-            // after execute
-            int i = 0;
-            for (T obj : params) {
-                if(!Utils.isEmpty(generatedKey)) {
-                    for(String o: generatedKey) {
-                        Field field = clazz.getField(o);
-                        Object objpk = field.get(obj);
-                        if (Objects.isNull(objpk) && keys.get(i) != null) {
-                            field.setAccessible(true);
-                            field.set(obj, keys.get(i));
-                        }
-                    }
+        }
+        if(rows.isEmpty())
+            return;
+        String range = BulkUpsert.sequenceRangeSql(meta, dialect);
+        if(range != null) {
+            List<?> keys = Query.findList(QueryBuilder.create(range, rows.size()).using(dbname), columns.get(0).type);
+            if(keys.size() != rows.size())
+                throw new IllegalStateException("Sequence returned " + keys.size() + " values for " + rows.size() + " rows, class: " + clazz.getName());
+            for (int i = 0; i < rows.size(); i++) {
+                columns.get(i).set(rows.get(i), keys.get(i));
+            }
+            return;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            TableMeta.Column column = columns.get(i);
+            column.set(rows.get(i), Query.findObject(QueryBuilder.create("SELECT " + nextSequenceFunction).using(dbname), column.type));
+        }
+    }
+
+    // row dengan primary key null yang diisi database (generated) dipisah, di-insert tanpa kolom primary key
+    private void splitGenerated(List<T> params, List<T> withKey, List<T> generated) {
+        for (T obj : params) {
+            boolean missing = false;
+            for (TableMeta.Column column : meta.generatedKeyColumns) {
+                if (Objects.isNull(column.get(obj)))
+                    missing = true;
+            }
+            if(missing)
+                generated.add(obj);
+            else
+                withKey.add(obj);
+        }
+    }
+
+    private void executeBatches(String sql, List<T> rows, boolean generated) {
+        if(rows.isEmpty())
+            return;
+        int batchSize = BulkUpsert.batchSize();
+        Query q = QueryBuilder.create(sql).using(dbname).createQuery(generated ? generatedKey : null);
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<T> batch = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            long start = System.nanoTime();
+            for (T obj : batch) {
+                q.bind(obj).addToBatch();
+            }
+            q.executeBatch();
+            if(generated) {
+                TableMeta.Column column = meta.generatedKeyColumns[0];
+                List<?> keys = q.getKeys(column.type);
+                for (int i = 0; keys != null && i < batch.size() && i < keys.size(); i++) {
+                    if (keys.get(i) != null)
+                        column.set(batch.get(i), keys.get(i));
                 }
-                obj.postPersist();
-                i++;
             }
-        }catch(Exception e){
-            throw new RuntimeException(e);
+            if(Logger.isDebugEnabled())
+                Logger.debug("%s: batch of %s rows (%s/%s) in %s ms", table, batch.size(), from + batch.size(), rows.size(), (System.nanoTime() - start) / 1_000_000);
         }
     }
 
@@ -0,0 +1,87 @@
+package play.db.jdbc;
+
+import play.Play;
+import play.db.DB;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**SQL untuk saveAll/insertAll massal: upsert sesuai database dan alokasi nilai sequence dalam satu query.
+ * <ul>
+ * <li>PostgreSQL: <code>INSERT ... ON CONFLICT (pk) DO UPDATE SET col=EXCLUDED.col</code>, sequence lewat <code>generate_series</code></li>
+ * <li>MySQL/MariaDB: <code>INSERT ... ON DUPLICATE KEY UPDATE col=VALUES(col)</code></li>
+ * <li>lainnya: tidak ada upsert, saveAll memeriksa setiap row seperti sebelumnya</li>
+ * </ul>
+ * Jumlah row per JDBC batch diatur dengan <code>jdbc.batchSize</code> (default 1000).
+ */
+final class BulkUpsert {
+
+	enum Dialect {
+		POSTGRESQL, MYSQL, OTHER
+	}
+
+	private BulkUpsert() {
+	}
+
+	static int batchSize() {
+		return Math.max(1, Integer.parseInt(Play.configuration.getProperty("jdbc.batchSize", "1000")));
+	}
+
+	static Dialect dialect(String dbname) {
+		try {
+			return dialectOf(DB.getConnection(dbname).getMetaData().getDatabaseProductName());
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	static Dialect dialectOf(String productName) {
+		String name = productName == null ? "" : productName.toLowerCase(Locale.ROOT);
+		if (name.contains("postgres"))
+			return Dialect.POSTGRESQL;
+		if (name.contains("mysql") || name.contains("mariadb"))
+			return Dialect.MYSQL;
+		return Dialect.OTHER;
+	}
+
+	/**INSERT yang meng-update row jika primary key sudah ada, null jika database tidak mendukung
+	 */
+	static String upsertSql(TableMeta meta, Dialect dialect) {
+		String[] columns = meta.nonPrimaryKeys.isEmpty() ? new String[0] : meta.nonPrimaryKeys.split(",");
+		StringBuilder sql = new StringBuilder(meta.sqlInsert);
+		switch (dialect) {
+			case POSTGRESQL:
+				sql.append(" ON CONFLICT (").append(meta.primaryKeys).append(")");
+				if (columns.length == 0)
+					return sql.append(" DO NOTHING").toString();
+				sql.append(" DO UPDATE SET ");
+				for (int i = 0; i < columns.length; i++) {
+					if (i > 0)
+						sql.append(',');
+					sql.append(columns[i]).append("=EXCLUDED.").append(columns[i]);
+				}
+				return sql.toString();
+			case MYSQL:
+				// tanpa kolom lain, update pk ke dirinya sendiri supaya row yang sudah ada tidak error
+				sql.append(" ON DUPLICATE KEY UPDATE ");
+				if (columns.length == 0)
+					columns = meta.primaryKeyNames.toArray(new String[0]);
+				for (int i = 0; i < columns.length; i++) {
+					if (i > 0)
+						sql.append(',');
+					sql.append(columns[i]).append("=VALUES(").append(columns[i]).append(')');
+				}
+				return sql.toString();
+			default:
+				return null;
+		}
+	}
+
+	/**Query yang mengembalikan sejumlah nilai sequence sekaligus (parameter: jumlah), null jika database tidak mendukung
+	 */
+	static String sequenceRangeSql(TableMeta meta, Dialect dialect) {
+		if (dialect != Dialect.POSTGRESQL || meta.nextSequenceFunction == null)
+			return null;
+		return "SELECT " + meta.nextSequenceFunction + " FROM generate_series(1, ?)";
+	}
+}
@@ -0,0 +1,51 @@
+package play.db.jdbc;
+
+import play.Play;
+import play.cache.CacheImpl;
+import play.cache.RedisCacheImpl;
+import play.cache.RedisInvalidationBus;
+import redis.clients.jedis.JedisPool;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**Index dari key Cache milik @CacheMerdeka, per model dan per id.
+ * <p>
+ * Setiap key Cache sebuah model memuat generation dari model tersebut, sehingga clear satu model cukup dengan menaikkan
+ * generation: key lama tidak akan dibaca lagi dan hilang sendiri saat expired.
+ * Save/delete sebuah instance menghapus key yang tercatat untuk id-nya.
+ */
+interface CacheMerdekaIndex {
+
+	/**Generation model saat ini, bagian dari setiap key Cache model tsb
+	 */
+	long generation(String model);
+
+	/**Mencatat key Cache (value map) untuk setiap id (key map), diabaikan jika generation sudah berubah
+	 * @param expiration expiration key Cache dalam detik, catatan tidak perlu disimpan lebih lama dari ini
+	 */
+	void track(String model, long generation, Map<Object, String> keys, int expiration);
+
+	/**Menghapus dan mengembalikan key Cache yang tercatat untuk id
+	 */
+	Collection<String> remove(String model, Object id);
+
+	/**Menaikkan generation model, semua key Cache model ini menjadi usang
+	 */
+	void clear(String model);
+
+	/**Dipanggil saat index diganti (implementasi Cache berganti)
+	 */
+	default void close() {
+	}
+
+	/**Index yang dibagi antar node jika Cache memakai Redis, lokal jika tidak
+	 */
+	static CacheMerdekaIndex create(CacheImpl cacheImpl) {
+		JedisPool pool = RedisCacheImpl.pool(cacheImpl);
+		if (pool == null)
+			return new LocalCacheMerdekaIndex();
+		String channel = Play.configuration.getProperty("cacheMerdeka.channel", "play-cache-merdeka");
+		return new RedisCacheMerdekaIndex(pool, new RedisInvalidationBus(pool, channel));
+	}
+}
@@ -56,6 +56,8 @@ public class JdbcEnhancer extends Enhancer {
 		ctClass.addMethod(method);
 		method = CtMethod.make("public static play.db.jdbc.BaseTable findById(Object id) { return dao.findById(id); }", ctClass);
 		ctClass.addMethod(method);
+		method = CtMethod.make("public static java.util.List findByIds(java.util.Collection ids) { return dao.findByIds(ids); }", ctClass);
+		ctClass.addMethod(method);
 		method = CtMethod.make("public static play.db.jdbc.BaseTable findObject(String sql, java.lang.Object[] params) { return dao.findObject(sql, params);} ", ctClass);
 		method.setModifiers(method.getModifiers() | Modifier.VARARGS);
 		ctClass.addMethod(method);
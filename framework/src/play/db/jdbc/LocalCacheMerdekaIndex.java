@@ -0,0 +1,111 @@
+package play.db.jdbc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**CacheMerdekaIndex di memory JVM, untuk Cache lokal (Caffeine).
+ * Concurrent tanpa lock global: ConcurrentHashMap per model, set key per id.
+ * Catatan sebuah id expired bersama key Cache terlama yang dicatat untuknya, sehingga index tidak tumbuh terus
+ * walaupun value-nya sudah di-evict atau expired dari Cache.
+ */
+final class LocalCacheMerdekaIndex implements CacheMerdekaIndex {
+
+	private final ConcurrentHashMap<String, Model> models = new ConcurrentHashMap<>();
+	private final Ticker ticker;
+
+	LocalCacheMerdekaIndex() {
+		this(Ticker.systemTicker());
+	}
+
+	LocalCacheMerdekaIndex(Ticker ticker) {
+		this.ticker = ticker;
+	}
+
+	/**Key Cache dari satu id, beserta expiration (nanodetik) key terakhir yang dicatat
+	 */
+	private static final class Keys {
+		final Set<String> keys = ConcurrentHashMap.newKeySet();
+		long expiration;
+	}
+
+	private static final class KeysExpiry implements Expiry<String, Keys> {
+
+		@Override
+		public long expireAfterCreate(String id, Keys keys, long currentTime) {
+			return keys.expiration;
+		}
+
+		@Override
+		public long expireAfterUpdate(String id, Keys keys, long currentTime, long currentDuration) {
+			return Math.max(currentDuration, keys.expiration);
+		}
+
+		@Override
+		public long expireAfterRead(String id, Keys keys, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+
+	private static final class Model {
+		final long generation;
+		final Cache<String, Keys> keys;
+
+		Model(long generation, Ticker ticker) {
+			this.generation = generation;
+			this.keys = Caffeine.newBuilder().ticker(ticker).expireAfter(new KeysExpiry()).build();
+		}
+	}
+
+	private Model model(String model) {
+		Model current = models.get(model);
+		return current != null ? current : models.computeIfAbsent(model, k -> new Model(0, ticker));
+	}
+
+	@Override
+	public long generation(String model) {
+		return model(model).generation;
+	}
+
+	@Override
+	public void track(String model, long generation, Map<Object, String> keys, int expiration) {
+		Model current = model(model);
+		if (current.generation != generation)
+			return;
+		long nanos = expiration <= 0 ? Long.MAX_VALUE : TimeUnit.SECONDS.toNanos(expiration);
+		keys.forEach((id, key) -> current.keys.asMap().compute(String.valueOf(id), (k, tracked) -> {
+			if (tracked == null)
+				tracked = new Keys();
+			tracked.keys.add(key);
+			tracked.expiration = nanos;
+			return tracked;
+		}));
+	}
+
+	@Override
+	public Collection<String> remove(String model, Object id) {
+		Keys keys = model(model).keys.asMap().remove(String.valueOf(id));
+		return keys != null ? keys.keys : Collections.emptySet();
+	}
+
+	@Override
+	public void clear(String model) {
+		models.compute(model, (k, current) -> new Model(current == null ? 1 : current.generation + 1, ticker));
+	}
+
+	/**Jumlah id yang tercatat untuk model, untuk test
+	 */
+	long size(String model) {
+		Model current = model(model);
+		current.keys.cleanUp();
+		return current.keys.estimatedSize();
+	}
+}
@@ -0,0 +1,100 @@
+package play.db.jdbc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.sql2o.quirks.Quirks;
+import play.Play;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**Hasil parsing named parameter (<code>:nama</code> menjadi <code>?</code>) dari sebuah query, disimpan per teks query
+ * dan quirks sehingga query yang sama (misal <code>SQL_SELECT_ID</code>/<code>SQL_UPDATE</code> di BaseTableDao)
+ * tidak di-parse ulang setiap kali dijalankan.
+ * <ul>
+ * <li><code>jdbc.sqlCache.size</code>: jumlah query yang disimpan (default 1024, 0 untuk menonaktifkan)</li>
+ * </ul>
+ * Cache PreparedStatement per koneksi diserahkan ke driver JDBC, lihat <code>db.pool.statementCache.size</code>.
+ */
+public final class ParsedSql {
+
+	private record Key(Quirks quirks, String sql) {
+	}
+
+	private static final Cache<Key, ParsedSql> cache = newCache(Play.configuration == null ? 1024 : Long.parseLong(Play.configuration.getProperty("jdbc.sqlCache.size", "1024")));
+	private static final LongAdder parseCount = new LongAdder();
+	private static final LongAdder parseNanos = new LongAdder();
+	private static final LongAdder prepareCount = new LongAdder();
+	private static final LongAdder prepareNanos = new LongAdder();
+
+	/** query hasil parsing, dengan <code>?</code> sebagai pengganti named parameter */
+	public final String sql;
+	/** posisi (mulai dari 1) setiap named parameter, tidak bisa diubah karena dipakai bersama */
+	public final Map<String, List<Integer>> paramNameToIdxMap;
+
+	private ParsedSql(String sql, Map<String, List<Integer>> paramNameToIdxMap) {
+		this.sql = sql;
+		this.paramNameToIdxMap = paramNameToIdxMap;
+	}
+
+	/**null jika size 0: setiap query di-parse tanpa melewati cache
+	 */
+	static Cache<Key, ParsedSql> newCache(long size) {
+		if (size <= 0)
+			return null;
+		return Caffeine.newBuilder().maximumSize(size).recordStats().build();
+	}
+
+	public static ParsedSql of(Quirks quirks, String queryText) {
+		if (cache == null)
+			return parse(quirks, queryText);
+		return cache.get(new Key(quirks, queryText), key -> parse(key.quirks, key.sql));
+	}
+
+	static ParsedSql parse(Quirks quirks, String queryText) {
+		long start = System.nanoTime();
+		Map<String, List<Integer>> paramNameToIdxMap = new HashMap<>();
+		String sql = quirks.getSqlParameterParsingStrategy().parseSql(queryText, paramNameToIdxMap);
+		paramNameToIdxMap.replaceAll((name, indexes) -> List.copyOf(indexes));
+		parseNanos.add(System.nanoTime() - start);
+		parseCount.increment();
+		return new ParsedSql(sql, Collections.unmodifiableMap(paramNameToIdxMap));
+	}
+
+	/**dicatat oleh Query untuk setiap <code>Connection.prepareStatement</code>
+	 */
+	static void prepared(long nanos) {
+		prepareNanos.add(nanos);
+		prepareCount.increment();
+	}
+
+	public static void invalidateAll() {
+		if (cache != null)
+			cache.invalidateAll();
+	}
+
+	/**statistik cache: jumlah hit, rata-rata waktu parsing dan perkiraan waktu parsing yang dihemat (hit x rata-rata),
+	 * serta jumlah dan rata-rata waktu prepareStatement (turun jika cache statement driver aktif)
+	 */
+	public static Map<String, Long> stats() {
+		CacheStats stats = cache == null ? CacheStats.empty() : cache.stats();
+		long parsed = parseCount.sum();
+		long averageParse = parsed == 0 ? 0 : parseNanos.sum() / parsed;
+		long prepared = prepareCount.sum();
+		Map<String, Long> result = new LinkedHashMap<>();
+		result.put("entries", cache == null ? 0 : cache.estimatedSize());
+		result.put("hits", stats.hitCount());
+		result.put("misses", stats.missCount());
+		result.put("evictions", stats.evictionCount());
+		result.put("parseAvgNanos", averageParse);
+		result.put("parseSavedMillis", stats.hitCount() * averageParse / 1_000_000);
+		result.put("prepared", prepared);
+		result.put("prepareAvgNanos", prepared == 0 ? 0 : prepareNanos.sum() / prepared);
+		return result;
+	}
+}
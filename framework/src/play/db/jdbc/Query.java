@@ -27,7 +27,7 @@ import static org.sql2o.converters.Convert.throwIfNull;
 
 public final class Query {
 
-    private static final Integer DEFAULT_FETCH_SIZE = Integer.valueOf(Play.configuration.getProperty("jdbc.fetchSize", "100"));
+    static final Integer DEFAULT_FETCH_SIZE = Integer.valueOf(Play.configuration.getProperty("jdbc.fetchSize", "100"));
     private final Connection connection;
     private final Quirks quirks;
     private final boolean returnGeneratedKeys;
@@ -227,14 +227,17 @@ public final class Query {
         this.connection = connection;
         this.quirks = quirks;
         this.returnGeneratedKeys = columnGenerated != null && columnGenerated.length > 0;
-        paramNameToIdxMap = new HashMap<>();
-        parsedQuery = quirks.getSqlParameterParsingStrategy().parseSql(queryText, paramNameToIdxMap);
+        ParsedSql parsed = ParsedSql.of(quirks, queryText);
+        paramNameToIdxMap = parsed.paramNameToIdxMap;
+        parsedQuery = parsed.sql;
         try {
+            long start = System.nanoTime();
             if (returnGeneratedKeys) {
                 statement = this.connection.prepareStatement(parsedQuery, columnGenerated);
             } else {
                 statement = this.connection.prepareStatement(parsedQuery);
             }
+            ParsedSql.prepared(System.nanoTime() - start);
         } catch (SQLException ex) {
             throw new Sql2oException(String.format("Error preparing statement - %s", ex.getMessage()), ex);
         }
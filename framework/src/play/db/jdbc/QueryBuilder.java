@@ -5,8 +5,14 @@ import org.sql2o.ResultSetHandler;
 import org.sql2o.ResultSetIterable;
 import org.sql2o.data.Table;
 import play.db.DB;
+import play.exceptions.DatabaseException;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Created by Arief on 05/29/17.
@@ -21,6 +27,8 @@ public final class QueryBuilder {
 
     private boolean autocloseConnection = false;
 
+    private boolean replica = false;
+
     private int fetchSize;
     /**
      * Constructs a new empty QueryBuilder.
@@ -101,6 +109,15 @@ public final class QueryBuilder {
         return this;
     }
 
+    /**
+     * Run the query on a read replica of the database (<code>db.replicas</code>), on the primary when there is none
+     * available. The replica may lag behind the primary and does not see the pending writes of the invocation.
+     */
+    public QueryBuilder usingReplica() {
+        this.replica = true;
+        return this;
+    }
+
     /*
      * reset query to empty string
      * reset param to null
@@ -159,32 +176,20 @@ public final class QueryBuilder {
     }
 
     public <T> List<T> fetch(ResultSetHandler<T> resultSetHandler) {
-        Query q = createQuery();
-        if (isNotEmptyParam())
-            q.withParams(params());
-        return q.executeAndFetch(resultSetHandler);
+        return read(q -> q.executeAndFetch(resultSetHandler));
     }
 
     public <T> List<T> fetch(Class<T> clazz) {
-        Query q = createQuery();
-        if (isNotEmptyParam())
-            q.withParams(params());
-        return q.executeAndFetch(clazz);
+        return read(q -> q.executeAndFetch(clazz));
     }
 
 
     public <T> T fetchFirst(ResultSetHandler<T> resultSetHandler) {
-        Query q = createQuery();
-        if (isNotEmptyParam())
-            q.withParams(params());
-        return q.executeAndFetchFirst(resultSetHandler);
+        return read(q -> q.executeAndFetchFirst(resultSetHandler));
     }
 
     public <T> T fetchFirst(Class<T> clazz) {
-        Query q = createQuery();
-        if (isNotEmptyParam())
-            q.withParams(params());
-        return q.executeAndFetchFirst(clazz);
+        return read(q -> q.executeAndFetchFirst(clazz));
     }
 
     public <T>ResultSetIterable<T> fetchLazy(ResultSetHandler<T> resultSetHandler){
@@ -201,32 +206,62 @@ public final class QueryBuilder {
         return q.executeAndFetchLazy(returnType);
     }
 
-    public Table fetchTable() {
+    /**
+     * The rows as they are read from the database, without a list in memory: the JDBC driver fetches
+     * <code>setFetchSize</code> rows at a time (default <code>jdbc.fetchSize</code>) through a server-side cursor.
+     * PostgreSQL uses one on the connection of the invocation, which is not in autocommit; MySQL needs
+     * <code>useCursorFetch=true</code> in the url. The stream keeps the result set open: close it, or consume it in a
+     * try-with-resources or with <code>RenderStream</code>.
+     */
+    public <T> Stream<T> stream(Class<T> returnType) {
+        return stream(cursor().executeAndFetchLazy(returnType));
+    }
+
+    public <T> Stream<T> stream(ResultSetHandler<T> resultSetHandler) {
+        return stream(cursor().executeAndFetchLazy(resultSetHandler));
+    }
+
+    private Query cursor() {
         Query q = createQuery();
+        if (fetchSize <= 0) {
+            // 0 would let the driver read the whole result at once
+            q.setFetchSize(Query.DEFAULT_FETCH_SIZE);
+        }
         if (isNotEmptyParam())
             q.withParams(params());
-        return q.executeAndFetchTable();
+        return q;
+    }
+
+    private static <T> Stream<T> stream(ResultSetIterable<T> iterable) {
+        return StreamSupport.stream(iterable.spliterator(), false).onClose(iterable::close).filter(Objects::nonNull).peek(item -> {
+            // like fetch()
+            if (item instanceof BaseTable baseTable) {
+                baseTable.postLoad();
+            } else if (item instanceof GenericModel genericModel) {
+                genericModel.postLoad();
+            }
+        });
+    }
+
+    public Table fetchTable() {
+        return read(q -> q.executeAndFetchTable());
     }
 
     public long count() {
-        Query q = createQuery();
-        if (isNotEmptyParam())
-            q.withParams(params());
-        return q.executeScalar(Long.class);
+        return read(q -> q.executeScalar(Long.class));
     }
 
     public <V> V count(Class<V> clazz) {
-        Query q = createQuery();
-        if (isNotEmptyParam())
-            q.withParams(params());
-        return q.executeScalar(clazz);
+        return read(q -> q.executeScalar(clazz));
     }
 
     public int bindCount(Object object) {
-        Query q = createQuery();
-        if (object != null)
-            q.bind(object);
-        return q.executeScalar(Integer.class);
+        // only the object is bound, not the params
+        return read(q -> {
+            if (object != null)
+                q.bind(object);
+            return q.executeScalar(Integer.class);
+        }, false);
     }
 
     public int update() {
@@ -269,12 +304,39 @@ public final class QueryBuilder {
         return q.getKeys(type);
     }
 
+    /**
+     * Run a read. With <code>db.lazyConnection=true</code> and no transaction open yet in the invocation, the
+     * connection is borrowed from the pool for this read only and given back right after, else the read uses the
+     * connection of the invocation like the other queries.
+     */
+    public <R> R read(Function<Query, R> read) {
+        return read(read, true);
+    }
+
+    private <R> R read(Function<Query, R> read, boolean withParams) {
+        Connection connection = DB.borrowConnection(dbname, replica);
+        if (connection == null) {
+            Query q = createQuery();
+            if (withParams && isNotEmptyParam())
+                q.withParams(params());
+            return read.apply(q);
+        }
+        try (connection) {
+            Query q = new Query(connection, DB.quirks.get(dbname), query(), null).setFetchSize(fetchSize);
+            if (withParams && isNotEmptyParam())
+                q.withParams(params());
+            return read.apply(q);
+        } catch (SQLException e) {
+            throw new DatabaseException(e.getMessage(), e);
+        }
+    }
+
     public Query createQuery() {
         return createQuery(null).setAutocloseConnection(autocloseConnection).setFetchSize(fetchSize);
     }
 
     public Query createQuery(String[] generatedColumn) {
-        return new Query(DB.getConnection(dbname), DB.quirks.get(dbname), query(), generatedColumn).setAutocloseConnection(autocloseConnection).setFetchSize(fetchSize);
+        return new Query(replica ? DB.getReadConnection(dbname) : DB.getConnection(dbname), DB.quirks.get(dbname), query(), generatedColumn).setAutocloseConnection(autocloseConnection).setFetchSize(fetchSize);
     }
 
     public QueryBuilder setFetchSize(int fetchSize) {
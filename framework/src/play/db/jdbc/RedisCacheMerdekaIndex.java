@@ -0,0 +1,131 @@
+package play.db.jdbc;
+
+import play.Logger;
+import play.cache.InvalidationBus;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**CacheMerdekaIndex di Redis, dibagi oleh semua node yang memakai Redis yang sama.
+ * <ul>
+ * <li>generation: counter <code>play.db.jdbc.CacheMerdeka$model</code>, dinaikkan dengan INCR</li>
+ * <li>key per id: SET <code>play.db.jdbc.CacheMerdeka$model#generation#id</code>, expired bersama key Cache terlama
+ * yang dicatat (minimal 12 jam seperti tracker sebelumnya)</li>
+ * </ul>
+ * Generation disimpan di memory JVM agar membaca Cache tidak perlu ke Redis: clear() mengirim generation baru ke semua
+ * node lewat channel <code>cacheMerdeka.channel</code>, dan sebagai pengaman generation dibaca ulang dari Redis
+ * paling lama setiap {@link #GENERATION_TTL}.
+ */
+final class RedisCacheMerdekaIndex implements CacheMerdekaIndex {
+
+	private static final long INDEX_TTL = 12 * 60 * 60;
+	static final long GENERATION_TTL = TimeUnit.SECONDS.toNanos(5);
+
+	private final JedisPool pool;
+	private final InvalidationBus bus;
+	private final ConcurrentHashMap<String, Generation> generations = new ConcurrentHashMap<>();
+
+	/**Generation sebuah model, readAt dari System.nanoTime()
+	 */
+	private record Generation(long value, long readAt) {
+	}
+
+	RedisCacheMerdekaIndex(JedisPool pool, InvalidationBus bus) {
+		this.pool = pool;
+		this.bus = bus;
+		// pesan mungkin hilang saat reconnect: semua generation dibaca ulang dari Redis
+		bus.subscribe(this::onMessage, generations::clear);
+	}
+
+	private static String generationKey(String model) {
+		return CacheMerdeka.class.getName() + "$" + model;
+	}
+
+	private static String indexKey(String model, long generation, Object id) {
+		return generationKey(model) + "#" + generation + "#" + id;
+	}
+
+	@Override
+	public long generation(String model) {
+		Generation current = generations.get(model);
+		if (current != null && System.nanoTime() - current.readAt < GENERATION_TTL)
+			return current.value;
+		String value;
+		try (Jedis client = pool.getResource()) {
+			value = client.get(generationKey(model));
+		}
+		long generation = value == null ? 0 : Long.parseLong(value);
+		generations.put(model, new Generation(generation, System.nanoTime()));
+		return generation;
+	}
+
+	@Override
+	public void track(String model, long generation, Map<Object, String> keys, int expiration) {
+		if (generation != generation(model))
+			return;
+		// index tidak boleh expired sebelum key Cache yang dicatatnya
+		long ttl = Math.max(expiration, INDEX_TTL);
+		try (Jedis client = pool.getResource()) {
+			Pipeline pipeline = client.pipelined();
+			keys.forEach((id, key) -> {
+				String indexKey = indexKey(model, generation, id);
+				pipeline.sadd(indexKey, key);
+				if (expiration > 0)
+					pipeline.expire(indexKey, ttl);
+				else
+					pipeline.persist(indexKey);
+			});
+			pipeline.sync();
+		}
+	}
+
+	@Override
+	public Collection<String> remove(String model, Object id) {
+		String indexKey = indexKey(model, generation(model), id);
+		try (Jedis client = pool.getResource()) {
+			Pipeline pipeline = client.pipelined();
+			Response<Set<String>> keys = pipeline.smembers(indexKey);
+			pipeline.del(indexKey);
+			pipeline.sync();
+			return keys.get();
+		}
+	}
+
+	@Override
+	public void clear(String model) {
+		long generation;
+		try (Jedis client = pool.getResource()) {
+			generation = client.incr(generationKey(model));
+		}
+		update(model, generation);
+		try {
+			bus.publish(model + ' ' + generation);
+		} catch (Exception e) {
+			Logger.error(e, "CacheMerdeka - cannot publish the generation of %s : %s", model, e.getMessage());
+		}
+	}
+
+	private void onMessage(String message) {
+		int space = message.lastIndexOf(' ');
+		update(message.substring(0, space), Long.parseLong(message.substring(space + 1)));
+	}
+
+	/**Generation dari INCR hanya naik: pesan yang datang terlambat tidak menurunkannya
+	 */
+	private void update(String model, long generation) {
+		Generation next = new Generation(generation, System.nanoTime());
+		generations.merge(model, next, (current, update) -> current.value > update.value ? current : update);
+	}
+
+	@Override
+	public void close() {
+		bus.close();
+	}
+}
@@ -0,0 +1,201 @@
+package play.db.jdbc;
+
+import org.apache.commons.lang3.StringUtils;
+import play.Logger;
+import play.db.DB;
+import play.utils.Utils;
+
+import javax.persistence.MappedSuperclass;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.Transient;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**Metadata tabel dari sebuah model BaseTable: nama tabel, kolom, primary key, SQL.
+ * Dibuat sekali per class (lihat {@link #of(Class)}) dan tidak berubah, dipakai bersama oleh BaseTable dan BaseTableDao.
+ */
+final class TableMeta {
+
+	private static final ClassValue<TableMeta> metas = new ClassValue<TableMeta>() {
+		@Override
+		protected TableMeta computeValue(Class<?> type) {
+			return new TableMeta(type);
+		}
+	};
+
+	static TableMeta of(Class<?> clazz) {
+		return metas.get(clazz);
+	}
+
+	/**Kolom dari model, diakses lewat MethodHandle (tanpa lookup Field setiap kali)
+	 */
+	static final class Column {
+		private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+		private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+		final String name;
+		final Class<?> type;
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+
+		Column(Field field) {
+			this.name = field.getName();
+			this.type = field.getType();
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+				this.getter = lookup.unreflectGetter(field).asType(GETTER);
+				this.setter = lookup.unreflectSetter(field).asType(SETTER);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("Column should be public, class: " + field.getDeclaringClass().getName() + ", field: " + name, e);
+			}
+		}
+
+		Object get(Object target) {
+			try {
+				return (Object) getter.invokeExact(target);
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		void set(Object target, Object value) {
+			try {
+				setter.invokeExact(target, value);
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	final String table;
+	final String dbname;
+	final List<String> primaryKeyNames;
+	final String primaryKeys;
+	final String nonPrimaryKeys;
+	final Column[] primaryKey;
+	final String nextSequenceFunction;
+	final String[] generatedKey;
+	final Column[] generatedKeyColumns;
+	final String duration;
+	final boolean useCacheMerdeka;
+	final String sqlSelect;
+	final String sqlSelectId;
+	final String sqlUpdate;
+	final String sqlDeleteId;
+	final String sqlDelete;
+	final String sqlCountId;
+	final String sqlInsert;
+	final String sqlInsertAuto;
+
+	TableMeta(Class<?> clazz) {
+		Table tableAnn = clazz.getAnnotation(Table.class);
+		if (tableAnn == null)
+			throw new IllegalArgumentException("No @play.db.jdbc.Table on class: " + clazz.getName());
+		String table = tableAnn.name();
+		PersistenceUnit pu = clazz.getAnnotation(PersistenceUnit.class);
+		this.dbname = pu != null ? pu.name() : DB.DEFAULT;
+		//apakah ada anotasi @CacheMerdeka
+		CacheMerdeka cache = clazz.getAnnotation(CacheMerdeka.class);
+		if (cache != null && !Serializable.class.isAssignableFrom(clazz)) {
+			//class ini harus implement Serializable
+			throw new RuntimeException("class implement serializable");
+		}
+		this.useCacheMerdeka = cache != null;
+		this.duration = cache != null ? cache.duration() : null;
+		if (Utils.isEmpty(table)) {
+			String[] arrayTable = StringUtils.split(clazz.getName(), ".");
+			if (arrayTable.length > 1)
+				table = arrayTable[arrayTable.length - 1];// ambil nama class tanpa nama packagenya
+			else
+				table = clazz.getName();
+		}
+		if (!Utils.isEmpty(tableAnn.schema()))
+			table = tableAnn.schema() + "." + table;
+		this.table = table.toLowerCase(); //  nama table di set lower case agar membedakan dengan syntak SQL
+		StringBuilder strField = new StringBuilder();
+		StringBuilder strInsert = new StringBuilder();
+		StringBuilder strFieldAuto = new StringBuilder();
+		StringBuilder strInsertAuto = new StringBuilder();
+		StringBuilder strUpdate = new StringBuilder();
+		StringBuilder strWhere = new StringBuilder();
+		List<Field> listField = new ArrayList<>(Arrays.asList(clazz.getDeclaredFields()));
+		if (clazz.getSuperclass() != null && clazz.getSuperclass().getAnnotation(MappedSuperclass.class) != null) {
+			listField.addAll(Arrays.asList(clazz.getSuperclass().getDeclaredFields()));
+		}
+		List<Column> primaryKey = new ArrayList<>();
+		List<String> primaryKeyNames = new ArrayList<>();
+		List<String> nonPrimaryKeyNames = new ArrayList<>();
+		String nextSequenceFunction = null;
+		Field generatedField = null;
+		for (Field field : listField) {
+			//tambahkan kecuali yang transient atau static modifier (10)
+			if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()) || field.getAnnotation(Transient.class) != null)
+				continue;
+			//Check apakah ini PrimaryKey
+			append(strField, field.getName(), ",");
+			append(strInsert, ":" + field.getName(), ",");
+			Id ann = field.getAnnotation(Id.class);
+			if (ann != null) {
+				if (field.getType().isPrimitive())
+					Logger.error("PrimaryKey column should not be primitive, class: %s, field: %s", clazz.getName(), field.getName());
+				primaryKey.add(new Column(field));
+				primaryKeyNames.add(field.getName());
+				if (!ann.sequence().isEmpty()) { // jika memakai sequence , definisikan pakai function sequence ny
+					String sequenceName = !Utils.isEmpty(ann.schema()) ? ann.schema() + "." + ann.sequence() : ann.sequence();
+					nextSequenceFunction = ann.function() + "('" + sequenceName + "')";
+				}
+				if (ann.generated())
+					generatedField = field;
+				append(strWhere, field.getName() + "=:" + field.getName(), " AND ");
+			} else {
+				nonPrimaryKeyNames.add(field.getName());
+				append(strUpdate, field.getName() + "=:" + field.getName(), ",");
+				append(strFieldAuto, field.getName(), ",");
+				append(strInsertAuto, ":" + field.getName(), ",");
+			}
+			if (field.getAnnotation(JsonType.class) != null) {
+				strInsert.append("::JSON");
+				strUpdate.append("::JSON");
+			}
+			if (field.getAnnotation(JsonBinaryType.class) != null) {
+				strInsert.append("::JSONB");
+				strUpdate.append("::JSONB");
+			}
+		}
+		String id_count = "*";
+		if (primaryKey.isEmpty()) {
+			Logger.error("Error in class: " + clazz.getName() + " No @play.db.jdbc.Id column was specified");
+		} else {
+			id_count = primaryKey.get(0).name;
+		}
+		this.primaryKey = primaryKey.toArray(new Column[0]);
+		this.primaryKeyNames = Collections.unmodifiableList(primaryKeyNames);
+		this.primaryKeys = StringUtils.join(primaryKeyNames, ',');
+		this.nonPrimaryKeys = StringUtils.join(nonPrimaryKeyNames, ',');
+		this.nextSequenceFunction = nextSequenceFunction;
+		this.generatedKey = generatedField != null ? new String[]{generatedField.getName()} : null;
+		this.generatedKeyColumns = generatedField != null ? new Column[]{new Column(generatedField)} : new Column[0];
+		sqlSelect = "SELECT " + strField + " FROM " + table;
+		sqlSelectId = "SELECT " + strField + " FROM " + table + " WHERE " + strWhere;
+		sqlDeleteId = "DELETE FROM " + table + " WHERE " + strWhere;
+		sqlDelete = "DELETE FROM " + table;
+		sqlCountId = "SELECT COUNT(" + id_count + ") FROM " + table;
+		sqlInsert = "INSERT INTO " + table + "(" + strField + ") VALUES (" + strInsert + ")";
+		sqlUpdate = "UPDATE " + table + " SET " + strUpdate + " WHERE " + strWhere;
+		sqlInsertAuto = "INSERT INTO " + table + "(" + strFieldAuto + ") VALUES (" + strInsertAuto + ")";
+	}
+
+	private static void append(StringBuilder sql, String commandAdd, String separator) {
+		if (sql.length() > 0)
+			sql.append(separator);
+		sql.append(commandAdd);
+	}
+}
@@ -0,0 +1,19 @@
+package play.db.jpa;
+
+import java.lang.annotation.*;
+
+/**
+ * Annotation to be used on methods telling that they only read the database: their connection is taken from a
+ * replica when some are declared (<code>db.replicas</code>), else from the primary as usual.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Target(value = { ElementType.METHOD, ElementType.TYPE })
+public @interface ReadOnly {
+    /**
+     * Db name we read from a replica.
+     *
+     * @return The DB name
+     */
+    String value() default "default";
+}
@@ -10,6 +10,7 @@ import play.data.validation.Error;
 import play.data.validation.Validation;
 import play.i18n.Messages;
 import play.libs.Json;
+import play.mvc.AssetManifest;
 import play.mvc.Http;
 import play.mvc.PlayController;
 import play.mvc.Router;
@@ -112,7 +113,19 @@ public class Jte {
         else if(!path.startsWith("/"))
             path = "/" +path;
 //        return Router.reverse(Play.getVirtualFile(path));
-        return Play.ctxPath+path;
+        return Play.ctxPath+AssetManifest.get().url(path);
+    }
+
+    /**
+     * The url of a resource the page needs early, sent to the browser in a 103 Early Hints
+     */
+    public static String preload(String path) {
+        String url = url(path);
+        Http.Response response = Http.Response.current();
+        if (url != null && response != null) {
+            response.preload(url);
+        }
+        return url;
     }
 
     public static String action(String action) {
@@ -88,6 +88,8 @@ public class ActionInvoker {
         Monitor monitor = null;
         try {
             initActionContext(request, response);
+            // the CSS/JS of the page are fetched while the action runs
+            EarlyHints.get().hint(request, response);
             Method actionMethod = request.invokedMethod;
             // 1. Prepare request params
             if(request.routeArgs != null && !request.routeArgs.isEmpty())
@@ -158,6 +160,7 @@ public class ActionInvoker {
             Scope.Flash.current().save();
 
             result.apply(request, response);
+            EarlyHints.get().learn(request, response);
 
             Play.pluginCollection.afterActionInvocation();
             // @Finally
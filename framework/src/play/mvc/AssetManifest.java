@@ -0,0 +1,292 @@
+package play.mvc;
+
+import play.Logger;
+import play.Play;
+import play.libs.Codec;
+import play.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-hash fingerprints of the static files, so that their urls change with their content and can be cached by
+ * the browsers for a year without any revalidation: <code>/public/app.css</code> becomes
+ * <code>/public/app.3f2a1b9c0d.css</code>.
+ * <ul>
+ * <li><code>play.assets.fingerprint</code>: enabled (default true in PROD)</li>
+ * </ul>
+ * The urls are fingerprinted by {@link Router#reverse(File)} (so <code>@{'/public/app.css'}</code>), the
+ * <code>#{asset}</code> tag and the JTE <code>url()</code> helper. The servers map them back to the file and send
+ * <code>Cache-Control: {@value #IMMUTABLE}</code> when the hash is the one of the current content.
+ * <p>
+ * The hashes of the <code>public</code> directories are computed at precompile time into
+ * <code>precompiled/assets.manifest</code>; the other files are hashed on first use. In PROD a hash is never computed
+ * again, in DEV it is when the file changes.
+ */
+public final class AssetManifest {
+
+    public static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    static final String MANIFEST = "precompiled/assets.manifest";
+    private static final int HASH_LENGTH = 10;
+    // name.hash.ext, or name.hash for a file without extension
+    private static final Pattern FINGERPRINTED = Pattern.compile("^((?:.*/)?[^/]+?)\\.([0-9a-f]{" + HASH_LENGTH + "})(\\.[^./]+)?$");
+
+    private static volatile AssetManifest current;
+
+    private final boolean enabled;
+    // PROD: the files do not change
+    private final boolean immutableFiles;
+    // relative path -> hash, from the precompiled manifest
+    private final Properties manifest;
+    // file path -> hash
+    private final Map<String, Hash> hashes = new ConcurrentHashMap<>();
+    // PROD: fingerprinted url -> current file, only for the matching hashes
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+    // PROD: path -> fingerprinted path
+    private final Map<String, String> urls = new ConcurrentHashMap<>();
+
+    AssetManifest(Properties configuration, boolean prod, Properties manifest) {
+        this.enabled = Boolean.parseBoolean(configuration.getProperty("play.assets.fingerprint", String.valueOf(prod)));
+        this.immutableFiles = prod;
+        this.manifest = manifest;
+    }
+
+    public static AssetManifest get() {
+        AssetManifest manifest = current;
+        if (manifest == null) {
+            synchronized (AssetManifest.class) {
+                manifest = current;
+                if (manifest == null) {
+                    current = manifest = new AssetManifest(Play.configuration, Play.mode.isProd(), load(Play.getFile(MANIFEST)));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * The fingerprinted url of a file
+     *
+     * @param file
+     *            the file served at this url
+     * @param url
+     *            its url, as resolved by the routes
+     * @return the url itself when disabled, or for a directory
+     */
+    public String fingerprint(File file, String url) {
+        if (!enabled || url.endsWith("/")) {
+            return url;
+        }
+        String hash = hash(file);
+        if (hash == null) {
+            return url;
+        }
+        int slash = url.lastIndexOf('/');
+        int dot = url.lastIndexOf('.');
+        return dot > slash + 1 ? url.substring(0, dot) + "." + hash + url.substring(dot) : url + "." + hash;
+    }
+
+    /**
+     * The fingerprinted url of a file of the application or of a module, for the templates
+     *
+     * @param path
+     *            its path, <code>/public/app.css</code>
+     * @return the path itself when disabled or when the file does not exist
+     */
+    public String url(String path) {
+        if (!enabled) {
+            return path;
+        }
+        String url = urls.get(path);
+        if (url == null) {
+            File file = Play.getVirtualFile(path);
+            url = file != null && file.isFile() ? fingerprint(file, path) : path;
+            if (immutableFiles) {
+                urls.put(path, url);
+            }
+        }
+        return url;
+    }
+
+    /**
+     * The file of a fingerprinted url
+     *
+     * @param url
+     *            the requested path
+     * @param files
+     *            resolves a path to a file
+     * @return null when the url is not fingerprinted, or when it is a file by itself
+     */
+    public Asset resolve(String url, Function<String, File> files) {
+        if (!enabled) {
+            return null;
+        }
+        Asset asset = assets.get(url);
+        if (asset != null) {
+            return asset;
+        }
+        Matcher matcher = FINGERPRINTED.matcher(url);
+        if (!matcher.matches()) {
+            return null;
+        }
+        File self = files.apply(url);
+        if (self != null && self.exists()) {
+            return null;
+        }
+        File file = files.apply(matcher.group(1) + (matcher.group(3) != null ? matcher.group(3) : ""));
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        // an old fingerprint is still served, but as a regular static file
+        asset = new Asset(file, matcher.group(2).equals(hash(file)));
+        if (asset.immutable && immutableFiles) {
+            assets.put(url, asset);
+        }
+        return asset;
+    }
+
+    /**
+     * The hash of the content of a file
+     *
+     * @return null for a directory, or if it cannot be read
+     */
+    public String hash(File file) {
+        String path = file.getPath();
+        Hash hash = hashes.get(path);
+        if (hash != null && (immutableFiles || hash.lastModified == file.lastModified())) {
+            return hash.value;
+        }
+        if (!file.isFile()) {
+            return null;
+        }
+        String value = immutableFiles ? manifest.getProperty(FileUtils.relativePath(file)) : null;
+        long lastModified = file.lastModified();
+        if (value == null) {
+            try {
+                value = compute(file);
+            } catch (IOException e) {
+                Logger.warn(e, "Cannot fingerprint %s", file);
+                return null;
+            }
+        }
+        hashes.put(path, new Hash(lastModified, value));
+        return value;
+    }
+
+    static String compute(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return Codec.byteToHexString(digest.digest()).substring(0, HASH_LENGTH);
+    }
+
+    /**
+     * Hash the files of a directory into the manifest, skipping the .br/.gz variants
+     *
+     * @return the number of files
+     */
+    static int collect(File dir, Properties manifest) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        int count = 0;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                count += collect(file, manifest);
+            } else if (!file.getName().endsWith(".br") && !file.getName().endsWith(".gz")) {
+                manifest.setProperty(FileUtils.relativePath(file), compute(file));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Properties load(File file) {
+        Properties manifest = new Properties();
+        if (file.isFile()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                manifest.load(in);
+            } catch (IOException e) {
+                Logger.warn(e, "Cannot read the asset manifest %s", file);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Write the manifest of the <code>public</code> directory of the application and its modules
+     */
+    public static void precompile() {
+        if (!Boolean.parseBoolean(Play.configuration.getProperty("play.assets.fingerprint", "true"))) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Properties manifest = new Properties();
+        try {
+            int count = 0;
+            for (File root : Play.roots) {
+                count += collect(new File(root, "public"), manifest);
+            }
+            File file = Play.getFile(MANIFEST);
+            file.getParentFile().mkdirs();
+            try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                manifest.store(out, "Content hashes of the static files");
+            }
+            Logger.info("%d static files fingerprinted in %d ms", count, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            Logger.warn(e, "Cannot write the asset manifest");
+        }
+    }
+
+    /**
+     * A fingerprinted url resolved to its file
+     */
+    public static final class Asset {
+        public final File file;
+        /**
+         * The url is the fingerprint of the current content: it can be cached forever
+         */
+        public final boolean immutable;
+
+        Asset(File file, boolean immutable) {
+            this.file = file;
+            this.immutable = immutable;
+        }
+    }
+
+    private static final class Hash {
+        final long lastModified;
+        final String value;
+
+        Hash(long lastModified, String value) {
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+    }
+}
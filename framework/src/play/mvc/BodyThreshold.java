@@ -0,0 +1,19 @@
+package play.mvc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Amount of a streamed request body kept in memory for this action before the rest is spilled to a temporary file.
+ * Only used when the server runs in streaming request mode (<code>play.netty.streaming=true</code>).
+ *
+ * <p>Example: <code>@BodyThreshold("10MB")</code>. Use <code>"-1"</code> to never spill: the server then stops
+ * reading from the client until the action has consumed what is already buffered.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface BodyThreshold {
+    String value();
+}
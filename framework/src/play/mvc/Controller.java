@@ -37,6 +37,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * Application controller support: The controller receives input and initiates a
@@ -449,6 +450,21 @@ public class Controller implements PlayController, LocalVariablesSupport {
         throw new RenderJson(o, adapters);
     }
 
+    /**
+     * Render a 200 OK response with the rows of a stream, written as they
+     * are read (a database cursor with <code>QueryBuilder.stream()</code>).
+     *
+     * @param rows
+     *            The rows, the stream is closed at the end
+     * @param format
+     *            CSV, a JSON array or one JSON object per line
+     * @param columns
+     *            The CSV columns, by default the fields of the first row
+     */
+    protected static void renderStream(Stream<?> rows, RenderStream.Format format, String... columns) {
+        throw new RenderStream(rows, format, columns);
+    }
+
     /**
      * Send a 304 Not Modified response
      */
@@ -0,0 +1,178 @@
+package play.mvc;
+
+import play.Play;
+import play.server.ByteBufResponseOutput;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <code>103 Early Hints</code> sent before the response, so that the browser fetches the CSS/JS of the page while the
+ * action is still running:
+ * <ul>
+ * <li><code>http.earlyHints</code>: enabled (default true)</li>
+ * <li><code>http.earlyHints.learn</code>: remember the <code>/public</code> stylesheets and scripts of the
+ * <code>&lt;head&gt;</code> of the HTML pages rendered by each action, and hint them on the next requests (default
+ * true)</li>
+ * <li><code>http.earlyHints.maxLinks</code>: links remembered per action (default 8)</li>
+ * </ul>
+ * The links are also declared by the action with {@link Http.Response#preload(String)}, the <code>#{preload}</code>
+ * tag or the JTE <code>preload()</code> helper. The page is learnt once per action in PROD, on every render in DEV.
+ */
+public final class EarlyHints {
+
+    // where the links of the layout are looked for
+    private static final int HEAD_LIMIT = 32 * 1024;
+    private static final Pattern LINK_TAG = Pattern.compile("<link\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SCRIPT_TAG = Pattern.compile("<script\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ATTRIBUTE = Pattern.compile("\\b(rel|href|src|as)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s>]+))", Pattern.CASE_INSENSITIVE);
+
+    private static volatile EarlyHints current;
+
+    private final boolean enabled;
+    private final boolean learn;
+    private final int maxLinks;
+    private final boolean dev;
+    // action -> Link header values
+    final Map<String, List<String>> learnt = new ConcurrentHashMap<>();
+
+    EarlyHints(Properties configuration, boolean dev) {
+        this.enabled = Boolean.parseBoolean(configuration.getProperty("http.earlyHints", "true"));
+        this.learn = enabled && Boolean.parseBoolean(configuration.getProperty("http.earlyHints.learn", "true"));
+        this.maxLinks = Integer.parseInt(configuration.getProperty("http.earlyHints.maxLinks", "8"));
+        this.dev = dev;
+    }
+
+    public static EarlyHints get() {
+        EarlyHints hints = current;
+        if (hints == null) {
+            synchronized (EarlyHints.class) {
+                hints = current;
+                if (hints == null) {
+                    current = hints = new EarlyHints(Play.configuration, Play.mode.isDev());
+                }
+            }
+        }
+        return hints;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Send the links learnt for the action, before invoking it
+     */
+    public void hint(Http.Request request, Http.Response response) {
+        if (!learn || request.action == null) {
+            return;
+        }
+        List<String> links = learnt.get(request.action);
+        if (links != null) {
+            response.earlyHints(links);
+        }
+    }
+
+    /**
+     * Remember the stylesheets and scripts of the page rendered by the action
+     */
+    public void learn(Http.Request request, Http.Response response) {
+        if (!learn || request.action == null || response.status != 200 || response.chunked || response.out == null
+                || !"GET".equals(request.method) || response.contentType == null || !response.contentType.startsWith("text/html")) {
+            return;
+        }
+        if (!dev && learnt.containsKey(request.action)) {
+            return;
+        }
+        String page = new String(ByteBufResponseOutput.head(response.out, HEAD_LIMIT), Charset.forName(response.encoding));
+        int end = page.indexOf("</head>");
+        List<String> links = collect(end >= 0 ? page.substring(0, end) : page, Play.ctxPath, maxLinks);
+        learnt.put(request.action, links);
+    }
+
+    public void clear() {
+        learnt.clear();
+    }
+
+    /**
+     * The Link header values of the <code>/public</code> stylesheets, preloads and scripts of an HTML fragment
+     */
+    static List<String> collect(String html, String ctxPath, int maxLinks) {
+        Set<String> links = new LinkedHashSet<>();
+        String prefix = ctxPath + "/public/";
+        Matcher tag = LINK_TAG.matcher(html);
+        while (tag.find() && links.size() < maxLinks) {
+            Map<String, String> attributes = attributes(tag.group());
+            String rel = attributes.getOrDefault("rel", "").toLowerCase();
+            String href = attributes.get("href");
+            if (href == null || !href.startsWith(prefix)) {
+                continue;
+            }
+            if (rel.equals("stylesheet")) {
+                links.add(link(href, "style"));
+            } else if (rel.equals("preload") || rel.equals("modulepreload")) {
+                links.add(link(href, attributes.get("as")));
+            }
+        }
+        Matcher script = SCRIPT_TAG.matcher(html);
+        while (script.find() && links.size() < maxLinks) {
+            String src = attributes(script.group()).get("src");
+            if (src != null && src.startsWith(prefix)) {
+                links.add(link(src, "script"));
+            }
+        }
+        return new ArrayList<>(links);
+    }
+
+    private static Map<String, String> attributes(String tag) {
+        Map<String, String> attributes = new HashMap<>();
+        Matcher matcher = ATTRIBUTE.matcher(tag);
+        while (matcher.find()) {
+            String value = matcher.group(2) != null ? matcher.group(2) : matcher.group(3) != null ? matcher.group(3) : matcher.group(4);
+            attributes.putIfAbsent(matcher.group(1).toLowerCase(), value);
+        }
+        return attributes;
+    }
+
+    /**
+     * The Link header value preloading a resource
+     *
+     * @param url
+     *            the url of the resource
+     * @param as
+     *            its destination (style, script, font, image...), null to guess it from the extension
+     */
+    public static String link(String url, String as) {
+        if (as == null || as.isEmpty()) {
+            as = destination(url);
+        }
+        StringBuilder link = new StringBuilder("<").append(url).append(">; rel=preload; as=").append(as);
+        if (as.equals("font")) {
+            // fonts are always fetched in CORS mode
+            link.append("; crossorigin");
+        }
+        return link.toString();
+    }
+
+    static String destination(String url) {
+        int query = url.indexOf('?');
+        String path = (query >= 0 ? url.substring(0, query) : url).toLowerCase();
+        String extension = path.substring(path.lastIndexOf('.') + 1);
+        return switch (extension) {
+            case "css" -> "style";
+            case "js", "mjs" -> "script";
+            case "woff", "woff2", "ttf", "otf" -> "font";
+            case "png", "jpg", "jpeg", "gif", "svg", "webp", "avif", "ico" -> "image";
+            default -> "fetch";
+        };
+    }
+}
@@ -8,6 +8,7 @@ import play.libs.Codec;
 import play.libs.F;
 import play.libs.F.BlockingEventStream;
 import play.libs.Time;
+import play.server.ByteBufResponseOutput;
 import play.utils.HTTP;
 import play.utils.Utils;
 
@@ -16,6 +17,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -833,8 +835,24 @@ public class Http {
         }
 
         public void print(Object o) {
+            print(o.toString(), encoding);
+        }
+
+        /**
+         * Write text to the response body, encoded straight into the body buffers when the server gave some
+         *
+         * @param text
+         *            the text
+         * @param encoding
+         *            the encoding of the text
+         */
+        public void print(CharSequence text, String encoding) {
             try {
-                out.write(o.toString().getBytes(encoding));
+                if (out instanceof ByteBufResponseOutput output) {
+                    output.write(text, Charset.forName(encoding));
+                } else {
+                    out.write(text.toString().getBytes(encoding));
+                }
             } catch (IOException ex) {
                 throw new UnexpectedException("Encoding problem ?", ex);
             }
@@ -861,6 +879,69 @@ public class Http {
         public void onWriteChunk(Consumer<Object> handler) {
             writeChunkHandlers.add(handler);
         }
+
+        /**
+         * @return true if the server can send this response in chunks
+         */
+        public boolean canWriteChunks() {
+            return !writeChunkHandlers.isEmpty();
+        }
+
+        // Early hints
+        final Set<String> preloads = new LinkedHashSet<>();
+        Consumer<List<String>> earlyHintsHandler;
+
+        /**
+         * Declare a resource needed by the page: it is sent in the <code>103 Early Hints</code> of the request (one per
+         * request, with the links declared meanwhile), and in the <code>Link</code> header of the response
+         *
+         * @param url
+         *            the url of the resource
+         */
+        public void preload(String url) {
+            preload(url, null);
+        }
+
+        /**
+         * Declare a resource needed by the page
+         *
+         * @param url
+         *            the url of the resource
+         * @param as
+         *            its destination: style, script, font, image... (null to guess it from the extension)
+         */
+        public void preload(String url, String as) {
+            earlyHints(Collections.singletonList(EarlyHints.link(url, as)));
+        }
+
+        /**
+         * Send Link header values in one <code>103 Early Hints</code>, those already sent are skipped
+         */
+        public void earlyHints(Collection<String> links) {
+            List<String> added = new ArrayList<>(links.size());
+            for (String link : links) {
+                if (preloads.add(link)) {
+                    added.add(link);
+                }
+            }
+            if (added.isEmpty()) {
+                return;
+            }
+            Header header = headers.get("Link");
+            if (header == null) {
+                headers.put("Link", new Header("Link", new ArrayList<>(added)));
+            } else {
+                header.values.addAll(added);
+            }
+            // too late once the response has started
+            if (earlyHintsHandler != null && !chunked && EarlyHints.get().enabled()) {
+                earlyHintsHandler.accept(added);
+            }
+        }
+
+        public void onEarlyHints(Consumer<List<String>> handler) {
+            earlyHintsHandler = handler;
+        }
     }
 
     /**
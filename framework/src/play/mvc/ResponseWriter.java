@@ -0,0 +1,107 @@
+package play.mvc;
+
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Writer of a response body, sent in chunks of <code>bufferSize</code> characters as it is written. A body that
+ * fits in the buffer is not chunked: it goes to the response body when the writer is closed, and the response keeps
+ * its Content-Length, ETag and compression.
+ */
+public class ResponseWriter extends Writer {
+
+    private final Http.Response response;
+    private final Charset charset;
+    private final char[] buffer;
+    private int position;
+    private boolean closed;
+
+    public ResponseWriter(Http.Response response, int bufferSize) {
+        this.response = response;
+        this.charset = Charset.forName(response.encoding);
+        this.buffer = new char[Math.max(bufferSize, 16)];
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        while (len > 0) {
+            int n = Math.min(len, buffer.length - position);
+            System.arraycopy(cbuf, off, buffer, position, n);
+            position += n;
+            off += n;
+            len -= n;
+            if (position == buffer.length) {
+                send();
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        while (len > 0) {
+            int n = Math.min(len, buffer.length - position);
+            str.getChars(off, off + n, buffer, position);
+            position += n;
+            off += n;
+            len -= n;
+            if (position == buffer.length) {
+                send();
+            }
+        }
+    }
+
+    @Override
+    public void write(int c) {
+        buffer[position++] = (char) c;
+        if (position == buffer.length) {
+            send();
+        }
+    }
+
+    /**
+     * Nothing is sent before the buffer is full: a short body is not chunked
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Send what is left
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (response.chunked) {
+            send();
+        } else if (position > 0) {
+            response.print(CharBuffer.wrap(buffer, 0, position), response.encoding);
+            position = 0;
+        }
+    }
+
+    private void send() {
+        // a surrogate pair is not split between two chunks
+        int length = position;
+        if (length > 1 && !closed && Character.isHighSurrogate(buffer[length - 1])) {
+            length--;
+        }
+        if (length == 0) {
+            return;
+        }
+        if (response.canWriteChunks()) {
+            ByteBuffer encoded = charset.encode(CharBuffer.wrap(buffer, 0, length));
+            byte[] chunk = new byte[encoded.remaining()];
+            encoded.get(chunk);
+            response.writeChunk(chunk);
+        } else {
+            response.print(CharBuffer.wrap(buffer, 0, length), response.encoding);
+        }
+        System.arraycopy(buffer, length, buffer, 0, position - length);
+        position -= length;
+    }
+}
@@ -0,0 +1,349 @@
+package play.mvc;
+
+import play.Play;
+import play.utils.Default;
+import play.utils.Utils;
+
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reverse routing table, used by {@link Router#reverse(String, Map)}.
+ * <p>
+ * For each action the routes that may produce it are kept with their path split around the arguments, and the routes
+ * that are eligible for a given set of argument names (and request format) are remembered, so a lookup only checks the
+ * argument values against those routes and builds the url without any regex. Actions with a dynamic host, and
+ * <code>List</code> values given to path arguments, are left to the full algorithm.
+ */
+public final class ReverseRoutes {
+
+    private static final Pattern PATH_ARG = Pattern.compile("\\{(<[^>]+>)?([a-zA-Z_0-9]+)\\}");
+    /**
+     * Signatures remembered per action, more are computed on each call
+     */
+    private static final int MAX_SIGNATURES = 64;
+    private static final Object ABSENT = new Object();
+
+    private final Map<String, Plan> plans = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    ReverseRoutes() {
+    }
+
+    /**
+     * Number of lookups whose routes were already known
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of lookups that had to select the eligible routes first
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of lookups left to the full reverse routing algorithm
+     */
+    public long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * Number of actions in the table
+     */
+    public int size() {
+        return plans.size();
+    }
+
+    void clear() {
+        plans.clear();
+    }
+
+    /**
+     * Same as the full algorithm, or null when it must be used instead. Like it, the action route arguments are added to
+     * <code>args</code>. No route found also gives null, so that the full algorithm reports it: <code>args</code> is
+     * then left as it was given.
+     */
+    Router.ActionDefinition reverse(String action, List<Router.ActionRoute> actionRoutes, Map<String, Object> args,
+            Map<String, Object> argsbackup, String encoding, String requestFormat) {
+        Plan plan = plans.computeIfAbsent(action, k -> new Plan(actionRoutes));
+        Charset charset = plan.complex ? null : charset(encoding);
+        if (charset == null) {
+            fallbacks.increment();
+            return null;
+        }
+        String signature = signature(args, requestFormat);
+        int[] eligible = plan.eligible.get(signature);
+        if (eligible == null) {
+            misses.increment();
+            eligible = plan.select(args, requestFormat);
+            if (plan.eligible.size() < MAX_SIGNATURES) {
+                plan.eligible.put(signature, eligible);
+            }
+        } else {
+            hits.increment();
+        }
+        int applied = 0;
+        // the values replaced by the route arguments, given back before the full algorithm runs
+        Map<String, Object> replaced = null;
+        for (int index : eligible) {
+            while (applied <= index) {
+                replaced = apply(plan.routes[applied++].args, args, replaced);
+            }
+            Router.Route route = plan.routes[index].route;
+            if (!valuesMatch(route, args)) {
+                continue;
+            }
+            Template template = plan.templates[index];
+            String path = template.build(args, charset);
+            if (path == null) {
+                fallbacks.increment();
+                restore(args, replaced);
+                return null;
+            }
+            StringBuilder url = new StringBuilder(path);
+            appendQueryString(url, route, template, args, argsbackup, charset);
+            Router.ActionDefinition actionDefinition = new Router.ActionDefinition();
+            actionDefinition.url = url.toString();
+            actionDefinition.method = route.method == null || route.method.equals("*") ? "GET" : route.method.toUpperCase();
+            actionDefinition.star = "*".equals(route.method);
+            actionDefinition.action = action;
+            actionDefinition.args = argsbackup;
+            actionDefinition.host = route.host;
+            if (Boolean.parseBoolean(Play.configuration.getProperty("application.forceSecureReverseRoutes", "false"))) {
+                actionDefinition.secure();
+            }
+            return actionDefinition;
+        }
+        fallbacks.increment();
+        restore(args, replaced);
+        return null;
+    }
+
+    private static Map<String, Object> apply(Map<String, String> routeArgs, Map<String, Object> args, Map<String, Object> replaced) {
+        for (Map.Entry<String, String> entry : routeArgs.entrySet()) {
+            if (replaced == null) {
+                replaced = new HashMap<>();
+            }
+            if (!replaced.containsKey(entry.getKey())) {
+                replaced.put(entry.getKey(), args.containsKey(entry.getKey()) ? args.get(entry.getKey()) : ABSENT);
+            }
+            args.put(entry.getKey(), entry.getValue());
+        }
+        return replaced;
+    }
+
+    private static void restore(Map<String, Object> args, Map<String, Object> replaced) {
+        if (replaced != null) {
+            for (Map.Entry<String, Object> entry : replaced.entrySet()) {
+                if (entry.getValue() == ABSENT) {
+                    args.remove(entry.getKey());
+                } else {
+                    args.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static boolean valuesMatch(Router.Route route, Map<String, Object> args) {
+        for (Router.Route.Arg arg : route.args) {
+            Object value = args.get(arg.name);
+            if (value instanceof List<?> l) {
+                value = l.get(0);
+            }
+            if (!value.toString().startsWith(":") && !arg.constraint.matcher(Utils.urlEncodePath(value.toString())).matches()) {
+                return false;
+            }
+        }
+        for (Map.Entry<String, String> staticArg : route.staticArgs.entrySet()) {
+            if (!staticArg.getKey().equals("format") && !args.get(staticArg.getKey()).toString().equals(staticArg.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendQueryString(StringBuilder url, Router.Route route, Template template, Map<String, Object> args,
+            Map<String, Object> argsbackup, Charset charset) {
+        char separator = '?';
+        for (Map.Entry<String, Object> entry : args.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (value == null || template.names.contains(key) || route.staticArgs.containsKey(key) || !argsbackup.containsKey(key)
+                    || value.getClass().equals(Default.class)) {
+                continue;
+            }
+            Collection<?> values = value instanceof List<?> l ? l : Collections.singletonList(value);
+            for (Object object : values) {
+                url.append(separator).append(URLEncoder.encode(key, charset)).append('=');
+                String objStr = object.toString();
+                // Special case to handle jsAction tag
+                if (objStr.startsWith(":") && objStr.length() > 1) {
+                    url.append(':');
+                    objStr = objStr.substring(1);
+                }
+                url.append(URLEncoder.encode(objStr, charset));
+                separator = '&';
+            }
+        }
+    }
+
+    private static String signature(Map<String, Object> args, String requestFormat) {
+        String[] names = new String[args.size()];
+        int n = 0;
+        for (Map.Entry<String, Object> entry : args.entrySet()) {
+            if (entry.getValue() != null) {
+                names[n++] = entry.getKey();
+            }
+        }
+        Arrays.sort(names, 0, n);
+        StringBuilder signature = new StringBuilder(requestFormat);
+        for (int i = 0; i < n; i++) {
+            signature.append('\u0000').append(names[i]);
+        }
+        return signature.toString();
+    }
+
+    private static Charset charset(String encoding) {
+        try {
+            return Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The routes of one action
+     */
+    private static final class Plan {
+        final Router.ActionRoute[] routes;
+        final Template[] templates;
+        /**
+         * A route with a dynamic host, whose arguments may be missing
+         */
+        final boolean complex;
+        final Map<String, int[]> eligible = new ConcurrentHashMap<>();
+
+        Plan(List<Router.ActionRoute> actionRoutes) {
+            routes = actionRoutes.toArray(new Router.ActionRoute[0]);
+            templates = new Template[routes.length];
+            boolean complex = false;
+            for (int i = 0; i < routes.length; i++) {
+                Router.Route route = routes[i].route;
+                templates[i] = new Template(route.path);
+                complex |= route.host == null || route.host.contains("{");
+                for (Router.Route.Arg arg : route.args) {
+                    complex |= route.host != null && (route.host.equals(arg.name) || route.host.matches(arg.name));
+                }
+            }
+            this.complex = complex;
+        }
+
+        /**
+         * Indexes of the routes whose arguments are all given, in order
+         */
+        int[] select(Map<String, Object> args, String requestFormat) {
+            Set<String> given = new HashSet<>();
+            for (Map.Entry<String, Object> entry : args.entrySet()) {
+                if (entry.getValue() != null) {
+                    given.add(entry.getKey());
+                }
+            }
+            int[] eligible = new int[routes.length];
+            int n = 0;
+            for (int i = 0; i < routes.length; i++) {
+                given.addAll(routes[i].args.keySet());
+                if (accepts(routes[i].route, given, requestFormat)) {
+                    eligible[n++] = i;
+                }
+            }
+            return Arrays.copyOf(eligible, n);
+        }
+
+        private static boolean accepts(Router.Route route, Set<String> given, String requestFormat) {
+            for (Router.Route.Arg arg : route.args) {
+                if (!given.contains(arg.name)) {
+                    return false;
+                }
+            }
+            for (Map.Entry<String, String> staticArg : route.staticArgs.entrySet()) {
+                if (staticArg.getKey().equals("format") ? !requestFormat.equals(staticArg.getValue()) : !given.contains(staticArg.getKey())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A route path split around its arguments
+     */
+    private static final class Template {
+        final String[] literals;
+        final String[] args;
+        final Set<String> names = new HashSet<>();
+
+        Template(String path) {
+            if (path.endsWith("/?")) {
+                path = path.substring(0, path.length() - 2);
+            }
+            List<String> literals = new ArrayList<>();
+            List<String> args = new ArrayList<>();
+            Matcher matcher = PATH_ARG.matcher(path);
+            int start = 0;
+            while (matcher.find()) {
+                literals.add(path.substring(start, matcher.start()));
+                args.add(matcher.group(2));
+                start = matcher.end();
+            }
+            literals.add(path.substring(start));
+            this.literals = literals.toArray(new String[0]);
+            this.args = args.toArray(new String[0]);
+            this.names.addAll(args);
+        }
+
+        /**
+         * The path with the encoded argument values, null if one is a list
+         */
+        String build(Map<String, Object> values, Charset charset) {
+            StringBuilder path = new StringBuilder(literals[0]);
+            for (int i = 0; i < args.length; i++) {
+                Object value = values.get(args[i]);
+                if (value instanceof List) {
+                    return null;
+                }
+                encodePathValue(path, value.toString(), charset);
+                path.append(literals[i + 1]);
+            }
+            return path.toString();
+        }
+
+        private static void encodePathValue(StringBuilder path, String value, Charset charset) {
+            String encoded = URLEncoder.encode(value, charset);
+            for (int i = 0; i < encoded.length(); i++) {
+                char c = encoded.charAt(i);
+                if (c == '+') {
+                    path.append("%20");
+                } else if (c == '%' && encoded.startsWith("%3A", i)) {
+                    path.append(':');
+                    i += 2;
+                } else if (c == '%' && encoded.startsWith("%40", i)) {
+                    path.append('@');
+                    i += 2;
+                } else {
+                    path.append(c);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package play.mvc;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The routes compiled into one segment trie per HTTP method.
+ * <p>
+ * A lookup walks literal segments first, then <code>{name}</code> segments, then the typed
+ * <code>{&lt;regex&gt;name}</code> segments whose regex cannot span a '/', and returns every route that may match, in
+ * the routes file order. Routes the trie cannot describe (regex in a literal segment, mixed segments, staticDir,
+ * open-ended regexes...) are kept as wildcards on the deepest node they can reach, so the first-match-wins scan over
+ * the candidates gives the same result as a scan over all the routes.
+ */
+final class RouteTrie {
+
+    private static final Pattern SEGMENT_ARG = Pattern.compile("\\{(?:<([^>]+)>)?([a-zA-Z_0-9]+)\\}");
+    private static final Pattern SINGLE_SEGMENT_REGEX = Pattern.compile("(\\\\[dw]|\\[[^\\]^/\\\\.]*\\]|[a-zA-Z0-9_\\-+*?|(){},])+");
+    private static final String METHODS[] = { "GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "HEAD", "WS" };
+
+    private final Map<String, Node> roots = new HashMap<>(16);
+    private final List<Router.Route> routes;
+
+    RouteTrie(List<Router.Route> routes) {
+        this.routes = new ArrayList<>(routes);
+        for (String method : METHODS) {
+            roots.put(method, new Node());
+        }
+        for (int i = 0; i < this.routes.size(); i++) {
+            Router.Route route = this.routes.get(i);
+            for (String method : METHODS) {
+                if (accepts(route, method)) {
+                    add(roots.get(method), route, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Size of the route list this trie was built from
+     */
+    int size() {
+        return routes.size();
+    }
+
+    /**
+     * The routes that may match, in order, or null when the trie can't tell (unknown method)
+     */
+    List<Router.Route> candidates(String method, String path, String ctxPath) {
+        if (method == null || path == null || !path.startsWith("/")) {
+            return null;
+        }
+        Node root = roots.get(method.toUpperCase());
+        if (root == null) {
+            return null;
+        }
+        if (path.equals(ctxPath)) {
+            path = path + "/";
+        }
+        String[] segments = path.substring(1).split("/", -1);
+        BitSet found = new BitSet(routes.size());
+        collect(root, segments, 0, found);
+        List<Router.Route> candidates = new ArrayList<>(found.cardinality());
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+            candidates.add(routes.get(i));
+        }
+        return candidates;
+    }
+
+    private static void collect(Node node, String[] segments, int depth, BitSet found) {
+        found.or(node.wildcards);
+        if (depth == segments.length) {
+            found.or(node.terminals);
+            return;
+        }
+        String segment = segments[depth];
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            collect(literal, segments, depth + 1, found);
+        }
+        if (node.param != null && !segment.isEmpty()) {
+            collect(node.param, segments, depth + 1, found);
+        }
+        for (Typed typed : node.typed) {
+            if (typed.pattern.matcher(segment).matches()) {
+                collect(typed.node, segments, depth + 1, found);
+            }
+        }
+    }
+
+    private static boolean accepts(Router.Route route, String method) {
+        String routeMethod = route.method == null ? "*" : route.method.toUpperCase();
+        return routeMethod.equals("*") || routeMethod.equals(method) || (method.equals("HEAD") && routeMethod.equals("GET"));
+    }
+
+    private static void add(Node root, Router.Route route, int index) {
+        String path = route.path;
+        if (route.pattern == null || path == null || !path.startsWith("/")) {
+            root.wildcards.set(index);
+            return;
+        }
+        boolean optionalSlash = false;
+        if (path.endsWith("/?")) {
+            optionalSlash = true;
+            path = path.substring(0, path.length() - 2);
+        }
+        List<String> segments = split(path.isEmpty() ? "" : path.substring(1));
+        if (segments == null) {
+            root.wildcards.set(index);
+            return;
+        }
+        boolean prefix = route.staticDir != null && !route.staticFile;
+        if (prefix) {
+            // "/public/" + resource: the last (empty) segment is where the resource starts
+            segments = segments.subList(0, segments.size() - 1);
+        }
+        Node node = root;
+        boolean described = true;
+        for (String segment : segments) {
+            Node next = child(node, segment);
+            if (next == null) {
+                // A segment the trie can't describe, anything deeper may match
+                described = false;
+                break;
+            }
+            node = next;
+        }
+        if (!described || prefix) {
+            node.wildcards.set(index);
+        } else {
+            node.terminals.set(index);
+            if (optionalSlash) {
+                node.literals.computeIfAbsent("", k -> new Node()).terminals.set(index);
+            }
+        }
+    }
+
+    /**
+     * The child node for a route segment, null if the segment needs the whole route regex
+     */
+    private static Node child(Node node, String segment) {
+        Matcher arg = SEGMENT_ARG.matcher(segment);
+        if (arg.matches()) {
+            String regex = arg.group(1);
+            if (regex == null || regex.equals("[^/]+")) {
+                if (node.param == null) {
+                    node.param = new Node();
+                }
+                return node.param;
+            }
+            if (!SINGLE_SEGMENT_REGEX.matcher(regex).matches()) {
+                return null;
+            }
+            for (Typed typed : node.typed) {
+                if (typed.regex.equals(regex)) {
+                    return typed.node;
+                }
+            }
+            Typed typed = new Typed(regex);
+            node.typed.add(typed);
+            return typed.node;
+        }
+        if (!isLiteral(segment)) {
+            return null;
+        }
+        return node.literals.computeIfAbsent(segment, k -> new Node());
+    }
+
+    private static boolean isLiteral(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if ("\\.[]{}()*+?^$|".indexOf(segment.charAt(i)) > -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Split a route path on the '/' that are not part of a <code>{&lt;regex&gt;name}</code>
+     */
+    private static List<String> split(String path) {
+        List<String> segments = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int i = 0;
+        while (i < path.length()) {
+            char c = path.charAt(i);
+            if (c == '{' && i + 1 < path.length() && path.charAt(i + 1) == '<') {
+                int end = path.indexOf('>', i);
+                end = end < 0 ? -1 : path.indexOf('}', end);
+                if (end < 0) {
+                    return null;
+                }
+                current.append(path, i, end + 1);
+                i = end + 1;
+            } else if (c == '/') {
+                segments.add(current.toString());
+                current.setLength(0);
+                i++;
+            } else {
+                current.append(c);
+                i++;
+            }
+        }
+        segments.add(current.toString());
+        return segments;
+    }
+
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<>(4);
+        Node param;
+        final List<Typed> typed = new ArrayList<>(1);
+        final BitSet terminals = new BitSet();
+        final BitSet wildcards = new BitSet();
+    }
+
+    private static final class Typed {
+        final String regex;
+        final Pattern pattern;
+        final Node node = new Node();
+
+        Typed(String regex) {
+            this.regex = regex;
+            this.pattern = Pattern.compile(regex);
+        }
+    }
+}
@@ -54,7 +54,9 @@ public class Router {
      */
     public static void load(String prefix) {
         routes.clear();
+        trie = null;
         actionRoutesCache.clear();
+        reverseRoutes.clear();
         RouterAnnotation obj = new RouterAnnotation();
         obj.computeRoutes();
         // parse conf/routes app n modules
@@ -115,6 +117,9 @@ public class Router {
             position = routes.size();
         }
         routes.add(position, getRoute(method, path, action, params, headers));
+        trie = null;
+        actionRoutesCache.clear();
+        reverseRoutes.clear();
     }
 
     /**
@@ -220,6 +225,9 @@ public class Router {
      */
     public static void appendRoute(String method, String path, String action, String params, String headers, String sourceFile, int line) {
         routes.add(getRoute(method, path, action, params, headers, sourceFile, line));
+        trie = null;
+        actionRoutesCache.clear();
+        reverseRoutes.clear();
     }
 
     public static Route getRoute(String method, String path, String action, String params, String headers) {
@@ -258,6 +266,9 @@ public class Router {
      */
     public static void prependRoute(String method, String path, String action, String params, String headers) {
         routes.add(0, getRoute(method, path, action, params, headers));
+        trie = null;
+        actionRoutesCache.clear();
+        reverseRoutes.clear();
     }
 
     /**
@@ -353,8 +364,26 @@ public class Router {
      */
     public static final List<Route> routes = new CopyOnWriteArrayList<>();
 
+    /**
+     * The routes compiled for lookup, rebuilt on the first request after a change
+     */
+    private static volatile RouteTrie trie;
+
+    /**
+     * The routes that may match this request, in the routes file order
+     */
+    static List<Route> candidates(String method, String path) {
+        RouteTrie current = trie;
+        if (current == null || current.size() != routes.size()) {
+            current = new RouteTrie(routes);
+            trie = current;
+        }
+        List<Route> candidates = current.candidates(method, path, Play.ctxPath);
+        return candidates == null ? routes : candidates;
+    }
+
     public static void routeOnlyStatic(Http.Request request) {
-        for (Route route : routes) {
+        for (Route route : candidates(request.method, request.path)) {
             try {
                 Map<String, String> args = route.matches(request.method, request.path, request.format, request.domain);
                 if (args != null) {
@@ -412,7 +441,7 @@ public class Router {
                 request.method = matcher.group("method");
             }
         }
-        for (Route route : routes) {
+        for (Route route : candidates(request.method, request.path)) {
             Map<String, String> args = route.matches(request.method, request.path, request.format, request.domain);
             if (args != null) {
                 request.routeArgs = args;
@@ -451,7 +480,7 @@ public class Router {
     }
 
     public static Map<String, String> route(String method, String path, String headers, String host) {
-        for (Route route : routes) {
+        for (Route route : candidates(method, path)) {
             Map<String, String> args = route.matches(method, path, headers, host);
             if (args != null) {
                 args.put("action", route.action);
@@ -523,6 +552,7 @@ public class Router {
                     if (to.endsWith("/index.html")) {
                         to = to.substring(0, to.length() - "/index.html".length() + 1);
                     }
+                    to = AssetManifest.get().fingerprint(file, to);
                     if (absolute) {
                         boolean isSecure = Http.Request.current() != null && Http.Request.current().secure;
                         String base = getBaseUrl();
@@ -563,6 +593,10 @@ public class Router {
         String requestFormat = request == null || request.format == null ? "" : request.format;
 
         List<ActionRoute> matchingRoutes = getActionRoutes(action);
+        ActionDefinition cached = reverseRoutes.reverse(action, matchingRoutes, args, argsbackup, encoding, requestFormat);
+        if (cached != null) {
+            return cached;
+        }
         for (ActionRoute actionRoute : matchingRoutes) {
             Route route = actionRoute.route;
             args.putAll(actionRoute.args);
@@ -737,6 +771,11 @@ public class Router {
 
     private static final Map<String, List<ActionRoute>> actionRoutesCache = new ConcurrentHashMap<>();
 
+    /**
+     * Precomputed reverse routes, see {@link ReverseRoutes} for the hit/miss counters
+     */
+    public static final ReverseRoutes reverseRoutes = new ReverseRoutes();
+
     private static List<ActionRoute> getActionRoutes(String action) {
         List<ActionRoute> matchingRoutes = actionRoutesCache.get(action);
         if (matchingRoutes == null) {
@@ -767,9 +806,9 @@ public class Router {
         return matchingRoutes;
     }
 
-    private static final class ActionRoute {
-        private final Route route;
-        private final Map<String, String> args = new HashMap<>(2);
+    static final class ActionRoute {
+        final Route route;
+        final Map<String, String> args = new HashMap<>(2);
 
         public ActionRoute(Route route){
             this.route = route;
@@ -880,6 +919,10 @@ public class Router {
         final List<String> formats = new ArrayList<>(1);
         String host;
         Arg hostArg = null;
+        /**
+         * No regex needed to match the path
+         */
+        boolean literal;
         public int routesFileLine;
         public String routesFile;
         static final Pattern customRegexPattern = Pattern.compile("\\{([a-zA-Z_][a-zA-Z_0-9]*)\\}");
@@ -963,6 +1006,7 @@ public class Router {
                 }
                 patternString = argsPattern.matcher(patternString).replaceAll("(?<$2>$1)");
                 this.pattern = Pattern.compile(patternString);
+                this.literal = args.isEmpty() && path.chars().noneMatch(c -> "\\.[]{}()*+?^$|".indexOf(c) > -1);
                 // Action pattern
                 patternString = action;
                 patternString = patternString.replace(".", "[.]");
@@ -1049,7 +1093,7 @@ public class Router {
             if (method == null || this.method.equals("*") || method.equalsIgnoreCase(this.method)
                     || (method.equalsIgnoreCase("head") && ("get").equalsIgnoreCase(this.method))) {
 
-                Matcher matcher = pattern.matcher(path);
+                Matcher matcher = literal ? null : pattern.matcher(path);
 
                 boolean hostMatches = (domain == null);
                 if (domain != null) {
@@ -1058,7 +1102,7 @@ public class Router {
                     hostMatches = hostMatcher.matches();
                 }
                 // Extract the host variable
-                if (matcher.matches() && contains(accept) && hostMatches) {
+                if ((literal ? path.equals(this.path) : matcher.matches()) && contains(accept) && hostMatches) {
                     // 404
                     if (action.equals("404")) {
                         throw new NotFound(method, path);
@@ -56,7 +56,7 @@ public class RenderJson extends Result {
         try {
             String encoding = getEncoding();
             setContentTypeIfNotSet(response, "application/json; charset=" + encoding);
-            response.out.write(json.getBytes(encoding));
+            response.print(json, encoding);
         } catch (Exception e) {
             throw new UnexpectedException(e);
         }
@@ -1,6 +1,7 @@
 package play.mvc.results;
 
 import play.Play;
+import play.mvc.AssetManifest;
 import play.mvc.Http.Request;
 import play.mvc.Http.Response;
 import play.utils.FileUtils;
@@ -11,10 +12,16 @@ public class RenderStatic extends Result {
 
     public final String file;
     public final File resolvedFile;
+    /**
+     * A fingerprinted url of the current content, see {@link AssetManifest}
+     */
+    public final boolean immutable;
 
     public RenderStatic(String file) {
         String relativePath = file;
-        this.resolvedFile = Play.getVirtualFile(file);
+        AssetManifest.Asset asset = AssetManifest.get().resolve(file, Play::getVirtualFile);
+        this.resolvedFile = asset != null ? asset.file : Play.getVirtualFile(file);
+        this.immutable = asset != null && asset.immutable;
         if (resolvedFile != null && resolvedFile.exists() && resolvedFile.isDirectory()) {
             File vf = new File(resolvedFile, "index.html");
             if (vf != null) {
@@ -0,0 +1,170 @@
+package play.mvc.results;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import play.exceptions.PlayException;
+import play.exceptions.UnexpectedException;
+import play.mvc.Http.Request;
+import play.mvc.Http.Response;
+import play.mvc.ResponseWriter;
+import play.templates.types.SafeCSVFormatter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 200 OK with the rows of a stream, written one by one as they are read: with <code>QueryBuilder.stream()</code> a
+ * whole table goes out through a database cursor without being loaded in memory. The rows are sent in chunks, a slow
+ * client holds the action back (see <code>play.netty.chunked.bufferSize</code>). The stream is closed at the end, and
+ * an error past the first chunk can only abort the response.
+ */
+public class RenderStream extends Result {
+
+    public enum Format {
+        /**
+         * a header line, then one line per row
+         */
+        CSV("text/csv"),
+        /**
+         * a JSON array of the rows
+         */
+        JSON("application/json"),
+        /**
+         * one JSON object per line
+         */
+        NDJSON("application/x-ndjson");
+
+        final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+    }
+
+    private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+    private static final SafeCSVFormatter CSV = new SafeCSVFormatter();
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final Stream<?> rows;
+    private final Format format;
+    private final List<String> columns;
+    private String name;
+
+    /**
+     * @param columns
+     *            the CSV columns, in order. By default the fields of the first row
+     */
+    public RenderStream(Stream<?> rows, Format format, String... columns) {
+        this.rows = rows;
+        this.format = format;
+        this.columns = new ArrayList<>(Arrays.asList(columns));
+    }
+
+    /**
+     * Send the rows as an attachment
+     *
+     * @param name
+     *            the file name offered to the user
+     */
+    public RenderStream attachment(String name) {
+        this.name = name;
+        return this;
+    }
+
+    @Override
+    public void apply(Request request, Response response) {
+        try (rows) {
+            String encoding = getEncoding();
+            // the headers go with the first chunk
+            setContentTypeIfNotSet(response, format.contentType + "; charset=" + encoding);
+            if (name != null) {
+                response.setHeader("Content-Disposition", "attachment; filename=\"" + name + "\"");
+            }
+            ResponseWriter writer = new ResponseWriter(response, CHUNK_SIZE);
+            switch (format) {
+                case CSV -> writeCsv(writer);
+                case JSON -> writeJson(writer);
+                case NDJSON -> writeNdjson(writer);
+            }
+            writer.close();
+        } catch (PlayException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
+    private void writeJson(Writer writer) throws IOException {
+        writer.write('[');
+        boolean first = true;
+        for (Iterator<?> it = rows.iterator(); it.hasNext(); first = false) {
+            if (!first) {
+                writer.write(',');
+            }
+            GSON.toJson(it.next(), writer);
+        }
+        writer.write(']');
+    }
+
+    private void writeNdjson(Writer writer) throws IOException {
+        for (Iterator<?> it = rows.iterator(); it.hasNext(); ) {
+            GSON.toJson(it.next(), writer);
+            writer.write('\n');
+        }
+    }
+
+    private void writeCsv(Writer writer) throws IOException {
+        boolean header = true;
+        for (Iterator<?> it = rows.iterator(); it.hasNext(); ) {
+            JsonElement row = GSON.toJsonTree(it.next());
+            if (header) {
+                if (columns.isEmpty() && row.isJsonObject()) {
+                    columns.addAll(row.getAsJsonObject().keySet());
+                }
+                if (!columns.isEmpty()) {
+                    writeCsvLine(writer, columns);
+                }
+                header = false;
+            }
+            List<String> values = new ArrayList<>();
+            if (row.isJsonObject()) {
+                JsonObject object = row.getAsJsonObject();
+                for (String column : columns) {
+                    values.add(text(object.get(column)));
+                }
+            } else if (row.isJsonArray()) {
+                for (JsonElement value : (JsonArray) row) {
+                    values.add(text(value));
+                }
+            } else {
+                values.add(text(row));
+            }
+            writeCsvLine(writer, values);
+        }
+    }
+
+    private static void writeCsvLine(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(CSV.format(null, values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String text(JsonElement value) {
+        if (value == null || value.isJsonNull()) {
+            return null;
+        }
+        return value.isJsonPrimitive() ? value.getAsString() : value.toString();
+    }
+}
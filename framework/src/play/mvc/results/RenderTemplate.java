@@ -1,22 +1,33 @@
 package play.mvc.results;
 
+import play.Play;
+import play.cache.CacheFor;
+import play.exceptions.PlayException;
 import play.exceptions.UnexpectedException;
 import play.libs.MimeTypes;
 import play.mvc.Http.Request;
 import play.mvc.Http.Response;
+import play.mvc.ResponseWriter;
 import play.templates.Template;
+import play.utils.Utils;
 
 import java.util.Map;
 
 /**
- * 200 OK with a template rendering
+ * 200 OK with a template rendering.
+ * <p>
+ * With <code>play.templates.streaming=true</code> the template is rendered when the result is applied, straight to
+ * the response: a page bigger than <code>play.templates.streaming.bufferSize</code> is sent in chunks while it is
+ * rendered. An error past the first chunk can only abort the response. The page of an action with {@link CacheFor}
+ * is rendered right away: the result is kept in the cache, not the template and its arguments.
  */
 public class RenderTemplate extends Result {
 
     private final String name;
+    private final Template template;
     private final String content;
     private final Map<String, Object> arguments;
-    private final long renderTime;
+    private long renderTime;
 
     public RenderTemplate(Template template, Map<String, Object> arguments) {
         if (arguments.get("out") != null) {
@@ -24,16 +35,44 @@ public class RenderTemplate extends Result {
         }
         this.name = template.name;
         this.arguments = arguments;
-        long start = System.currentTimeMillis();
-        this.content = template.render(arguments);
-        this.renderTime = System.currentTimeMillis() - start;
+        if (streaming()) {
+            this.template = template;
+            this.content = null;
+        } else {
+            this.template = null;
+            long start = System.currentTimeMillis();
+            this.content = template.render(arguments);
+            this.renderTime = System.currentTimeMillis() - start;
+        }
     }
+
+    private static boolean streaming() {
+        if (Play.configuration == null || !Boolean.parseBoolean(Play.configuration.getProperty("play.templates.streaming", "false"))) {
+            return false;
+        }
+        Request request = Request.current();
+        return request == null || request.invokedMethod == null || !request.invokedMethod.isAnnotationPresent(CacheFor.class);
+    }
+
     @Override
     public void apply(Request request, Response response) {
         try {
             String contentType = MimeTypes.getContentType(name, "text/plain");
-            response.out.write(content.getBytes(getEncoding()));
+            if (template != null) {
+                // the headers go with the first chunk
+                setContentTypeIfNotSet(response, contentType);
+                int bufferSize = (int) Utils.parseSize(Play.configuration.getProperty("play.templates.streaming.bufferSize", "16KB"));
+                long start = System.currentTimeMillis();
+                ResponseWriter writer = new ResponseWriter(response, bufferSize);
+                template.render(arguments, writer);
+                writer.close();
+                renderTime = System.currentTimeMillis() - start;
+                return;
+            }
+            response.print(content, getEncoding());
             setContentTypeIfNotSet(response, contentType);
+        } catch (PlayException e) {
+            throw e;
         } catch (Exception e) {
             throw new UnexpectedException(e);
         }
@@ -43,6 +82,9 @@ public class RenderTemplate extends Result {
         return name;
     }
 
+    /**
+     * @return the rendered page, null in streaming mode
+     */
     public String getContent() {
         return content;
     }
@@ -19,7 +19,7 @@ public class RenderText extends Result {
     public void apply(Request request, Response response) {
         try {
             setContentTypeIfNotSet(response, "text/plain; charset=" + response.encoding);
-            response.out.write(text.getBytes(getEncoding()));
+            response.print(text, getEncoding());
         } catch(Exception e) {
             throw new UnexpectedException(e);
         }
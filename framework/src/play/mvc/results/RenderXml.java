@@ -24,7 +24,7 @@ public class RenderXml extends Result {
     public void apply(Request request, Response response) {
         try {
             setContentTypeIfNotSet(response, "text/xml");
-            response.out.write(xml.getBytes(getEncoding()));
+            response.print(xml, getEncoding());
         } catch(Exception e) {
             throw new UnexpectedException(e);
         }
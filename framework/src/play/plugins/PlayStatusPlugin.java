@@ -15,11 +15,15 @@ import org.apache.commons.text.WordUtils;
 import play.Logger;
 import play.Play;
 import play.PlayPlugin;
+import play.cache.Cache;
+import play.db.jdbc.ParsedSql;
 import play.libs.Json;
 import play.libs.Time;
 import play.mvc.Http.Header;
 import play.mvc.Http.Request;
 import play.mvc.Http.Response;
+import play.mvc.Router;
+import play.server.StaticFileCache;
 
 import java.io.*;
 import java.net.URI;
@@ -269,6 +273,31 @@ public class PlayStatusPlugin extends PlayPlugin {
         out.println("<tr><td>Started at</td><td>"+(Play.started ? DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm").format(Time.toLocalDateTime(Play.startedAt)) : "Not yet started")+"</td></tr>");
         out.println("</table>");
         out.println();
+        out.println("<h6>Router</h6>");
+        out.println("<table class=\"table table-sm table-striped\">");
+        out.println("<tr><td>Routes</td><td>"+Router.routes.size()+"</td></tr>");
+        out.println("<tr><td>Reverse routes cached actions</td><td>"+Router.reverseRoutes.size()+"</td></tr>");
+        out.println("<tr><td>Reverse routes hits</td><td>"+Router.reverseRoutes.hits()+"</td></tr>");
+        out.println("<tr><td>Reverse routes misses</td><td>"+Router.reverseRoutes.misses()+"</td></tr>");
+        out.println("<tr><td>Reverse routes fallbacks</td><td>"+Router.reverseRoutes.fallbacks()+"</td></tr>");
+        out.println("</table>");
+        out.println();
+        out.println("<h6>Cache</h6>");
+        out.println("<table class=\"table table-sm table-striped\">");
+        out.println("<tr><td>Implementation</td><td>"+(Cache.cacheImpl == null ? "(not started)" : Cache.cacheImpl.getClass().getSimpleName())+"</td></tr>");
+        Cache.stats().forEach((name, value) -> out.println("<tr><td>"+WordUtils.capitalize(name)+"</td><td>"+value+"</td></tr>"));
+        out.println("</table>");
+        out.println();
+        out.println("<h6>Static file cache</h6>");
+        out.println("<table class=\"table table-sm table-striped\">");
+        StaticFileCache.get().stats().forEach((name, value) -> out.println("<tr><td>"+WordUtils.capitalize(name)+"</td><td>"+value+"</td></tr>"));
+        out.println("</table>");
+        out.println();
+        out.println("<h6>SQL cache</h6>");
+        out.println("<table class=\"table table-sm table-striped\">");
+        ParsedSql.stats().forEach((name, value) -> out.println("<tr><td>"+WordUtils.capitalize(name)+"</td><td>"+value+"</td></tr>"));
+        out.println("</table>");
+        out.println();
         out.println("<h6>Loaded modules:</h6>");
         out.println("<table class=\"table table-sm table-striped\">");
         Play.modules.forEach((k, v) -> {
@@ -324,6 +353,34 @@ public class PlayStatusPlugin extends PlayPlugin {
             status.add("application", application);
         }
 
+        {
+            JsonObject cache = new JsonObject();
+            Cache.stats().forEach(cache::addProperty);
+            status.add("cache", cache);
+        }
+
+        {
+            JsonObject staticCache = new JsonObject();
+            StaticFileCache.get().stats().forEach(staticCache::addProperty);
+            status.add("staticCache", staticCache);
+        }
+
+        {
+            JsonObject sqlCache = new JsonObject();
+            ParsedSql.stats().forEach(sqlCache::addProperty);
+            status.add("sqlCache", sqlCache);
+        }
+
+        {
+            JsonObject router = new JsonObject();
+            router.addProperty("routes", Router.routes.size());
+            router.addProperty("reverseCached", Router.reverseRoutes.size());
+            router.addProperty("reverseHits", Router.reverseRoutes.hits());
+            router.addProperty("reverseMisses", Router.reverseRoutes.misses());
+            router.addProperty("reverseFallbacks", Router.reverseRoutes.fallbacks());
+            status.add("router", router);
+        }
+
         {
             JsonArray monitors = new JsonArray();
             try {
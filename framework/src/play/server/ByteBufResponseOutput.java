@@ -0,0 +1,253 @@
+package play.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Response body written straight into buffers of the channel allocator and handed to Netty as is
+ * (see {@link #takeContent(ByteArrayOutputStream)}), instead of a heap array copied again into a ByteBuf.
+ * <p>
+ * It is a ByteArrayOutputStream so that <code>Http.Response.out</code> keeps its type: all the methods are
+ * overridden and the inherited array is never used. The buffers are allocated on the first write, in chunks
+ * growing with the body, and gathered in a composite buffer so that growing never copies.
+ */
+public class ByteBufResponseOutput extends ByteArrayOutputStream {
+    private static final int MIN_CHUNK = 4 * 1024;
+    private static final int MAX_CHUNK = 64 * 1024;
+
+    private final ByteBufAllocator alloc;
+    // the full chunks
+    private CompositeByteBuf chunks;
+    // the chunk being written
+    private ByteBuf current;
+    private int size;
+
+    public ByteBufResponseOutput(ByteBufAllocator alloc) {
+        super(0);
+        this.alloc = alloc;
+    }
+
+    @Override
+    public void write(int b) {
+        writable(1).writeByte(b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            ByteBuf buffer = writable(1);
+            int n = Math.min(len, buffer.capacity() - buffer.writerIndex());
+            buffer.writeBytes(b, off, n);
+            off += n;
+            len -= n;
+            size += n;
+        }
+    }
+
+    @Override
+    public void writeBytes(byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    /**
+     * Encode the text directly into the body, without an intermediate byte array for UTF-8, US-ASCII and ISO-8859-1
+     */
+    public void write(CharSequence text, Charset charset) {
+        if (text.isEmpty()) {
+            return;
+        }
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            int length = ByteBufUtil.utf8Bytes(text);
+            ByteBufUtil.reserveAndWriteUtf8(writable(length), text, length);
+            size += length;
+        } else if (StandardCharsets.US_ASCII.equals(charset) || StandardCharsets.ISO_8859_1.equals(charset)) {
+            size += writable(text.length()).writeCharSequence(text, charset);
+        } else {
+            writeBytes(text.toString().getBytes(charset));
+        }
+    }
+
+    // a chunk with at least the given room, keeping the text encoded in write(CharSequence) in one piece
+    private ByteBuf writable(int minimum) {
+        if (current != null && current.capacity() - current.writerIndex() >= minimum) {
+            return current;
+        }
+        if (current != null && current.isReadable()) {
+            if (chunks == null) {
+                chunks = alloc.compositeBuffer(Integer.MAX_VALUE);
+            }
+            chunks.addComponent(true, current);
+        } else if (current != null) {
+            current.release();
+        }
+        current = alloc.buffer(Math.max(minimum, Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, size))));
+        return current;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        if (chunks != null) {
+            chunks.getBytes(chunks.readerIndex(), bytes, 0, chunks.readableBytes());
+            offset = chunks.readableBytes();
+        }
+        if (current != null) {
+            current.getBytes(current.readerIndex(), bytes, offset, current.readableBytes());
+        }
+        return bytes;
+    }
+
+    /**
+     * The first bytes of the body, at most <code>length</code>, without copying the rest
+     */
+    public byte[] getBytes(int length) {
+        byte[] bytes = new byte[Math.min(length, size)];
+        int offset = 0;
+        if (chunks != null) {
+            offset = Math.min(bytes.length, chunks.readableBytes());
+            chunks.getBytes(chunks.readerIndex(), bytes, 0, offset);
+        }
+        if (current != null && offset < bytes.length) {
+            current.getBytes(current.readerIndex(), bytes, offset, bytes.length - offset);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (chunks != null) {
+            chunks.getBytes(chunks.readerIndex(), out, chunks.readableBytes());
+        }
+        if (current != null) {
+            current.getBytes(current.readerIndex(), out, current.readableBytes());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(toByteArray(), Charset.defaultCharset());
+    }
+
+    @Override
+    public String toString(String charsetName) throws java.io.UnsupportedEncodingException {
+        return new String(toByteArray(), charsetName);
+    }
+
+    @Override
+    public String toString(Charset charset) {
+        return new String(toByteArray(), charset);
+    }
+
+    @Override
+    public void reset() {
+        release();
+    }
+
+    @Override
+    public void close() {
+        // like ByteArrayOutputStream, the body stays readable: the buffers are freed by takeContent or release
+    }
+
+    /**
+     * Give the body to the caller, which becomes responsible for releasing it. The output is empty afterward.
+     */
+    public ByteBuf takeContent() {
+        ByteBuf content;
+        if (chunks == null) {
+            content = current != null ? current : Unpooled.EMPTY_BUFFER;
+        } else {
+            if (current != null) {
+                chunks.addComponent(true, current);
+            }
+            content = chunks;
+        }
+        chunks = null;
+        current = null;
+        size = 0;
+        return content;
+    }
+
+    /**
+     * Free the buffers of a body that won't be sent
+     */
+    public void release() {
+        if (chunks != null) {
+            chunks.release();
+        }
+        if (current != null) {
+            current.release();
+        }
+        chunks = null;
+        current = null;
+        size = 0;
+    }
+
+    /**
+     * The body of a response, without copy when it was written in a ByteBufResponseOutput
+     */
+    public static ByteBuf takeContent(ByteArrayOutputStream out) {
+        if (out instanceof ByteBufResponseOutput output) {
+            return output.takeContent();
+        }
+        return Unpooled.wrappedBuffer(out.toByteArray());
+    }
+
+    /**
+     * The first bytes of the body of a response, at most <code>length</code>, without a copy of the whole body
+     */
+    public static byte[] head(ByteArrayOutputStream out, int length) {
+        if (out instanceof ByteBufResponseOutput output) {
+            return output.getBytes(length);
+        }
+        byte[] bytes = new byte[Math.min(length, out.size())];
+        try {
+            // writeTo hands over the internal buffer as is
+            out.writeTo(new OutputStream() {
+                private int offset;
+
+                @Override
+                public void write(int b) {
+                    if (offset < bytes.length) {
+                        bytes[offset++] = (byte) b;
+                    }
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    int n = Math.min(len, bytes.length - offset);
+                    System.arraycopy(b, off, bytes, offset, n);
+                    offset += n;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes;
+    }
+
+    /**
+     * Free the body of a response that won't be sent
+     */
+    public static void release(ByteArrayOutputStream out) {
+        if (out instanceof ByteBufResponseOutput output) {
+            output.release();
+        }
+    }
+}
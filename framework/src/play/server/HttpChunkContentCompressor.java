@@ -3,10 +3,22 @@ package play.server;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultHttpContent;
-import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContentEncoder;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
 
-public class HttpChunkContentCompressor extends HttpContentCompressor {
+/**
+ * Pipeline stage compressing the responses still uncompressed on the event loop (chunked responses, raw invocations),
+ * see {@link ResponseCompression}
+ */
+public class HttpChunkContentCompressor extends HttpContentEncoder {
+
+    private final ResponseCompression compression;
+    private ChannelHandlerContext ctx;
 
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
@@ -23,7 +35,30 @@ public class HttpChunkContentCompressor extends HttpContentCompressor {
         super.write(ctx, msg, promise);
     }
 
-    HttpChunkContentCompressor(int compressionLevel) {
-        super(compressionLevel);
+    HttpChunkContentCompressor(ResponseCompression compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    protected Result beginEncode(HttpResponse response, String acceptEncoding) {
+        // already compressed, or a file region sent with its length
+        if (response.headers().contains(HttpHeaderNames.CONTENT_ENCODING)
+                || !(response instanceof FullHttpResponse) && HttpUtil.isContentLengthSet(response)) {
+            return null;
+        }
+        int length = response instanceof FullHttpResponse full ? full.content().readableBytes() : Integer.MAX_VALUE;
+        String encoding = compression.encodingFor(acceptEncoding, response.headers().get(HttpHeaderNames.CONTENT_TYPE), length);
+        if (encoding == null) {
+            return null;
+        }
+        response.headers().add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        return new Result(encoding, new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(),
+                ctx.channel().config(), new ResponseCompression.Encoder(encoding, compression.level)));
     }
 }
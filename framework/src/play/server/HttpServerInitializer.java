@@ -5,15 +5,21 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.stream.ChunkedWriteHandler;
+import play.Play;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 
 public class HttpServerInitializer extends ChannelInitializer<SocketChannel> {
 
+    /**
+     * Streaming request mode: the body is handed to the action as it arrives instead of being aggregated in memory
+     */
+    private static final boolean streaming = Boolean.parseBoolean(Play.configuration.getProperty("play.netty.streaming", "false"));
+
     private final SslContext sslCtx;
     private final ExecutorService executorService;
 
@@ -30,10 +36,18 @@ public class HttpServerInitializer extends ChannelInitializer<SocketChannel> {
         }
         boolean secure = sslCtx != null;
         p.addLast(new HttpServerCodec());
-        p.addLast(new HttpObjectAggregator(Integer.MAX_VALUE));
+        p.addLast(new PipelinedRequests());
+        ResponseCompression compression = ResponseCompression.get();
+        if (compression.enabled()) {
+            p.addLast(compression.newCompressor());
+        }
+        if (streaming) {
+            p.addLast(new HttpServerExpectContinueHandler());
+        } else {
+            p.addLast(new HttpObjectAggregator(Integer.MAX_VALUE));
+        }
         p.addLast(new ChunkedWriteHandler());
         p.addLast(new PlayHandler(secure, executorService));
     }
 
 }
-
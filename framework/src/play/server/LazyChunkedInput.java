@@ -1,18 +1,37 @@
 package play.server;
 
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.stream.ChunkedInput;
+import play.Play;
+import play.utils.Utils;
 
+import java.io.IOException;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static io.netty.buffer.Unpooled.wrappedBuffer;
 
+/**
+ * The chunks of a response written by the action, read by the ChunkedWriteHandler as the channel accepts them. The
+ * action waits in {@link #awaitDrain(Channel)} while more than <code>play.netty.chunked.bufferSize</code> bytes (default
+ * 1MB) are queued for a slow client.
+ */
 public class LazyChunkedInput implements ChunkedInput {
 
+    private static long maxPending = -1;
+
     private boolean closed = false;
     private final ConcurrentLinkedQueue<byte[]> nextChunks = new ConcurrentLinkedQueue<>();
     private long offset;
+    private final AtomicLong pending = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+    private volatile boolean waiting;
 
     @Override
     public Object readChunk(ChannelHandlerContext ctx) throws Exception {
@@ -52,6 +71,15 @@ public class LazyChunkedInput implements ChunkedInput {
         }
         byte[] next = nextChunks.poll();
         offset = next.length;
+        pending.addAndGet(-next.length);
+        if (waiting) {
+            lock.lock();
+            try {
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
         return wrappedBuffer(next);
     }
 
@@ -78,6 +106,41 @@ public class LazyChunkedInput implements ChunkedInput {
             bytes = message.getBytes(encoding);
         }
 
+        pending.addAndGet(bytes.length);
         nextChunks.offer(bytes);
     }
+
+    private static long maxPending() {
+        if (maxPending < 0) {
+            maxPending = Play.configuration == null ? 1024 * 1024 : Utils.parseSize(Play.configuration.getProperty("play.netty.chunked.bufferSize", "1MB"));
+        }
+        return maxPending;
+    }
+
+    /**
+     * Block the writer (a virtual thread) until the client has taken enough of the queued chunks
+     *
+     * @throws IOException
+     *             the client is gone, there is no point in producing more
+     */
+    public void awaitDrain(Channel channel) throws IOException, InterruptedException {
+        long max = maxPending();
+        if (pending.get() <= max) {
+            return;
+        }
+        lock.lock();
+        try {
+            waiting = true;
+            while (pending.get() > max && channel.isActive()) {
+                // the channel may close without a last read
+                drained.await(100, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            waiting = false;
+            lock.unlock();
+        }
+        if (!channel.isActive()) {
+            throw new IOException("HTTP output stream closed by the client");
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package play.server;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
@@ -13,6 +14,7 @@ import io.netty.handler.stream.ChunkedInput;
 import io.netty.handler.stream.ChunkedNioFile;
 import io.netty.handler.stream.ChunkedStream;
 import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.ReferenceCountUtil;
 import play.InvocationContext;
 import play.Logger;
 import play.Play;
@@ -23,6 +25,7 @@ import play.jte.JtePlugin;
 import play.libs.MimeTypes;
 import play.libs.Time;
 import play.mvc.ActionInvoker;
+import play.mvc.AssetManifest;
 import play.mvc.Http;
 import play.mvc.Router;
 import play.mvc.Scope;
@@ -39,7 +42,9 @@ import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -59,20 +64,22 @@ public class NettyContext implements Context {
     private static final Play play = new Play();
 
     private final ChannelHandlerContext ctx;
-    private final FullHttpRequest nettyRequest;
+    private final HttpRequest nettyRequest;
     private final Http.Request request;
     private final Http.Response response;
     private final boolean secure ;
     private final boolean keepAlive;
+    private List<String> earlyHints;
+    private boolean earlyHintsSent;
 
-    public NettyContext(ChannelHandlerContext ctx, FullHttpRequest nettyRequest, Http.Request request) {
+    public NettyContext(ChannelHandlerContext ctx, HttpRequest nettyRequest, Http.Request request) {
         this.ctx = ctx;
         this.nettyRequest = nettyRequest;
         this.request = request;
         this.secure = request.secure;
         this.keepAlive =  HttpUtil.isKeepAlive(nettyRequest);
         this.response = new Http.Response();
-        this.response.out = new ByteArrayOutputStream();
+        this.response.out = new ByteBufResponseOutput(ctx.alloc());
         this.response.direct = null;
     }
 
@@ -160,6 +167,8 @@ public class NettyContext implements Context {
         if (Logger.isTraceEnabled()) {
             Logger.trace("serve500: begin");
         }
+        // the body written so far is replaced by the error page
+        ByteBufResponseOutput.release(response.out);
         String encoding = response.encoding;
         Map<String, Object> binding = getBindingForErrors(e, true);
 
@@ -233,15 +242,34 @@ public class NettyContext implements Context {
                 }
             }
         } else {
-            // write response
-            ByteBuf content = ctx.alloc().buffer();
-            if (!nettyRequest.method().equals(HttpMethod.HEAD)) {
-                content.writeBytes(response.out.toByteArray());
+            // write response, the body buffers go to Netty as they are
+            ByteBuf content;
+            if (nettyRequest.method().equals(HttpMethod.HEAD)) {
+                ByteBufResponseOutput.release(response.out);
+                content = Unpooled.EMPTY_BUFFER;
+            } else {
+                content = ByteBufResponseOutput.takeContent(response.out);
             }
             FullHttpResponse nettyResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.valueOf(response.status),content);
             addToResponse(nettyResponse);
-            write(nettyResponse);
+            write(compress(nettyResponse));
+        }
+    }
+
+    // compress on the invocation thread, the compressor of the pipeline leaves the response alone afterward
+    private FullHttpResponse compress(FullHttpResponse nettyResponse) {
+        if (ctx.executor().inEventLoop() || nettyResponse.headers().contains(CONTENT_ENCODING)) {
+            return nettyResponse;
+        }
+        ResponseCompression compression = ResponseCompression.get();
+        String encoding = compression.encodingFor(nettyRequest.headers().get(ACCEPT_ENCODING), nettyResponse.headers().get(CONTENT_TYPE),
+                nettyResponse.content().readableBytes());
+        if (encoding == null) {
+            return nettyResponse;
         }
+        FullHttpResponse compressed = nettyResponse.replace(compression.compress(ctx.alloc(), nettyResponse.content(), encoding));
+        compressed.headers().set(CONTENT_ENCODING, encoding).add(VARY, ACCEPT_ENCODING);
+        return compressed;
     }
 
     private void addToResponse(HttpResponse nettyResponse) {
@@ -284,15 +312,32 @@ public class NettyContext implements Context {
         }
     }
 
-    // serve file static
     void serveFile(File localFile) {
+        serveFile(localFile, false);
+    }
+
+    // serve file static
+    void serveFile(File localFile, boolean isStatic) {
         if(Logger.isTraceEnabled()) {
             Logger.trace("keep alive %s", keepAlive);
             Logger.trace("content type %s", (response.contentType != null ? response.contentType : MimeTypes.getContentType(localFile.getName(), "text/plain")));
         }
+        // only the static files are cached: a file rendered by an action may change in PROD
+        if (isStatic && nettyRequest.method().equals(HttpMethod.GET) && !nettyRequest.headers().contains(RANGE)) {
+            StaticFileCache.Entry cached = StaticFileCache.get().lookup(localFile.getPath(), () -> localFile);
+            if (cached != null && serveCached(cached)) {
+                return;
+            }
+        }
 
+        // the .br/.gz sibling of the file if the client accepts it, but not for a range of bytes
+        ResponseCompression compression = ResponseCompression.get();
+        File body = nettyRequest.headers().contains(RANGE) ? null : compression.precompressed(localFile, nettyRequest.headers().get(ACCEPT_ENCODING));
+        if (body == null) {
+            body = localFile;
+        }
         long last = localFile.lastModified();
-        String etag = "\"" + last + "-" + localFile.hashCode() + "\"";
+        String etag = "\"" + last + "-" + body.hashCode() + "\"";
         if (!isModified(etag, last) && nettyRequest.method().equals(HttpMethod.GET)) {
             FullHttpResponse nettyResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_MODIFIED);
             addToResponse(nettyResponse);
@@ -304,8 +349,14 @@ public class NettyContext implements Context {
             addEtag(nettyResponse, etag);
             FileChannel fileChannel = null;
             long fileLength = 0L;
+            if (body != localFile) {
+                nettyResponse.headers().set(CONTENT_ENCODING, ResponseCompression.encodingOf(body));
+            }
+            if (compression.hasPrecompressed(localFile)) {
+                nettyResponse.headers().add(VARY, ACCEPT_ENCODING);
+            }
             try {
-                RandomAccessFile raf = new RandomAccessFile(localFile, "r");
+                RandomAccessFile raf = new RandomAccessFile(body, "r");
                 fileChannel = raf.getChannel();
                 fileLength = raf.length();
             } catch (FileNotFoundException e) {
@@ -350,6 +401,37 @@ public class NettyContext implements Context {
         }
     }
 
+    // a file of the static cache, without file system access
+    private boolean serveCached(StaticFileCache.Entry cached) {
+        String encoding = cached.encoding(nettyRequest.headers().get(ACCEPT_ENCODING));
+        String etag = cached.etag(encoding);
+        if (!isModified(etag, cached.lastModified)) {
+            FullHttpResponse nettyResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_MODIFIED);
+            addToResponse(nettyResponse);
+            write(nettyResponse);
+            return true;
+        }
+        ByteBuf body = cached.body(encoding);
+        if (body == null) {
+            // evicted meanwhile
+            return false;
+        }
+        FullHttpResponse nettyResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.valueOf(response.status), body);
+        nettyResponse.headers().set(LAST_MODIFIED, cached.lastModifiedHttp);
+        addToResponse(nettyResponse);
+        addEtag(nettyResponse, etag);
+        if (encoding != null) {
+            nettyResponse.headers().set(CONTENT_ENCODING, encoding);
+        }
+        if (cached.hasVariants()) {
+            nettyResponse.headers().add(VARY, ACCEPT_ENCODING);
+        }
+        nettyResponse.headers().set(CONTENT_TYPE, response.contentType != null ? response.contentType : cached.contentType);
+        nettyResponse.headers().set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+        write(nettyResponse);
+        return true;
+    }
+
     private void writeFile(HttpResponse nettyResponse, FileChannel fileChannel, long start, long contentLength) {
         if(fileChannel == null)
             return;
@@ -416,7 +498,10 @@ public class NettyContext implements Context {
             if (file == null || !file.exists()) {
                 serve404(new NotFound("The file " + renderStatic.file + " does not exist"));
             } else {
-                serveFile(file);
+                if (renderStatic.immutable) {
+                    response.setHeader(CACHE_CONTROL.toString(), AssetManifest.IMMUTABLE);
+                }
+                serveFile(file, true);
             }
 
         } catch (Throwable ez) {
@@ -477,18 +562,67 @@ public class NettyContext implements Context {
                 response.direct = new LazyChunkedInput();
                 copyResponse();
             }
-            ((LazyChunkedInput) response.direct).writeChunk(chunk, response.encoding);
+            LazyChunkedInput input = (LazyChunkedInput) response.direct;
+            input.writeChunk(chunk, response.encoding);
             if (ctx.pipeline().get(ChunkedWriteHandler.class) != null) {
                 ctx.pipeline().get(ChunkedWriteHandler.class).resumeTransfer();
             }
             if (ctx.pipeline().get("SslChunkedWriteHandler") != null) {
                 ((ChunkedWriteHandler) ctx.pipeline().get("SslChunkedWriteHandler")).resumeTransfer();
             }
+            // backpressure: a slow client slows the action down instead of filling the memory
+            input.awaitDrain(ctx.channel());
         } catch (Exception e) {
             throw new UnexpectedException(e);
         }
     }
 
+    /**
+     * 103 Early Hints, before the response
+     */
+    void writeEarlyHints(List<String> links) {
+        // HTTP/1.0 clients do not expect informational responses, and the codec pairs each response with the
+        // method of a request: a HEAD one would be taken by the 103
+        if (nettyRequest.protocolVersion().equals(HttpVersion.HTTP_1_0) || nettyRequest.method().equals(HttpMethod.HEAD)
+                || !ctx.channel().isActive()) {
+            return;
+        }
+        synchronized (this) {
+            if (earlyHints != null) {
+                earlyHints.addAll(links);
+                return;
+            }
+            if (earlyHintsSent) {
+                // in the Link header of the response only
+                return;
+            }
+            earlyHints = new ArrayList<>(links);
+        }
+        // one 103 per request, with the links declared until the event loop writes it (before the response, written later)
+        if (ctx.executor().inEventLoop()) {
+            flushEarlyHints();
+        } else {
+            ctx.executor().execute(this::flushEarlyHints);
+        }
+    }
+
+    private void flushEarlyHints() {
+        List<String> links;
+        synchronized (this) {
+            links = earlyHints;
+            earlyHints = null;
+            earlyHintsSent = true;
+        }
+        // with pipelined requests, the codec would pair the 103 with the method of another request
+        PipelinedRequests pipelined = ctx.pipeline().get(PipelinedRequests.class);
+        if (pipelined != null && pipelined.pending() > 1 || !ctx.channel().isActive()) {
+            return;
+        }
+        FullHttpResponse hints = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.EARLY_HINTS, Unpooled.EMPTY_BUFFER);
+        hints.headers().add("Link", links);
+        ctx.writeAndFlush(hints);
+    }
+
     public void writeResponse() throws Exception {
         if (response.chunked) {
             closeChunked();
@@ -513,7 +647,13 @@ public class NettyContext implements Context {
     }
 
     public void release() {
-        nettyRequest.release();
+        ReferenceCountUtil.release(nettyRequest);
+        // a body not sent (chunked response, error)
+        ByteBufResponseOutput.release(response.out);
+        if (request.body instanceof RequestBodyStream stream) {
+            // Drop what the action did not read
+            stream.close();
+        }
         ctx.flush();
     }
 
@@ -553,7 +693,7 @@ public class NettyContext implements Context {
         if (vf == null || !vf.exists()) {
             serve404(new NotFound("The file " + nettyRequest.uri() + " does not exist"));
         } else {
-            serveFile(vf);
+            serveFile(vf, true);
         }
     }
 }
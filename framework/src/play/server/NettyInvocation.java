@@ -5,6 +5,7 @@ import play.InvocationContext;
 import play.Logger;
 import play.Play;
 import play.data.binding.CachedBoundActionMethodArgs;
+import play.db.Admission;
 import play.mvc.Http;
 import play.mvc.Scope;
 
@@ -49,7 +50,12 @@ public class NettyInvocation extends Invocation {
         try {
             super.run();
         }catch (Exception e) {
-            context.serve500(e);
+            Admission.RejectedException rejected = Admission.RejectedException.find(e);
+            if (rejected != null && !context.response().chunked) {
+                serve503(rejected);
+            } else {
+                context.serve500(e);
+            }
         } finally {
             context.release();
         }
@@ -58,6 +64,23 @@ public class NettyInvocation extends Invocation {
         }
     }
 
+    /**
+     * The database is saturated: tell the client to come back later, without the error page and its log
+     */
+    private void serve503(Admission.RejectedException e) {
+        Http.Response response = context.response();
+        try {
+            response.reset();
+            response.status = 503;
+            response.contentType = "text/plain";
+            response.setHeader("Retry-After", String.valueOf(e.getRetryAfter()));
+            response.print("Service unavailable, retry later");
+            context.writeResponse();
+        } catch (Exception ex) {
+            context.serve500(ex);
+        }
+    }
+
     @Override
     public void execute() throws Exception {
         context.execute();
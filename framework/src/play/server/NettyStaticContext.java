@@ -13,6 +13,7 @@ import org.apache.commons.lang3.time.DateUtils;
 import play.Play;
 import play.jte.JtePlugin;
 import play.libs.MimeTypes;
+import play.mvc.AssetManifest;
 import play.templates.TemplateLoader;
 import play.utils.Utils;
 
@@ -69,37 +70,62 @@ public class NettyStaticContext {
             return;
         }
         String url = Utils.urlDecodePath(path.replaceFirst(Play.ctxPath, ""));
-        File vf = Play.getVirtualFile(url);
+        AssetManifest.Asset asset = AssetManifest.get().resolve(url, Play::getVirtualFile);
+        boolean immutable = asset != null && asset.immutable;
+        String range = nettyRequest.headers().get(HttpHeaderNames.RANGE);
+        // like NettyContext.serveFile: only a GET of the whole file comes from the cache, a range is read from the file
+        if (GET.equals(nettyRequest.method()) && range == null) {
+            StaticFileCache.Entry cached = StaticFileCache.get().lookup(url, () -> asset != null ? asset.file : Play.getVirtualFile(url));
+            if (cached != null && serveCached(cached, immutable)) {
+                return;
+            }
+        }
+        File vf = asset != null ? asset.file : Play.getVirtualFile(url);
         if (vf == null || !vf.exists()) {
             sendError404();
             return;
         }
         // Cache Validation
-        String ifModifiedSince = nettyRequest.headers().get(HttpHeaderNames.IF_MODIFIED_SINCE);
-        if (ifModifiedSince != null && !ifModifiedSince.isEmpty()) {
-            Date ifModifiedSinceDate = DateFormatter.parseHttpDate(ifModifiedSince);
-            // Only compare up to the second because the datetime format we send to the client
-            // does not have milliseconds
-            long ifModifiedSinceDateSeconds = ifModifiedSinceDate.getTime() / 1000;
-            long fileLastModifiedSeconds = vf.lastModified() / 1000;
-            if (ifModifiedSinceDateSeconds == fileLastModifiedSeconds) {
-                sendNotModified();
-                return;
-            }
+        if (!isModified(vf.lastModified())) {
+            sendNotModified();
+            return;
         }
+        // the .br/.gz sibling when the client accepts it, but not for a range of bytes
+        ResponseCompression compression = ResponseCompression.get();
+        File body = range != null ? null : compression.precompressed(vf, nettyRequest.headers().get(HttpHeaderNames.ACCEPT_ENCODING));
         RandomAccessFile raf;
         try {
-            raf = new RandomAccessFile(vf, "r");
+            raf = new RandomAccessFile(body != null ? body : vf, "r");
         } catch (FileNotFoundException ignore) {
             sendError404();
             return;
         }
         long fileLength = raf.length();
-        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
-        HttpUtil.setContentLength(response, fileLength);
+        long[] bytes = byteRange(range, fileLength);
+        if (bytes != null && bytes[0] > bytes[1]) {
+            raf.close();
+            FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, REQUESTED_RANGE_NOT_SATISFIABLE, ctx.alloc().buffer(0));
+            response.headers().set(HttpHeaderNames.CONTENT_RANGE, "bytes */" + fileLength);
+            sendAndCleanupConnection(response);
+            return;
+        }
+        long start = bytes != null ? bytes[0] : 0;
+        long length = bytes != null ? bytes[1] - bytes[0] + 1 : fileLength;
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, bytes != null ? PARTIAL_CONTENT : OK);
+        HttpUtil.setContentLength(response, length);
+        response.headers().set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+        if (bytes != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_RANGE, "bytes " + bytes[0] + "-" + bytes[1] + "/" + fileLength);
+        }
         String contentType = MimeTypes.getContentType(vf.getName(), "text/plain");
         response.headers().set(CONTENT_TYPE, contentType);
-        setDateAndCacheHeaders(response, vf);
+        setDateAndCacheHeaders(response, vf, immutable);
+        if (body != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_ENCODING, ResponseCompression.encodingOf(body));
+        }
+        if (compression.hasPrecompressed(vf)) {
+            response.headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        }
 
         if (!keepAlive) {
             response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
@@ -112,11 +138,11 @@ public class NettyStaticContext {
         ChannelFuture sendFileFuture;
         ChannelFuture lastContentFuture;
         if (ctx.pipeline().get(SslHandler.class) == null) {
-            sendFileFuture = ctx.write(new DefaultFileRegion(raf.getChannel(), 0, fileLength));
+            sendFileFuture = ctx.write(new DefaultFileRegion(raf.getChannel(), start, length));
             // Write the end marker.
             lastContentFuture = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
         } else {
-            sendFileFuture = ctx.writeAndFlush(new HttpChunkedInput(new ChunkedFile(raf, 0, fileLength, 8192)));
+            sendFileFuture = ctx.writeAndFlush(new HttpChunkedInput(new ChunkedFile(raf, start, length, 8192)));
             // HttpChunkedInput will write the end marker (LastHttpContent) for us.
             lastContentFuture = sendFileFuture;
         }
@@ -128,6 +154,75 @@ public class NettyStaticContext {
         }
     }
 
+    /**
+     * @param range
+     *            the Range header, a single range such as <code>bytes=0-99</code>, <code>bytes=100-</code> or <code>bytes=-100</code>
+     * @return the first and last byte, first &gt; last when the range is out of the file, null to send the whole file
+     *         (no header, several ranges or an invalid one)
+     */
+    static long[] byteRange(String range, long fileLength) {
+        if (range == null || !range.trim().startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String value = range.trim().substring("bytes=".length()).trim();
+        int dash = value.indexOf('-');
+        try {
+            if (dash == 0) {
+                long suffix = Long.parseLong(value.substring(1));
+                return suffix <= 0 ? new long[] {1, 0} : new long[] {Math.max(0, fileLength - suffix), fileLength - 1};
+            }
+            if (dash < 0) {
+                return null;
+            }
+            long first = Long.parseLong(value.substring(0, dash));
+            long last = dash == value.length() - 1 ? Long.MAX_VALUE : Long.parseLong(value.substring(dash + 1));
+            if (last < first) {
+                return null;
+            }
+            return first >= fileLength ? new long[] {1, 0} : new long[] {first, Math.min(last, fileLength - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private boolean isModified(long lastModified) {
+        String ifModifiedSince = nettyRequest.headers().get(HttpHeaderNames.IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null && !ifModifiedSince.isEmpty()) {
+            Date ifModifiedSinceDate = DateFormatter.parseHttpDate(ifModifiedSince);
+            // Only compare up to the second because the datetime format we send to the client
+            // does not have milliseconds
+            return ifModifiedSinceDate == null || ifModifiedSinceDate.getTime() / 1000 != lastModified / 1000;
+        }
+        return true;
+    }
+
+    // a file of the static cache: served from memory, without file system access
+    private boolean serveCached(StaticFileCache.Entry cached, boolean immutable) {
+        String encoding = cached.encoding(nettyRequest.headers().get(HttpHeaderNames.ACCEPT_ENCODING));
+        String etag = cached.etag(encoding);
+        if (etag.equals(nettyRequest.headers().get(HttpHeaderNames.IF_NONE_MATCH)) || !isModified(cached.lastModified)) {
+            sendNotModified();
+            return true;
+        }
+        ByteBuf body = cached.body(encoding);
+        if (body == null) {
+            // evicted meanwhile
+            return false;
+        }
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, OK, body);
+        response.headers().set(CONTENT_TYPE, cached.contentType);
+        setDateAndCacheHeaders(response, cached.lastModifiedHttp, immutable);
+        response.headers().set(HttpHeaderNames.ETAG, etag);
+        if (encoding != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_ENCODING, encoding);
+        }
+        if (cached.hasVariants()) {
+            response.headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        }
+        sendAndCleanupConnection(response);
+        return true;
+    }
+
     private static String sanitizeUri(String uri) {
         // Decode the path.
         uri = URLDecoder.decode(uri, StandardCharsets.UTF_8);
@@ -211,16 +306,27 @@ public class NettyStaticContext {
      *            HTTP response
      * @param fileToCache
      *            file to extract content type
+     * @param immutable
+     *            a fingerprinted url, cached for a year without revalidation
      */
-    private static void setDateAndCacheHeaders(HttpResponse response, File fileToCache) {
+    private static void setDateAndCacheHeaders(HttpResponse response, File fileToCache, boolean immutable) {
+        setDateAndCacheHeaders(response, DateFormatter.format(new Date(fileToCache.lastModified())), immutable);
+    }
+
+    private static void setDateAndCacheHeaders(HttpResponse response, String lastModified, boolean immutable) {
         // Date header
         Date date = new Date();
         response.headers().set(HttpHeaderNames.DATE, DateFormatter.format(date));
         // Add cache headers
-        Date expiryDate = DateUtils.addSeconds(date, Play.mode.isDev() ? 0:maxAge);
-        response.headers().set(HttpHeaderNames.EXPIRES, DateFormatter.format(expiryDate));
-        response.headers().set(HttpHeaderNames.CACHE_CONTROL, Play.mode.isDev() ? HttpHeaderValues.NO_CACHE:"max-age=" + maxAge);
-        response.headers().set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(fileToCache.lastModified())));
+        if (immutable) {
+            response.headers().set(HttpHeaderNames.EXPIRES, DateFormatter.format(DateUtils.addYears(date, 1)));
+            response.headers().set(HttpHeaderNames.CACHE_CONTROL, AssetManifest.IMMUTABLE);
+        } else {
+            Date expiryDate = DateUtils.addSeconds(date, Play.mode.isDev() ? 0:maxAge);
+            response.headers().set(HttpHeaderNames.EXPIRES, DateFormatter.format(expiryDate));
+            response.headers().set(HttpHeaderNames.CACHE_CONTROL, Play.mode.isDev() ? HttpHeaderValues.NO_CACHE:"max-age=" + maxAge);
+        }
+        response.headers().set(HttpHeaderNames.LAST_MODIFIED, lastModified);
     }
 
 
@@ -3,10 +3,31 @@ package play.server;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.IoHandlerFactory;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.ServerChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioChannelOption;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import play.Logger;
+import play.Play;
+import play.exceptions.ConfigurationException;
 
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+
+/**
+ * The Netty transport of the server, selected with <code>play.netty.transport</code>:
+ * <ul>
+ * <li><code>auto</code> (default): epoll, else io_uring when their native library is on the classpath and usable, else nio</li>
+ * <li><code>nio</code>: the JDK selector</li>
+ * <li><code>epoll</code>: edge-triggered epoll (Linux, needs netty-transport-native-epoll)</li>
+ * <li><code>io_uring</code>: io_uring (Linux 5.9+, needs netty-transport-native-io_uring)</li>
+ * </ul>
+ * An explicitly requested native transport that can't be loaded falls back to nio with a warning.
+ */
 public abstract class NettyTransport {
     private static final int BACKLOG = 8192;
 
@@ -17,10 +38,62 @@ public abstract class NettyTransport {
         return bootstrap.group(acceptor, eventloop);
     }
 
+    /**
+     * Configure the bootstrap so that several server channels can bind the same address, the kernel spreading the
+     * incoming connections between them
+     */
+    public ServerBootstrap configure(EventLoopGroup acceptor, EventLoopGroup eventloop, boolean reusePort) {
+        ServerBootstrap bootstrap = configure(acceptor, eventloop);
+        if (reusePort && supportsReusePort()) {
+            bootstrap.option(reusePortOption(), true);
+        }
+        return bootstrap;
+    }
+
     public abstract EventLoopGroup createEventLoop(int threads, String threadName, int ioRatio);
 
+    public abstract String name();
+
+    /**
+     * @return If {@link #configure(EventLoopGroup, EventLoopGroup, boolean)} can bind several acceptors on a port
+     */
+    public boolean supportsReusePort() {
+        return reusePortOption() != null;
+    }
+
+    abstract ChannelOption<Boolean> reusePortOption();
+
     public static NettyTransport transport(ClassLoader loader) {
-        return nio();
+        String name = Play.configuration == null ? "auto" : Play.configuration.getProperty("play.netty.transport", "auto");
+        return transport(loader, name);
+    }
+
+    public static NettyTransport transport(ClassLoader loader, String name) {
+        ClassLoader classLoader = loader != null ? loader : NettyTransport.class.getClassLoader();
+        switch (name) {
+            case "auto":
+                NettyTransport transport = NativeTransport.epoll(classLoader);
+                if (transport == null) {
+                    transport = NativeTransport.ioUring(classLoader);
+                }
+                return transport != null ? transport : nio();
+            case "nio":
+                return nio();
+            case "epoll":
+                return orNio(NativeTransport.epoll(classLoader), name);
+            case "io_uring":
+                return orNio(NativeTransport.ioUring(classLoader), name);
+            default:
+                throw new ConfigurationException("Bad configuration for play.netty.transport: " + name + " (auto, nio, epoll or io_uring)");
+        }
+    }
+
+    private static NettyTransport orNio(NettyTransport transport, String name) {
+        if (transport == null) {
+            Logger.warn("Netty transport %s is not available, fallback to nio", name);
+            return nio();
+        }
+        return transport;
     }
 
     private static NettyTransport nio() {
@@ -28,6 +101,16 @@ public abstract class NettyTransport {
     }
 
     private static class JDKTransport extends NettyTransport {
+        private static final ChannelOption<Boolean> REUSE_PORT = reusePort();
+
+        private static ChannelOption<Boolean> reusePort() {
+            try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+                return channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT) ? NioChannelOption.of(StandardSocketOptions.SO_REUSEPORT) : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
         @Override public EventLoopGroup createEventLoop(int threads, String threadName, int ioRatio) {
             NioEventLoopGroup loopGroup = new NioEventLoopGroup(threads, new DefaultThreadFactory(threadName));
             loopGroup.setIoRatio(ioRatio);
@@ -37,5 +120,78 @@ public abstract class NettyTransport {
         @Override public ServerBootstrap configure(EventLoopGroup acceptor, EventLoopGroup eventloop) {
             return super.configure(acceptor, eventloop).channel(NioServerSocketChannel.class);
         }
+
+        @Override public String name() {
+            return "nio";
+        }
+
+        @Override ChannelOption<Boolean> reusePortOption() {
+            return REUSE_PORT;
+        }
+    }
+
+    /**
+     * epoll or io_uring, loaded by reflection: their native jars are optional
+     */
+    private static class NativeTransport extends NettyTransport {
+        private final String name;
+        private final IoHandlerFactory ioHandlerFactory;
+        private final Class<? extends ServerChannel> serverChannel;
+        private final ChannelOption<Boolean> reusePort;
+
+        private NativeTransport(String name, IoHandlerFactory ioHandlerFactory, Class<? extends ServerChannel> serverChannel, ChannelOption<Boolean> reusePort) {
+            this.name = name;
+            this.ioHandlerFactory = ioHandlerFactory;
+            this.serverChannel = serverChannel;
+            this.reusePort = reusePort;
+        }
+
+        static NettyTransport epoll(ClassLoader loader) {
+            return load(loader, "epoll", "io.netty.channel.epoll.Epoll", "io.netty.channel.epoll.EpollIoHandler",
+                    "io.netty.channel.epoll.EpollServerSocketChannel", "io.netty.channel.epoll.EpollChannelOption");
+        }
+
+        static NettyTransport ioUring(ClassLoader loader) {
+            return load(loader, "io_uring", "io.netty.channel.uring.IoUring", "io.netty.channel.uring.IoUringIoHandler",
+                    "io.netty.channel.uring.IoUringServerSocketChannel", "io.netty.channel.uring.IoUringChannelOption");
+        }
+
+        @SuppressWarnings("unchecked")
+        private static NettyTransport load(ClassLoader loader, String name, String availability, String ioHandler, String serverChannel, String options) {
+            try {
+                Class<?> availabilityClass = Class.forName(availability, true, loader);
+                if (!(Boolean) availabilityClass.getMethod("isAvailable").invoke(null)) {
+                    Throwable cause = (Throwable) availabilityClass.getMethod("unavailabilityCause").invoke(null);
+                    Logger.debug("Netty transport %s is unavailable: %s", name, cause);
+                    return null;
+                }
+                IoHandlerFactory factory = (IoHandlerFactory) Class.forName(ioHandler, true, loader).getMethod("newFactory").invoke(null);
+                Class<? extends ServerChannel> channel = (Class<? extends ServerChannel>) Class.forName(serverChannel, true, loader);
+                ChannelOption<Boolean> reusePort = (ChannelOption<Boolean>) Class.forName(options, true, loader).getField("SO_REUSEPORT").get(null);
+                return new NativeTransport(name, factory, channel, reusePort);
+            } catch (ClassNotFoundException | LinkageError e) {
+                return null;
+            } catch (ReflectiveOperationException e) {
+                Logger.warn(e, "Cannot load Netty transport %s", name);
+                return null;
+            }
+        }
+
+        @Override public EventLoopGroup createEventLoop(int threads, String threadName, int ioRatio) {
+            // the native loops have no io ratio: tasks and io are balanced by the io handler
+            return new MultiThreadIoEventLoopGroup(threads, new DefaultThreadFactory(threadName), ioHandlerFactory);
+        }
+
+        @Override public ServerBootstrap configure(EventLoopGroup acceptor, EventLoopGroup eventloop) {
+            return super.configure(acceptor, eventloop).channel(serverChannel);
+        }
+
+        @Override public String name() {
+            return name;
+        }
+
+        @Override ChannelOption<Boolean> reusePortOption() {
+            return reusePort;
+        }
     }
 }
@@ -0,0 +1,43 @@
+package play.server;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the requests of the connection still waiting for their response, placed right after the HttpServerCodec.
+ * The codec pairs every response it encodes with the method of the oldest request, a 103 Early Hints included: it can
+ * only be sent when the request is alone.
+ */
+public class PipelinedRequests extends ChannelDuplexHandler {
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * @return the requests read whose final response is not written yet
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            pending.incrementAndGet();
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof HttpResponse response && response.status().codeClass() != HttpStatusClass.INFORMATIONAL) {
+            pending.decrementAndGet();
+        }
+        ctx.write(msg, promise);
+    }
+}
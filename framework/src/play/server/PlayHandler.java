@@ -11,13 +11,17 @@ import io.netty.handler.codec.http.cookie.CookieHeaderNames;
 import io.netty.handler.codec.http.cookie.DefaultCookie;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import io.netty.handler.codec.http.websocketx.*;
+import io.netty.util.ReferenceCountUtil;
 import org.apache.commons.lang3.StringUtils;
 import play.Logger;
 import play.Play;
+import play.mvc.BodyThreshold;
 import play.mvc.Http;
 import play.mvc.Router;
 import play.mvc.results.NotFound;
+import play.utils.Utils;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -37,9 +41,19 @@ public class PlayHandler extends ChannelInboundHandlerAdapter {
     private static final Pattern PATTERN_REMOTEADDR2 = Pattern.compile(".*[%].*");
     private static final String FORBIDDEN_MSG = "Failure: "+ HttpResponseStatus.FORBIDDEN+ "\r\n";
 
+    /**
+     * In streaming mode, the bytes of a request body waiting in memory before reading from the client is paused
+     */
+    private static final int streamingBufferSize = (int) Utils.parseSize(Play.configuration.getProperty("play.netty.streaming.bufferSize", "256KB"));
+    /**
+     * In streaming mode, the bytes of a request body kept in memory before spilling to disk (-1 to never spill)
+     */
+    private static final long streamingThreshold = Utils.parseSize(Play.configuration.getProperty("play.netty.streaming.threshold", "-1"));
+
     private WebSocketServerHandshaker handshaker;
     private final boolean secure;
     private final ExecutorService executor;
+    private RequestBodyStream body;
 
     public static final Map<ChannelHandlerContext, Http.Inbound> channels = new ConcurrentHashMap<>();
 
@@ -52,47 +66,94 @@ public class PlayHandler extends ChannelInboundHandlerAdapter {
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof FullHttpRequest nettyRequest) {
             try {
-                if (nettyRequest.method().equals(HttpMethod.TRACE)) {
-                    ByteBuf content = ctx.alloc().buffer().writeBytes(FORBIDDEN_MSG.getBytes(StandardCharsets.UTF_8));
-                    FullHttpResponse nettyResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.FORBIDDEN, content);
-                    nettyResponse.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
-                    ctx.writeAndFlush(nettyResponse).addListener(ChannelFutureListener.CLOSE);
-                } else if (isStaticFile(nettyRequest)) {
-                    NettyStaticContext context = new NettyStaticContext(ctx, nettyRequest);
-                    context.serveStatic();
-                } else {
-                    final Http.Request request = parseRequest(ctx, nettyRequest, secure);
-                    if (HttpHeaderValues.WEBSOCKET.contentEqualsIgnoreCase(nettyRequest.headers().get(HttpHeaderNames.UPGRADE))) {
-                        websocketHandshake(ctx, nettyRequest, request);
-                    } else {
-                        NettyContext context = new NettyContext(ctx, nettyRequest, request);
-                        try {
-                            context.response().onWriteChunk(obj -> context.writeChunk(obj));
-                            // Raw invocation
-                            boolean raw = Play.pluginCollection.rawInvocation(request, context.response());
-                            if (raw) {
-                                context.copyResponse();
-                            } else if (context.resolve()) {
-                                nettyRequest.retain();
-                                executor.submit(new NettyInvocation(context));
-                            }
-                        } catch (Exception ex) {
-                            Logger.warn(ex, "Exception on request. serving 500 back");
-                            context.serve500(ex);
-                        }
-                    }
-                }
-            }finally {
+                handleRequest(ctx, nettyRequest, null);
+            } finally {
                 if(nettyRequest.refCnt() > 0) {
                     nettyRequest.release();
                 }
             }
         }
+        else if (msg instanceof HttpRequest nettyRequest) {
+            // Streaming mode, the body follows as HttpContent chunks
+            RequestBodyStream stream = new RequestBodyStream(ctx.channel(), streamingBufferSize, streamingThreshold);
+            this.body = stream;
+            handleRequest(ctx, nettyRequest, stream);
+        }
+        else if (msg instanceof HttpContent chunk) {
+            RequestBodyStream stream = this.body;
+            if (stream == null) {
+                chunk.release();
+            } else {
+                stream.offer(chunk.content());
+                if (chunk instanceof LastHttpContent) {
+                    stream.complete();
+                    this.body = null;
+                }
+            }
+        }
         else if (msg instanceof WebSocketFrame frame) {
             websocketFrameReceived(ctx, frame);
         }
     }
 
+    private void handleRequest(ChannelHandlerContext ctx, HttpRequest nettyRequest, RequestBodyStream stream) throws IOException {
+        boolean dispatched = false;
+        try {
+            if (nettyRequest.method().equals(HttpMethod.TRACE)) {
+                ByteBuf content = ctx.alloc().buffer().writeBytes(FORBIDDEN_MSG.getBytes(StandardCharsets.UTF_8));
+                FullHttpResponse nettyResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.FORBIDDEN, content);
+                nettyResponse.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+                ctx.writeAndFlush(nettyResponse).addListener(ChannelFutureListener.CLOSE);
+            } else if (isStaticFile(nettyRequest)) {
+                NettyStaticContext context = new NettyStaticContext(ctx, nettyRequest);
+                context.serveStatic();
+            } else {
+                InputStream body = stream != null ? stream : new ByteBufInputStream(((FullHttpRequest) nettyRequest).content());
+                final Http.Request request = parseRequest(ctx, nettyRequest, body, secure);
+                if (HttpHeaderValues.WEBSOCKET.contentEqualsIgnoreCase(nettyRequest.headers().get(HttpHeaderNames.UPGRADE))) {
+                    websocketHandshake(ctx, nettyRequest, request);
+                } else {
+                    NettyContext context = new NettyContext(ctx, nettyRequest, request);
+                    try {
+                        context.response().onWriteChunk(obj -> context.writeChunk(obj));
+                        context.response().onEarlyHints(links -> context.writeEarlyHints(links));
+                        // Raw invocation
+                        boolean raw = Play.pluginCollection.rawInvocation(request, context.response());
+                        if (raw) {
+                            context.copyResponse();
+                        } else if (context.resolve()) {
+                            if (stream != null) {
+                                stream.threshold(bodyThreshold(request));
+                            }
+                            ReferenceCountUtil.retain(nettyRequest);
+                            executor.submit(new NettyInvocation(context));
+                            dispatched = true;
+                        }
+                    } catch (Exception ex) {
+                        Logger.warn(ex, "Exception on request. serving 500 back");
+                        context.serve500(ex);
+                    }
+                }
+            }
+        } finally {
+            if (stream != null && !dispatched) {
+                // Nobody will read it, drop the chunks as they arrive
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * The spill threshold of a streamed body, from the @BodyThreshold of the action (or its controller)
+     */
+    public static long bodyThreshold(Http.Request request) {
+        BodyThreshold annotation = request.invokedMethod.getAnnotation(BodyThreshold.class);
+        if (annotation == null) {
+            annotation = request.invokedMethod.getDeclaringClass().getAnnotation(BodyThreshold.class);
+        }
+        return annotation == null ? streamingThreshold : Utils.parseSize(annotation.value());
+    }
+
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) {
         ctx.flush();
@@ -108,6 +169,10 @@ public class PlayHandler extends ChannelInboundHandlerAdapter {
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx)  {
+        if (body != null) {
+            body.abort();
+            body = null;
+        }
         Http.Inbound inbound = channels.get(ctx);
         if (inbound != null) {
             inbound.close();
@@ -134,7 +199,7 @@ public class PlayHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
-    void websocketHandshake(ChannelHandlerContext ctx, FullHttpRequest nettyRequest, Http.Request request) {
+    void websocketHandshake(ChannelHandlerContext ctx, HttpRequest nettyRequest, Http.Request request) {
         String wsLocation = "ws://" + nettyRequest.headers().get(HttpHeaderNames.HOST) + nettyRequest.uri();
         WebSocketServerHandshakerFactory wsFactory = new WebSocketServerHandshakerFactory(wsLocation, null, false);
         this.handshaker = wsFactory.newHandshaker(nettyRequest);
@@ -206,7 +271,7 @@ public class PlayHandler extends ChannelInboundHandlerAdapter {
         executor.submit(new WebSocketInvocation(inbound, outbound, request, ctx));
     }
 
-    Http.Request parseRequest(ChannelHandlerContext ctx, FullHttpRequest nettyRequest, boolean secure) {
+    Http.Request parseRequest(ChannelHandlerContext ctx, HttpRequest nettyRequest, InputStream body, boolean secure) {
         if (Logger.isTraceEnabled()) {
             Logger.trace("parseRequest: begin");
             Logger.trace("parseRequest: URI = " + nettyRequest.uri());
@@ -242,7 +307,6 @@ public class PlayHandler extends ChannelInboundHandlerAdapter {
         }
         String method = nettyRequest.method().name();
 
-        InputStream body = new ByteBufInputStream(nettyRequest.content());
         String host = nettyRequest.headers().get(HOST);
         boolean isLoopback = remoteSocketAddress.isLoopbackAddress() && PATTERN_LOOPBACK.matcher(host).matches();
         int port = 0;
@@ -304,7 +368,7 @@ public class PlayHandler extends ChannelInboundHandlerAdapter {
                 port, domain, secure, headers, cookies);
     }
 
-    public boolean isStaticFile(FullHttpRequest nettyRequest) {
+    public boolean isStaticFile(HttpRequest nettyRequest) {
         return nettyRequest.uri().startsWith(Play.ctxPath+"/public/");
     }
 
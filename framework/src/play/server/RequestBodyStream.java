@@ -0,0 +1,252 @@
+package play.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import play.Play;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Request body fed chunk by chunk from the event loop and read by the invocation thread.
+ * <p>
+ * Chunks are kept in memory until the unread part reaches the threshold, the following ones are spilled to a
+ * temporary file. With a negative threshold nothing is spilled: reading from the client is paused
+ * (<code>autoRead</code>) once <code>bufferSize</code> bytes are waiting, and resumed when half of them are consumed.
+ * <p>
+ * Never read it on the event loop, the missing chunks could not arrive.
+ */
+public class RequestBodyStream extends InputStream {
+
+    private final Channel channel;
+    private final int bufferSize;
+    private long threshold;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readable = lock.newCondition();
+    private final Deque<ByteBuf> chunks = new ArrayDeque<>();
+    private long buffered;
+    private File spillFile;
+    private RandomAccessFile spill;
+    private long spillWritten;
+    private long spillRead;
+    private boolean paused;
+    private boolean complete;
+    private boolean closed;
+    private IOException failure;
+
+    public RequestBodyStream(Channel channel, int bufferSize, long threshold) {
+        this.channel = channel;
+        this.bufferSize = bufferSize;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Change the spill threshold, before the first chunk is received
+     *
+     * @param threshold
+     *            bytes kept in memory, negative to never spill
+     */
+    public void threshold(long threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Add a chunk (event loop). The stream owns the buffer from now on.
+     */
+    public void offer(ByteBuf content) {
+        lock.lock();
+        try {
+            if (closed || failure != null || !content.isReadable()) {
+                content.release();
+                return;
+            }
+            int length = content.readableBytes();
+            if (spill != null || (threshold >= 0 && buffered + length > threshold)) {
+                try {
+                    writeToSpill(content);
+                } catch (IOException e) {
+                    failure = e;
+                } finally {
+                    content.release();
+                }
+            } else {
+                chunks.add(content);
+                buffered += length;
+                if (threshold < 0 && buffered >= bufferSize && !paused) {
+                    paused = true;
+                    channel.config().setAutoRead(false);
+                }
+            }
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The last chunk was received (event loop)
+     */
+    public void complete() {
+        lock.lock();
+        try {
+            complete = true;
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The connection was lost before the last chunk (event loop)
+     */
+    public void abort() {
+        abort(new IOException("Connection closed before the request body was fully received"));
+    }
+
+    /**
+     * The rest of the body is refused (event loop), the reader gets the cause
+     */
+    public void abort(IOException cause) {
+        lock.lock();
+        try {
+            if (!complete && failure == null) {
+                failure = cause;
+            }
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                ByteBuf head = chunks.peek();
+                if (head != null) {
+                    int n = Math.min(len, head.readableBytes());
+                    head.readBytes(b, off, n);
+                    buffered -= n;
+                    if (!head.isReadable()) {
+                        chunks.poll().release();
+                    }
+                    if (paused && buffered <= bufferSize / 2) {
+                        paused = false;
+                        channel.config().setAutoRead(true);
+                        // HTTP/2 stream: the WINDOW_UPDATE written on resume is not always flushed
+                        channel.flush();
+                    }
+                    return n;
+                }
+                if (spill != null && spillRead < spillWritten) {
+                    spill.seek(spillRead);
+                    int n = spill.read(b, off, (int) Math.min(len, spillWritten - spillRead));
+                    spillRead += n;
+                    if (spillRead == spillWritten && !complete) {
+                        // Caught up with the client: go back to memory
+                        deleteSpill();
+                    }
+                    return n;
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                if (complete) {
+                    return -1;
+                }
+                readable.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the request body");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int available() {
+        lock.lock();
+        try {
+            return (int) Math.min(Integer.MAX_VALUE, buffered + spillWritten - spillRead);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discard what is left. Chunks still in flight will be dropped as they arrive.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (ByteBuf chunk : chunks) {
+                chunk.release();
+            }
+            chunks.clear();
+            buffered = 0;
+            deleteSpill();
+            if (paused) {
+                paused = false;
+                channel.config().setAutoRead(true);
+            }
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeToSpill(ByteBuf content) throws IOException {
+        if (spill == null) {
+            spillFile = File.createTempFile("body-", ".tmp", Play.tmpDir);
+            spill = new RandomAccessFile(spillFile, "rw");
+            spillWritten = 0;
+            spillRead = 0;
+        }
+        while (content.isReadable()) {
+            spillWritten += content.readBytes(spill.getChannel(), spillWritten, content.readableBytes());
+        }
+    }
+
+    private void deleteSpill() {
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            spillFile.delete();
+            spill = null;
+            spillFile = null;
+            spillWritten = 0;
+            spillRead = 0;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package play.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.MessageToByteEncoder;
+import play.Logger;
+import play.Play;
+import play.libs.MimeTypes;
+import play.utils.Utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response compression, negotiated from <code>Accept-Encoding</code>:
+ * <ul>
+ * <li><code>play.netty.compression</code>: gzip/deflate of the dynamic responses (default true)</li>
+ * <li><code>play.netty.compression.level</code>: deflate level, 1 (fast) to 9 (small), default 6</li>
+ * <li><code>play.netty.compression.minSize</code>: smaller bodies are sent as is (default 1KB)</li>
+ * <li><code>play.netty.compression.mimeTypes</code>: compressed content types, <code>type/*</code> allowed</li>
+ * <li><code>play.netty.compression.precompressed</code>: serve the <code>.br</code>/<code>.gz</code> sibling of a static
+ * file when the client accepts it (default true), see {@link #precompress(File)}</li>
+ * </ul>
+ * A body rendered by an action is compressed on the invocation thread; the pipeline stage
+ * ({@link HttpChunkContentCompressor}) only compresses what is still uncompressed when it reaches the event loop:
+ * chunked responses and raw invocations. Files sent with a known length (zero-copy) are never compressed on the fly.
+ * <p>
+ * Only the JDK codecs are used: brotli is limited to precompressed <code>.br</code> files.
+ */
+public final class ResponseCompression {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String BROTLI = "br";
+
+    private static final String DEFAULT_MIME_TYPES = "text/*,application/json,application/javascript,application/xml,"
+            + "application/xhtml+xml,application/rss+xml,application/atom+xml,image/svg+xml";
+
+    private static volatile ResponseCompression current;
+
+    final boolean enabled;
+    final int level;
+    final int minSize;
+    final boolean precompressed;
+    private final String[] mimeTypes;
+
+    ResponseCompression(Properties configuration) {
+        this.enabled = Boolean.parseBoolean(configuration.getProperty("play.netty.compression", "true"));
+        this.level = Math.max(1, Math.min(9, Integer.parseInt(configuration.getProperty("play.netty.compression.level", "6"))));
+        this.minSize = (int) Utils.parseSize(configuration.getProperty("play.netty.compression.minSize", "1KB"));
+        this.precompressed = Boolean.parseBoolean(configuration.getProperty("play.netty.compression.precompressed", "true"));
+        List<String> types = new ArrayList<>();
+        for (String type : configuration.getProperty("play.netty.compression.mimeTypes", DEFAULT_MIME_TYPES).split(",")) {
+            if (!type.isBlank()) {
+                types.add(type.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        this.mimeTypes = types.toArray(new String[0]);
+    }
+
+    public static ResponseCompression get() {
+        ResponseCompression compression = current;
+        if (compression == null) {
+            current = compression = new ResponseCompression(Play.configuration);
+        }
+        return compression;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * The pipeline stage, placed right after the HTTP codec (below the ChunkedWriteHandler, so that chunks are compressed)
+     */
+    public HttpChunkContentCompressor newCompressor() {
+        return new HttpChunkContentCompressor(this);
+    }
+
+    /**
+     * @return The encoding of a body of the given type and length, null to send it as is
+     */
+    public String encodingFor(CharSequence acceptEncoding, CharSequence contentType, int length) {
+        if (!enabled || length < minSize || !compressible(contentType)) {
+            return null;
+        }
+        return negotiate(acceptEncoding, false);
+    }
+
+    boolean compressible(CharSequence contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toString();
+        int semicolon = type.indexOf(';');
+        type = (semicolon >= 0 ? type.substring(0, semicolon) : type).trim().toLowerCase(Locale.ROOT);
+        for (String mimeType : mimeTypes) {
+            if (mimeType.endsWith("/*") ? type.startsWith(mimeType.substring(0, mimeType.length() - 1)) : type.equals(mimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The preferred encoding of the client (highest q, then br, gzip, deflate), null if it accepts none of them
+     *
+     * @param brotli
+     *            if br can be chosen (only for precompressed files)
+     */
+    static String negotiate(CharSequence acceptEncoding, boolean brotli) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        float brQ = -1, gzipQ = -1, deflateQ = -1, starQ = -1;
+        for (String part : acceptEncoding.toString().split(",")) {
+            String coding = part;
+            float q = 1f;
+            int semicolon = part.indexOf(';');
+            if (semicolon >= 0) {
+                coding = part.substring(0, semicolon);
+                String parameter = part.substring(semicolon + 1).trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        q = Float.parseFloat(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0f;
+                    }
+                }
+            }
+            switch (coding.trim().toLowerCase(Locale.ROOT)) {
+                case BROTLI -> brQ = q;
+                case GZIP, "x-gzip" -> gzipQ = q;
+                case DEFLATE -> deflateQ = q;
+                case "*" -> starQ = q;
+                default -> {
+                }
+            }
+        }
+        if (brQ < 0) brQ = starQ;
+        if (gzipQ < 0) gzipQ = starQ;
+        if (deflateQ < 0) deflateQ = starQ;
+        if (!brotli) brQ = -1;
+        float best = Math.max(brQ, Math.max(gzipQ, deflateQ));
+        if (best <= 0) {
+            return null;
+        }
+        return brQ == best ? BROTLI : gzipQ == best ? GZIP : DEFLATE;
+    }
+
+    /**
+     * Compress a whole body. The given buffer is released.
+     */
+    public ByteBuf compress(ByteBufAllocator alloc, ByteBuf content, String encoding) {
+        Deflating deflating = new Deflating(encoding, level);
+        ByteBuf out = alloc.buffer(Math.max(256, content.readableBytes() / 3));
+        try {
+            deflating.write(content, out, Deflater.NO_FLUSH);
+            deflating.finish(out);
+            return out;
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        } finally {
+            deflating.end();
+            content.release();
+        }
+    }
+
+    /**
+     * The precompressed sibling (<code>file.br</code>, <code>file.gz</code>) to send for this request, null if none:
+     * missing, older than the file or not accepted
+     */
+    public File precompressed(File file, CharSequence acceptEncoding) {
+        if (!precompressed || acceptEncoding == null) {
+            return null;
+        }
+        String encoding = negotiate(acceptEncoding, true);
+        if (BROTLI.equals(encoding)) {
+            File sibling = sibling(file, ".br");
+            if (sibling != null) {
+                return sibling;
+            }
+            // br preferred but only a .gz available: gzip if accepted too
+            encoding = negotiate(acceptEncoding, false);
+        }
+        return GZIP.equals(encoding) ? sibling(file, ".gz") : null;
+    }
+
+    /**
+     * @return The Content-Encoding of a file returned by {@link #precompressed(File, CharSequence)}
+     */
+    public static String encodingOf(File precompressed) {
+        return precompressed.getName().endsWith(".br") ? BROTLI : GZIP;
+    }
+
+    /**
+     * @return If a precompressed variant of the file exists, so that the response varies on Accept-Encoding
+     */
+    public boolean hasPrecompressed(File file) {
+        return precompressed && (sibling(file, ".gz") != null || sibling(file, ".br") != null);
+    }
+
+    private static File sibling(File file, String extension) {
+        File sibling = new File(file.getPath() + extension);
+        return sibling.isFile() && sibling.lastModified() >= file.lastModified() ? sibling : null;
+    }
+
+    /**
+     * Write the missing or outdated <code>.gz</code> sibling of the compressible files of a static directory,
+     * at the best level. Called by the precompile step on the <code>public</code> directories.
+     *
+     * @return The number of files written
+     */
+    public int precompress(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        int count = 0;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                count += precompress(file);
+            } else if (!file.getName().endsWith(".gz") && !file.getName().endsWith(".br") && file.length() >= minSize
+                    && compressible(MimeTypes.getContentType(file.getName(), "application/octet-stream"))
+                    && sibling(file, ".gz") == null) {
+                try {
+                    gzip(file, new File(file.getPath() + ".gz"));
+                    count++;
+                } catch (IOException e) {
+                    Logger.warn(e, "Cannot precompress %s", file);
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void gzip(File file, File target) throws IOException {
+        File tmp = new File(target.getPath() + ".tmp");
+        try (InputStream in = new FileInputStream(file);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(tmp), 8192) {
+                 {
+                     def.setLevel(Deflater.BEST_COMPRESSION);
+                 }
+             }) {
+            in.transferTo(out);
+        }
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Precompress the <code>public</code> directory of the application and its modules
+     */
+    public static void precompressStatic() {
+        ResponseCompression compression = get();
+        if (!compression.precompressed) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int count = 0;
+        for (File root : Play.roots) {
+            count += compression.precompress(new File(root, "public"));
+        }
+        if (count > 0) {
+            Logger.info("%d static files precompressed in %d ms", count, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * The streaming encoder used by {@link HttpChunkContentCompressor}, each chunk is flushed so that it reaches the
+     * client as it is written
+     */
+    static final class Encoder extends MessageToByteEncoder<ByteBuf> {
+        private final Deflating deflating;
+
+        Encoder(String encoding, int level) {
+            this.deflating = new Deflating(encoding, level);
+        }
+
+        @Override
+        protected void encode(ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out) {
+            deflating.write(msg, out, Deflater.SYNC_FLUSH);
+        }
+
+        @Override
+        protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect) {
+            return ctx.alloc().heapBuffer(msg.readableBytes() / 2 + 64);
+        }
+
+        @Override
+        public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+            ByteBuf footer = ctx.alloc().heapBuffer(64);
+            try {
+                deflating.finish(footer);
+            } finally {
+                deflating.end();
+            }
+            ctx.writeAndFlush(footer);
+            ctx.close(promise);
+        }
+
+        @Override
+        public void handlerRemoved(ChannelHandlerContext ctx) {
+            deflating.end();
+        }
+    }
+
+    /**
+     * A JDK deflater producing the gzip (RFC 1952) or zlib (RFC 1950, the HTTP "deflate") format
+     */
+    static final class Deflating {
+        private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+        private final boolean gzip;
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private boolean headerWritten;
+        private boolean ended;
+
+        Deflating(String encoding, int level) {
+            this.gzip = GZIP.equals(encoding);
+            this.deflater = new Deflater(level, gzip);
+        }
+
+        void write(ByteBuf in, ByteBuf out, int flush) {
+            header(out);
+            for (ByteBuffer buffer : in.nioBuffers()) {
+                if (gzip) {
+                    crc.update(buffer.duplicate());
+                }
+                deflater.setInput(buffer);
+                while (!deflater.needsInput()) {
+                    deflate(out, Deflater.NO_FLUSH);
+                }
+            }
+            in.skipBytes(in.readableBytes());
+            if (flush != Deflater.NO_FLUSH) {
+                // SYNC_FLUSH may need several rounds to empty the deflater
+                while (deflate(out, flush) == 0) {
+                    // output buffer filled, go on
+                }
+            }
+        }
+
+        void finish(ByteBuf out) {
+            header(out);
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflate(out, Deflater.NO_FLUSH);
+            }
+            if (gzip) {
+                out.writeIntLE((int) crc.getValue());
+                out.writeIntLE((int) deflater.getBytesRead());
+            }
+        }
+
+        // returns the room left in the output buffer after the call, 0 when it was filled
+        private int deflate(ByteBuf out, int flush) {
+            out.ensureWritable(8192);
+            ByteBuffer target = out.nioBuffer(out.writerIndex(), out.writableBytes());
+            int written = deflater.deflate(target, flush);
+            out.writerIndex(out.writerIndex() + written);
+            return target.remaining();
+        }
+
+        private void header(ByteBuf out) {
+            if (gzip && !headerWritten) {
+                out.writeBytes(GZIP_HEADER);
+                headerWritten = true;
+            }
+        }
+
+        void end() {
+            if (!ended) {
+                ended = true;
+                deflater.end();
+            }
+        }
+    }
+}
@@ -109,15 +109,21 @@ public class Server {
             }
         }
         NettyTransport transport = NettyTransport.transport(getClass().getClassLoader());
+        int acceptors = Math.max(1, Integer.parseInt(p.getProperty("play.netty.acceptors", "1")));
+        if (acceptors > 1 && !transport.supportsReusePort()) {
+            Logger.warn("SO_REUSEPORT is not supported by the %s transport, using one acceptor", transport.name());
+            acceptors = 1;
+        }
+        Logger.info("Netty transport: %s, %s acceptor(s)", transport.name(), acceptors);
 
-        /** Acceptor event-loop */
-        EventLoopGroup bossGroup = transport.createEventLoop(1, "acceptor", 50);
+        /** Acceptor event-loop, one thread per acceptor channel */
+        EventLoopGroup bossGroup = transport.createEventLoop(acceptors, "acceptor", 50);
 
         /** Event loop: processing connections, parsing messages and doing engine's internal work */
         EventLoopGroup workerGroup = transport.createEventLoop(0, "eventloop", 100);
         ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
         try {
-            ServerBootstrap bootstrap = transport.configure(bossGroup, workerGroup);
+            ServerBootstrap bootstrap = transport.configure(bossGroup, workerGroup, acceptors > 1);
             bootstrap.childOption(ChannelOption.TCP_NODELAY, true).childOption(ChannelOption.SO_REUSEADDR, true);
 //            bootstrap.handler(new LoggingHandler(LogLevel.INFO));
             if(Play.configuration.getProperty("http.version", "1.1").startsWith("2")) {
@@ -129,7 +135,7 @@ public class Server {
             }
             Channel ch = null;
             if (httpPort != -1) {
-                ch = bootstrap.bind(new InetSocketAddress(address, httpPort)).sync().channel();
+                ch = bind(bootstrap, new InetSocketAddress(address, httpPort), acceptors);
                 if (address == null) {
                     if (Play.mode == Mode.DEV)
                         Logger.info("Listening for HTTP on port %s (Waiting a first request to start) ...", httpPort);
@@ -143,7 +149,7 @@ public class Server {
                 }
             }
             if (httpsPort != -1) {
-                ch = bootstrap.bind(new InetSocketAddress(secureAddress, httpsPort)).sync().channel();
+                ch = bind(bootstrap, new InetSocketAddress(secureAddress, httpsPort), acceptors);
                 if (secureAddress == null) {
                     if (Play.mode == Mode.DEV)
                         Logger.info("Listening for HTTPS on port %s (Waiting a first request to start) ...", httpsPort);
@@ -171,6 +177,17 @@ public class Server {
 
     }
 
+    /**
+     * Bind the address once per acceptor, with SO_REUSEPORT the kernel balances new connections between them
+     */
+    private static Channel bind(ServerBootstrap bootstrap, InetSocketAddress address, int acceptors) throws InterruptedException {
+        Channel channel = null;
+        for (int i = 0; i < acceptors; i++) {
+            channel = bootstrap.bind(address).sync().channel();
+        }
+        return channel;
+    }
+
     private String getOpt(String[] args, String arg, String defaultValue) {
         String s = "--" + arg + "=";
         for (String a : args) {
@@ -0,0 +1,331 @@
+package play.server;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.util.IllegalReferenceCountException;
+import play.Logger;
+import play.Play;
+import play.libs.MimeTypes;
+import play.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Small static files kept in memory, so that hot CSS/JS/icons are served without opening or stating the file:
+ * <ul>
+ * <li><code>play.netty.staticCache</code>: enabled (default true)</li>
+ * <li><code>play.netty.staticCache.maxSize</code>: memory used by all the entries (default 32MB)</li>
+ * <li><code>play.netty.staticCache.maxFileSize</code>: bigger files are sent from the disk (default 256KB)</li>
+ * </ul>
+ * An entry holds the content in a direct buffer, its compressed variants (the .br/.gz siblings, else gzip computed
+ * when the type is compressible), and the precomputed ETag, Last-Modified and content type. The files are immutable
+ * in PROD; in DEV the entries are dropped when the file system reports a change of their directory.
+ */
+public final class StaticFileCache {
+
+    private static volatile StaticFileCache current;
+
+    private final boolean enabled;
+    private final int maxFileSize;
+    private final ResponseCompression compression;
+    final Cache<String, Entry> cache;
+    private final Watcher watcher;
+
+    StaticFileCache(Properties configuration, ResponseCompression compression, boolean watch) {
+        this.enabled = Boolean.parseBoolean(configuration.getProperty("play.netty.staticCache", "true"));
+        this.maxFileSize = (int) Utils.parseSize(configuration.getProperty("play.netty.staticCache.maxFileSize", "256KB"));
+        this.compression = compression;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(Utils.parseSize(configuration.getProperty("play.netty.staticCache.maxSize", "32MB")))
+                .weigher((String key, Entry entry) -> entry.weight())
+                // release right away, a request holding a duplicate keeps the memory until it is written
+                .executor(Runnable::run)
+                .removalListener((String key, Entry entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        entry.release();
+                    }
+                })
+                .recordStats()
+                .build();
+        this.watcher = watch && enabled ? new Watcher() : null;
+    }
+
+    public static StaticFileCache get() {
+        StaticFileCache cache = current;
+        if (cache == null) {
+            synchronized (StaticFileCache.class) {
+                cache = current;
+                if (cache == null) {
+                    current = cache = new StaticFileCache(Play.configuration, ResponseCompression.get(), Play.mode.isDev());
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * The cached file, loaded on the first request
+     *
+     * @param key
+     *            the request path or the file path
+     * @param file
+     *            resolves the file on a miss
+     * @return null when the cache is disabled, or the file is missing or too big
+     */
+    public Entry lookup(String key, Supplier<File> file) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            return entry;
+        }
+        // not cacheable results are not stored: the next request goes to the disk again
+        return cache.get(key, k -> load(file.get()));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Long> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("entries", cache.estimatedSize());
+        result.put("bytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    Entry load(File file) {
+        if (file == null || !file.isFile() || file.length() > maxFileSize) {
+            return null;
+        }
+        try {
+            if (watcher != null) {
+                watcher.watch(file.getParentFile());
+            }
+            long lastModified = file.lastModified();
+            String contentType = MimeTypes.getContentType(file.getName(), "text/plain");
+            ByteBuf content = read(file);
+            ByteBuf gzip = null;
+            ByteBuf brotli = null;
+            try {
+                File br = new File(file.getPath() + ".br");
+                if (compression.precompressed && br.isFile() && br.lastModified() >= lastModified && br.length() <= maxFileSize) {
+                    brotli = read(br);
+                }
+                File gz = new File(file.getPath() + ".gz");
+                if (compression.precompressed && gz.isFile() && gz.lastModified() >= lastModified && gz.length() <= maxFileSize) {
+                    gzip = read(gz);
+                } else if (compression.encodingFor(ResponseCompression.GZIP, contentType, content.readableBytes()) != null) {
+                    gzip = compressed(content);
+                }
+            } catch (IOException | RuntimeException e) {
+                content.release();
+                if (brotli != null) {
+                    brotli.release();
+                }
+                throw e;
+            }
+            return new Entry(file, lastModified, contentType, content, gzip, brotli);
+        } catch (IOException e) {
+            Logger.warn(e, "Cannot cache %s", file);
+            return null;
+        }
+    }
+
+    private static ByteBuf read(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            int length = (int) channel.size();
+            ByteBuf buffer = Unpooled.directBuffer(length, length);
+            try {
+                while (buffer.isWritable()) {
+                    if (buffer.writeBytes(channel, buffer.writerIndex(), buffer.writableBytes()) < 0) {
+                        throw new IOException("File truncated while reading: " + file);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                buffer.release();
+                throw e;
+            }
+            return buffer;
+        }
+    }
+
+    // gzip at load time, kept only if it saves something
+    private ByteBuf compressed(ByteBuf content) {
+        ByteBuf gzip = compression.compress(UnpooledByteBufAllocator.DEFAULT, content.retainedDuplicate(), ResponseCompression.GZIP);
+        if (gzip.readableBytes() >= content.readableBytes()) {
+            gzip.release();
+            return null;
+        }
+        ByteBuf copy = Unpooled.directBuffer(gzip.readableBytes(), gzip.readableBytes()).writeBytes(gzip);
+        gzip.release();
+        return copy;
+    }
+
+    /**
+     * A cached file and its compressed variants
+     */
+    public static final class Entry {
+        public final File file;
+        public final long lastModified;
+        public final String lastModifiedHttp;
+        public final String contentType;
+        private final String etag;
+        private final String gzipEtag;
+        private final String brotliEtag;
+        private final ByteBuf content;
+        private final ByteBuf gzip;
+        private final ByteBuf brotli;
+
+        Entry(File file, long lastModified, String contentType, ByteBuf content, ByteBuf gzip, ByteBuf brotli) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.lastModifiedHttp = DateFormatter.format(new Date(lastModified));
+            // same ETags as NettyContext.serveFile, for the file and its siblings
+            this.etag = "\"" + lastModified + "-" + file.hashCode() + "\"";
+            this.gzipEtag = "\"" + lastModified + "-" + new File(file.getPath() + ".gz").hashCode() + "\"";
+            this.brotliEtag = "\"" + lastModified + "-" + new File(file.getPath() + ".br").hashCode() + "\"";
+            this.contentType = contentType;
+            this.content = content;
+            this.gzip = gzip;
+            this.brotli = brotli;
+        }
+
+        /**
+         * @return If the response varies on Accept-Encoding
+         */
+        public boolean hasVariants() {
+            return gzip != null || brotli != null;
+        }
+
+        /**
+         * @return The Content-Encoding to send to this client, null for the content as is
+         */
+        public String encoding(CharSequence acceptEncoding) {
+            if (!hasVariants()) {
+                return null;
+            }
+            String encoding = ResponseCompression.negotiate(acceptEncoding, brotli != null);
+            if (ResponseCompression.BROTLI.equals(encoding)) {
+                return encoding;
+            }
+            return gzip != null && ResponseCompression.GZIP.equals(encoding) ? encoding : null;
+        }
+
+        /**
+         * @return The ETag of the variant
+         */
+        public String etag(String encoding) {
+            return ResponseCompression.BROTLI.equals(encoding) ? brotliEtag : ResponseCompression.GZIP.equals(encoding) ? gzipEtag : etag;
+        }
+
+        /**
+         * The body to send, owned by the caller
+         *
+         * @param encoding
+         *            as returned by {@link #encoding(CharSequence)}
+         * @return null if the entry has been evicted meanwhile
+         */
+        public ByteBuf body(String encoding) {
+            ByteBuf variant = ResponseCompression.BROTLI.equals(encoding) ? brotli : ResponseCompression.GZIP.equals(encoding) ? gzip : content;
+            try {
+                return variant.retainedDuplicate();
+            } catch (IllegalReferenceCountException e) {
+                return null;
+            }
+        }
+
+        int weight() {
+            return content.capacity() + (gzip != null ? gzip.capacity() : 0) + (brotli != null ? brotli.capacity() : 0);
+        }
+
+        void release() {
+            content.release();
+            if (gzip != null) {
+                gzip.release();
+            }
+            if (brotli != null) {
+                brotli.release();
+            }
+        }
+    }
+
+    /**
+     * DEV: drops the entries of a file (or of its .br/.gz siblings) changed on disk
+     */
+    private final class Watcher implements Runnable {
+        private final Set<Path> directories = ConcurrentHashMap.newKeySet();
+        private WatchService service;
+
+        synchronized void watch(File directory) throws IOException {
+            Path path = directory.toPath();
+            if (directories.contains(path)) {
+                return;
+            }
+            if (service == null) {
+                service = FileSystems.getDefault().newWatchService();
+                Thread thread = new Thread(this, "static-cache-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            path.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            directories.add(path);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    WatchKey key = service.take();
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            cache.invalidateAll();
+                            continue;
+                        }
+                        String changed = directory.resolve((Path) event.context()).toString();
+                        String base = changed.endsWith(".gz") || changed.endsWith(".br") ? changed.substring(0, changed.length() - 3) : changed;
+                        cache.asMap().forEach((k, entry) -> {
+                            if (entry.file.getPath().equals(changed) || entry.file.getPath().equals(base)) {
+                                cache.invalidate(k);
+                            }
+                        });
+                    }
+                    if (!key.reset()) {
+                        directories.remove(directory);
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // stopped
+            }
+        }
+    }
+}
@@ -25,14 +25,17 @@ import play.jte.JtePlugin;
 import play.libs.MimeTypes;
 import play.libs.Time;
 import play.mvc.ActionInvoker;
+import play.mvc.AssetManifest;
 import play.mvc.Http;
 import play.mvc.Router;
 import play.mvc.Scope;
 import play.mvc.results.NotFound;
 import play.mvc.results.RenderStatic;
+import play.server.ByteBufResponseOutput;
 import play.server.Context;
 import play.server.LazyChunkedInput;
 import play.server.NettyInvocation;
+import play.server.ResponseCompression;
 import play.templates.JavaExtensions;
 import play.templates.TemplateLoader;
 import play.utils.HTTP;
@@ -45,6 +48,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -78,7 +82,7 @@ public class Http2Context implements Context {
         this.request = request;
         this.secure = request.secure;
         this.response = new Http.Response();
-        this.response.out = new ByteArrayOutputStream();
+        this.response.out = new ByteBufResponseOutput(ctx.alloc());
         this.response.direct = null;
     }
 
@@ -167,6 +171,8 @@ public class Http2Context implements Context {
         if (Logger.isTraceEnabled()) {
             Logger.trace("serve500: begin");
         }
+        // the body written so far is replaced by the error page
+        ByteBufResponseOutput.release(response.out);
         String encoding = response.encoding;
         Map<String, Object> binding = getBindingForErrors(e, true);
 
@@ -241,11 +247,22 @@ public class Http2Context implements Context {
             }
         } else {
             // write response
-            ByteBuf content = ctx.alloc().buffer();
-            if (!nettyRequest.headers().method().equals(HttpMethod.HEAD)) {
-                content.writeBytes(response.out.toByteArray());
+            // the body buffers go to Netty as they are
+            ByteBuf content;
+            if (HttpMethod.HEAD.asciiName().contentEquals(nettyRequest.headers().method())) {
+                ByteBufResponseOutput.release(response.out);
+                content = EMPTY_BUFFER;
+            } else {
+                content = ByteBufResponseOutput.takeContent(response.out);
             }
             Http2Headers headers = new DefaultHttp2Headers().status(HttpResponseStatus.OK.codeAsText());
+            // no compression stage in the HTTP/2 pipeline: compressed here
+            ResponseCompression compression = ResponseCompression.get();
+            String encoding = compression.encodingFor(nettyRequest.headers().get(ACCEPT_ENCODING), response.contentType, content.readableBytes());
+            if (encoding != null && !response.headers.containsKey(CONTENT_ENCODING.toString())) {
+                content = compression.compress(ctx.alloc(), content, encoding);
+                headers.set(CONTENT_ENCODING, encoding).add(VARY, ACCEPT_ENCODING);
+            }
             ctx.write(new DefaultHttp2HeadersFrame(headers));
             ctx.write(new DefaultHttp2DataFrame(content, true));
         }
@@ -397,6 +414,9 @@ public class Http2Context implements Context {
             if (file == null || !file.exists()) {
                 serve404(new NotFound("The file " + renderStatic.file + " does not exist"));
             } else {
+                if (renderStatic.immutable) {
+                    response.setHeader(CACHE_CONTROL.toString(), AssetManifest.IMMUTABLE);
+                }
                 serveFile(file);
             }
 
@@ -457,18 +477,35 @@ public class Http2Context implements Context {
                 response.direct = new LazyChunkedInput();
                 copyResponse();
             }
-            ((LazyChunkedInput) response.direct).writeChunk(chunk, response.encoding);
+            LazyChunkedInput input = (LazyChunkedInput) response.direct;
+            input.writeChunk(chunk, response.encoding);
             if (ctx.pipeline().get(ChunkedWriteHandler.class) != null) {
                 ctx.pipeline().get(ChunkedWriteHandler.class).resumeTransfer();
             }
             if (ctx.pipeline().get("SslChunkedWriteHandler") != null) {
                 ((ChunkedWriteHandler) ctx.pipeline().get("SslChunkedWriteHandler")).resumeTransfer();
             }
+            // backpressure: a slow client slows the action down instead of filling the memory
+            input.awaitDrain(ctx.channel());
         } catch (Exception e) {
             throw new UnexpectedException(e);
         }
     }
 
+    /**
+     * 103 Early Hints, before the response
+     */
+    void writeEarlyHints(List<String> links) {
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+        Http2Headers headers = new DefaultHttp2Headers().status(HttpResponseStatus.EARLY_HINTS.codeAsText());
+        for (String link : links) {
+            headers.add("link", link);
+        }
+        ctx.writeAndFlush(new DefaultHttp2HeadersFrame(headers));
+    }
+
     public void writeResponse() throws Exception {
         if (response.chunked) {
             closeChunked();
@@ -493,6 +530,14 @@ public class Http2Context implements Context {
     }
 
     public void release() {
+        // a body not sent (chunked response, error)
+        ByteBufResponseOutput.release(response.out);
+        try {
+            // frees an aggregated body, drops what the action did not read of a streamed one
+            request.body.close();
+        } catch (IOException e) {
+            // Ignore
+        }
 //        if(nettyRequest.refCnt() > 0)
 //            nettyRequest.release();
         ctx.flush();
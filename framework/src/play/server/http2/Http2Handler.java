@@ -1,23 +1,34 @@
 package play.server.http2;
 
-import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelDuplexHandler;
-import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.codec.http.cookie.CookieHeaderNames;
 import io.netty.handler.codec.http.cookie.DefaultCookie;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
+import io.netty.handler.codec.http2.DefaultHttp2DataFrame;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
+import io.netty.handler.codec.http2.DefaultHttp2ResetFrame;
 import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2Error;
 import io.netty.handler.codec.http2.Http2Headers;
 import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2StreamChannel;
 import org.apache.commons.lang3.StringUtils;
 import play.Logger;
 import play.Play;
 import play.mvc.Http;
 import play.server.NettyInvocation;
+import play.server.PlayHandler;
+import play.server.RequestBodyStream;
+import play.utils.Utils;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -32,19 +43,68 @@ import java.util.regex.Pattern;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.*;
 
+/**
+ * Handles one HTTP/2 stream: an instance is created for each stream channel of the connection by
+ * {@link #initializer(boolean, ExecutorService)}.
+ * <p>
+ * The request body is aggregated from the DATA frames of the stream, up to <code>play.netty.maxContentLength</code>
+ * (a bigger body is answered with 413 and the stream is reset). With <code>play.netty.streaming</code> the action is
+ * invoked on the HEADERS frame and reads the frames as they arrive: reading the stream channel is paused while
+ * <code>play.netty.streaming.bufferSize</code> bytes wait for the action, so that no WINDOW_UPDATE is sent and the
+ * client is held by the HTTP/2 flow control of the stream.
+ */
 public class Http2Handler extends ChannelDuplexHandler {
     private static final Pattern PATTERN_REMOTEADDR = Pattern.compile("/[0-9]+[.][0-9]+[.][0-9]+[.][0-9]+[:][0-9]+");
     private static final Pattern PATTERN_LOOPBACK = Pattern.compile("^127\\.0\\.0\\.1:?[0-9]*$");
     private static final Pattern PATTERN_REMOTEADDR2 = Pattern.compile(".*[%].*");
     private static final String FORBIDDEN_MSG = "Failure: " + HttpResponseStatus.FORBIDDEN + "\r\n";
 
-    private InputStream body;
     private final boolean secure;
     private final ExecutorService executor;
+    private final boolean streaming;
+    private final long maxContentLength;
+    private final int bufferSize;
+    private final long threshold;
+
+    private Http2HeadersFrame headers;
+    // aggregated body
+    private CompositeByteBuf content;
+    // streamed body
+    private RequestBodyStream body;
+    private long received;
+    // the request got its response before the end of the body, the frames left are dropped
+    private boolean rejected;
 
     public Http2Handler(boolean secure, ExecutorService executor) {
+        this(secure, executor, Boolean.parseBoolean(Play.configuration.getProperty("play.netty.streaming", "false")),
+                Utils.parseSize(Play.configuration.getProperty("play.netty.maxContentLength", "-1")),
+                (int) Utils.parseSize(Play.configuration.getProperty("play.netty.streaming.bufferSize", "256KB")),
+                Utils.parseSize(Play.configuration.getProperty("play.netty.streaming.threshold", "-1")));
+    }
+
+    Http2Handler(boolean secure, ExecutorService executor, boolean streaming, long maxContentLength, int bufferSize, long threshold) {
         this.secure = secure;
         this.executor = executor;
+        this.streaming = streaming;
+        this.maxContentLength = maxContentLength;
+        this.bufferSize = bufferSize;
+        this.threshold = threshold;
+    }
+
+    /**
+     * The handler of the streams opened by the client, for {@link io.netty.handler.codec.http2.Http2MultiplexHandler}
+     */
+    public static ChannelInitializer<Http2StreamChannel> initializer(boolean secure, ExecutorService executor) {
+        boolean streaming = Boolean.parseBoolean(Play.configuration.getProperty("play.netty.streaming", "false"));
+        long maxContentLength = Utils.parseSize(Play.configuration.getProperty("play.netty.maxContentLength", "-1"));
+        int bufferSize = (int) Utils.parseSize(Play.configuration.getProperty("play.netty.streaming.bufferSize", "256KB"));
+        long threshold = Utils.parseSize(Play.configuration.getProperty("play.netty.streaming.threshold", "-1"));
+        return new ChannelInitializer<>() {
+            @Override
+            protected void initChannel(Http2StreamChannel ch) {
+                ch.pipeline().addLast(new Http2Handler(secure, executor, streaming, maxContentLength, bufferSize, threshold));
+            }
+        };
     }
 
     @Override
@@ -59,44 +119,147 @@ public class Http2Handler extends ChannelDuplexHandler {
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof Http2HeadersFrame headersFrame) {
-            if (headersFrame.headers().method().equals(HttpMethod.TRACE)) {
-                ByteBuf content = ctx.alloc().buffer().writeBytes(FORBIDDEN_MSG.getBytes(StandardCharsets.UTF_8));
-                FullHttpResponse nettyResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.FORBIDDEN, content);
-                nettyResponse.headers().set(CONNECTION, HttpHeaderValues.CLOSE);
-                ctx.writeAndFlush(nettyResponse).addListener(ChannelFutureListener.CLOSE);
+            if (headers != null) {
+                // trailers
+                if (headersFrame.isEndStream()) {
+                    endOfBody(ctx);
+                }
+                return;
             }
-            if(headersFrame.isEndStream()) {
+            headers = headersFrame;
+            if (HttpMethod.TRACE.asciiName().contentEquals(headersFrame.headers().method())) {
+                rejected = true;
+                Http2Headers response = new DefaultHttp2Headers().status(HttpResponseStatus.FORBIDDEN.codeAsText());
+                ctx.write(new DefaultHttp2HeadersFrame(response));
+                ctx.writeAndFlush(new DefaultHttp2DataFrame(Unpooled.copiedBuffer(FORBIDDEN_MSG, StandardCharsets.UTF_8), true));
+                return;
+            }
+            Long length = headersFrame.headers().getLong(CONTENT_LENGTH);
+            if (length != null && exceeds(length)) {
+                reject(ctx);
+            } else if (headersFrame.isEndStream()) {
                 if (isStaticFile(headersFrame) && headersFrame.headers().method().equals(HttpMethod.GET.asciiName())) {
                     Http2StaticContext context = new Http2StaticContext(ctx, headersFrame);
                     context.serveStatic();
                 } else {
-                    Http.Request request = parseRequest(ctx, headersFrame.headers(), body, secure);
-                    Http2Context context = new Http2Context(ctx, headersFrame, request);
-                    try {
-                        context.response().onWriteChunk(obj -> context.writeChunk(obj));
-                        // Raw invocation
-                        boolean raw = Play.pluginCollection.rawInvocation(request, context.response());
-                        if (raw) {
-                            context.copyResponse();
-                        } else if (context.resolve()) {
-                            executor.submit(new NettyInvocation(context));
-                        }
-                    } catch (Exception ex) {
-                        Logger.warn(ex, "Exception on request. serving 500 back");
-                        context.serve500(ex);
-                    }
+                    dispatch(ctx, headersFrame, new ByteBufInputStream(Unpooled.EMPTY_BUFFER));
                 }
+            } else if (streaming) {
+                body = new RequestBodyStream(ctx.channel(), bufferSize, threshold);
+                dispatch(ctx, headersFrame, body);
+            } else {
+                content = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
             }
         } else if (msg instanceof Http2DataFrame frame) {
-            if(frame.isEndStream())
-                this.body = new ByteBufInputStream(frame.content());
-            else
+            if (rejected || (content == null && body == null)) {
+                frame.release();
+                return;
+            }
+            received += frame.content().readableBytes();
+            if (exceeds(received)) {
                 frame.release();
+                reject(ctx);
+                return;
+            }
+            if (body != null) {
+                body.offer(frame.content());
+            } else {
+                content.addComponent(true, frame.content());
+            }
+            if (frame.isEndStream()) {
+                endOfBody(ctx);
+            }
         } else {
             super.channelRead(ctx, msg);
         }
     }
 
+    private boolean exceeds(long length) {
+        return maxContentLength >= 0 && length > maxContentLength;
+    }
+
+    private void endOfBody(ChannelHandlerContext ctx) throws Exception {
+        if (body != null) {
+            body.complete();
+            body = null;
+        } else if (content != null) {
+            CompositeByteBuf aggregated = content;
+            content = null;
+            // released when the invocation closes the body
+            dispatch(ctx, headers, new ByteBufInputStream(aggregated, true));
+        }
+    }
+
+    /**
+     * The body is over the limit: 413, and the client is told to stop sending it
+     */
+    private void reject(ChannelHandlerContext ctx) {
+        rejected = true;
+        if (content != null) {
+            content.release();
+            content = null;
+        }
+        if (body != null) {
+            // the action is already running, it will fail on reading the body
+            body.abort(new IOException("Request body bigger than play.netty.maxContentLength (" + maxContentLength + " bytes)"));
+            body = null;
+            ctx.writeAndFlush(new DefaultHttp2ResetFrame(Http2Error.CANCEL));
+            return;
+        }
+        Http2Headers response = new DefaultHttp2Headers().status(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.codeAsText());
+        response.setInt(CONTENT_LENGTH, 0);
+        ctx.write(new DefaultHttp2HeadersFrame(response, true));
+        ctx.writeAndFlush(new DefaultHttp2ResetFrame(Http2Error.NO_ERROR));
+    }
+
+    /**
+     * Invoke the action of the request, the invocation owns the body (else it is closed here)
+     */
+    void dispatch(ChannelHandlerContext ctx, Http2HeadersFrame headersFrame, InputStream body) throws Exception {
+        boolean dispatched = false;
+        try {
+            Http.Request request = parseRequest(ctx, headersFrame.headers(), body, secure);
+            Http2Context context = new Http2Context(ctx, headersFrame, request);
+            try {
+                context.response().onWriteChunk(obj -> context.writeChunk(obj));
+                context.response().onEarlyHints(links -> context.writeEarlyHints(links));
+                // Raw invocation
+                boolean raw = Play.pluginCollection.rawInvocation(request, context.response());
+                if (raw) {
+                    context.copyResponse();
+                } else if (context.resolve()) {
+                    if (body instanceof RequestBodyStream stream) {
+                        stream.threshold(PlayHandler.bodyThreshold(request));
+                    }
+                    executor.submit(new NettyInvocation(context));
+                    dispatched = true;
+                }
+            } catch (Exception ex) {
+                Logger.warn(ex, "Exception on request. serving 500 back");
+                context.serve500(ex);
+            }
+        } finally {
+            if (!dispatched) {
+                // Nobody will read it
+                body.close();
+            }
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // the stream is closed or reset
+        if (content != null) {
+            content.release();
+            content = null;
+        }
+        if (body != null) {
+            body.abort();
+            body = null;
+        }
+        super.channelInactive(ctx);
+    }
+
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
         ctx.flush();
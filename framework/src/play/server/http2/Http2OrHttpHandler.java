@@ -9,6 +9,7 @@ import io.netty.handler.ssl.ApplicationProtocolNames;
 import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
 import io.netty.handler.stream.ChunkedWriteHandler;
 import play.server.PlayHandler;
+import play.server.ResponseCompression;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -33,12 +34,17 @@ public class Http2OrHttpHandler extends ApplicationProtocolNegotiationHandler {
     protected void configurePipeline(ChannelHandlerContext ctx, String protocol) throws Exception {
         if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
             ctx.pipeline().addLast(Http2FrameCodecBuilder.forServer().build());
-            ctx.pipeline().addLast(new ChunkedWriteHandler(), new Http2MultiplexHandler(new Http2Handler(secure, executorService)));
+            ctx.pipeline().addLast(new ChunkedWriteHandler(), new Http2MultiplexHandler(Http2Handler.initializer(secure, executorService)));
             return;
         }
 
         if (ApplicationProtocolNames.HTTP_1_1.equals(protocol)) {
-            ctx.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(Integer.MAX_VALUE), new ChunkedWriteHandler(), new PlayHandler(secure, executorService));
+            ctx.pipeline().addLast(new HttpServerCodec());
+            ResponseCompression compression = ResponseCompression.get();
+            if (compression.enabled()) {
+                ctx.pipeline().addLast(compression.newCompressor());
+            }
+            ctx.pipeline().addLast(new HttpObjectAggregator(Integer.MAX_VALUE), new ChunkedWriteHandler(), new PlayHandler(secure, executorService));
             return;
         }
 
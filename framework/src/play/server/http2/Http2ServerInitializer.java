@@ -30,13 +30,10 @@ public class Http2ServerInitializer extends ChannelInitializer<SocketChannel> {
 
     private final SslContext sslCtx;
     private final ExecutorService executorService;
-    private final Http2ServerUpgradeCodec upgradeCodecFactory;
 
     public Http2ServerInitializer(SslContext sslCtx, ExecutorService executorService) {
         this.sslCtx = sslCtx;
         this.executorService = executorService;
-        this.upgradeCodecFactory = new Http2ServerUpgradeCodec(
-                Http2FrameCodecBuilder.forServer().build(), new Http2MultiplexHandler(new Http2Handler(true, executorService)));
     }
 
     @Override
@@ -66,8 +63,10 @@ public class Http2ServerInitializer extends ChannelInitializer<SocketChannel> {
         p.addLast(sourceCodec);
         p.addLast(new ChunkedWriteHandler());
         p.addLast(new HttpServerUpgradeHandler(sourceCodec,  protocol -> {
+            // the codec holds the state of the connection
             if (AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol))
-                return upgradeCodecFactory;
+                return new Http2ServerUpgradeCodec(Http2FrameCodecBuilder.forServer().build(),
+                        new Http2MultiplexHandler(Http2Handler.initializer(secure, executorService)));
             else return null;
         }));
         p.addLast(new SimpleChannelInboundHandler<HttpMessage>() {
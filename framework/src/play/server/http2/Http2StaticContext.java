@@ -13,6 +13,8 @@ import org.apache.commons.lang3.time.DateUtils;
 import play.Play;
 import play.jte.JtePlugin;
 import play.libs.MimeTypes;
+import play.mvc.AssetManifest;
+import play.server.ResponseCompression;
 import play.templates.TemplateLoader;
 import play.utils.Utils;
 
@@ -68,7 +70,8 @@ public class Http2StaticContext {
             return;
         }
         String url = Utils.urlDecodePath(path.replaceFirst(Play.ctxPath, ""));
-        File vf = Play.getVirtualFile(url);
+        AssetManifest.Asset asset = AssetManifest.get().resolve(url, Play::getVirtualFile);
+        File vf = asset != null ? asset.file : Play.getVirtualFile(url);
         if (vf == null || !vf.exists()) {
             sendError404();
             return;
@@ -86,9 +89,12 @@ public class Http2StaticContext {
                 return;
             }
         }
+        // the .br/.gz sibling when the client accepts it
+        ResponseCompression compression = ResponseCompression.get();
+        File body = compression.precompressed(vf, nettyRequest.headers().get(HttpHeaderNames.ACCEPT_ENCODING));
         RandomAccessFile raf;
         try {
-            raf = new RandomAccessFile(vf, "r");
+            raf = new RandomAccessFile(body != null ? body : vf, "r");
         } catch (FileNotFoundException ignore) {
             sendError404();
             return;
@@ -99,7 +105,13 @@ public class Http2StaticContext {
         headers.setLong(HttpHeaderNames.CONTENT_LENGTH, fileLength);
         String contentType = MimeTypes.getContentType(vf.getName(), "text/plain");
         headers.set(HttpHeaderNames.CONTENT_TYPE, contentType);
-        setDateAndCacheHeaders(headers, vf);
+        setDateAndCacheHeaders(headers, vf, asset != null && asset.immutable);
+        if (body != null) {
+            headers.set(HttpHeaderNames.CONTENT_ENCODING, ResponseCompression.encodingOf(body));
+        }
+        if (compression.hasPrecompressed(vf)) {
+            headers.set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        }
         // Write the initial line and the header.
         ctx.writeAndFlush(new DefaultHttp2HeadersFrame(headers).stream(stream));
         // Write the content.
@@ -184,15 +196,21 @@ public class Http2StaticContext {
      *
      * @param headers     Http2 Headers
      * @param fileToCache file to extract content type
+     * @param immutable   a fingerprinted url, cached for a year without revalidation
      */
-    private static void setDateAndCacheHeaders(Http2Headers headers, File fileToCache) {
+    private static void setDateAndCacheHeaders(Http2Headers headers, File fileToCache, boolean immutable) {
         // Date header
         Date date = new Date();
         headers.set(HttpHeaderNames.DATE, DateFormatter.format(date));
         // Add cache headers
-        Date expiryDate = DateUtils.addSeconds(date, Play.mode.isDev() ? 0:maxAge);
-        headers.set(HttpHeaderNames.EXPIRES, DateFormatter.format(expiryDate));
-        headers.set(HttpHeaderNames.CACHE_CONTROL, Play.mode.isDev() ? HttpHeaderValues.NO_CACHE:"max-age=" + maxAge);
+        if (immutable) {
+            headers.set(HttpHeaderNames.EXPIRES, DateFormatter.format(DateUtils.addYears(date, 1)));
+            headers.set(HttpHeaderNames.CACHE_CONTROL, AssetManifest.IMMUTABLE);
+        } else {
+            Date expiryDate = DateUtils.addSeconds(date, Play.mode.isDev() ? 0:maxAge);
+            headers.set(HttpHeaderNames.EXPIRES, DateFormatter.format(expiryDate));
+            headers.set(HttpHeaderNames.CACHE_CONTROL, Play.mode.isDev() ? HttpHeaderValues.NO_CACHE:"max-age=" + maxAge);
+        }
         headers.set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(fileToCache.lastModified())));
     }
 }
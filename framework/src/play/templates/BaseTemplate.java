@@ -12,6 +12,7 @@ import play.libs.IO;
 
 import java.io.File;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -97,6 +98,29 @@ public abstract class BaseTemplate extends Template {
         throw new RuntimeException(e);
     }
 
+    /**
+     * Render the layout set by a top level template, around the output of the template
+     */
+    String renderLayout(Map<String, Object> args, StringWriter writer) {
+        Map<String, Object> layoutArgs = new HashMap<>(args);
+        layoutArgs.remove("out");
+        layoutArgs.put("_isLayout", true);
+        String layoutR = layout.get().internalRender(layoutArgs);
+
+        // Must replace '____%LAYOUT%____' inside the string layoutR with the content from writer..
+        String whatToFind = "____%LAYOUT%____";
+        int pos = layoutR.indexOf(whatToFind);
+        if (pos >= 0) {
+            // prepending and appending directly to writer/buffer to prevent us
+            // from having to duplicate the string.
+            // this makes us use half of the memory!
+            writer.getBuffer().insert(0, layoutR.substring(0, pos));
+            writer.append(layoutR.substring(pos + whatToFind.length()));
+            return writer.toString().trim();
+        }
+        return layoutR;
+    }
+
     protected abstract Throwable cleanStackTrace(Throwable e);
     public static final ThreadLocal<BaseTemplate> layout = new ThreadLocal<>();
     public static final ThreadLocal<Map<Object, Object>> layoutData = new ThreadLocal<>();
@@ -11,7 +11,9 @@ import play.data.validation.Validation;
 import play.exceptions.TagInternalException;
 import play.exceptions.TemplateExecutionException;
 import play.exceptions.TemplateNotFoundException;
+import play.exceptions.UnexpectedException;
 import play.libs.Codec;
+import play.mvc.AssetManifest;
 import play.mvc.Http;
 import play.mvc.Router.ActionDefinition;
 import play.mvc.Scope.Flash;
@@ -20,6 +22,7 @@ import play.templates.BaseTemplate.RawData;
 import play.templates.GroovyTemplate.ExecutableTemplate;
 import play.utils.HTML;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.annotation.ElementType;
@@ -330,6 +333,15 @@ public class FastTags {
     }
 
     public static void _doLayout(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template, int fromLine) {
+        // streaming mode: the body is already rendered, it is written in place
+        if (template.getBinding().getVariables().get("_layoutBody") instanceof StringBuilder content) {
+            try {
+                GroovyTemplate.write(content, out);
+            } catch (IOException e) {
+                throw new UnexpectedException(e);
+            }
+            return;
+        }
         out.print("____%LAYOUT%____");
     }
 
@@ -469,4 +481,26 @@ public class FastTags {
     public static void _static(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template, int fromLine) {
         out.println(Play.ctxPath+args.get("arg"));
     }
+
+    /**
+     * The fingerprinted url of a static file, see {@link AssetManifest}: <code>#{asset '/public/app.css'/}</code>
+     */
+    public static void _asset(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template, int fromLine) {
+        String path = args.get("arg").toString();
+        out.print(Play.ctxPath + AssetManifest.get().url(path.startsWith("/") ? path : "/" + path));
+    }
+
+    /**
+     * The url of a resource the page needs early, sent to the browser in a 103 Early Hints, see
+     * {@link Http.Response#preload(String, String)}: <code>&lt;link rel="stylesheet" href="#{preload '/public/app.css'/}"&gt;</code>
+     */
+    public static void _preload(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template, int fromLine) {
+        String path = args.get("arg").toString();
+        String url = Play.ctxPath + AssetManifest.get().url(path.startsWith("/") ? path : "/" + path);
+        Http.Response response = Http.Response.current();
+        if (response != null) {
+            response.preload(url, (String) args.get("as"));
+        }
+        out.print(url);
+    }
 }
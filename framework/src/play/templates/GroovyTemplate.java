@@ -33,16 +33,29 @@ import play.utils.HTML;
 import play.utils.Java;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class GroovyTemplate extends BaseTemplate {
 
+    // stateless, shared by the bindings
+    private static final Play PLAY = new Play();
+    private static final Messages MESSAGES = new Messages();
+    // binding of a script waiting in a pool: any variable is missing
+    private static final Binding RECYCLED = new Binding(Collections.emptyMap());
+
+    // scripts of the compiled template ready for another render (play.templates.pool, 0 to create one per render)
+    private final BlockingQueue<ExecutableTemplate> scripts = scripts();
+
     static final Map<String, SafeFormatter> safeFormatters = new HashMap<>();
 
     static {
@@ -51,6 +64,11 @@ public class GroovyTemplate extends BaseTemplate {
         safeFormatters.put("xml", new SafeXMLFormatter());
     }
 
+    private static BlockingQueue<ExecutableTemplate> scripts() {
+        int size = Play.configuration == null ? 16 : Integer.parseInt(Play.configuration.getProperty("play.templates.pool", "16"));
+        return size > 0 ? new ArrayBlockingQueue<>(size) : null;
+    }
+
     public static <T> void registerFormatter(String format, SafeFormatter formatter) {
         safeFormatters.put(format, formatter);
     }
@@ -210,16 +228,63 @@ public class GroovyTemplate extends BaseTemplate {
         }
     }
 
+    /**
+     * Streaming render: the output goes to <code>out</code> as the template runs. A template with a layout is
+     * rendered first (it sets the data of the layout), then the layout is streamed and writes it in place of
+     * <code>#{doLayout/}</code>, without building the whole page in a String.
+     */
+    @Override
+    public void render(Map<String, Object> args, Writer out) {
+        try {
+            internalRender(args, out);
+        } finally {
+            currentTemplate.remove();
+        }
+    }
+
     protected Binding setUpBindingVariables(Map<String, Object> args) {
         Binding binding = new Binding(args);
-        binding.setVariable("play", new Play());
-        binding.setVariable("messages", new Messages());
+        binding.setVariable("play", PLAY);
+        binding.setVariable("messages", MESSAGES);
         binding.setVariable("lang", Lang.get());
         return binding;
     }
 
+    /**
+     * A script of this template for a render: a recycled one when there is some, else a new one
+     */
+    ExecutableTemplate script(Binding binding) {
+        Class<?> compiled = compiledTemplate;
+        ExecutableTemplate t = scripts != null ? scripts.poll() : null;
+        if (t != null && t.getClass() == compiled) {
+            t.setBinding(binding);
+            return t;
+        }
+        t = (ExecutableTemplate) InvokerHelper.createScript(compiled, binding);
+        t.init(this);
+        return t;
+    }
+
+    /**
+     * The render went well, the script can serve the next one
+     */
+    void recycle(ExecutableTemplate t) {
+        if (scripts != null && t.getClass() == compiledTemplate) {
+            t.reset();
+            scripts.offer(t);
+        }
+    }
+
     @Override
     protected String internalRender(Map<String, Object> args) {
+        return internalRender(args, null);
+    }
+
+    /**
+     * @param target
+     *            where a top level template writes its output (null: returned)
+     */
+    protected String internalRender(Map<String, Object> args, Writer target) {
         compile();
 
         Binding binding = this.setUpBindingVariables(args);
@@ -230,6 +295,7 @@ public class GroovyTemplate extends BaseTemplate {
             binding.setVariable("_response_encoding", currentResponse.encoding);
         }
         StringWriter writer = null;
+        BodyWriter body = null;
         boolean applyLayouts = false;
 
         // must check if this is the first template being rendered..
@@ -242,16 +308,20 @@ public class GroovyTemplate extends BaseTemplate {
             // to write the output to..
             applyLayouts = true;
             layout.remove();
-            writer = new StringWriter();
-            binding.setProperty("out", new PrintWriter(writer));
+            if (target != null) {
+                body = new BodyWriter(target, source == null || !source.contains("#{extends"));
+                binding.setProperty("out", new PrintWriter(body));
+            } else {
+                writer = new StringWriter();
+                binding.setProperty("out", new PrintWriter(writer));
+            }
             currentTemplate.set(this);
         }
         if (!args.containsKey("_body") && !args.containsKey("_isLayout") && !args.containsKey("_isInclude")) {
             layoutData.set(new HashMap<>());
             TagContext.init();
         }
-        ExecutableTemplate t = (ExecutableTemplate) InvokerHelper.createScript(compiledTemplate, binding);
-        t.init(this);
+        ExecutableTemplate t = script(binding);
         Monitor monitor = null;
         try {
             monitor = MonitorFactory.start(name);
@@ -259,6 +329,7 @@ public class GroovyTemplate extends BaseTemplate {
             t.run();
             monitor.stop();
             monitor = null;
+            recycle(t);
             if (Logger.isTraceEnabled()) {
                 Logger.trace("%sms to render template %s", System.currentTimeMillis() - start, name);
             }
@@ -291,24 +362,12 @@ public class GroovyTemplate extends BaseTemplate {
                 monitor.stop();
             }
         }
+        if (body != null) {
+            streamLayout(args, body, target);
+            return null;
+        }
         if (applyLayouts && layout.get() != null) {
-            Map<String, Object> layoutArgs = new HashMap<>(args);
-            layoutArgs.remove("out");
-            layoutArgs.put("_isLayout", true);
-            String layoutR = layout.get().internalRender(layoutArgs);
-
-            // Must replace '____%LAYOUT%____' inside the string layoutR with the content from writer..
-            String whatToFind = "____%LAYOUT%____";
-            int pos = layoutR.indexOf(whatToFind);
-            if (pos >= 0) {
-                // prepending and appending directly to writer/buffer to prevent us
-                // from having to duplicate the string.
-                // this makes us use half of the memory!
-                writer.getBuffer().insert(0, layoutR.substring(0, pos));
-                writer.append(layoutR.substring(pos + whatToFind.length()));
-                return writer.toString().trim();
-            }
-            return layoutR;
+            return renderLayout(args, writer);
         }
         if (writer != null) {
             return writer.toString();
@@ -316,6 +375,114 @@ public class GroovyTemplate extends BaseTemplate {
         return null;
     }
 
+    private void streamLayout(Map<String, Object> args, BodyWriter body, Writer target) {
+        BaseTemplate layoutTemplate = layout.get();
+        try {
+            if (layoutTemplate == null) {
+                body.finish();
+            } else if (body.streaming) {
+                throw new UnexpectedException("Template " + name + " gets its layout after " + BodyWriter.LIMIT
+                        + " characters of output, #{extends} must come first to render it in streaming mode");
+            } else if (layoutTemplate instanceof GroovyTemplate groovyLayout) {
+                Map<String, Object> layoutArgs = new HashMap<>(args);
+                layoutArgs.remove("out");
+                layoutArgs.put("_isLayout", true);
+                layoutArgs.put("_layoutBody", body.buffer);
+                groovyLayout.internalRender(layoutArgs, target);
+            } else {
+                Map<String, Object> layoutArgs = new HashMap<>(args);
+                layoutArgs.remove("out");
+                layoutArgs.put("_isLayout", true);
+                String layoutR = layoutTemplate.internalRender(layoutArgs);
+                int pos = layoutR.indexOf("____%LAYOUT%____");
+                if (pos >= 0) {
+                    target.write(layoutR, 0, pos);
+                    write(body.buffer, target);
+                    target.write(layoutR, pos + 16, layoutR.length() - pos - 16);
+                } else {
+                    target.write(layoutR);
+                }
+            }
+        } catch (IOException e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
+    /**
+     * Copy a rendered body without making a String of it
+     */
+    static void write(StringBuilder content, Writer out) throws IOException {
+        char[] chunk = new char[Math.min(content.length(), 8192)];
+        for (int i = 0; i < content.length(); i += chunk.length) {
+            int length = Math.min(chunk.length, content.length() - i);
+            content.getChars(i, i + length, chunk, 0);
+            out.write(chunk, 0, length);
+        }
+    }
+
+    /**
+     * Output of a top level template in streaming mode. It is kept as long as the template could still get a layout
+     * (rendered after it), and written through once it is over {@link #LIMIT} characters without one.
+     */
+    static final class BodyWriter extends Writer {
+
+        static final int LIMIT = 8192;
+
+        final StringBuilder buffer = new StringBuilder();
+        private final Writer target;
+        // false: the source has an #{extends}, the whole body is kept
+        private final boolean mayStream;
+        boolean streaming;
+
+        BodyWriter(Writer target, boolean mayStream) {
+            this.target = target;
+            this.mayStream = mayStream;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (streaming) {
+                target.write(cbuf, off, len);
+            } else {
+                buffer.append(cbuf, off, len);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            if (streaming) {
+                target.write(str, off, len);
+            } else {
+                buffer.append(str, off, off + len);
+                checkLimit();
+            }
+        }
+
+        private void checkLimit() throws IOException {
+            if (mayStream && buffer.length() >= LIMIT && layout.get() == null) {
+                streaming = true;
+                finish();
+            }
+        }
+
+        /**
+         * Write what is kept
+         */
+        void finish() throws IOException {
+            GroovyTemplate.write(buffer, target);
+            buffer.setLength(0);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     @Override
     protected Throwable cleanStackTrace(Throwable e) {
         List<StackTraceElement> cleanTrace = new ArrayList<>();
@@ -370,6 +537,13 @@ public class GroovyTemplate extends BaseTemplate {
             }
         }
 
+        /**
+         * Called when the script is put back in the pool of its template: nothing of the render may be kept
+         */
+        protected void reset() {
+            setBinding(RECYCLED);
+        }
+
         @Override
         public Object getProperty(String property) {
             try {
@@ -0,0 +1,677 @@
+package play.templates;
+
+import com.jamonapi.Monitor;
+import com.jamonapi.MonitorFactory;
+import groovy.lang.GroovyObject;
+import org.apache.commons.io.FileUtils;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.runtime.typehandling.DefaultTypeTransformation;
+import play.Logger;
+import play.Play;
+import play.exceptions.PlayException;
+import play.exceptions.TagInternalException;
+import play.exceptions.TemplateExecutionException;
+import play.exceptions.TemplateNotFoundException;
+import play.exceptions.UnexpectedException;
+import play.i18n.Lang;
+import play.i18n.Messages;
+import play.libs.Codec;
+import play.libs.IO;
+import play.mvc.Http;
+import play.mvc.Router;
+import play.utils.Java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A <code>.html</code> template compiled to a Java class by {@link StaticTemplateCompiler}
+ * (<code>play.templates.static=true</code>, PROD only). The variables are read from the args map and the properties
+ * and methods are resolved once per call site and class, instead of going through the Groovy meta classes on each
+ * render. The <code>JavaExtensions</code> of the application win over the ones of the framework, as in a Groovy
+ * template.
+ * <p>
+ * The templates are compiled with <code>play precompile</code> (or on the first load) and kept next to the Groovy
+ * ones with a <code>.static</code> suffix. A template using something else than text, <code>${}</code>,
+ * <code>&amp;{}</code>, <code>@{'/static/file'}</code>, <code>#{list}</code>, <code>#{if}</code>,
+ * <code>#{ifnot}</code>, <code>#{else}</code>, <code>#{elseif}</code>, <code>#{extends}</code>,
+ * <code>#{set}</code>, <code>#{get}</code>, <code>#{doLayout}</code> and tag templates without body stays a
+ * {@link GroovyTemplate}.
+ */
+public class StaticTemplate extends BaseTemplate {
+
+    static final String SUFFIX = ".static";
+
+    // stateless, shared by the renders
+    private static final Play PLAY = new Play();
+    private static final Messages MESSAGES = new Messages();
+
+    // extension classes, the first one whose method applies wins
+    final List<Class<?>> extensions = extensions();
+    private final String extension;
+    private Page page;
+
+    public StaticTemplate(String name, String source) {
+        super(name, source);
+        int index = name.lastIndexOf('.');
+        this.extension = index > 0 ? name.substring(index + 1) : null;
+    }
+
+    static boolean enabled() {
+        return Play.configuration != null && Play.mode.isProd()
+                && Boolean.parseBoolean(Play.configuration.getProperty("play.templates.static", "false"));
+    }
+
+    /**
+     * @return the template compiled to Java, null when it is rendered by Groovy
+     */
+    static BaseTemplate load(File file, String path) {
+        if (!enabled() || !path.endsWith(".html")) {
+            return null;
+        }
+        try {
+            if (Play.usePrecompiled) {
+                String name = path.replaceAll("\\{(.*)\\}", "from_$1").replace(':', '_').replace("..", "parent");
+                File precompiled = Play.getFile("precompiled/templates/" + name + SUFFIX);
+                if (!precompiled.exists()) {
+                    return null;
+                }
+                StaticTemplate template = new StaticTemplate(path, "");
+                template.directLoad(IO.readContent(precompiled));
+                return template;
+            }
+            StaticTemplate template = new StaticTemplate(path, play.utils.FileUtils.contentAsString(file));
+            File cached = Play.getCompiledTemplate(path + SUFFIX);
+            if (cached.exists()) {
+                template.directLoad(IO.readContent(cached));
+                return template;
+            }
+            if (new StaticTemplateCompiler().compile(template) == null) {
+                return null;
+            }
+            template.compile();
+            return template;
+        } catch (Exception e) {
+            Logger.warn(e, "Cannot compile %s to Java, it is rendered by Groovy", path);
+            return null;
+        }
+    }
+
+    private static List<Class<?>> extensions() {
+        List<Class<?>> extensions = new ArrayList<>();
+        try {
+            // innermost use() block first
+            for (Class<?> extensionsClass : Play.classes.getAssignableClasses(JavaExtensions.class)) {
+                extensions.add(0, extensionsClass);
+            }
+        } catch (Throwable e) {
+            Logger.error(e, "Failed to list the JavaExtensions");
+        }
+        extensions.add(JavaExtensions.class);
+        return extensions;
+    }
+
+    @Override
+    void directLoad(byte[] code) throws Exception {
+        try (GroovyTemplate.TClassLoader tClassLoader = new GroovyTemplate.TClassLoader()) {
+            String[] lines = new String(code, UTF_8).split("\n");
+            this.linesMatrix = (HashMap<Integer, Integer>) Java.deserialize(Codec.decodeBASE64(lines[1]));
+            define(tClassLoader, lines[2], Codec.decodeBASE64(lines[3]));
+        }
+    }
+
+    private void define(GroovyTemplate.TClassLoader tClassLoader, String className, byte[] byteCode) throws Exception {
+        Class<?> c = tClassLoader.defineTemplate(className, byteCode);
+        page = (Page) c.getDeclaredConstructor().newInstance();
+        compiledTemplate = c;
+        compiledTemplateName = className;
+    }
+
+    @Override
+    public void compile() {
+        if (compiledTemplate != null) {
+            return;
+        }
+        try (GroovyTemplate.TClassLoader tClassLoader = new GroovyTemplate.TClassLoader()) {
+            long start = System.currentTimeMillis();
+            byte[] byteCode = StaticTemplateCompiler.javac(compiledTemplateName, compiledSource);
+            define(tClassLoader, compiledTemplateName, byteCode);
+            try {
+                File f = Play.getCompiledTemplate(name + SUFFIX);
+                f.getParentFile().mkdirs();
+                FileUtils.write(f, "LINESMATRIX\n" + Codec.encodeBASE64(Java.serialize(linesMatrix)).replaceAll("\\s", "") + "\n"
+                        + compiledTemplateName + "\n" + Codec.encodeBASE64(byteCode).replaceAll("\\s", "") + "\n", UTF_8);
+            } catch (Exception e) {
+                Logger.warn(e, "Unexpected");
+            }
+            if (Logger.isTraceEnabled()) {
+                Logger.trace("%sms to compile template %s to Java", System.currentTimeMillis() - start, name);
+            }
+        } catch (PlayException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
+    @Override
+    public String render(Map<String, Object> args) {
+        try {
+            return super.render(args);
+        } finally {
+            currentTemplate.remove();
+        }
+    }
+
+    @Override
+    protected String internalRender(Map<String, Object> args) {
+        compile();
+        args.put("play", PLAY);
+        args.put("messages", MESSAGES);
+        args.put("lang", Lang.get());
+        Http.Response currentResponse = Http.Response.current();
+        if (currentResponse != null) {
+            args.put("_response_encoding", currentResponse.encoding);
+        }
+        StringWriter writer = null;
+        boolean applyLayouts = false;
+        if (!args.containsKey("out")) {
+            applyLayouts = true;
+            layout.remove();
+            writer = new StringWriter();
+            args.put("out", new PrintWriter(writer));
+            currentTemplate.set(this);
+        }
+        if (!args.containsKey("_body") && !args.containsKey("_isLayout") && !args.containsKey("_isInclude")) {
+            layoutData.set(new HashMap<>());
+            TagContext.init();
+        }
+        Monitor monitor = MonitorFactory.start(name);
+        try {
+            page.render(this, args, (PrintWriter) args.get("out"));
+        } catch (PlayException e) {
+            throw (PlayException) cleanStackTrace(e);
+        } catch (Throwable e) {
+            throwException(e);
+        } finally {
+            monitor.stop();
+        }
+        if (applyLayouts && layout.get() != null) {
+            return renderLayout(args, writer);
+        }
+        return writer != null ? writer.toString() : null;
+    }
+
+    @Override
+    protected Throwable cleanStackTrace(Throwable e) {
+        List<StackTraceElement> cleanTrace = new ArrayList<>();
+        for (StackTraceElement se : e.getStackTrace()) {
+            if (se.getClassName().equals(compiledTemplateName)) {
+                Integer line = linesMatrix.get(se.getLineNumber());
+                if (line != null) {
+                    cleanTrace.add(new StackTraceElement(name, extension == null ? "" : extension, "line", line));
+                }
+            } else if (!se.getClassName().startsWith("java.lang.reflect.") && !se.getClassName().startsWith("jdk.internal.reflect.")
+                    && !se.getClassName().startsWith(StaticTemplate.class.getName())) {
+                cleanTrace.add(se);
+            }
+        }
+        e.setStackTrace(cleanTrace.toArray(new StackTraceElement[0]));
+        return e;
+    }
+
+    // ~~~ called by the compiled templates
+
+    /**
+     * <code>${}</code>: the value escaped for the format of the template
+     */
+    public String safe(Object val) {
+        if (val instanceof RawData rawData) {
+            return rawData.data;
+        } else if (extension != null) {
+            SafeFormatter formatter = GroovyTemplate.safeFormatters.get(extension);
+            if (formatter != null) {
+                return formatter.format(this, val);
+            }
+        }
+        return (val != null) ? val.toString() : "";
+    }
+
+    /**
+     * <code>&amp;{}</code>
+     */
+    public String message(Object[] val) {
+        if (val.length == 1) {
+            return Messages.get(val[0]);
+        }
+        Object[] args = new Object[val.length - 1];
+        System.arraycopy(val, 1, args, 0, val.length - 1);
+        return Messages.get(val[0], args);
+    }
+
+    /**
+     * <code>@{'/public/...'}</code>
+     */
+    public String reverse(String action, boolean absolute) {
+        return Router.reverseWithCheck(action, Play.getVirtualFile(action), absolute);
+    }
+
+    /**
+     * <code>#{extends}</code>
+     */
+    public void extend(Object arg, int fromLine) {
+        if (arg == null) {
+            throw new TemplateExecutionException(this, fromLine, "Specify a template name", new TagInternalException("Specify a template name"));
+        }
+        String layoutName = arg.toString();
+        if (layoutName.startsWith("./")) {
+            String ct = currentTemplate.get().name;
+            if (FastTags.pattern.matcher(ct).matches()) {
+                ct = ct.substring(ct.indexOf("/", 5));
+            }
+            ct = ct.substring(0, ct.lastIndexOf("/"));
+            layoutName = ct + layoutName.substring(1);
+        }
+        try {
+            layout.set((BaseTemplate) TemplateLoader.load(layoutName));
+        } catch (TemplateNotFoundException e) {
+            throw new TemplateNotFoundException(e.getPath(), this, fromLine);
+        }
+    }
+
+    /**
+     * <code>#{set key:value /}</code>
+     */
+    public void set(String key, Object value) {
+        layoutData.get().put(key, value instanceof String string ? FastTags.__safe(this, string) : value);
+    }
+
+    /**
+     * <code>#{get 'key' /}</code>
+     */
+    public void get(Object key, PrintWriter out, int fromLine) {
+        if (key == null) {
+            throw new TemplateExecutionException(this, fromLine, "Specify a variable name", new TagInternalException("Specify a variable name"));
+        }
+        Object value = layoutData.get().get(key);
+        if (value != null) {
+            out.print(value);
+        }
+    }
+
+    /**
+     * <code>#{doLayout /}</code>
+     */
+    public void doLayout(Map<String, Object> vars, PrintWriter out) throws IOException {
+        if (vars.get("_layoutBody") instanceof StringBuilder content) {
+            GroovyTemplate.write(content, out);
+        } else {
+            out.print("____%LAYOUT%____");
+        }
+    }
+
+    /**
+     * A tag template without body, as {@link GroovyTemplate.ExecutableTemplate#invokeTag} does
+     */
+    public void tag(Map<String, Object> vars, PrintWriter out, int fromLine, String tag, Map<String, Object> attrs) {
+        String templateName = tag.replace('.', '/');
+        String callerExtension = (extension != null) ? extension : "tag";
+        BaseTemplate tagTemplate;
+        try {
+            tagTemplate = (BaseTemplate) TemplateLoader.load("tags/" + templateName + "." + callerExtension);
+        } catch (TemplateNotFoundException e) {
+            try {
+                tagTemplate = (BaseTemplate) TemplateLoader.load("tags/" + templateName + ".tag");
+            } catch (TemplateNotFoundException ex) {
+                throw new TemplateNotFoundException("tags/" + templateName + "." + callerExtension + " or tags/" + templateName + ".tag", this, fromLine);
+            }
+        }
+        TagContext.enterTag(tag);
+        Map<String, Object> args = new HashMap<>();
+        args.put("session", vars.get("session"));
+        args.put("flash", vars.get("flash"));
+        args.put("request", vars.get("request"));
+        args.put("params", vars.get("params"));
+        args.put("play", vars.get("play"));
+        args.put("lang", vars.get("lang"));
+        args.put("messages", vars.get("messages"));
+        args.put("out", out);
+        args.put("_attrs", attrs);
+        // all other vars are template-specific
+        args.put("_caller", vars);
+        attrs.forEach((k, v) -> args.put("_" + k, v));
+        args.put("_body", null);
+        try {
+            tagTemplate.internalRender(args);
+        } catch (TagInternalException e) {
+            throw new TemplateExecutionException(this, fromLine, e.getMessage(), cleanStackTrace(e));
+        } catch (TemplateNotFoundException e) {
+            throw new TemplateNotFoundException(e.getPath(), this, fromLine);
+        }
+        TagContext.exitTag();
+    }
+
+    /**
+     * The class a template is compiled to
+     */
+    public abstract static class Page {
+
+        protected abstract void render(StaticTemplate t, Map<String, Object> v, PrintWriter out) throws Exception;
+
+        /**
+         * Groovy truth
+         */
+        protected static boolean truth(Object value) {
+            if (value == null) {
+                return false;
+            } else if (value instanceof Boolean b) {
+                return b;
+            } else if (value instanceof CharSequence s) {
+                return s.length() > 0;
+            } else if (value instanceof Collection<?> c) {
+                return !c.isEmpty();
+            } else if (value instanceof Map<?, ?> m) {
+                return !m.isEmpty();
+            }
+            return DefaultTypeTransformation.castToBoolean(value);
+        }
+
+        protected static Iterator<?> iterator(Object items) {
+            if (items instanceof Iterable<?> iterable) {
+                return iterable.iterator();
+            } else if (items instanceof Iterator<?> iterator) {
+                return iterator;
+            }
+            return InvokerHelper.asIterator(items);
+        }
+    }
+
+    /**
+     * <code>target.name</code>: a map entry, a getter or a public field, the Groovy meta class for the rest
+     */
+    public static final class Property {
+
+        private final String name;
+        private Accessor cached;
+
+        public Property(String name) {
+            this.name = name;
+        }
+
+        public Object get(Object target) throws Exception {
+            if (target == null) {
+                throw new NullPointerException("Cannot get property '" + name + "' on null object");
+            }
+            if (target instanceof Map<?, ?> map) {
+                return map.get(name);
+            }
+            Accessor accessor = cached;
+            if (accessor == null || accessor.type != target.getClass()) {
+                cached = accessor = new Accessor(target.getClass(), name);
+            }
+            return accessor.get(target, name);
+        }
+
+        /**
+         * <code>target?.name</code>
+         */
+        public Object getSafe(Object target) throws Exception {
+            return target == null ? null : get(target);
+        }
+    }
+
+    private static final class Accessor {
+
+        final Class<?> type;
+        private final Method getter;
+        private final Field field;
+
+        Accessor(Class<?> type, String name) {
+            this.type = type;
+            Method getter = null;
+            Field field = null;
+            if (!GroovyObject.class.isAssignableFrom(type) && !name.isEmpty()) {
+                String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+                getter = publicMethod(type, "get" + suffix, new Class<?>[0]);
+                if (getter == null || getter.getReturnType() == void.class) {
+                    getter = publicMethod(type, "is" + suffix, new Class<?>[0]);
+                    if (getter != null && getter.getReturnType() != boolean.class) {
+                        getter = null;
+                    }
+                }
+                if (getter == null) {
+                    try {
+                        field = type.getField(name);
+                        if (!exported(field.getDeclaringClass())) {
+                            field = null;
+                        }
+                    } catch (NoSuchFieldException e) {
+                        // Groovy knows better
+                    }
+                }
+            }
+            this.getter = getter;
+            this.field = field;
+        }
+
+        Object get(Object target, String name) throws Exception {
+            if (getter != null) {
+                return invoke(getter, target, new Object[0]);
+            } else if (field != null) {
+                return field.get(target);
+            }
+            return InvokerHelper.getProperty(target, name);
+        }
+    }
+
+    /**
+     * <code>target.name(args)</code>: a method of the extensions taking the target first, a method of the target, the
+     * Groovy meta class for the rest
+     */
+    public static final class Call {
+
+        private final String name;
+        private Target cached;
+
+        public Call(String name) {
+            this.name = name;
+        }
+
+        public Object invoke(StaticTemplate template, Object target, Object[] args) throws Exception {
+            if (target == null) {
+                throw new NullPointerException("Cannot invoke method " + name + "() on null object");
+            }
+            Target resolved = cached;
+            if (resolved == null || !resolved.matches(target, args)) {
+                cached = resolved = new Target(template.extensions, target, name, args);
+            }
+            return resolved.invoke(target, name, args);
+        }
+
+        /**
+         * <code>target?.name(args)</code>
+         */
+        public Object invokeSafe(StaticTemplate template, Object target, Object[] args) throws Exception {
+            return target == null ? null : invoke(template, target, args);
+        }
+    }
+
+    private static final class Target {
+
+        private final Class<?> type;
+        private final Class<?>[] argTypes;
+        private final Method method;
+        // the method takes the target as first argument
+        private final boolean extension;
+
+        Target(List<Class<?>> extensions, Object target, String name, Object[] args) {
+            this.type = target.getClass();
+            this.argTypes = new Class<?>[args.length];
+            for (int i = 0; i < args.length; i++) {
+                argTypes[i] = args[i] == null ? null : args[i].getClass();
+            }
+            Object[] extensionArgs = new Object[args.length + 1];
+            extensionArgs[0] = target;
+            System.arraycopy(args, 0, extensionArgs, 1, args.length);
+            Method method = null;
+            for (Class<?> extensionsClass : extensions) {
+                method = mostSpecific(extensionsClass.getMethods(), name, extensionArgs, true);
+                if (method != null) {
+                    break;
+                }
+            }
+            this.extension = method != null;
+            if (method == null && !(target instanceof GroovyObject)) {
+                method = mostSpecific(type.getMethods(), name, args, false);
+                if (method != null) {
+                    method = publicMethod(type, name, method.getParameterTypes());
+                }
+            }
+            this.method = method;
+        }
+
+        boolean matches(Object target, Object[] args) {
+            if (target.getClass() != type || args.length != argTypes.length) {
+                return false;
+            }
+            for (int i = 0; i < args.length; i++) {
+                if ((args[i] == null ? null : args[i].getClass()) != argTypes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Object invoke(Object target, String name, Object[] args) throws Exception {
+            if (method == null) {
+                return InvokerHelper.invokeMethod(target, name, args);
+            } else if (extension) {
+                Object[] extensionArgs = new Object[args.length + 1];
+                extensionArgs[0] = target;
+                System.arraycopy(args, 0, extensionArgs, 1, args.length);
+                return StaticTemplate.invoke(method, null, extensionArgs);
+            }
+            return StaticTemplate.invoke(method, target, args);
+        }
+    }
+
+    static Object invoke(Method method, Object target, Object[] args) throws Exception {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            } else if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static Method mostSpecific(Method[] methods, String name, Object[] args, boolean statics) {
+        Method best = null;
+        for (Method m : methods) {
+            if (!m.getName().equals(name) || Modifier.isStatic(m.getModifiers()) != statics || m.getParameterCount() != args.length
+                    || !applicable(m.getParameterTypes(), args)) {
+                continue;
+            }
+            if (best == null || moreSpecific(m.getParameterTypes(), best.getParameterTypes())) {
+                best = m;
+            }
+        }
+        return best;
+    }
+
+    private static boolean applicable(Class<?>[] types, Object[] args) {
+        for (int i = 0; i < types.length; i++) {
+            if (args[i] == null ? types[i].isPrimitive() : !box(types[i]).isInstance(args[i]) && !widens(types[i], args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean moreSpecific(Class<?>[] types, Class<?>[] than) {
+        for (int i = 0; i < types.length; i++) {
+            if (!box(than[i]).isAssignableFrom(box(types[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the widening primitive conversions done by Method.invoke
+    private static boolean widens(Class<?> type, Object arg) {
+        boolean integral = arg instanceof Integer || arg instanceof Short || arg instanceof Byte || arg instanceof Character;
+        if (type == long.class) {
+            return integral;
+        } else if (type == float.class || type == double.class) {
+            return integral || arg instanceof Long || (type == double.class && arg instanceof Float);
+        } else if (type == int.class) {
+            return arg instanceof Short || arg instanceof Byte || arg instanceof Character;
+        }
+        return false;
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        return type == int.class ? Integer.class : type == long.class ? Long.class : type == boolean.class ? Boolean.class
+                : type == double.class ? Double.class : type == float.class ? Float.class : type == char.class ? Character.class
+                : type == short.class ? Short.class : type == byte.class ? Byte.class : Void.class;
+    }
+
+    /**
+     * The method as declared by a public class or interface (the class of an object may be private, as the
+     * collections of <code>List.of()</code>), null if there is none
+     */
+    private static Method publicMethod(Class<?> type, String name, Class<?>[] parameterTypes) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            Method m = exportedMethod(c, name, parameterTypes, new HashSet<>());
+            if (m != null) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private static Method exportedMethod(Class<?> c, String name, Class<?>[] parameterTypes, HashSet<Class<?>> seen) {
+        if (!seen.add(c)) {
+            return null;
+        }
+        if (exported(c)) {
+            try {
+                return c.getMethod(name, parameterTypes);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+        for (Class<?> i : c.getInterfaces()) {
+            Method m = exportedMethod(i, name, parameterTypes, seen);
+            if (m != null) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private static boolean exported(Class<?> c) {
+        return Modifier.isPublic(c.getModifiers()) && c.getModule().isExported(c.getPackageName());
+    }
+}
@@ -0,0 +1,587 @@
+package play.templates;
+
+import groovy.lang.Closure;
+import play.Logger;
+import play.Play;
+import play.exceptions.PlayException;
+import play.exceptions.UnexpectedException;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compiles a template to the Java source of a {@link StaticTemplate.Page}, see {@link StaticTemplate} for the
+ * supported subset. The expressions are variables, literals, properties, <code>?.</code>, method calls and
+ * <code>!</code>: anything else (operators, closures, class names...) leaves the template to Groovy.
+ */
+public class StaticTemplateCompiler extends TemplateCompiler {
+
+    // a string constant is limited to 65535 bytes in a class file
+    static final int maxPlainTextLength = 16000;
+
+    // call sites, declared after the render method to keep the lines of the template
+    private final StringBuilder sites = new StringBuilder();
+    private int siteIndex;
+    private int localIndex;
+
+    /**
+     * Something only Groovy can render
+     */
+    static class UnsupportedException extends RuntimeException {
+        UnsupportedException(String message) {
+            super(message);
+        }
+    }
+
+    protected static class StaticTag extends Tag {
+        // local holding the evaluated arguments
+        String local;
+        String key;
+    }
+
+    /**
+     * @return the template with its Java source, null when Groovy must render it
+     */
+    @Override
+    public BaseTemplate compile(BaseTemplate template) {
+        try {
+            generate(template);
+            return template;
+        } catch (UnsupportedException | PlayException e) {
+            Logger.debug("%s stays a Groovy template: %s", template.name, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    protected String source() {
+        return template.source;
+    }
+
+    @Override
+    protected void head() {
+        template.compiledTemplateName = "StaticTemplate_" + TemplateLoader.getUniqueNumberForTemplateFile(template.name);
+        println("import play.templates.StaticTemplate;");
+        println("import play.templates.TagContext;");
+        println("public final class " + template.compiledTemplateName + " extends StaticTemplate.Page {");
+        println("@Override protected void render(StaticTemplate t, java.util.Map<String, Object> v, java.io.PrintWriter out) throws Exception {");
+    }
+
+    @Override
+    protected void end() {
+        println("}");
+        print(sites.toString());
+        println("}");
+    }
+
+    @Override
+    protected void plain() {
+        String text = parser.getToken();
+        if (skipLineBreak && text.startsWith("\n")) {
+            text = text.substring(1);
+        }
+        skipLineBreak = false;
+        text = text.replace("\r\n", "\n");
+        for (int offset = 0; offset < text.length();) {
+            int endPos = Math.min(text.length(), offset + maxPlainTextLength);
+            if (endPos < text.length() && Character.isHighSurrogate(text.charAt(endPos - 1))) {
+                endPos++;
+            }
+            println("out.write(" + literal(text.substring(offset, endPos)) + ");");
+            offset = endPos;
+        }
+    }
+
+    @Override
+    protected void script() {
+        throw new UnsupportedException("script at line " + parser.getLine());
+    }
+
+    @Override
+    protected void expr() {
+        print("out.write(t.safe(" + new Expression(parser.getToken()).parse() + "));");
+        markLine(parser.getLine());
+        println();
+    }
+
+    @Override
+    protected void message() {
+        print("out.write(t.message(new Object[] {" + String.join(", ", new Expression(parser.getToken()).arguments()) + "}));");
+        markLine(parser.getLine());
+        println();
+    }
+
+    @Override
+    protected void action(boolean absolute) {
+        String action = parser.getToken().trim();
+        if (!GroovyTemplateCompiler.patternAction.matcher(action).matches()) {
+            throw new UnsupportedException("action " + action + " at line " + parser.getLine());
+        }
+        print("out.write(t.reverse(" + new Expression(action).parse() + ", " + absolute + "));");
+        markLine(parser.getLine());
+        println();
+    }
+
+    @Override
+    protected void startTag() {
+        tagIndex++;
+        String tagText = parser.getToken().trim().replace("\r", "").replace("\n", " ");
+        boolean hasBody = !parser.checkNext().endsWith("/");
+        StaticTag tag = new StaticTag();
+        tag.startLine = parser.getLine();
+        tag.hasBody = hasBody;
+        Map<String, String> attrs = new LinkedHashMap<>();
+        if (tagText.indexOf(' ') > 0) {
+            tag.name = tagText.substring(0, tagText.indexOf(' '));
+            String tagArgs = tagText.substring(tagText.indexOf(' ') + 1).trim();
+            if (!GroovyTemplateCompiler.patternTag.matcher(tagArgs).matches()) {
+                tagArgs = "arg:" + tagArgs;
+            }
+            attrs = new Expression(tagArgs).attributes();
+        } else {
+            tag.name = tagText;
+        }
+        tagsStack.push(tag);
+        tag.local = "a" + localIndex++;
+        String line;
+        switch (tag.name) {
+            case "if", "ifnot", "elseif" -> {
+                String condition = (tag.name.equals("ifnot") ? "!" : "") + "truth(" + tag.local + ")";
+                if (tag.name.equals("elseif")) {
+                    condition = "Boolean.TRUE.equals(TagContext.parent().data.get(\"_executeNextElse\")) && " + condition;
+                }
+                line = "Object " + tag.local + " = " + attrs.getOrDefault("arg", "null") + "; TagContext.enterTag(\"" + tag.name + "\"); if (" + condition + ") {";
+            }
+            case "else" -> line = "TagContext.enterTag(\"else\"); if (Boolean.TRUE.equals(TagContext.parent().data.get(\"_executeNextElse\"))) {";
+            case "list" -> {
+                // the attributes are already in Java, a string literal is parsed back
+                String prefix = attrs.containsKey("as") ? new Expression(attrs.get("as")).name() : "";
+                String as = prefix.isEmpty() ? "_" : prefix;
+                String items = "Object " + tag.local + " = " + attrs.getOrDefault("items", attrs.getOrDefault("arg", "null")) + ";";
+                if (attrs.containsKey("items") && attrs.containsKey("arg")) {
+                    items += " if (!truth(" + tag.local + ")) { " + tag.local + " = " + attrs.get("arg") + "; }";
+                }
+                String i = "i" + tag.local;
+                String n = "n" + tag.local;
+                line = items + " TagContext.enterTag(\"list\"); if (truth(" + tag.local + ")) { TagContext.parent().data.put(\"_executeNextElse\", false);"
+                        + " java.util.Iterator<?> " + i + " = iterator(" + tag.local + ");"
+                        + " for (int " + n + " = 1; " + i + ".hasNext(); " + n + "++) {"
+                        + " v.put(" + literal(as) + ", " + i + ".next());"
+                        + " v.put(" + literal(prefix + "_index") + ", " + n + ");"
+                        + " v.put(" + literal(prefix + "_isLast") + ", !" + i + ".hasNext());"
+                        + " v.put(" + literal(prefix + "_isFirst") + ", " + n + " == 1);"
+                        + " v.put(" + literal(prefix + "_parity") + ", " + n + " % 2 == 0 ? \"even\" : \"odd\");";
+            }
+            default -> {
+                if (hasBody) {
+                    throw new UnsupportedException("#{" + tag.name + "} with a body at line " + tag.startLine);
+                }
+                line = bodylessTag(tag, attrs);
+            }
+        }
+        print(line);
+        markLine(tag.startLine);
+        println();
+        skipLineBreak = true;
+    }
+
+    /**
+     * The arguments of a tag without body, it is called by {@link #endTag()}
+     */
+    private String bodylessTag(StaticTag tag, Map<String, String> attrs) {
+        switch (tag.name) {
+            case "extends", "get" -> {
+                return "Object " + tag.local + " = " + attrs.getOrDefault("arg", "null") + ";";
+            }
+            case "set" -> {
+                for (Map.Entry<String, String> entry : attrs.entrySet()) {
+                    if (!entry.getKey().equals("arg")) {
+                        tag.key = entry.getKey();
+                        return "Object " + tag.local + " = " + entry.getValue() + ";";
+                    }
+                }
+                throw new UnsupportedException("#{set} without value at line " + tag.startLine);
+            }
+            case "doLayout" -> {
+                return "";
+            }
+            default -> {
+                if (tag.name.equals("doBody") || isFastTag(tag.name)) {
+                    throw new UnsupportedException("#{" + tag.name + "} at line " + tag.startLine);
+                }
+                StringBuilder map = new StringBuilder("java.util.Map<String, Object> " + tag.local + " = new java.util.LinkedHashMap<>();");
+                attrs.forEach((key, value) -> map.append(' ').append(tag.local).append(".put(").append(literal(key)).append(", ").append(value).append(");"));
+                return map.toString();
+            }
+        }
+    }
+
+    @Override
+    protected void endTag() {
+        String tagName = parser.getToken().trim();
+        if (tagsStack.isEmpty()) {
+            throw new UnsupportedException("#{/" + tagName + "} is not opened");
+        }
+        StaticTag tag = (StaticTag) tagsStack.pop();
+        if (!tagName.isEmpty() && !tag.name.equals(tagName)) {
+            throw new UnsupportedException("#{" + tag.name + "} is not closed");
+        }
+        String line = switch (tag.name) {
+            case "if", "ifnot" -> "TagContext.parent().data.put(\"_executeNextElse\", false); } else { TagContext.parent().data.put(\"_executeNextElse\", true); } TagContext.exitTag();";
+            case "elseif" -> "TagContext.parent().data.put(\"_executeNextElse\", false); } TagContext.exitTag();";
+            case "else" -> "} TagContext.parent().data.remove(\"_executeNextElse\"); TagContext.exitTag();";
+            case "list" -> "} } else { TagContext.parent().data.put(\"_executeNextElse\", true); } TagContext.exitTag();";
+            case "extends" -> "t.extend(" + tag.local + ", " + tag.startLine + ");";
+            case "set" -> "t.set(" + literal(tag.key) + ", " + tag.local + ");";
+            case "get" -> "t.get(" + tag.local + ", out, " + tag.startLine + ");";
+            case "doLayout" -> "t.doLayout(v, out);";
+            default -> "t.tag(v, out, " + tag.startLine + ", " + literal(tag.name) + ", " + tag.local + ");";
+        };
+        print(line);
+        markLine(tag.startLine);
+        println();
+        tagIndex--;
+        skipLineBreak = true;
+    }
+
+    /**
+     * Same lookup as {@link GroovyTemplateCompiler#endTag()}
+     */
+    private static boolean isFastTag(String tagName) {
+        List<Class> fastClasses = new ArrayList<>();
+        fastClasses.add(FastTags.class);
+        try {
+            fastClasses.addAll(Play.classes.getAssignableClasses(FastTags.class));
+        } catch (Throwable e) {
+            Logger.error(e, "Failed to list the FastTags");
+        }
+        String tName = tagName;
+        String tSpace = "";
+        if (tName.indexOf('.') > 0) {
+            tSpace = tName.substring(0, tName.lastIndexOf('.'));
+            tName = tName.substring(tName.lastIndexOf('.') + 1);
+        }
+        for (Class<?> c : fastClasses) {
+            FastTags.Namespace namespace = c.getAnnotation(FastTags.Namespace.class);
+            if (namespace == null ? !tSpace.isEmpty() : !namespace.value().equals(tSpace)) {
+                continue;
+            }
+            try {
+                c.getDeclaredMethod("_" + tName, Map.class, Closure.class, PrintWriter.class, GroovyTemplate.ExecutableTemplate.class, int.class);
+                return true;
+            } catch (NoSuchMethodException ex) {
+                // continue looking for this method in other *FastTags implementations
+            }
+        }
+        return false;
+    }
+
+    private String site(String type, String name) {
+        String site = type.substring(0, 1).toLowerCase() + siteIndex++;
+        sites.append("private static final StaticTemplate.").append(type).append(' ').append(site).append(" = new StaticTemplate.")
+                .append(type).append('(').append(literal(name)).append(");\n");
+        return site;
+    }
+
+    static String literal(String text) {
+        StringBuilder java = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> java.append("\\\"");
+                case '\\' -> java.append("\\\\");
+                case '\n' -> java.append("\\n");
+                case '\r' -> java.append("\\r");
+                case '\t' -> java.append("\\t");
+                default -> {
+                    if (c < ' ' || c > '~') {
+                        java.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        java.append(c);
+                    }
+                }
+            }
+        }
+        return java.append('"').toString();
+    }
+
+    /**
+     * An expression of the template, translated to Java
+     */
+    private final class Expression {
+
+        private final String text;
+        private int pos;
+
+        Expression(String text) {
+            this.text = text;
+        }
+
+        private UnsupportedException unsupported() {
+            return new UnsupportedException("expression " + text.trim() + " at line " + parser.getLine());
+        }
+
+        String parse() {
+            String java = expression();
+            end();
+            return java;
+        }
+
+        List<String> arguments() {
+            List<String> args = new ArrayList<>();
+            do {
+                args.add(expression());
+            } while (accept(","));
+            end();
+            return args;
+        }
+
+        /**
+         * <code>key: expression, ...</code>
+         */
+        Map<String, String> attributes() {
+            Map<String, String> attrs = new LinkedHashMap<>();
+            do {
+                String key = identifier();
+                if (key == null || !accept(":")) {
+                    throw unsupported();
+                }
+                attrs.put(key, expression());
+            } while (accept(","));
+            end();
+            return attrs;
+        }
+
+        /**
+         * The value of a string literal, as the name of a variable
+         */
+        String name() {
+            skipSpaces();
+            if (pos >= text.length() || text.charAt(pos) != '\'' && text.charAt(pos) != '"') {
+                throw unsupported();
+            }
+            String name = string();
+            end();
+            return name;
+        }
+
+        private void end() {
+            skipSpaces();
+            if (pos < text.length()) {
+                throw unsupported();
+            }
+        }
+
+        private String expression() {
+            if (accept("!")) {
+                return "!truth(" + expression() + ")";
+            }
+            String java = primary();
+            for (;;) {
+                boolean safe = accept("?.");
+                if (!safe && !accept(".")) {
+                    return java;
+                }
+                String name = identifier();
+                if (name == null) {
+                    throw unsupported();
+                }
+                if (accept("(")) {
+                    List<String> args = new ArrayList<>();
+                    if (!accept(")")) {
+                        do {
+                            args.add(expression());
+                        } while (accept(","));
+                        if (!accept(")")) {
+                            throw unsupported();
+                        }
+                    }
+                    java = site("Call", name) + (safe ? ".invokeSafe(t, " : ".invoke(t, ") + java + ", new Object[] {" + String.join(", ", args) + "})";
+                } else if (Character.isUpperCase(name.charAt(0))) {
+                    // most likely a class name
+                    throw unsupported();
+                } else {
+                    java = site("Property", name) + (safe ? ".getSafe(" : ".get(") + java + ")";
+                }
+            }
+        }
+
+        private String primary() {
+            skipSpaces();
+            if (pos >= text.length()) {
+                throw unsupported();
+            }
+            char c = text.charAt(pos);
+            if (c == '(') {
+                pos++;
+                String java = expression();
+                if (!accept(")")) {
+                    throw unsupported();
+                }
+                return "(" + java + ")";
+            } else if (c == '\'' || c == '"') {
+                return literal(string());
+            } else if (Character.isDigit(c)) {
+                return number();
+            }
+            String name = identifier();
+            if (name == null || Character.isUpperCase(name.charAt(0)) || name.equals("this") || name.equals("new") || name.equals("super")) {
+                throw unsupported();
+            }
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == '(') {
+                // a method of the template
+                throw unsupported();
+            }
+            return switch (name) {
+                case "true", "false", "null" -> name;
+                default -> "v.get(" + literal(name) + ")";
+            };
+        }
+
+        private String identifier() {
+            skipSpaces();
+            int start = pos;
+            while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')
+                    && (pos > start || !Character.isDigit(text.charAt(pos)))) {
+                pos++;
+            }
+            return pos > start ? text.substring(start, pos) : null;
+        }
+
+        private String number() {
+            int start = pos;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos + 1 < text.length() && text.charAt(pos) == '.' && Character.isDigit(text.charAt(pos + 1))) {
+                pos++;
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+                // a BigDecimal in Groovy
+                return "new java.math.BigDecimal(\"" + text.substring(start, pos) + "\")";
+            }
+            String digits = text.substring(start, pos);
+            if (pos < text.length() && Character.isLetter(text.charAt(pos))) {
+                throw unsupported();
+            }
+            try {
+                return Integer.toString(Integer.parseInt(digits));
+            } catch (NumberFormatException e) {
+                return Long.parseLong(digits) + "L";
+            }
+        }
+
+        private String string() {
+            char quote = text.charAt(pos++);
+            if (text.startsWith(String.valueOf(quote).repeat(2), pos)) {
+                // multiline string
+                throw unsupported();
+            }
+            StringBuilder value = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == quote) {
+                    return value.toString();
+                } else if (c == '$' && quote == '"') {
+                    // GString
+                    throw unsupported();
+                } else if (c == '\\' && pos < text.length()) {
+                    char escaped = text.charAt(pos++);
+                    switch (escaped) {
+                        case 'n' -> value.append('\n');
+                        case 't' -> value.append('\t');
+                        case 'r' -> value.append('\r');
+                        case 'b' -> value.append('\b');
+                        case 'f' -> value.append('\f');
+                        case '\\', '\'', '"', '$' -> value.append(escaped);
+                        case 'u' -> {
+                            if (pos + 4 > text.length()) {
+                                throw unsupported();
+                            }
+                            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                            pos += 4;
+                        }
+                        default -> throw unsupported();
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+            throw unsupported();
+        }
+
+        private boolean accept(String token) {
+            skipSpaces();
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Compile the source of one class in memory, with the classpath of the application server
+     */
+    static byte[] javac(String className, String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new UnexpectedException("No Java compiler, play.templates.static needs a JDK");
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        ByteArrayOutputStream byteCode = new ByteArrayOutputStream();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        StandardJavaFileManager standardFiles = compiler.getStandardFileManager(diagnostics, null, UTF_8);
+        JavaFileManager files = new ForwardingJavaFileManager<>(standardFiles) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("bytes:///" + name + ".class"), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return byteCode;
+                    }
+                };
+            }
+        };
+        List<String> options = List.of("-classpath", System.getProperty("java.class.path"), "-proc:none", "-g", "-nowarn");
+        if (!compiler.getTask(null, files, diagnostics, options, null, List.of(file)).call()) {
+            StringBuilder errors = new StringBuilder("Cannot compile " + className);
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                errors.append("\n").append(diagnostic);
+            }
+            throw new UnexpectedException(errors.toString());
+        }
+        return byteCode.toByteArray();
+    }
+}
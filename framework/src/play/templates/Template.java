@@ -1,5 +1,9 @@
 package play.templates;
 
+import play.exceptions.UnexpectedException;
+
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,6 +30,20 @@ public abstract class Template {
         return internalRender(args);
     }
 
+    /**
+     * Starts the rendering process, the result being written to <code>out</code> as it is produced when the
+     * template engine can stream it
+     * @param args map containing data binding info
+     * @param out where the result is written
+     */
+    public void render(Map<String, Object> args, Writer out) {
+        try {
+            out.write(render(args));
+        } catch (IOException e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
 
     /**
      * The internal rendering method - When one template calls another template,
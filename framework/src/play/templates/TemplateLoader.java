@@ -54,6 +54,12 @@ public class TemplateLoader {
         String fileRelativePath = FileUtils.relativePath(file);
         String key = getUniqueNumberForTemplateFile(fileRelativePath);
         if (!templates.containsKey(key) || templates.get(key).compiledTemplate == null) {
+            // play.templates.static: compiled to Java when it can be
+            BaseTemplate staticTemplate = StaticTemplate.load(file, fileRelativePath);
+            if (staticTemplate != null) {
+                templates.put(key, staticTemplate);
+                return staticTemplate;
+            }
             if (Play.usePrecompiled) {
                 BaseTemplate template = new GroovyTemplate(fileRelativePath.replaceAll("\\{(.*)\\}", "from_$1").replace(':', '_').replace("..", "parent"), "");
                 try {
@@ -161,7 +167,8 @@ public class TemplateLoader {
             if (!templateExists && Play.usePrecompiled) { // find default template default
                 String relatifePath = FileUtils.relativePath(tf);
                 String name = relatifePath.replaceAll("\\{(.*)\\}", "from_$1").replace(':', '_').replace("..", "parent");
-                templateExists = Play.getFile("precompiled/templates/" + name).exists();
+                templateExists = Play.getFile("precompiled/templates/" + name).exists()
+                        || Play.getFile("precompiled/templates/" + name + StaticTemplate.SUFFIX).exists();
             }
             if (templateExists) {
                 template = TemplateLoader.load(tf);
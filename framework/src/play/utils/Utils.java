@@ -12,6 +12,7 @@ import java.text.SimpleDateFormat;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -221,5 +222,29 @@ public class Utils {
         return obj == null || obj.length == 0;
     }
 
+    static final Pattern sizePattern = Pattern.compile("^(-?[0-9]+)\\s*(b|kb|k|mb|m|gb|g)?$", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Parse a size expression
+     *
+     * @param size
+     *            1024, 512KB, 10MB, 2GB (a negative value is returned as is)
+     * @return The number of bytes
+     */
+    public static long parseSize(String size) {
+        Matcher matcher = sizePattern.matcher(size.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid size pattern : " + size);
+        }
+        long value = Long.parseLong(matcher.group(1));
+        String unit = matcher.group(2) == null ? "b" : matcher.group(2).toLowerCase();
+        return switch (unit.charAt(0)) {
+            case 'k' -> value * 1024L;
+            case 'm' -> value * 1024L * 1024L;
+            case 'g' -> value * 1024L * 1024L * 1024L;
+            default -> value;
+        };
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package play.cache;
+
+import play.Play;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Compares the compact cache codec with Java serialization on a list of models.
+ * <p>
+ * Run with: <code>java -cp ... play.cache.CacheSerializerBenchmark [models] [iterations]</code>
+ */
+public class CacheSerializerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        Play.configuration = new Properties();
+        List<CompactCacheSerializerTest.Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CompactCacheSerializerTest.Item item = new CompactCacheSerializerTest.Item();
+            item.id = (long) i;
+            item.name = "Item number " + i;
+            item.price = new BigDecimal(i + ".50");
+            item.stock = i * 3;
+            item.status = CompactCacheSerializerTest.Status.ACTIVE;
+            item.tags = new ArrayList<>(List.of("tag" + i, "common"));
+            items.add(item);
+        }
+        CacheSerializer[] serializers = { new JavaCacheSerializer(), new CompactCacheSerializer(-1), new CompactCacheSerializer(4096) };
+        String[] names = { "java", "compact", "compact+deflate" };
+        for (int round = 0; round < 3; round++) {
+            for (int s = 0; s < serializers.length; s++) {
+                CacheSerializer serializer = serializers[s];
+                byte[] data = serializer.serialize(items);
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    data = serializer.serialize(items);
+                }
+                long write = (System.nanoTime() - start) / iterations;
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    serializer.deserialize(data);
+                }
+                long read = (System.nanoTime() - start) / iterations;
+                System.out.printf("round %d %-16s %,8d bytes, write %,9d ns/op, read %,9d ns/op%n", round, names[s], data.length, write, read);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package play.cache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CaffeineImplTest {
+
+    @Test
+    public void expirationIsPerEntry() throws Exception {
+        CaffeineImpl cache = new CaffeineImpl(1024 * 1024);
+        cache.set("short", "a", 1);
+        cache.set("long", "b", 60);
+        cache.set("forever", "c", 0);
+        Thread.sleep(1100);
+        assertThat(cache.get("short")).isNull();
+        assertThat(cache.get("long")).isEqualTo("b");
+        assertThat(cache.get("forever")).isEqualTo("c");
+    }
+
+    @Test
+    public void batchGetAndSet() {
+        CaffeineImpl cache = new CaffeineImpl(1024 * 1024);
+        Map<String, Object> values = new HashMap<>();
+        values.put("a", 1);
+        values.put("b", 2);
+        values.put("c", null);
+        cache.set(values, 60);
+        Map<String, Object> result = cache.get(new String[]{"a", "b", "c", "d"});
+        assertThat(result).hasSize(4);
+        assertThat(result.get("a")).isEqualTo(1);
+        assertThat(result.get("b")).isEqualTo(2);
+        assertThat(result.get("c")).isNull();
+        assertThat(result.containsKey("d")).isTrue();
+        assertThat(cache.stats().get("hits")).isEqualTo(2L);
+    }
+
+    @Test
+    public void addAndReplace() {
+        CaffeineImpl cache = new CaffeineImpl(1024 * 1024);
+        cache.replace("key", "ignored", 60);
+        assertThat(cache.get("key")).isNull();
+        cache.add("key", "first", 60);
+        cache.add("key", "second", 60);
+        assertThat(cache.get("key")).isEqualTo("first");
+        cache.replace("key", "third", 60);
+        assertThat(cache.get("key")).isEqualTo("third");
+        cache.delete("key");
+        assertThat(cache.get("key")).isNull();
+    }
+
+    @Test
+    public void incrIsAtomic() throws Exception {
+        CaffeineImpl cache = new CaffeineImpl(1024 * 1024);
+        assertThat(cache.incr("counter", 1)).isEqualTo(-1L);
+        cache.set("counter", 0, 60);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    cache.incr("counter", 2);
+                    cache.decr("counter", 1);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(cache.get("counter")).isEqualTo(8000L);
+    }
+
+    @Test
+    public void boundedByWeight() {
+        CaffeineImpl cache = new CaffeineImpl(64 * 1024);
+        for (int i = 0; i < 100; i++) {
+            cache.set("key" + i, new byte[4096], 60);
+        }
+        cache.cache.cleanUp();
+        assertThat(cache.stats().get("weight")).isLessThanOrEqualTo(64 * 1024L);
+        assertThat(cache.stats().get("evictions")).isGreaterThan(0L);
+    }
+
+    @Test
+    public void objectsAreWeighedWithoutSerialization() {
+        CaffeineImpl cache = new CaffeineImpl(1024 * 1024);
+        cache.set("object", new Object(), 60);
+        cache.set("known", new Object(), 60, 10_000);
+        assertThat(cache.cache.asMap().get("object").weight).isEqualTo(48 + 2 * 6 + 16);
+        assertThat(cache.cache.asMap().get("known").weight).isEqualTo(48 + 2 * 5 + 10_000);
+    }
+
+    public static class Item {
+        public Long id;
+        public String name;
+        public Item parent;
+    }
+
+    @Test
+    public void collectionsAreWeighedByTheirElements() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Item item = new Item();
+            item.id = (long) i;
+            item.name = "item " + i;
+            items.add(item);
+        }
+        long one = CaffeineImpl.sizeOf(items.get(0));
+        // header, three references, the Long and the String
+        assertThat(one).isEqualTo(16 + 3 * 8 + 16 + 40 + 6);
+        assertThat(CaffeineImpl.sizeOf(items)).isGreaterThan(10_000 * one);
+        Map<String, List<Item>> map = new HashMap<>();
+        map.put("items", items);
+        assertThat(CaffeineImpl.sizeOf(map)).isGreaterThan(CaffeineImpl.sizeOf(items));
+
+        // a cycle stops at the depth of the walk
+        items.get(0).parent = items.get(0);
+        assertThat(CaffeineImpl.sizeOf(items.get(0))).isGreaterThan(one);
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        CaffeineImpl cache = new CaffeineImpl(1024 * 1024);
+        cache.set("key", "value", 60);
+        cache.get("key");
+        cache.get("key");
+        cache.get("missing");
+        assertThat(cache.stats().get("hits")).isEqualTo(2L);
+        assertThat(cache.stats().get("misses")).isEqualTo(1L);
+        assertThat(cache.stats().get("size")).isEqualTo(1L);
+    }
+}
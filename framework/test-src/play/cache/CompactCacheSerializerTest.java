@@ -0,0 +1,122 @@
+package play.cache;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import play.Play;
+import play.db.jdbc.Model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CompactCacheSerializerTest {
+
+    public enum Status { ACTIVE, CLOSED }
+
+    public static class Item extends Model {
+        public String name;
+        public BigDecimal price;
+        public int stock;
+        public Status status;
+        public List<String> tags;
+        public Item parent;
+        public transient String ignored;
+    }
+
+    @BeforeClass
+    public static void setUp() {
+        Play.configuration = new Properties();
+    }
+
+    @Test
+    public void roundTripsSimpleValues() throws Exception {
+        CompactCacheSerializer serializer = new CompactCacheSerializer(-1);
+        Timestamp timestamp = new Timestamp(1_700_000_000_123L);
+        timestamp.setNanos(123456789);
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("b", 1);
+        map.put("a", Arrays.asList(1L, -2L));
+        Object[] values = { null, "é€", 42, -42L, Long.MIN_VALUE, 1.5d, 2.5f, (short) 3, (byte) 4, true, 'x',
+                new Date(1234L), timestamp, new BigDecimal("12.3400"), LocalDate.of(2024, 2, 29),
+                LocalDateTime.of(2024, 2, 29, 23, 59, 1, 5), UUID.randomUUID(), Status.CLOSED,
+                new ArrayList<>(List.of("a", "b")), new HashSet<>(Set.of(1, 2)), new HashMap<>(Map.of("k", "v")), map };
+        for (Object value : values) {
+            assertThat(serializer.deserialize(serializer.serialize(value))).isEqualTo(value);
+        }
+        assertThat(serializer.deserialize(serializer.serialize(new byte[] { 1, 2, 3 }))).isEqualTo(new byte[] { 1, 2, 3 });
+        // Arrays.asList is written with Java serialization
+        assertThat(serializer.deserialize(serializer.serialize(map))).isInstanceOf(LinkedHashMap.class);
+    }
+
+    @Test
+    public void roundTripsModels() throws Exception {
+        CompactCacheSerializer serializer = new CompactCacheSerializer(-1);
+        Item parent = item(1L, "parent");
+        Item child = item(2L, "child");
+        child.parent = parent;
+        parent.parent = parent;
+        child.ignored = "transient";
+        List<Item> items = new ArrayList<>(List.of(child, parent));
+
+        @SuppressWarnings("unchecked")
+        List<Item> read = (List<Item>) serializer.deserialize(serializer.serialize(items));
+        Item readChild = read.get(0);
+        assertThat(readChild.id).isEqualTo(2L);
+        assertThat(readChild.name).isEqualTo("child");
+        assertThat(readChild.price).isEqualTo(new BigDecimal("9.99"));
+        assertThat(readChild.stock).isEqualTo(7);
+        assertThat(readChild.status).isEqualTo(Status.ACTIVE);
+        assertThat(readChild.tags).containsExactly("a", "b");
+        assertThat(readChild.ignored).isNull();
+        assertThat(readChild.parent).isSameAs(read.get(1));
+        assertThat(read.get(1).parent).isSameAs(read.get(1));
+    }
+
+    @Test
+    public void smallerThanJavaSerialization() throws Exception {
+        Item item = item(1L, "name");
+        assertThat(new CompactCacheSerializer(-1).serialize(item).length).isLessThan(new JavaCacheSerializer().serialize(item).length / 3);
+    }
+
+    @Test
+    public void compressesAboveThreshold() throws Exception {
+        CompactCacheSerializer serializer = new CompactCacheSerializer(1024);
+        String big = "x".repeat(100_000);
+        byte[] data = serializer.serialize(big);
+        assertThat(data.length).isLessThan(2000);
+        assertThat(serializer.deserialize(data)).isEqualTo(big);
+        assertThat(serializer.serialize("small").length).isEqualTo(new CompactCacheSerializer(-1).serialize("small").length);
+    }
+
+    @Test
+    public void readsJavaSerializedValues() throws Exception {
+        Item item = item(3L, "java");
+        Item read = (Item) new CompactCacheSerializer().deserialize(new JavaCacheSerializer().serialize(item));
+        assertThat(read.name).isEqualTo("java");
+    }
+
+    @Test
+    public void otherLayoutIsAMiss() throws Exception {
+        byte[] data = new CompactCacheSerializer(-1).serialize(item(4L, "layout"));
+        // Corrupt the layout hash, right after the class name
+        String name = Item.class.getName();
+        int hashPosition = 2 + 1 + 1 + 1 + name.length();
+        data[hashPosition] ^= 0x55;
+        assertThat(new CompactCacheSerializer(-1).deserialize(data)).isNull();
+    }
+
+    private static Item item(Long id, String name) {
+        Item item = new Item();
+        item.id = id;
+        item.name = name;
+        item.price = new BigDecimal("9.99");
+        item.stock = 7;
+        item.status = Status.ACTIVE;
+        item.tags = new ArrayList<>(List.of("a", "b"));
+        return item;
+    }
+}
@@ -0,0 +1,144 @@
+package play.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class NearCacheImplTest {
+
+    private CaffeineImpl redis;
+    private LocalBus bus;
+    private NearCacheImpl node1;
+    private NearCacheImpl node2;
+
+    @Before
+    public void setUp() {
+        // A local cache and an in-memory channel stand for the redis server
+        redis = new CaffeineImpl(1024 * 1024);
+        bus = new LocalBus();
+        node1 = new NearCacheImpl(redis, bus, 1024 * 1024, 30);
+        node2 = new NearCacheImpl(redis, bus, 1024 * 1024, 30);
+    }
+
+    @Test
+    public void readsAreServedLocally() {
+        node1.set("key", "value", 60);
+        assertThat(node2.get("key")).isEqualTo("value");
+        assertThat(node2.get("key")).isEqualTo("value");
+        assertThat(node2.stats().get("remoteGets")).isEqualTo(1L);
+        assertThat(node2.stats().get("hits")).isEqualTo(1L);
+    }
+
+    @Test
+    public void writesInvalidateOtherNodes() {
+        node1.set("key", "v1", 60);
+        assertThat(node2.get("key")).isEqualTo("v1");
+        node1.set("key", "v2", 60);
+        assertThat(node2.get("key")).isEqualTo("v2");
+        node1.delete("key");
+        assertThat(node2.get("key")).isNull();
+        assertThat(node2.stats().get("invalidations")).isEqualTo(3L);
+        assertThat(node1.stats().get("invalidations")).isEqualTo(0L);
+    }
+
+    @Test
+    public void batchReadsGoOnceToTheSharedCache() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("a", 1);
+        values.put("b", 2);
+        node1.set(values, 60);
+        assertThat(node2.get("a")).isEqualTo(1);
+        Map<String, Object> result = node2.get(new String[]{"a", "b", "c"});
+        assertThat(result.get("a")).isEqualTo(1);
+        assertThat(result.get("b")).isEqualTo(2);
+        assertThat(result.get("c")).isNull();
+        assertThat(node2.stats().get("remoteGets")).isEqualTo(2L);
+        assertThat(node2.local.get("b")).isEqualTo(2);
+    }
+
+    @Test
+    public void batchWritesInvalidateOtherNodes() {
+        node1.set("a", 1, 60);
+        node1.set("b", 2, 60);
+        assertThat(node2.get(new String[]{"a", "b"}).get("b")).isEqualTo(2);
+        long before = node2.stats().get("invalidations");
+        Map<String, Object> values = new HashMap<>();
+        values.put("a", 10);
+        values.put("b", 20);
+        node1.set(values, 60);
+        assertThat(node2.stats().get("invalidations")).isEqualTo(before + 1);
+        assertThat(node2.get("a")).isEqualTo(10);
+        assertThat(node2.get("b")).isEqualTo(20);
+    }
+
+    @Test
+    public void clearInvalidatesOtherNodes() {
+        node1.set("a", 1, 60);
+        node1.set("b", 2, 60);
+        assertThat(node2.get("a")).isEqualTo(1);
+        assertThat(node2.get("b")).isEqualTo(2);
+        node1.clear();
+        assertThat(node2.get("a")).isNull();
+        assertThat(node2.local.get("b")).isNull();
+    }
+
+    @Test
+    public void counters() {
+        node1.set("counter", 1L, 60);
+        assertThat(node2.get("counter")).isEqualTo(1L);
+        assertThat(node1.incr("counter", 5)).isEqualTo(6L);
+        assertThat(node2.get("counter")).isEqualTo(6L);
+    }
+
+    @Test
+    public void localCopyExpires() throws Exception {
+        NearCacheImpl shortLived = new NearCacheImpl(redis, bus, 1024 * 1024, 1);
+        shortLived.set("key", "v1", 60);
+        assertThat(shortLived.get("key")).isEqualTo("v1");
+        // Written behind the near cache: no invalidation
+        redis.set("key", "v2", 60);
+        assertThat(shortLived.get("key")).isEqualTo("v1");
+        Thread.sleep(1100);
+        assertThat(shortLived.get("key")).isEqualTo("v2");
+    }
+
+    @Test
+    public void resetDropsLocalTier() {
+        node1.set("key", "v1", 60);
+        assertThat(node2.get("key")).isEqualTo("v1");
+        redis.set("key", "v2", 60);
+        bus.reset();
+        assertThat(node2.get("key")).isEqualTo("v2");
+    }
+
+    static class LocalBus implements InvalidationBus {
+        final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+        final List<Runnable> resets = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(String message) {
+            listeners.forEach(listener -> listener.accept(message));
+        }
+
+        @Override
+        public void subscribe(Consumer<String> listener, Runnable reset) {
+            listeners.add(listener);
+            resets.add(reset);
+        }
+
+        void reset() {
+            resets.forEach(Runnable::run);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
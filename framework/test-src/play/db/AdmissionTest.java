@@ -0,0 +1,110 @@
+package play.db;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+import play.exceptions.UnexpectedException;
+
+import java.sql.Connection;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class AdmissionTest {
+
+    private JdbcDataSource dataSource;
+
+    @Before
+    public void setUp() {
+        Play.configuration = new Properties();
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:admission;DB_CLOSE_DELAY=-1");
+    }
+
+    @After
+    public void tearDown() {
+        DB.closeAll();
+        DB.datasources.remove("admission");
+        DB.admissions.remove("admission");
+    }
+
+    private static void waitForQueue(Admission admission, long queued) throws InterruptedException {
+        for (int i = 0; i < 200 && admission.stats().get("queued") < queued; i++) {
+            Thread.sleep(5);
+        }
+        assertThat(admission.stats().get("queued")).isEqualTo(queued);
+    }
+
+    @Test
+    public void waitsInTurnThenRejects() throws Exception {
+        Admission admission = new Admission("admission", 1, 1, 2000, 7);
+        Connection first = admission.getConnection(dataSource);
+
+        CompletableFuture<Connection> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return admission.getConnection(dataSource);
+            } catch (Exception e) {
+                throw new UnexpectedException(e);
+            }
+        });
+        waitForQueue(admission, 1);
+        try {
+            admission.getConnection(dataSource);
+            fail("the queue is full");
+        } catch (Admission.RejectedException e) {
+            assertThat(e.getRetryAfter()).isEqualTo(7);
+            assertThat(e.getMessage()).contains("queue full");
+        }
+
+        first.close();
+        // closed twice, the permit is given back once
+        first.close();
+        Connection connection = second.get(1, TimeUnit.SECONDS);
+        assertThat(connection.isValid(1)).isTrue();
+        assertThat(admission.stats().get("inUse")).isEqualTo(1);
+        assertThat(admission.stats().get("admitted")).isEqualTo(2);
+        assertThat(admission.stats().get("rejected")).isEqualTo(1);
+        connection.close();
+        assertThat(admission.stats().get("inUse")).isEqualTo(0);
+    }
+
+    @Test
+    public void rejectsAfterTheTimeout() throws Exception {
+        Admission admission = new Admission("admission", 1, 10, 50, 1);
+        try (Connection connection = admission.getConnection(dataSource)) {
+            long start = System.nanoTime();
+            try {
+                admission.getConnection(dataSource);
+                fail("no permit left");
+            } catch (Admission.RejectedException e) {
+                assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(50);
+            }
+        }
+        admission.getConnection(dataSource).close();
+    }
+
+    @Test
+    public void invocationsGetTheRejection() throws Exception {
+        DB.datasources.put("admission", new DB.ExtendedDatasource(dataSource, ""));
+        DB.admissions.put("admission", new Admission("admission", 1, 0, 10, 1));
+        Connection connection = DB.getConnection("admission");
+        CompletableFuture<Throwable> other = CompletableFuture.supplyAsync(() -> {
+            try {
+                DB.getConnection("admission");
+                return null;
+            } catch (Throwable e) {
+                return e;
+            } finally {
+                DB.closeAll();
+            }
+        });
+        Throwable error = other.get(1, TimeUnit.SECONDS);
+        assertThat(Admission.RejectedException.find(new UnexpectedException(error))).isSameAs(error);
+        assertThat(DB.getConnection("admission")).isSameAs(connection);
+    }
+}
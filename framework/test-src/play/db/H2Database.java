@@ -0,0 +1,52 @@
+package play.db;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.sql2o.quirks.NoQuirks;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * An in-memory H2 database registered as the default database, for the tests of the other packages
+ */
+public final class H2Database {
+
+    private H2Database() {
+    }
+
+    /**
+     * @param url
+     *            the H2 url, such as <code>jdbc:h2:mem:name;DB_CLOSE_DELAY=-1</code>
+     * @param statements
+     *            run first, to create the tables
+     */
+    public static JdbcDataSource open(String url, String... statements) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+        register(dataSource);
+        return dataSource;
+    }
+
+    /**
+     * @param dataSource
+     *            the default database from now on, such as a wrapper of the one returned by {@link #open}
+     */
+    public static void register(DataSource dataSource) {
+        DB.datasources.put(DB.DEFAULT, new DB.ExtendedDatasource(dataSource, ""));
+        DB.quirks.put(DB.DEFAULT, new NoQuirks());
+    }
+
+    public static void close() {
+        DB.closeTx(true);
+        DB.closeAll();
+        DB.datasources.remove(DB.DEFAULT);
+        DB.quirks.remove(DB.DEFAULT);
+    }
+}
@@ -0,0 +1,74 @@
+package play.db;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sql2o.quirks.NoQuirks;
+import play.Play;
+import play.db.jdbc.QueryBuilder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LazyConnectionTest {
+
+    @Before
+    public void setUp() throws SQLException {
+        Play.configuration = new Properties();
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:lazy;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS counter(id INT PRIMARY KEY, hits INT)");
+            statement.execute("MERGE INTO counter VALUES (1, 0)");
+        }
+        DB.datasources.put(DB.DEFAULT, new DB.ExtendedDatasource(dataSource, ""));
+        DB.quirks.put(DB.DEFAULT, new NoQuirks());
+        DB.connectionWait();
+    }
+
+    @After
+    public void tearDown() {
+        DB.closeTx(true);
+        DB.closeAll();
+        DB.lazyConnections.remove(DB.DEFAULT);
+        DB.datasources.remove(DB.DEFAULT);
+        DB.quirks.remove(DB.DEFAULT);
+    }
+
+    private static int hits() {
+        return QueryBuilder.create("SELECT hits FROM counter WHERE id=?", 1).fetchFirst(Integer.class);
+    }
+
+    private static boolean holdsConnection() {
+        return DB.localConnection.get() != null && !DB.localConnection.get().isEmpty();
+    }
+
+    @Test
+    public void readsKeepTheConnectionOfTheInvocationByDefault() {
+        assertThat(hits()).isEqualTo(0);
+        assertThat(holdsConnection()).isTrue();
+    }
+
+    @Test
+    public void readsBorrowAConnectionUntilTheFirstWrite() {
+        DB.lazyConnections.add(DB.DEFAULT);
+        assertThat(hits()).isEqualTo(0);
+        assertThat(hits()).isEqualTo(0);
+        assertThat(holdsConnection()).isFalse();
+        assertThat(DB.connectionWait()).isGreaterThanOrEqualTo(0);
+        assertThat(DB.connectionWait()).isEqualTo(-1);
+
+        QueryBuilder.create("UPDATE counter SET hits=hits+1 WHERE id=?", 1).update();
+        assertThat(holdsConnection()).isTrue();
+        // the reads see the pending write of the transaction
+        assertThat(hits()).isEqualTo(1);
+        DB.closeTx(true);
+        DB.closeAll();
+        assertThat(hits()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,117 @@
+package play.db;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sql2o.quirks.NoQuirks;
+import play.Play;
+import play.db.jdbc.QueryBuilder;
+import play.mvc.Http;
+import play.mvc.results.RenderStream;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class QueryStreamTest {
+
+    public static class Item {
+        public Long id;
+        public String name;
+    }
+
+    private Http.Response response;
+    private ByteArrayOutputStream chunks;
+
+    @Before
+    public void setUp() throws SQLException {
+        Play.configuration = new Properties();
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:stream;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS item(id BIGINT PRIMARY KEY, name VARCHAR(50))");
+            statement.execute("DELETE FROM item");
+            statement.execute("INSERT INTO item SELECT x, 'item \"' || x || '\", ok' FROM SYSTEM_RANGE(1, 2000)");
+            statement.execute("UPDATE item SET name=NULL WHERE id=2");
+        }
+        DB.datasources.put(DB.DEFAULT, new DB.ExtendedDatasource(dataSource, ""));
+        DB.quirks.put(DB.DEFAULT, new NoQuirks());
+
+        chunks = new ByteArrayOutputStream();
+        response = new Http.Response();
+        response.out = new ByteArrayOutputStream();
+        response.encoding = "UTF-8";
+        response.onWriteChunk(chunk -> chunks.writeBytes((byte[]) chunk));
+        Http.Response.current.set(response);
+    }
+
+    @After
+    public void tearDown() {
+        Http.Response.current.remove();
+        DB.closeAll();
+        DB.datasources.remove(DB.DEFAULT);
+        DB.quirks.remove(DB.DEFAULT);
+    }
+
+    private Stream<Item> items() {
+        return QueryBuilder.create("SELECT id, name FROM item ORDER BY id").stream(Item.class);
+    }
+
+    private String sent() {
+        assertThat(response.chunked).isTrue();
+        return chunks.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void rowsAreReadThroughACursor() {
+        AtomicBoolean closed = new AtomicBoolean();
+        try (Stream<Item> items = items().onClose(() -> closed.set(true))) {
+            assertThat(items.mapToLong(item -> item.id).sum()).isEqualTo(2000L * 2001 / 2);
+        }
+        assertThat(closed.get()).isTrue();
+    }
+
+    @Test
+    public void csv() {
+        new RenderStream(items(), RenderStream.Format.CSV).attachment("items.csv").apply(null, response);
+        String[] lines = sent().split("\r\n");
+        assertThat(response.contentType).isEqualTo("text/csv; charset=UTF-8");
+        assertThat(response.getHeader("Content-Disposition")).isEqualTo("attachment; filename=\"items.csv\"");
+        assertThat(lines).hasSize(2001);
+        assertThat(lines[0]).isEqualTo("id,name");
+        assertThat(lines[1]).isEqualTo("1,\"item \"\"1\"\", ok\"");
+        assertThat(lines[2]).isEqualTo("2,");
+    }
+
+    @Test
+    public void csvColumns() {
+        new RenderStream(items().limit(1), RenderStream.Format.CSV, "name", "id").apply(null, response);
+        assertThat(response.out.toString(StandardCharsets.UTF_8)).isEqualTo("name,id\r\n\"item \"\"1\"\", ok\",1\r\n");
+    }
+
+    @Test
+    public void json() {
+        new RenderStream(items(), RenderStream.Format.JSON).apply(null, response);
+        String json = sent();
+        assertThat(json).startsWith("[{\"id\":1,\"name\":\"item \\\"1\\\", ok\"},{\"id\":2,\"name\":null},");
+        assertThat(json).endsWith("{\"id\":2000,\"name\":\"item \\\"2000\\\", ok\"}]");
+    }
+
+    @Test
+    public void ndjson() {
+        new RenderStream(items(), RenderStream.Format.NDJSON).apply(null, response);
+        String[] lines = sent().split("\n");
+        assertThat(response.contentType).isEqualTo("application/x-ndjson; charset=UTF-8");
+        assertThat(lines).hasSize(2000);
+        assertThat(Stream.of(lines).filter(line -> line.startsWith("{\"id\":")).collect(Collectors.counting())).isEqualTo(2000L);
+    }
+}
@@ -0,0 +1,120 @@
+package play.db;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sql2o.quirks.NoQuirks;
+import play.InvocationContext;
+import play.Play;
+import play.db.jdbc.QueryBuilder;
+import play.db.jpa.ReadOnly;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReplicasTest {
+
+    private JdbcDataSource primary;
+    private Replicas replicas;
+
+    @Before
+    public void setUp() throws SQLException {
+        Play.configuration = new Properties();
+        primary = database("primary", 0);
+        replicas = new Replicas(DB.DEFAULT, List.of(
+                new Replicas.Replica("replica1", database("replica1", 0)),
+                new Replicas.Replica("replica2", database("replica2", 0))), 10_000, Long.MAX_VALUE, "SELECT lag FROM replica_lag");
+        replicas.replicas.forEach(replicas::check);
+    }
+
+    @After
+    public void tearDown() {
+        DB.closeAll();
+        InvocationContext.current.remove();
+        DB.datasources.remove(DB.DEFAULT);
+        DB.replicas.remove(DB.DEFAULT);
+        DB.quirks.remove(DB.DEFAULT);
+    }
+
+    private static JdbcDataSource database(String name, long lag) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS info(name VARCHAR(20))");
+            statement.execute("DELETE FROM info");
+            statement.execute("INSERT INTO info VALUES ('" + name + "')");
+            statement.execute("CREATE TABLE IF NOT EXISTS replica_lag(lag BIGINT)");
+            statement.execute("DELETE FROM replica_lag");
+            statement.execute("INSERT INTO replica_lag VALUES (" + lag + ")");
+        }
+        return dataSource;
+    }
+
+    @Test
+    public void replicasAreTakenInTurn() {
+        assertThat(replicas.pick().url).isEqualTo("replica1");
+        assertThat(replicas.pick().url).isEqualTo("replica2");
+        assertThat(replicas.pick().url).isEqualTo("replica1");
+    }
+
+    @Test
+    public void lateOrDownReplicasAreSkipped() throws SQLException {
+        Replicas.Replica replica1 = replicas.replicas.get(0);
+        Replicas.Replica replica2 = replicas.replicas.get(1);
+        database("replica2", 60_000);
+        replicas.check(replica2);
+        assertThat(replica2.isHealthy()).isTrue();
+        assertThat(replica2.getLag()).isEqualTo(60_000);
+        assertThat(replicas.pick()).isSameAs(replica1);
+        assertThat(replicas.pick()).isSameAs(replica1);
+
+        try (Connection connection = replica1.dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE replica_lag");
+        }
+        replicas.check(replica1);
+        assertThat(replica1.isHealthy()).isFalse();
+        assertThat(replicas.pick()).isNull();
+
+        database("replica2", 0);
+        replicas.check(replica2);
+        assertThat(replicas.pick()).isSameAs(replica2);
+    }
+
+    @ReadOnly
+    public void listing() {
+    }
+
+    private String database() throws SQLException {
+        try (Statement statement = DB.getConnection().createStatement()) {
+            var rs = statement.executeQuery("SELECT name FROM info");
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    @Test
+    public void readOnlyActionsReadFromTheReplicas() throws Exception {
+        DB.datasources.put(DB.DEFAULT, new DB.ExtendedDatasource(primary, ""));
+        DB.replicas.put(DB.DEFAULT, replicas);
+        DB.quirks.put(DB.DEFAULT, new NoQuirks());
+
+        assertThat(database()).isEqualTo("primary");
+        assertThat(QueryBuilder.create("SELECT name FROM info").usingReplica().fetchFirst(String.class)).isEqualTo("replica1");
+        // the replica connection is kept for the invocation
+        assertThat(QueryBuilder.create("SELECT name FROM info").usingReplica().fetchFirst(String.class)).isEqualTo("replica1");
+        DB.closeAll();
+
+        InvocationContext.current.set(new InvocationContext("test", getClass().getMethod("listing").getAnnotations()));
+        assertThat(database()).isEqualTo("replica2");
+        DB.closeAll();
+
+        replicas.replicas.forEach(replica -> replica.healthy = false);
+        assertThat(database()).isEqualTo("primary");
+    }
+}
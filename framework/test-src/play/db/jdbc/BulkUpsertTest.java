@@ -0,0 +1,58 @@
+package play.db.jdbc;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import play.Play;
+
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BulkUpsertTest {
+
+    @BeforeClass
+    public static void setUp() {
+        Play.configuration = new Properties();
+    }
+
+    @Table(name = "tag")
+    public static class Tag extends BaseTable {
+        @Id
+        public String code;
+    }
+
+    @Test
+    public void dialectFromProductName() {
+        assertThat(BulkUpsert.dialectOf("PostgreSQL")).isEqualTo(BulkUpsert.Dialect.POSTGRESQL);
+        assertThat(BulkUpsert.dialectOf("MySQL")).isEqualTo(BulkUpsert.Dialect.MYSQL);
+        assertThat(BulkUpsert.dialectOf("MariaDB")).isEqualTo(BulkUpsert.Dialect.MYSQL);
+        assertThat(BulkUpsert.dialectOf("H2")).isEqualTo(BulkUpsert.Dialect.OTHER);
+        assertThat(BulkUpsert.dialectOf(null)).isEqualTo(BulkUpsert.Dialect.OTHER);
+    }
+
+    @Test
+    public void postgresqlUpsert() {
+        TableMeta meta = TableMeta.of(TableMetaTest.Pegawai.class);
+        assertThat(BulkUpsert.upsertSql(meta, BulkUpsert.Dialect.POSTGRESQL)).isEqualTo(
+                "INSERT INTO hr.Pegawai(peg_id,nama,data) VALUES (:peg_id,:nama,:data::JSON)"
+                        + " ON CONFLICT (peg_id) DO UPDATE SET nama=EXCLUDED.nama,data=EXCLUDED.data");
+        assertThat(BulkUpsert.upsertSql(TableMeta.of(Tag.class), BulkUpsert.Dialect.POSTGRESQL))
+                .isEqualTo("INSERT INTO tag(code) VALUES (:code) ON CONFLICT (code) DO NOTHING");
+        assertThat(BulkUpsert.sequenceRangeSql(meta, BulkUpsert.Dialect.POSTGRESQL))
+                .isEqualTo("SELECT nextval('seq_pegawai') FROM generate_series(1, ?)");
+    }
+
+    @Test
+    public void mysqlUpsert() {
+        assertThat(BulkUpsert.upsertSql(TableMeta.of(TableMetaTest.Log.class), BulkUpsert.Dialect.MYSQL)).isEqualTo(
+                "INSERT INTO log(log_id,message) VALUES (:log_id,:message) ON DUPLICATE KEY UPDATE message=VALUES(message)");
+        assertThat(BulkUpsert.upsertSql(TableMeta.of(Tag.class), BulkUpsert.Dialect.MYSQL))
+                .isEqualTo("INSERT INTO tag(code) VALUES (:code) ON DUPLICATE KEY UPDATE code=VALUES(code)");
+        assertThat(BulkUpsert.sequenceRangeSql(TableMeta.of(TableMetaTest.Pegawai.class), BulkUpsert.Dialect.MYSQL)).isNull();
+    }
+
+    @Test
+    public void noUpsertElsewhere() {
+        assertThat(BulkUpsert.upsertSql(TableMeta.of(Tag.class), BulkUpsert.Dialect.OTHER)).isNull();
+    }
+}
@@ -0,0 +1,85 @@
+package play.db.jdbc;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+import play.cache.Cache;
+import play.cache.CaffeineImpl;
+import play.db.DB;
+import play.db.H2Database;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FindByIdsTest {
+
+    @Table(name = "item")
+    @CacheMerdeka
+    public static class Item extends BaseTable {
+        @Id
+        public Long id;
+        public String name;
+    }
+
+    @Table(name = "item")
+    public static class UncachedItem extends BaseTable {
+        @Id
+        public Long id;
+        public String name;
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        Play.configuration = new Properties();
+        Cache.cacheImpl = CaffeineImpl.newInstance();
+        Cache.clear();
+        H2Database.open("jdbc:h2:mem:findByIds;DB_CLOSE_DELAY=-1",
+                "CREATE TABLE IF NOT EXISTS item(id BIGINT PRIMARY KEY, name VARCHAR(50))",
+                "DELETE FROM item",
+                "INSERT INTO item VALUES (1, 'one'), (2, 'two'), (3, 'three')");
+    }
+
+    @After
+    public void tearDown() {
+        H2Database.close();
+        Cache.clear();
+    }
+
+    private static List<String> names(List<? extends BaseTable> items) {
+        return items.stream().map(item -> item instanceof Item i ? i.name : ((UncachedItem) item).name).collect(Collectors.toList());
+    }
+
+    @Test
+    public void idsOfAnyNumberTypeInTheGivenOrder() {
+        BaseTableDao<UncachedItem> dao = BaseTableDao.getInstance(UncachedItem.class);
+        // Integer and Long ids match the BIGINT column, duplicates and unknown ids are dropped
+        assertThat(names(dao.findByIds(Arrays.asList(3, 1L, 9, 2, 3L)))).containsExactly("three", "one", "two");
+        assertThat(dao.findByIds(Collections.emptyList())).isEmpty();
+        assertThat(dao.findByIds(Arrays.asList(7, 8))).isEmpty();
+    }
+
+    @Test
+    public void hitsAndMissesOfTheCache() {
+        BaseTableDao<Item> dao = BaseTableDao.getInstance(Item.class);
+        assertThat(names(dao.findByIds(Arrays.asList(1L, 2L)))).containsExactly("one", "two");
+
+        // gone from the database: still read from the cache, whatever the type of the id
+        DB.execute("DELETE FROM item WHERE id IN (1, 2)");
+        assertThat(names(dao.findByIds(Arrays.asList(2, 1)))).containsExactly("two", "one");
+
+        // a missing id is not cached: it is found once inserted
+        assertThat(names(dao.findByIds(Arrays.asList(1, 9)))).containsExactly("one");
+        DB.execute("INSERT INTO item VALUES (9, 'nine')");
+        assertThat(names(dao.findByIds(Arrays.asList(1, 9, 3)))).containsExactly("one", "nine", "three");
+
+        BaseTable.clearCacheOfClass(Item.class);
+        assertThat(names(dao.findByIds(Arrays.asList(1, 2, 3, 9)))).containsExactly("three", "nine");
+    }
+}
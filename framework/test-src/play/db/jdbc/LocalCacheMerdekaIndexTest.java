@@ -0,0 +1,96 @@
+package play.db.jdbc;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LocalCacheMerdekaIndexTest {
+
+    @Test
+    public void removeReturnsTheKeysOfAnId() {
+        LocalCacheMerdekaIndex index = new LocalCacheMerdekaIndex();
+        Map<Object, String> keys = new HashMap<>();
+        keys.put(1L, "a#1");
+        keys.put(2L, "a#2");
+        index.track("a", 0, keys, 600);
+        index.track("a", 0, Collections.singletonMap(1L, "b#1"), 600);
+        assertThat(index.remove("a", 1L)).containsOnly("a#1", "b#1");
+        assertThat(index.remove("a", 1L)).isEmpty();
+        assertThat(index.remove("a", 2L)).containsOnly("a#2");
+    }
+
+    @Test
+    public void idsMatchByValue() {
+        LocalCacheMerdekaIndex index = new LocalCacheMerdekaIndex();
+        index.track("a", 0, Collections.singletonMap(1, "a#1"), 600);
+        index.track("a", 0, Collections.singletonMap(null, "a#null"), 600);
+        assertThat(index.remove("a", 1L)).containsOnly("a#1");
+        assertThat(index.remove("a", null)).containsOnly("a#null");
+    }
+
+    @Test
+    public void clearBumpsTheGeneration() {
+        LocalCacheMerdekaIndex index = new LocalCacheMerdekaIndex();
+        assertThat(index.generation("a")).isEqualTo(0L);
+        index.track("a", 0, Collections.singletonMap(1L, "a#1"), 600);
+        index.clear("a");
+        assertThat(index.generation("a")).isEqualTo(1L);
+        assertThat(index.generation("b")).isEqualTo(0L);
+        assertThat(index.remove("a", 1L)).isEmpty();
+        // a key built before the clear is not tracked anymore
+        index.track("a", 0, Collections.singletonMap(1L, "a#1"), 600);
+        assertThat(index.remove("a", 1L)).isEmpty();
+    }
+
+    @Test
+    public void idsExpireWithTheirCacheKeys() {
+        AtomicLong now = new AtomicLong();
+        LocalCacheMerdekaIndex index = new LocalCacheMerdekaIndex(now::get);
+        for (long id = 0; id < 1000; id++) {
+            index.track("a", 0, Collections.singletonMap(id, "a#" + id), 60);
+        }
+        index.track("a", 0, Collections.singletonMap(1L, "b#1"), 600);
+        index.track("a", 0, Collections.singletonMap(1L, "c#1"), 60);
+        assertThat(index.size("a")).isEqualTo(1000L);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        // the longest expiration of an id is kept
+        assertThat(index.size("a")).isEqualTo(1L);
+        assertThat(index.remove("a", 1L)).containsOnly("a#1", "b#1", "c#1");
+        assertThat(index.remove("a", 2L)).isEmpty();
+    }
+
+    @Test
+    public void concurrentTracking() throws Exception {
+        LocalCacheMerdekaIndex index = new LocalCacheMerdekaIndex();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    index.track("a", 0, Collections.singletonMap(i % 10, "k" + thread + "-" + i), 600);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        int total = 0;
+        for (int id = 0; id < 10; id++) {
+            total += index.remove("a", id).size();
+        }
+        assertThat(total).isEqualTo(8000);
+    }
+}
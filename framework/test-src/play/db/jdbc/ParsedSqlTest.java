@@ -0,0 +1,70 @@
+package play.db.jdbc;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sql2o.quirks.NoQuirks;
+import org.sql2o.quirks.PostgresQuirks;
+import org.sql2o.quirks.Quirks;
+import play.Play;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class ParsedSqlTest {
+
+    @BeforeClass
+    public static void setUp() {
+        Play.configuration = new Properties();
+    }
+
+    @Test
+    public void sameQueryIsParsedOnce() {
+        Quirks quirks = new NoQuirks();
+        String sql = "UPDATE pegawai SET nama=:nama WHERE peg_id=:id OR atasan=:id";
+        long hits = ParsedSql.stats().get("hits");
+        ParsedSql parsed = ParsedSql.of(quirks, sql);
+        assertThat(parsed.sql).isEqualTo("UPDATE pegawai SET nama=? WHERE peg_id=? OR atasan=?");
+        assertThat(parsed.paramNameToIdxMap.get("nama")).isEqualTo(List.of(1));
+        assertThat(parsed.paramNameToIdxMap.get("id")).isEqualTo(List.of(2, 3));
+        assertThat(ParsedSql.of(quirks, sql)).isSameAs(parsed);
+        assertThat(ParsedSql.stats().get("hits")).isEqualTo(hits + 1);
+        // another database may parse differently
+        assertThat(ParsedSql.of(new PostgresQuirks(), sql)).isNotSameAs(parsed);
+    }
+
+    @Test
+    public void parameterMapIsShared() {
+        ParsedSql parsed = ParsedSql.of(new NoQuirks(), "SELECT * FROM pegawai WHERE peg_id=:id");
+        try {
+            parsed.paramNameToIdxMap.get("id").add(2);
+            fail("the cached indexes must not change");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void sizeZeroDisablesTheCache() {
+        assertThat(ParsedSql.newCache(0)).isNull();
+        assertThat(ParsedSql.newCache(-1)).isNull();
+        assertThat(ParsedSql.newCache(10)).isNotNull();
+    }
+
+    @Test
+    public void queryUsesTheCache() throws Exception {
+        Quirks quirks = new NoQuirks();
+        String sql = "SELECT :a + :b";
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:")) {
+            long prepared = ParsedSql.stats().get("prepared");
+            Query first = new Query(connection, quirks, sql, null);
+            Query second = new Query(connection, quirks, sql, null);
+            assertThat(second.toString()).isSameAs(first.toString());
+            assertThat(second.addParameter("a", 1).addParameter("b", 2).executeScalarList(Integer.class)).isEqualTo(List.of(3));
+            assertThat(ParsedSql.stats().get("prepared")).isEqualTo(prepared + 2);
+        }
+    }
+}
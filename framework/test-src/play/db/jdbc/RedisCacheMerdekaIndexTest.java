@@ -0,0 +1,151 @@
+package play.db.jdbc;
+
+import org.junit.Before;
+import org.junit.Test;
+import play.cache.InvalidationBus;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RedisCacheMerdekaIndexTest {
+
+    private static final String KEY = CacheMerdeka.class.getName() + "$a";
+
+    private volatile String generation;
+    private final AtomicInteger gets = new AtomicInteger();
+    private final List<String> commands = new CopyOnWriteArrayList<>();
+    private JedisPool pool;
+    private Bus bus;
+
+    @Before
+    public void setUp() {
+        generation = "3";
+        // no connection is opened: the commands used by the index are answered here
+        Jedis jedis = new Jedis() {
+            @Override
+            public String get(String key) {
+                gets.incrementAndGet();
+                return key.equals(KEY) ? generation : null;
+            }
+
+            @Override
+            public long incr(String key) {
+                generation = String.valueOf(Long.parseLong(generation) + 1);
+                return Long.parseLong(generation);
+            }
+
+            @Override
+            public Pipeline pipelined() {
+                return new Pipeline(new Connection()) {
+                    @Override
+                    public Response<Long> sadd(String key, String... members) {
+                        commands.add("SADD " + key + " " + String.join(" ", members));
+                        return null;
+                    }
+
+                    @Override
+                    public Response<Long> expire(String key, long seconds) {
+                        commands.add("EXPIRE " + key + " " + seconds);
+                        return null;
+                    }
+
+                    @Override
+                    public Response<Long> persist(String key) {
+                        commands.add("PERSIST " + key);
+                        return null;
+                    }
+
+                    @Override
+                    public void sync() {
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        pool = new JedisPool() {
+            @Override
+            public Jedis getResource() {
+                return jedis;
+            }
+        };
+        bus = new Bus();
+    }
+
+    @Test
+    public void generationIsReadOnce() {
+        RedisCacheMerdekaIndex index = new RedisCacheMerdekaIndex(pool, bus);
+        assertThat(index.generation("a")).isEqualTo(3L);
+        assertThat(index.generation("a")).isEqualTo(3L);
+        assertThat(gets.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void clearIsBroadcast() {
+        RedisCacheMerdekaIndex node1 = new RedisCacheMerdekaIndex(pool, bus);
+        RedisCacheMerdekaIndex node2 = new RedisCacheMerdekaIndex(pool, bus);
+        assertThat(node2.generation("a")).isEqualTo(3L);
+        node1.clear("a");
+        assertThat(node1.generation("a")).isEqualTo(4L);
+        assertThat(node2.generation("a")).isEqualTo(4L);
+        // a late message does not go back
+        bus.publish("a 2");
+        assertThat(node2.generation("a")).isEqualTo(4L);
+        assertThat(gets.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void generationIsReadAgainAfterAReset() {
+        RedisCacheMerdekaIndex index = new RedisCacheMerdekaIndex(pool, bus);
+        index.generation("a");
+        bus.resets.forEach(Runnable::run);
+        generation = "7";
+        assertThat(index.generation("a")).isEqualTo(7L);
+    }
+
+    @Test
+    public void indexLivesAsLongAsTheCachedValues() {
+        RedisCacheMerdekaIndex index = new RedisCacheMerdekaIndex(pool, bus);
+        index.track("a", 3, Collections.singletonMap(1L, "k1"), 60);
+        index.track("a", 3, Collections.singletonMap(2L, "k2"), 30 * 24 * 3600);
+        index.track("a", 3, Collections.singletonMap(3L, "k3"), 0);
+        // built before a clear
+        index.track("a", 2, Collections.singletonMap(4L, "k4"), 60);
+        assertThat(commands).containsExactly(
+                "SADD " + KEY + "#3#1 k1", "EXPIRE " + KEY + "#3#1 43200",
+                "SADD " + KEY + "#3#2 k2", "EXPIRE " + KEY + "#3#2 2592000",
+                "SADD " + KEY + "#3#3 k3", "PERSIST " + KEY + "#3#3");
+    }
+
+    static class Bus implements InvalidationBus {
+        final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+        final List<Runnable> resets = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(String message) {
+            listeners.forEach(listener -> listener.accept(message));
+        }
+
+        @Override
+        public void subscribe(Consumer<String> listener, Runnable reset) {
+            listeners.add(listener);
+            resets.add(reset);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
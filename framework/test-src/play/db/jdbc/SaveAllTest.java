@@ -0,0 +1,149 @@
+package play.db.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+import play.cache.Cache;
+import play.cache.CaffeineImpl;
+import play.db.H2Database;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SaveAllTest {
+
+    @Table(name = "item")
+    public static class Item extends BaseTable {
+        @Id
+        public Long id;
+        public String name;
+
+        Item() {
+        }
+
+        Item(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    @Table(name = "note")
+    public static class Note extends BaseTable {
+        @Id(generated = true)
+        public Long id;
+        public String text;
+
+        Note() {
+        }
+
+        Note(String text) {
+            this.text = text;
+        }
+    }
+
+    private final AtomicInteger batches = new AtomicInteger();
+
+    @Before
+    public void setUp() throws SQLException {
+        Play.configuration = new Properties();
+        Play.configuration.setProperty("jdbc.batchSize", "2");
+        Cache.cacheImpl = CaffeineImpl.newInstance();
+        // MODE=MySQL: ON DUPLICATE KEY UPDATE ... VALUES() is understood
+        JdbcDataSource dataSource = H2Database.open("jdbc:h2:mem:saveAll;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "CREATE TABLE IF NOT EXISTS item(id BIGINT PRIMARY KEY, name VARCHAR(50))",
+                "CREATE TABLE IF NOT EXISTS note(id BIGINT AUTO_INCREMENT PRIMARY KEY, text VARCHAR(50))",
+                "DELETE FROM item",
+                "DELETE FROM note",
+                "ALTER TABLE note ALTER COLUMN id RESTART WITH 1",
+                "INSERT INTO item VALUES (1, 'one'), (2, 'two')");
+        H2Database.register(countingBatches(dataSource));
+    }
+
+    @After
+    public void tearDown() {
+        H2Database.close();
+        BaseTableDao.getInstance(Item.class).dialect = null;
+        BaseTableDao.getInstance(Note.class).dialect = null;
+    }
+
+    // every executeBatch of the prepared statements is counted
+    private DataSource countingBatches(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, connection -> connection instanceof Connection ? proxy(Connection.class, (Connection) connection,
+                statement -> statement instanceof PreparedStatement ? proxy(PreparedStatement.class, (PreparedStatement) statement, null) : statement) : connection);
+    }
+
+    private <T> T proxy(Class<T> type, T target, Function<Object, Object> wrap) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (self, method, args) -> {
+            if (method.getName().equals("executeBatch")) {
+                batches.incrementAndGet();
+            }
+            try {
+                Object result = method.invoke(target, args);
+                return wrap != null && result != null && method.getReturnType().isInterface() ? wrap.apply(result) : result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+    }
+
+    private static List<String> items() {
+        List<String> rows = new ArrayList<>();
+        for (Item item : Query.findList(QueryBuilder.create("SELECT * FROM item ORDER BY id"), Item.class)) {
+            rows.add(item.id + "=" + item.name);
+        }
+        return rows;
+    }
+
+    @Test
+    public void upsertInBatches() {
+        BaseTableDao<Item> dao = BaseTableDao.getInstance(Item.class);
+        dao.dialect = BulkUpsert.Dialect.MYSQL;
+        dao.saveAll(Arrays.asList(new Item(2, "TWO"), new Item(3, "three"), new Item(1, "ONE"), new Item(4, "four"), new Item(5, "five")));
+        assertThat(items()).containsExactly("1=ONE", "2=TWO", "3=three", "4=four", "5=five");
+        assertThat(batches.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void insertOrUpdateEachRowWithoutUpsert() {
+        BaseTableDao<Item> dao = BaseTableDao.getInstance(Item.class);
+        dao.dialect = BulkUpsert.Dialect.OTHER;
+        dao.saveAll(Arrays.asList(new Item(2, "TWO"), new Item(3, "three"), new Item(1, "ONE")));
+        assertThat(items()).containsExactly("1=ONE", "2=TWO", "3=three");
+    }
+
+    @Test
+    public void insertAllInBatches() {
+        BaseTableDao<Item> dao = BaseTableDao.getInstance(Item.class);
+        dao.dialect = BulkUpsert.Dialect.MYSQL;
+        dao.insertAll(Arrays.asList(new Item(3, "three"), new Item(4, "four"), new Item(5, "five")));
+        assertThat(items()).containsExactly("1=one", "2=two", "3=three", "4=four", "5=five");
+        assertThat(batches.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void generatedKeysOfEveryBatch() {
+        BaseTableDao<Note> dao = BaseTableDao.getInstance(Note.class);
+        dao.dialect = BulkUpsert.Dialect.MYSQL;
+        List<Note> notes = Arrays.asList(new Note("a"), new Note("b"), new Note("c"), new Note("d"), new Note("e"));
+        dao.saveAll(notes);
+        assertThat(batches.get()).isEqualTo(3);
+        for (Note note : notes) {
+            assertThat(Query.findObject(QueryBuilder.create("SELECT text FROM note WHERE id=?", note.id), String.class)).isEqualTo(note.text);
+        }
+        assertThat(notes.stream().map(note -> note.id).distinct().count()).isEqualTo(5L);
+    }
+}
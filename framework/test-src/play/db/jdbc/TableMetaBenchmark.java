@@ -0,0 +1,54 @@
+package play.db.jdbc;
+
+import play.Play;
+
+import java.lang.reflect.Field;
+import java.util.Properties;
+
+/**
+ * Per-save metadata overhead: what a save used to do (build the table metadata, look up the primary key field by
+ * name for each row) against the shared {@link TableMeta}.
+ * <p>
+ * Run with: <code>java -cp ... play.db.jdbc.TableMetaBenchmark [iterations]</code>
+ */
+public class TableMetaBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Play.configuration = new Properties();
+        TableMetaTest.Pegawai pegawai = new TableMetaTest.Pegawai();
+        Class<?> clazz = TableMetaTest.Pegawai.class;
+        long sink = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations / 100; i++) {
+                sink += new TableMeta(clazz).sqlInsert.length();
+            }
+            long build = (System.nanoTime() - start) / (iterations / 100);
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += TableMeta.of(clazz).sqlInsert.length();
+            }
+            long shared = (System.nanoTime() - start) / iterations;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Field field = clazz.getField("peg_id");
+                field.setAccessible(true);
+                field.set(pegawai, (long) i);
+                sink += (Long) field.get(pegawai);
+            }
+            long reflection = (System.nanoTime() - start) / iterations;
+            TableMeta.Column column = TableMeta.of(clazz).primaryKey[0];
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                column.set(pegawai, (long) i);
+                sink += (Long) column.get(pegawai);
+            }
+            long handle = (System.nanoTime() - start) / iterations;
+            System.out.printf("round %d metadata build %,7d ns, shared %,4d ns | pk getField+get/set %,4d ns, MethodHandle %,4d ns%n",
+                    round, build, shared, reflection, handle);
+        }
+        System.out.println(sink == 42 ? "" : "done");
+    }
+}
@@ -0,0 +1,73 @@
+package play.db.jdbc;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import play.Play;
+
+import javax.persistence.Transient;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class TableMetaTest {
+
+    @BeforeClass
+    public static void setUp() {
+        Play.configuration = new Properties();
+    }
+
+    @Table(name = "Pegawai", schema = "hr")
+    @CacheMerdeka(duration = "5min")
+    public static class Pegawai extends BaseTable {
+        @Id(sequence = "seq_pegawai")
+        public Long peg_id;
+        public String nama;
+        @JsonType
+        public String data;
+        @Transient
+        public String ignored;
+        public static final String CONSTANT = "x";
+    }
+
+    @Table(name = "log")
+    public static class Log extends BaseTable {
+        @Id(generated = true)
+        public Long log_id;
+        public String message;
+    }
+
+    @Test
+    public void sqlIsBuiltOnce() {
+        TableMeta meta = TableMeta.of(Pegawai.class);
+        assertThat(TableMeta.of(Pegawai.class)).isSameAs(meta);
+        assertThat(meta.table).isEqualTo("hr.pegawai");
+        assertThat(meta.primaryKeys).isEqualTo("peg_id");
+        assertThat(meta.nonPrimaryKeys).isEqualTo("nama,data");
+        assertThat(meta.nextSequenceFunction).isEqualTo("nextval('seq_pegawai')");
+        assertThat(meta.useCacheMerdeka).isTrue();
+        assertThat(meta.duration).isEqualTo("5min");
+        assertThat(meta.sqlSelectId).isEqualTo("SELECT peg_id,nama,data FROM hr.Pegawai WHERE peg_id=:peg_id");
+        assertThat(meta.sqlInsert).isEqualTo("INSERT INTO hr.Pegawai(peg_id,nama,data) VALUES (:peg_id,:nama,:data::JSON)");
+        assertThat(meta.sqlUpdate).isEqualTo("UPDATE hr.Pegawai SET nama=:nama,data=:data::JSON WHERE peg_id=:peg_id");
+    }
+
+    @Test
+    public void generatedKey() {
+        TableMeta meta = TableMeta.of(Log.class);
+        assertThat(meta.useCacheMerdeka).isFalse();
+        assertThat(meta.generatedKey).containsOnly("log_id");
+        assertThat(meta.sqlInsertAuto).isEqualTo("INSERT INTO log(message) VALUES (:message)");
+    }
+
+    @Test
+    public void columnAccessors() {
+        Pegawai pegawai = new Pegawai();
+        TableMeta.Column id = TableMeta.of(Pegawai.class).primaryKey[0];
+        assertThat(id.type).isEqualTo(Long.class);
+        assertThat(id.get(pegawai)).isNull();
+        id.set(pegawai, 42L);
+        assertThat(pegawai.peg_id).isEqualTo(42L);
+        assertThat(id.get(pegawai)).isEqualTo(42L);
+        assertThat(pegawai.getNonPrimaryKeys()).isEqualTo("nama,data");
+    }
+}
@@ -0,0 +1,140 @@
+package play.mvc;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import play.Play;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AssetManifestTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File applicationPath;
+    private File root;
+
+    @Before
+    public void setUp() {
+        applicationPath = Play.applicationPath;
+        root = folder.getRoot();
+        Play.applicationPath = root;
+    }
+
+    @After
+    public void tearDown() {
+        Play.applicationPath = applicationPath;
+    }
+
+    private AssetManifest manifest(boolean prod, Properties hashes) {
+        Properties configuration = new Properties();
+        configuration.setProperty("play.assets.fingerprint", "true");
+        return new AssetManifest(configuration, prod, hashes);
+    }
+
+    private File file(String path) {
+        return new File(root, path);
+    }
+
+    private File write(String path, String content) throws IOException {
+        File file = file(path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void fingerprintsBeforeTheExtension() throws IOException {
+        File css = write("public/app.min.css", "body{}");
+        File license = write("public/LICENSE", "MIT");
+        AssetManifest manifest = manifest(false, new Properties());
+        String hash = manifest.hash(css);
+        assertThat(hash).hasSize(10).isEqualTo(AssetManifest.compute(css));
+        assertThat(manifest.fingerprint(css, "/public/app.min.css")).isEqualTo("/public/app.min." + hash + ".css");
+        assertThat(manifest.fingerprint(license, "/public/LICENSE")).isEqualTo("/public/LICENSE." + manifest.hash(license));
+        assertThat(manifest.fingerprint(file("public"), "/public/")).isEqualTo("/public/");
+        assertThat(manifest.hash(file("public"))).isNull();
+    }
+
+    @Test
+    public void disabledKeepsTheUrls() throws IOException {
+        File css = write("public/app.css", "body{}");
+        AssetManifest manifest = new AssetManifest(new Properties(), false, new Properties());
+        assertThat(manifest.enabled()).isFalse();
+        assertThat(manifest.fingerprint(css, "/public/app.css")).isEqualTo("/public/app.css");
+        assertThat(manifest.resolve("/public/app." + AssetManifest.compute(css) + ".css", this::file)).isNull();
+    }
+
+    @Test
+    public void resolvesTheCurrentFingerprintAsImmutable() throws IOException {
+        File css = write("public/app.min.css", "body{}");
+        AssetManifest manifest = manifest(true, new Properties());
+        String url = manifest.fingerprint(css, "/public/app.min.css");
+        AssetManifest.Asset asset = manifest.resolve(url, this::file);
+        assertThat(asset).isNotNull();
+        assertThat(asset.file).isEqualTo(css);
+        assertThat(asset.immutable).isTrue();
+        // PROD: remembered without touching the files again
+        assertThat(manifest.resolve(url, path -> null)).isSameAs(asset);
+
+        assertThat(manifest.resolve("/public/app.min.css", this::file)).isNull();
+        assertThat(manifest.resolve("/public/missing.0123456789.css", this::file)).isNull();
+    }
+
+    @Test
+    public void oldFingerprintIsNotImmutable() throws IOException {
+        write("public/app.css", "body{}");
+        AssetManifest manifest = manifest(false, new Properties());
+        AssetManifest.Asset asset = manifest.resolve("/public/app.0123456789.css", this::file);
+        assertThat(asset).isNotNull();
+        assertThat(asset.immutable).isFalse();
+    }
+
+    @Test
+    public void existingFileIsNotResolved() throws IOException {
+        write("public/lib.0123456789.js", "lib()");
+        write("public/lib.js", "other()");
+        AssetManifest manifest = manifest(false, new Properties());
+        assertThat(manifest.resolve("/public/lib.0123456789.js", this::file)).isNull();
+    }
+
+    @Test
+    public void devComputesAgainWhenTheFileChanges() throws IOException {
+        File js = write("public/app.js", "one()");
+        AssetManifest manifest = manifest(false, new Properties());
+        String before = manifest.hash(js);
+        write("public/app.js", "two()");
+        js.setLastModified(js.lastModified() + 2000);
+        assertThat(manifest.hash(js)).isNotEqualTo(before).isEqualTo(AssetManifest.compute(js));
+    }
+
+    @Test
+    public void prodUsesThePrecompiledManifest() throws IOException {
+        File js = write("public/app.js", "one()");
+        Properties hashes = new Properties();
+        assertThat(AssetManifest.collect(file("public"), hashes)).isEqualTo(1);
+        assertThat(hashes.getProperty("/public/app.js")).isEqualTo(AssetManifest.compute(js));
+
+        hashes.setProperty("/public/app.js", "abcdefabcd");
+        AssetManifest manifest = manifest(true, hashes);
+        assertThat(manifest.fingerprint(js, "/public/app.js")).isEqualTo("/public/app.abcdefabcd.js");
+    }
+
+    @Test
+    public void compressedVariantsAreNotHashed() throws IOException {
+        write("public/app.js", "one()");
+        write("public/app.js.gz", "gz");
+        write("public/app.js.br", "br");
+        Properties hashes = new Properties();
+        assertThat(AssetManifest.collect(file("public"), hashes)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,122 @@
+package play.mvc;
+
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class EarlyHintsTest {
+
+    private static final String PAGE = "<html><head>"
+            + "<link rel=\"stylesheet\" href=\"/public/app.css\">"
+            + "<link rel='icon' href='/public/favicon.png'>"
+            + "<link href=\"https://cdn.example.com/lib.css\" rel=\"stylesheet\">"
+            + "<link rel=\"preload\" href=\"/public/fonts/inter.woff2\" as=\"font\" crossorigin>"
+            + "<script src=\"/public/app.js\" defer></script>"
+            + "</head><body><script src=\"/public/late.js\"></script></body></html>";
+
+    @Before
+    public void setUp() {
+        if (Play.configuration == null) {
+            Play.configuration = new Properties();
+        }
+    }
+
+    @Test
+    public void collectsThePublicLinksOfTheHead() {
+        List<String> links = EarlyHints.collect(PAGE.substring(0, PAGE.indexOf("</head>")), "", 8);
+        assertThat(links).containsExactly(
+                "</public/app.css>; rel=preload; as=style",
+                "</public/fonts/inter.woff2>; rel=preload; as=font; crossorigin",
+                "</public/app.js>; rel=preload; as=script");
+        assertThat(EarlyHints.collect(PAGE, "", 2)).hasSize(2);
+        assertThat(EarlyHints.collect(PAGE, "/shop", 8)).isEmpty();
+    }
+
+    @Test
+    public void guessesTheDestination() {
+        assertThat(EarlyHints.link("/public/app.css?v=1", null)).isEqualTo("</public/app.css?v=1>; rel=preload; as=style");
+        assertThat(EarlyHints.link("/public/app.mjs", "")).isEqualTo("</public/app.mjs>; rel=preload; as=script");
+        assertThat(EarlyHints.link("/public/logo.svg", null)).isEqualTo("</public/logo.svg>; rel=preload; as=image");
+        assertThat(EarlyHints.link("/public/data.json", null)).isEqualTo("</public/data.json>; rel=preload; as=fetch");
+        assertThat(EarlyHints.link("/public/logo.svg", "fetch")).isEqualTo("</public/logo.svg>; rel=preload; as=fetch");
+    }
+
+    @Test
+    public void preloadSendsEachLinkOnce() {
+        Http.Response response = new Http.Response();
+        List<List<String>> sent = new ArrayList<>();
+        response.onEarlyHints(sent::add);
+        response.preload("/public/app.css");
+        response.earlyHints(Arrays.asList("</public/app.css>; rel=preload; as=style", "</public/app.js>; rel=preload; as=script"));
+        response.earlyHints(Arrays.asList("</public/app.js>; rel=preload; as=script"));
+
+        assertThat(sent).hasSize(2);
+        assertThat(sent.get(0)).containsExactly("</public/app.css>; rel=preload; as=style");
+        assertThat(sent.get(1)).containsExactly("</public/app.js>; rel=preload; as=script");
+        assertThat(response.headers.get("Link").values).containsExactly(
+                "</public/app.css>; rel=preload; as=style", "</public/app.js>; rel=preload; as=script");
+    }
+
+    @Test
+    public void noHintOnceTheResponseHasStarted() {
+        Http.Response response = new Http.Response();
+        List<List<String>> sent = new ArrayList<>();
+        response.onEarlyHints(sent::add);
+        response.chunked = true;
+        response.preload("/public/app.css");
+        assertThat(sent).isEmpty();
+        assertThat(response.headers.get("Link").values).hasSize(1);
+    }
+
+    @Test
+    public void learnsThePageOfAnAction() {
+        EarlyHints hints = new EarlyHints(new Properties(), false);
+        Http.Request request = new Http.Request();
+        request.method = "GET";
+        request.action = "Application.index";
+        Http.Response rendered = new Http.Response();
+        rendered.contentType = "text/html";
+        rendered.out = new ByteArrayOutputStream();
+        rendered.out.writeBytes(PAGE.getBytes(StandardCharsets.UTF_8));
+        rendered.encoding = "UTF-8";
+        hints.learn(request, rendered);
+        assertThat(hints.learnt.get("Application.index")).hasSize(3);
+
+        Http.Response next = new Http.Response();
+        List<List<String>> sent = new ArrayList<>();
+        next.onEarlyHints(sent::add);
+        hints.hint(request, next);
+        assertThat(sent).hasSize(1);
+        assertThat(sent.get(0)).hasSize(3);
+    }
+
+    @Test
+    public void onlyHtmlPagesAreLearnt() {
+        EarlyHints hints = new EarlyHints(new Properties(), false);
+        Http.Request request = new Http.Request();
+        request.method = "GET";
+        request.action = "Application.data";
+        Http.Response response = new Http.Response();
+        response.contentType = "application/json";
+        response.out = new ByteArrayOutputStream();
+        response.out.writeBytes(PAGE.getBytes(StandardCharsets.UTF_8));
+        hints.learn(request, response);
+        assertThat(hints.learnt).isEmpty();
+
+        Properties disabled = new Properties();
+        disabled.setProperty("http.earlyHints.learn", "false");
+        hints = new EarlyHints(disabled, false);
+        response.contentType = "text/html";
+        hints.learn(request, response);
+        assertThat(hints.learnt).isEmpty();
+    }
+}
@@ -0,0 +1,56 @@
+package play.mvc;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ResponseWriterTest {
+
+    private Http.Response response(List<byte[]> chunks) {
+        Http.Response response = new Http.Response();
+        response.out = new ByteArrayOutputStream();
+        response.encoding = "UTF-8";
+        response.onWriteChunk(chunk -> chunks.add((byte[]) chunk));
+        return response;
+    }
+
+    @Test
+    public void shortBodyIsNotChunked() throws IOException {
+        List<byte[]> chunks = new ArrayList<>();
+        Http.Response response = response(chunks);
+        ResponseWriter writer = new ResponseWriter(response, 64);
+        writer.write("<html>h\u00e9llo</html>");
+        writer.close();
+        assertThat(chunks).isEmpty();
+        assertThat(response.chunked).isFalse();
+        assertThat(new String(response.out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("<html>h\u00e9llo</html>");
+    }
+
+    @Test
+    public void longBodyIsSentInChunks() throws IOException {
+        List<byte[]> chunks = new ArrayList<>();
+        Http.Response response = response(chunks);
+        ResponseWriter writer = new ResponseWriter(response, 16);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            // a surrogate pair on the chunk boundaries
+            body.append("row ").append(i).append(" \ud83d\ude00\n");
+        }
+        writer.write(body.toString());
+        assertThat(chunks).isNotEmpty();
+        writer.close();
+        assertThat(response.chunked).isTrue();
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        for (byte[] chunk : chunks) {
+            assertThat(new String(chunk, StandardCharsets.UTF_8)).doesNotContain("?");
+            sent.writeBytes(chunk);
+        }
+        assertThat(new String(sent.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(body.toString());
+    }
+}
@@ -0,0 +1,118 @@
+package play.mvc;
+
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+import play.exceptions.NoRouteFoundException;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReverseRoutesTest {
+
+    @Before
+    public void setUp() {
+        Play.configuration = new Properties();
+        Play.ctxPath = "";
+        Http.Request.current.remove();
+        Http.Response.current.remove();
+        Router.routes.clear();
+        Router.appendRoute("GET", "/users/{<[0-9]+>id}", "Users.show", null, null, null, 0);
+        Router.appendRoute("GET", "/users/by/{name}", "Users.show", null, null, null, 0);
+        Router.appendRoute("POST", "/users/{id}/?", "Users.save", null, null, null, 0);
+        Router.appendRoute("GET", "/feed", "Users.feed", "(format:'rss')", null, null, 0);
+        Router.appendRoute("GET", "/feed.json", "Users.feed", null, null, null, 0);
+        Router.appendRoute("GET", "{subdomain}.example.com/home", "Sites.home", null, null, null, 0);
+        Router.appendRoute("*", "/{controller}/{action}", "{controller}.{action}", null, null, null, 0);
+    }
+
+    @Test
+    public void buildsPathAndQueryString() {
+        assertThat(reverse("Users.show", "id", 42).url).isEqualTo("/users/42");
+        assertThat(reverse("Users.show", "id", 42, "page", 2).url).isEqualTo("/users/42?page=2");
+        assertThat(reverse("Users.show", "name", "a b@c:d/e").url).isEqualTo("/users/by/a%20b@c:d%2Fe");
+        assertThat(reverse("Users.show", "id", "x").url).isEqualTo("/users/show?id=x");
+        assertThat(reverse("Users.show", "id", 1, "tag", Arrays.asList("a", "b")).url).isEqualTo("/users/1?tag=a&tag=b");
+        Router.ActionDefinition save = reverse("Users.save", "id", 7);
+        assertThat(save.url).isEqualTo("/users/7");
+        assertThat(save.method).isEqualTo("POST");
+        assertThat(save.args).isEqualTo(args("id", 7));
+    }
+
+    @Test
+    public void catchAllRoute() {
+        Router.ActionDefinition definition = reverse("Admin.index", "q", "x y");
+        assertThat(definition.url).isEqualTo("/admin/index?q=x+y");
+        assertThat(definition.method).isEqualTo("GET");
+        assertThat(definition.star).isTrue();
+    }
+
+    @Test
+    public void staticArgsAndFormat() {
+        assertThat(reverse("Users.feed").url).isEqualTo("/feed.json");
+        Http.Request request = Http.Request.createRequest(null, "GET", "/", "", null, null, null, null, false, 80, "localhost",
+                false, null, null);
+        request.format = "rss";
+        Http.Request.current.set(request);
+        assertThat(reverse("Users.feed").url).isEqualTo("/feed");
+    }
+
+    @Test
+    public void dynamicHostUsesFullAlgorithm() {
+        long fallbacks = Router.reverseRoutes.fallbacks();
+        Router.ActionDefinition definition = reverse("Sites.home", "subdomain", "shop");
+        assertThat(definition.url).isEqualTo("/home");
+        assertThat(definition.host).isEqualTo("shop.example.com");
+        assertThat(Router.reverseRoutes.fallbacks()).isEqualTo(fallbacks + 1);
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        long hits = Router.reverseRoutes.hits();
+        long misses = Router.reverseRoutes.misses();
+        reverse("Users.show", "id", 1);
+        reverse("Users.show", "id", 2);
+        reverse("Users.show", "id", 3);
+        assertThat(Router.reverseRoutes.misses()).isEqualTo(misses + 1);
+        assertThat(Router.reverseRoutes.hits()).isEqualTo(hits + 2);
+        Router.prependRoute("GET", "/u/{id}", "Users.show");
+        assertThat(reverse("Users.show", "id", 1).url).isEqualTo("/u/1");
+        assertThat(Router.reverseRoutes.misses()).isEqualTo(misses + 2);
+    }
+
+    @Test
+    public void argsAreGivenBackWhenTheFullAlgorithmIsNeeded() {
+        Router.routes.clear();
+        Router.appendRoute("GET", "/{controller}/{<[0-9]+>action}", "{controller}.{action}", null, null, null, 0);
+        Router.ActionRoute actionRoute = new Router.ActionRoute(Router.routes.get(0));
+        actionRoute.args.put("controller", "users");
+        actionRoute.args.put("action", "show");
+        Map<String, Object> args = args("controller", "Admin", "id", 1);
+        assertThat(Router.reverseRoutes.reverse("Users.show", List.of(actionRoute), args, new HashMap<>(args), "UTF-8", "")).isNull();
+        assertThat(args).isEqualTo(args("controller", "Admin", "id", 1));
+    }
+
+    @Test(expected = NoRouteFoundException.class)
+    public void noRoute() {
+        Router.routes.clear();
+        Router.appendRoute("GET", "/users/{<[0-9]+>id}", "Users.show", null, null, null, 0);
+        reverse("Users.show", "id", "x");
+    }
+
+    private static Router.ActionDefinition reverse(String action, Object... keyValues) {
+        return Router.reverse(action, args(keyValues));
+    }
+
+    private static Map<String, Object> args(Object... keyValues) {
+        Map<String, Object> args = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            args.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return args;
+    }
+}
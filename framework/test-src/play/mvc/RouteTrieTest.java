@@ -0,0 +1,84 @@
+package play.mvc;
+
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RouteTrieTest {
+
+    @Before
+    public void setUp() {
+        Play.configuration = new Properties();
+        Play.ctxPath = "";
+        Router.routes.clear();
+        Router.appendRoute("GET", "/", "Application.index", null, null, null, 0);
+        Router.appendRoute("GET", "/users/new", "Users.blank", null, null, null, 0);
+        Router.appendRoute("GET", "/users/{<[0-9]+>id}", "Users.show", null, null, null, 0);
+        Router.appendRoute("GET", "/users/{name}", "Users.byName", null, null, null, 0);
+        Router.appendRoute("POST", "/users/{id}/?", "Users.save", null, null, null, 0);
+        Router.appendRoute("*", "/api/{<.*>rest}", "Api.any", null, null, null, 0);
+        Router.appendRoute("GET", "/files/{id}.json", "Files.json", null, null, null, 0);
+        Router.appendRoute("GET", "/robots.txt", "staticFile:/public/robots.txt", null, null, null, 0);
+        Router.appendRoute("GET", "/{controller}/{action}", "{controller}.{action}", null, null, null, 0);
+    }
+
+    @Test
+    public void literalBeforeParameterKeepsFileOrder() {
+        assertThat(Router.route("GET", "/users/new").get("action")).isEqualTo("Users.blank");
+        assertThat(Router.route("GET", "/users/42").get("action")).isEqualTo("Users.show");
+        assertThat(Router.route("GET", "/users/bob").get("action")).isEqualTo("Users.byName");
+    }
+
+    @Test
+    public void optionalTrailingSlashAndMethods() {
+        assertThat(Router.route("POST", "/users/42").get("action")).isEqualTo("Users.save");
+        assertThat(Router.route("POST", "/users/42/").get("action")).isEqualTo("Users.save");
+        assertThat(Router.route("HEAD", "/users/42").get("action")).isEqualTo("Users.show");
+        assertThat(Router.route("DELETE", "/users/42")).isEmpty();
+    }
+
+    @Test
+    public void regexSpanningSegmentsStillMatches() {
+        Map<String, String> args = Router.route("PUT", "/api/v1/users/42");
+        assertThat(args.get("action")).isEqualTo("Api.any");
+        assertThat(args.get("rest")).isEqualTo("v1/users/42");
+        assertThat(Router.route("GET", "/files/7.json").get("action")).isEqualTo("Files.json");
+    }
+
+    @Test
+    public void sameResultAsFullScan() {
+        String[][] requests = { { "GET", "/" }, { "GET", "/users" }, { "GET", "/users/new" }, { "GET", "/users/12/" },
+                { "POST", "/users/x" }, { "GET", "/api" }, { "OPTIONS", "/api/" }, { "GET", "/files/a.json" },
+                { "GET", "/files/a.xml" }, { "GET", "/Admin/list" }, { "GET", "/a/b/c" }, { "PROPFIND", "/users/1" } };
+        for (String[] request : requests) {
+            List<Router.Route> candidates = Router.candidates(request[0], request[1]);
+            assertThat(firstMatch(candidates, request)).isEqualTo(firstMatch(Router.routes, request));
+        }
+    }
+
+    @Test
+    public void rebuiltAfterRoutesChange() {
+        assertThat(Router.route("GET", "/new/route").get("action")).isEqualTo("{controller}.{action}");
+        Router.prependRoute("GET", "/new/route", "New.route");
+        assertThat(Router.route("GET", "/new/route").get("action")).isEqualTo("New.route");
+    }
+
+    private static Router.Route firstMatch(List<Router.Route> routes, String[] request) {
+        for (Router.Route route : routes) {
+            try {
+                if (route.matches(request[0], request[1]) != null) {
+                    return route;
+                }
+            } catch (RuntimeException e) {
+                return route;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package play.mvc;
+
+import play.Play;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Compares the compiled route lookup with the former linear scan over every route.
+ * <p>
+ * Run with: <code>java -cp ... play.mvc.RouterBenchmark [routes] [iterations]</code>
+ */
+public class RouterBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 900;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        Play.configuration = new Properties();
+        Play.ctxPath = "";
+        Router.routes.clear();
+        String[] paths = new String[count];
+        for (int i = 0; i < count; i++) {
+            String base = "/module" + (i % 30) + "/resource" + i;
+            switch (i % 3) {
+                case 0 -> Router.appendRoute("GET", base, "Module.list" + i, null, null, null, 0);
+                case 1 -> Router.appendRoute("GET", base + "/{<[0-9]+>id}", "Module.show" + i, null, null, null, 0);
+                default -> Router.appendRoute("POST", base + "/{id}/items", "Module.save" + i, null, null, null, 0);
+            }
+            paths[i] = switch (i % 3) {
+                case 0 -> base;
+                case 1 -> base + "/42";
+                default -> base + "/42/items";
+            };
+        }
+        String[] methods = new String[count];
+        for (int i = 0; i < count; i++) {
+            methods[i] = i % 3 == 2 ? "POST" : "GET";
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long scan = time(iterations, i -> scan(methods[i % count], paths[i % count]));
+            long trie = time(iterations, i -> Router.route(methods[i % count], paths[i % count]));
+            System.out.printf("round %d: linear scan %,d ns/op, trie %,d ns/op (%d routes)%n", round, scan, trie, count);
+        }
+    }
+
+    private static Map<String, String> scan(String method, String path) {
+        for (Router.Route route : Router.routes) {
+            Map<String, String> args = route.matches(method, path, null, null);
+            if (args != null) {
+                return args;
+            }
+        }
+        return null;
+    }
+
+    private static long time(int iterations, java.util.function.IntFunction<Map<String, String>> lookup) {
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (lookup.apply(i) != null) {
+                found++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found != iterations) {
+            throw new IllegalStateException("Only " + found + " of " + iterations + " lookups matched");
+        }
+        return elapsed / iterations;
+    }
+}
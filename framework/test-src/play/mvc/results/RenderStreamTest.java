@@ -0,0 +1,125 @@
+package play.mvc.results;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.exceptions.UnexpectedException;
+import play.mvc.Http;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class RenderStreamTest {
+
+    static class Row {
+        Long id;
+        String name;
+        Double amount;
+
+        Row(Long id, String name, Double amount) {
+            this.id = id;
+            this.name = name;
+            this.amount = amount;
+        }
+    }
+
+    private Http.Response response;
+
+    @Before
+    public void setUp() {
+        response = new Http.Response();
+        response.out = new ByteArrayOutputStream();
+        response.encoding = "UTF-8";
+        Http.Response.current.set(response);
+    }
+
+    @After
+    public void tearDown() {
+        Http.Response.current.remove();
+    }
+
+    private String apply(RenderStream result) {
+        result.apply(new Http.Request(), response);
+        return response.out.toString();
+    }
+
+    private static Stream<Row> rows() {
+        return Stream.of(new Row(1L, "plain", 1.5), new Row(2L, "comma, \"quoted\"\nline", null), new Row(null, null, 3.0));
+    }
+
+    @Test
+    public void csvWithTheColumnsOfTheFirstRow() {
+        assertThat(apply(new RenderStream(rows(), RenderStream.Format.CSV))).isEqualTo(
+                "id,name,amount\r\n"
+                        + "1,plain,1.5\r\n"
+                        + "2,\"comma, \"\"quoted\"\"\nline\",\r\n"
+                        + ",,3.0\r\n");
+        assertThat(response.contentType).isEqualTo("text/csv; charset=UTF-8");
+    }
+
+    @Test
+    public void csvWithTheGivenColumns() {
+        RenderStream result = new RenderStream(rows(), RenderStream.Format.CSV, "name", "id").attachment("rows.csv");
+        assertThat(apply(result)).isEqualTo(
+                "name,id\r\n"
+                        + "plain,1\r\n"
+                        + "\"comma, \"\"quoted\"\"\nline\",2\r\n"
+                        + ",\r\n");
+        assertThat(response.getHeader("Content-Disposition")).isEqualTo("attachment; filename=\"rows.csv\"");
+    }
+
+    @Test
+    public void csvOfArraysAndValues() {
+        Stream<Object> rows = Stream.of(Arrays.asList("a", 1), Arrays.asList(null, "b,c"), "alone");
+        assertThat(apply(new RenderStream(rows, RenderStream.Format.CSV))).isEqualTo("a,1\r\n,\"b,c\"\r\nalone\r\n");
+    }
+
+    @Test
+    public void jsonArrayWithTheNulls() {
+        assertThat(apply(new RenderStream(rows(), RenderStream.Format.JSON))).isEqualTo(
+                "[{\"id\":1,\"name\":\"plain\",\"amount\":1.5},"
+                        + "{\"id\":2,\"name\":\"comma, \\\"quoted\\\"\\nline\",\"amount\":null},"
+                        + "{\"id\":null,\"name\":null,\"amount\":3.0}]");
+        assertThat(response.contentType).isEqualTo("application/json; charset=UTF-8");
+        assertThat(apply(new RenderStream(Stream.empty(), RenderStream.Format.JSON))).endsWith("[]");
+    }
+
+    @Test
+    public void oneJsonObjectPerLine() {
+        assertThat(apply(new RenderStream(rows(), RenderStream.Format.NDJSON))).isEqualTo(
+                "{\"id\":1,\"name\":\"plain\",\"amount\":1.5}\n"
+                        + "{\"id\":2,\"name\":\"comma, \\\"quoted\\\"\\nline\",\"amount\":null}\n"
+                        + "{\"id\":null,\"name\":null,\"amount\":3.0}\n");
+        assertThat(response.contentType).isEqualTo("application/x-ndjson; charset=UTF-8");
+    }
+
+    @Test
+    public void streamIsClosedOnError() {
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<Row> rows = rows().map(row -> {
+            if (row.id == null) {
+                throw new IllegalStateException("cursor lost");
+            }
+            return row;
+        }).onClose(() -> closed.set(true));
+        try {
+            apply(new RenderStream(rows, RenderStream.Format.NDJSON));
+            fail("the error must reach the invoker");
+        } catch (UnexpectedException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(closed.get()).isTrue();
+    }
+
+    @Test
+    public void streamIsClosedAtTheEnd() {
+        AtomicBoolean closed = new AtomicBoolean();
+        assertThat(apply(new RenderStream(rows().onClose(() -> closed.set(true)), RenderStream.Format.JSON))).startsWith("[{");
+        assertThat(closed.get()).isTrue();
+    }
+}
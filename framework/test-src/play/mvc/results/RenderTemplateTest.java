@@ -0,0 +1,70 @@
+package play.mvc.results;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+import play.PlayBuilder;
+import play.cache.CacheFor;
+import play.mvc.Http;
+import play.templates.GroovyTemplate;
+import play.templates.GroovyTemplateCompiler;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RenderTemplateTest {
+
+    private GroovyTemplate template;
+
+    @Before
+    public void setUp() {
+        new PlayBuilder().build();
+        Play.configuration.setProperty("play.templates.streaming", "true");
+        template = new GroovyTemplate("Template_hello.html", "hello ${name}");
+        new GroovyTemplateCompiler().compile(template);
+    }
+
+    @After
+    public void tearDown() {
+        Http.Request.current.remove();
+        Http.Response.current.remove();
+    }
+
+    public static void page() {
+    }
+
+    @CacheFor("1h")
+    public static void cachedPage() {
+    }
+
+    private RenderTemplate render(String action) throws NoSuchMethodException {
+        Http.Request request = new Http.Request();
+        request.invokedMethod = RenderTemplateTest.class.getMethod(action);
+        Http.Request.current.set(request);
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("name", "Morten");
+        return new RenderTemplate(template, arguments);
+    }
+
+    @Test
+    public void renderedWhenAppliedInStreamingMode() throws Exception {
+        assertThat(render("page").getContent()).isNull();
+    }
+
+    @Test
+    public void renderedRightAwayForCacheFor() throws Exception {
+        // the result goes to the cache: it must not hold the template, nor depend on the request applying it
+        RenderTemplate result = render("cachedPage");
+        assertThat(result.getContent()).isEqualTo("hello Morten");
+        Http.Response response = new Http.Response();
+        response.out = new ByteArrayOutputStream();
+        response.encoding = "UTF-8";
+        Http.Response.current.set(response);
+        result.apply(new Http.Request(), response);
+        assertThat(response.out.toString()).isEqualTo("hello Morten");
+    }
+}
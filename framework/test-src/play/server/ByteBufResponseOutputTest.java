@@ -0,0 +1,104 @@
+package play.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ByteBufResponseOutputTest {
+
+    @Test
+    public void takesTheWrittenBytesAcrossChunks() {
+        ByteBufResponseOutput out = new ByteBufResponseOutput(PooledByteBufAllocator.DEFAULT);
+        byte[] data = new byte[200_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        out.write(data, 0, 10);
+        out.write(data, 10, data.length - 10);
+        assertThat(out.size()).isEqualTo(data.length);
+        assertThat(Arrays.equals(out.toByteArray(), data)).isTrue();
+
+        ByteBuf content = out.takeContent();
+        try {
+            byte[] sent = new byte[content.readableBytes()];
+            content.readBytes(sent);
+            assertThat(Arrays.equals(sent, data)).isTrue();
+            assertThat(out.size()).isZero();
+        } finally {
+            content.release();
+        }
+    }
+
+    @Test
+    public void readsTheHeadOfTheBody() {
+        ByteBufResponseOutput out = new ByteBufResponseOutput(PooledByteBufAllocator.DEFAULT);
+        byte[] data = new byte[200_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        out.write(data, 0, data.length);
+        try {
+            // across the full chunks and the one being written
+            assertThat(Arrays.equals(out.getBytes(100_000), Arrays.copyOf(data, 100_000))).isTrue();
+            assertThat(Arrays.equals(out.getBytes(300_000), data)).isTrue();
+            assertThat(Arrays.equals(ByteBufResponseOutput.head(out, 10), Arrays.copyOf(data, 10))).isTrue();
+        } finally {
+            out.release();
+        }
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        plain.writeBytes(data);
+        assertThat(Arrays.equals(ByteBufResponseOutput.head(plain, 100), Arrays.copyOf(data, 100))).isTrue();
+        assertThat(ByteBufResponseOutput.head(new ByteArrayOutputStream(), 100)).isEmpty();
+    }
+
+    @Test
+    public void encodesText() throws Exception {
+        ByteBufResponseOutput out = new ByteBufResponseOutput(PooledByteBufAllocator.DEFAULT);
+        out.write("héllo ", StandardCharsets.UTF_8);
+        out.write("wörld", StandardCharsets.ISO_8859_1);
+        out.write("!", StandardCharsets.UTF_16BE);
+        byte[] expected = concat("héllo ".getBytes(StandardCharsets.UTF_8), "wörld".getBytes(StandardCharsets.ISO_8859_1),
+                "!".getBytes(StandardCharsets.UTF_16BE));
+        assertThat(Arrays.equals(out.toByteArray(), expected)).isTrue();
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        out.writeTo(copy);
+        assertThat(Arrays.equals(copy.toByteArray(), expected)).isTrue();
+        out.release();
+    }
+
+    @Test
+    public void releaseFreesTheBuffers() {
+        ByteBufResponseOutput out = new ByteBufResponseOutput(PooledByteBufAllocator.DEFAULT);
+        out.write("x".repeat(10_000), StandardCharsets.UTF_8);
+        ByteBuf content = out.takeContent();
+        assertThat(content.refCnt()).isEqualTo(1);
+        content.release();
+        assertThat(content.refCnt()).isZero();
+
+        out.write('a');
+        out.reset();
+        assertThat(out.size()).isZero();
+        assertThat(out.takeContent().readableBytes()).isZero();
+    }
+
+    @Test
+    public void plainOutputIsWrapped() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes("body".getBytes(StandardCharsets.UTF_8));
+        assertThat(ByteBufResponseOutput.takeContent(out).toString(StandardCharsets.UTF_8)).isEqualTo("body");
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
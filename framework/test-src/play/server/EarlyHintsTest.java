@@ -0,0 +1,85 @@
+package play.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Before;
+import org.junit.Test;
+import play.mvc.Http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class EarlyHintsTest {
+
+    private final List<HttpRequest> requests = new ArrayList<>();
+    private ChannelHandlerContext context;
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        channel = new EmbeddedChannel(new HttpServerCodec(), new PipelinedRequests(), new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                context = ctx;
+                if (msg instanceof HttpRequest request) {
+                    requests.add(request);
+                }
+                ReferenceCountUtil.release(msg);
+            }
+        });
+    }
+
+    private NettyContext receive(String... paths) {
+        StringBuilder bytes = new StringBuilder();
+        for (String path : paths) {
+            bytes.append("GET ").append(path).append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        }
+        channel.writeInbound(Unpooled.copiedBuffer(bytes, StandardCharsets.US_ASCII));
+        return new NettyContext(context, requests.get(requests.size() - paths.length), new Http.Request());
+    }
+
+    private String sent() {
+        StringBuilder text = new StringBuilder();
+        for (Object msg; (msg = channel.readOutbound()) != null; ) {
+            text.append(((ByteBuf) msg).toString(StandardCharsets.US_ASCII));
+            ReferenceCountUtil.release(msg);
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void oneEarlyHintsPerRequest() {
+        NettyContext request = receive("/");
+        request.writeEarlyHints(List.of("</public/app.css>; rel=preload; as=style"));
+        request.writeEarlyHints(List.of("</public/app.js>; rel=preload; as=script"));
+        String sent = sent();
+        assertThat(sent).startsWith("HTTP/1.1 103 Early Hints\r\n").contains("Link: </public/app.css>; rel=preload; as=style");
+        assertThat(sent).doesNotContain("app.js");
+    }
+
+    @Test
+    public void noEarlyHintsWithPipelinedRequests() {
+        NettyContext first = receive("/", "/next");
+        first.writeEarlyHints(List.of("</public/app.css>; rel=preload; as=style"));
+        assertThat(sent()).isEmpty();
+
+        // alone once the first response is written
+        channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        sent();
+        NettyContext second = new NettyContext(context, requests.get(1), new Http.Request());
+        second.writeEarlyHints(List.of("</public/app.css>; rel=preload; as=style"));
+        assertThat(sent()).startsWith("HTTP/1.1 103 Early Hints\r\n");
+    }
+}
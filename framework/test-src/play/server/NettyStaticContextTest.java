@@ -0,0 +1,34 @@
+package play.server;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class NettyStaticContextTest {
+
+    @Test
+    public void singleByteRange() {
+        assertThat(NettyStaticContext.byteRange("bytes=0-99", 1000)).isEqualTo(new long[] {0, 99});
+        assertThat(NettyStaticContext.byteRange("bytes=900-", 1000)).isEqualTo(new long[] {900, 999});
+        assertThat(NettyStaticContext.byteRange("bytes=900-2000", 1000)).isEqualTo(new long[] {900, 999});
+        assertThat(NettyStaticContext.byteRange("bytes=-100", 1000)).isEqualTo(new long[] {900, 999});
+        assertThat(NettyStaticContext.byteRange("bytes=-2000", 1000)).isEqualTo(new long[] {0, 999});
+    }
+
+    @Test
+    public void rangeOutOfTheFile() {
+        long[] bytes = NettyStaticContext.byteRange("bytes=1000-", 1000);
+        assertThat(bytes[0] > bytes[1]).isTrue();
+        bytes = NettyStaticContext.byteRange("bytes=-0", 1000);
+        assertThat(bytes[0] > bytes[1]).isTrue();
+    }
+
+    @Test
+    public void wholeFileOtherwise() {
+        assertThat(NettyStaticContext.byteRange(null, 1000)).isNull();
+        assertThat(NettyStaticContext.byteRange("bytes=0-9,20-29", 1000)).isNull();
+        assertThat(NettyStaticContext.byteRange("bytes=9-0", 1000)).isNull();
+        assertThat(NettyStaticContext.byteRange("items=0-9", 1000)).isNull();
+        assertThat(NettyStaticContext.byteRange("bytes=a-b", 1000)).isNull();
+    }
+}
@@ -0,0 +1,200 @@
+package play.server;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import play.Play;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Throughput and latency of the Netty transports (nio, epoll, io_uring) with one or several SO_REUSEPORT acceptors,
+ * against a loopback load generator using keep-alive HTTP/1.1 connections.
+ * <p>
+ * Native transports are measured only when their jar is on the classpath.
+ * <p>
+ * Run with: <code>java -cp ... play.server.NettyTransportBenchmark [connections] [seconds] [acceptors]</code>
+ */
+public class NettyTransportBenchmark {
+
+    private static final byte[] REQUEST = "GET /ping HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY = "pong".getBytes(StandardCharsets.US_ASCII);
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int acceptors = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        Play.configuration = new Properties();
+        for (String name : new String[]{"nio", "epoll", "io_uring"}) {
+            NettyTransport transport = NettyTransport.transport(null, name);
+            if (!transport.name().equals(name)) {
+                System.out.printf("%-8s not available%n", name);
+                continue;
+            }
+            run(transport, 1, connections, seconds);
+            if (transport.supportsReusePort()) {
+                run(transport, acceptors, connections, seconds);
+            }
+        }
+    }
+
+    private static void run(NettyTransport transport, int acceptors, int connections, int seconds) throws Exception {
+        EventLoopGroup boss = transport.createEventLoop(acceptors, "acceptor", 50);
+        EventLoopGroup workers = transport.createEventLoop(0, "eventloop", 100);
+        try {
+            ServerBootstrap bootstrap = transport.configure(boss, workers, acceptors > 1);
+            bootstrap.childOption(ChannelOption.TCP_NODELAY, true).childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(8192), new Pong());
+                }
+            });
+            Channel server = bootstrap.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+            int port = ((InetSocketAddress) server.localAddress()).getPort();
+            for (int i = 1; i < acceptors; i++) {
+                bootstrap.bind(new InetSocketAddress("127.0.0.1", port)).sync();
+            }
+            // warm up, then measure
+            load(port, connections, 1);
+            Result result = load(port, connections, seconds);
+            System.out.printf("%-8s acceptors %d: %,10.0f req/s, p50 %,6d us, p99 %,6d us, max %,7d us%n",
+                    transport.name(), acceptors, result.requests / (double) seconds,
+                    result.percentile(50) / 1000, result.percentile(99) / 1000, result.percentile(100) / 1000);
+        } finally {
+            boss.shutdownGracefully().sync();
+            workers.shutdownGracefully().sync();
+        }
+    }
+
+    private static Result load(int port, int connections, int seconds) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+        long[][] latencies = new long[connections][];
+        int[] counts = new int[connections];
+        for (int c = 0; c < connections; c++) {
+            int index = c;
+            threads.add(Thread.ofPlatform().start(() -> {
+                long[] samples = new long[1 << 16];
+                int count = 0;
+                try (Socket socket = new Socket("127.0.0.1", port)) {
+                    socket.setTcpNoDelay(true);
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = socket.getInputStream();
+                    byte[] buffer = new byte[4096];
+                    while (running.get()) {
+                        long start = System.nanoTime();
+                        out.write(REQUEST);
+                        out.flush();
+                        readResponse(in, buffer);
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - start;
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                latencies[index] = samples;
+                counts[index] = count;
+            }));
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (int c = 0; c < connections; c++) {
+            System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+            offset += counts[c];
+        }
+        Arrays.sort(all);
+        return new Result(total, all);
+    }
+
+    // reads the headers up to the empty line, then the body announced by Content-Length
+    private static void readResponse(InputStream in, byte[] buffer) throws Exception {
+        int length = 0;
+        int headerEnd = -1;
+        while (headerEnd < 0) {
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                throw new IllegalStateException("Connection closed");
+            }
+            length += read;
+            for (int i = 3; i < length; i++) {
+                if (buffer[i - 3] == '\r' && buffer[i - 2] == '\n' && buffer[i - 1] == '\r' && buffer[i] == '\n') {
+                    headerEnd = i + 1;
+                    break;
+                }
+            }
+        }
+        String headers = new String(buffer, 0, headerEnd, StandardCharsets.US_ASCII).toLowerCase();
+        int at = headers.indexOf("content-length:");
+        int contentLength = Integer.parseInt(headers.substring(at + 15, headers.indexOf('\r', at)).trim());
+        int remaining = contentLength - (length - headerEnd);
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new IllegalStateException("Connection closed");
+            }
+            remaining -= read;
+        }
+    }
+
+    private static class Pong extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            ByteBuf content = Unpooled.wrappedBuffer(BODY);
+            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain").setInt(HttpHeaderNames.CONTENT_LENGTH, BODY.length);
+            ctx.writeAndFlush(response);
+        }
+    }
+
+    private static class Result {
+        final int requests;
+        final long[] latencies;
+
+        Result(int requests, long[] latencies) {
+            this.requests = requests;
+            this.latencies = latencies;
+        }
+
+        long percentile(int percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))];
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package play.server;
+
+import org.junit.Test;
+import play.exceptions.ConfigurationException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class NettyTransportTest {
+
+    @Test
+    public void nio() {
+        assertThat(NettyTransport.transport(null, "nio").name()).isEqualTo("nio");
+    }
+
+    @Test
+    public void unavailableNativeTransportFallsBackToNio() {
+        // the native jars are not on the test classpath
+        assertThat(NettyTransport.transport(null, "epoll").name()).isEqualTo("nio");
+        assertThat(NettyTransport.transport(null, "io_uring").name()).isEqualTo("nio");
+        assertThat(NettyTransport.transport(null, "auto").name()).isEqualTo("nio");
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void unknownTransport() {
+        NettyTransport.transport(null, "kqueue");
+    }
+}
@@ -0,0 +1,78 @@
+package play.server;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+import play.libs.IO;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RequestBodyStreamTest {
+
+    private static io.netty.buffer.ByteBuf chunk(String s) {
+        return Unpooled.copiedBuffer(s, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void readsChunksInOrder() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RequestBodyStream body = new RequestBodyStream(channel, 1024, -1);
+        body.offer(chunk("hello "));
+        body.offer(chunk("world"));
+        body.complete();
+        assertThat(IO.readContentAsString(body)).isEqualTo("hello world");
+    }
+
+    @Test
+    public void pausesAutoReadUntilConsumerCatchesUp() throws IOException {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RequestBodyStream body = new RequestBodyStream(channel, 8, -1);
+        body.offer(chunk("12345"));
+        assertThat(channel.config().isAutoRead()).isTrue();
+        body.offer(chunk("67890"));
+        assertThat(channel.config().isAutoRead()).isFalse();
+
+        byte[] b = new byte[10];
+        assertThat(body.read(b, 0, 10)).isEqualTo(5);
+        assertThat(channel.config().isAutoRead()).isFalse();
+        assertThat(body.read(b, 0, 10)).isEqualTo(5);
+        assertThat(channel.config().isAutoRead()).isTrue();
+    }
+
+    @Test
+    public void spillsAboveThreshold() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RequestBodyStream body = new RequestBodyStream(channel, 4, 4);
+        body.offer(chunk("abc"));
+        body.offer(chunk("def"));
+        body.offer(chunk("ghi"));
+        body.complete();
+        // Spilling never pauses the client
+        assertThat(channel.config().isAutoRead()).isTrue();
+        assertThat(IO.readContentAsString(body)).isEqualTo("abcdefghi");
+    }
+
+    @Test
+    public void blocksUntilNextChunk() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RequestBodyStream body = new RequestBodyStream(channel, 1024, -1);
+        CompletableFuture<String> read = CompletableFuture.supplyAsync(() -> IO.readContentAsString(body));
+        body.offer(chunk("late"));
+        body.complete();
+        assertThat(read.get(5, TimeUnit.SECONDS)).isEqualTo("late");
+    }
+
+    @Test(expected = IOException.class)
+    public void abortedBodyFails() throws IOException {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RequestBodyStream body = new RequestBodyStream(channel, 1024, -1);
+        body.offer(chunk("partial"));
+        body.abort();
+        body.readAllBytes();
+    }
+}
@@ -0,0 +1,185 @@
+package play.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import play.Play;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ResponseCompressionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ResponseCompression compression;
+
+    @Before
+    public void setUp() {
+        if (Play.configuration == null) {
+            Play.configuration = new Properties();
+        }
+        compression = new ResponseCompression(new Properties());
+    }
+
+    @Test
+    public void negotiatesFromAcceptEncoding() {
+        assertThat(ResponseCompression.negotiate("gzip, deflate, br", false)).isEqualTo("gzip");
+        assertThat(ResponseCompression.negotiate("gzip, deflate, br", true)).isEqualTo("br");
+        assertThat(ResponseCompression.negotiate("gzip;q=0.5, deflate", false)).isEqualTo("deflate");
+        assertThat(ResponseCompression.negotiate("*", false)).isEqualTo("gzip");
+        assertThat(ResponseCompression.negotiate("*;q=0", false)).isNull();
+        assertThat(ResponseCompression.negotiate("gzip;q=0, identity", false)).isNull();
+        assertThat(ResponseCompression.negotiate(null, false)).isNull();
+    }
+
+    @Test
+    public void compressesAllowedTypesAboveMinSize() {
+        assertThat(compression.encodingFor("gzip", "text/html; charset=utf-8", 4096)).isEqualTo("gzip");
+        assertThat(compression.encodingFor("gzip", "application/json", 4096)).isEqualTo("gzip");
+        assertThat(compression.encodingFor("gzip", "image/png", 4096)).isNull();
+        assertThat(compression.encodingFor("gzip", "text/html", 100)).isNull();
+        assertThat(compression.encodingFor("gzip", null, 4096)).isNull();
+
+        Properties disabled = new Properties();
+        disabled.setProperty("play.netty.compression", "false");
+        assertThat(new ResponseCompression(disabled).encodingFor("gzip", "text/html", 4096)).isNull();
+    }
+
+    @Test
+    public void compressesWholeBody() throws IOException {
+        byte[] body = text(100_000);
+        ByteBuf gzip = compression.compress(ByteBufAllocator.DEFAULT, Unpooled.wrappedBuffer(body), "gzip");
+        assertThat(gzip.readableBytes()).isLessThan(body.length / 4);
+        assertThat(new String(read(new GZIPInputStream(stream(gzip))), StandardCharsets.UTF_8)).isEqualTo(new String(body, StandardCharsets.UTF_8));
+
+        ByteBuf deflate = compression.compress(ByteBufAllocator.DEFAULT, Unpooled.wrappedBuffer(body), "deflate");
+        assertThat(new String(read(new InflaterInputStream(stream(deflate))), StandardCharsets.UTF_8)).isEqualTo(new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void pipelineStageCompressesFullResponses() throws IOException {
+        EmbeddedChannel channel = new EmbeddedChannel(compression.newCompressor());
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        request.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip");
+        channel.writeInbound(request);
+        byte[] body = text(8192);
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(body));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html");
+        channel.writeOutbound(response);
+
+        HttpResponse headers = channel.readOutbound();
+        assertThat(headers.headers().get(HttpHeaderNames.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(headers.headers().get(HttpHeaderNames.VARY)).isEqualTo("accept-encoding");
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            ByteBuf content = ((HttpContent) msg).content();
+            compressed.writeBytes(bytes(content));
+            content.release();
+        }
+        assertThat(read(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())))).isEqualTo(body);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void pipelineStageLeavesFilesAlone() {
+        EmbeddedChannel channel = new EmbeddedChannel(compression.newCompressor());
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/app.css");
+        request.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip");
+        channel.writeInbound(request);
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/css").set(HttpHeaderNames.CONTENT_LENGTH, 100_000);
+        channel.writeOutbound(response);
+
+        HttpResponse headers = channel.readOutbound();
+        assertThat(headers.headers().contains(HttpHeaderNames.CONTENT_ENCODING)).isFalse();
+        assertThat(headers.headers().getInt(HttpHeaderNames.CONTENT_LENGTH)).isEqualTo(100_000);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void servesUpToDatePrecompressedSibling() throws IOException {
+        File css = folder.newFile("app.css");
+        Files.write(css.toPath(), text(4096));
+        assertThat(compression.precompressed(css, "gzip, br")).isNull();
+
+        assertThat(compression.precompress(folder.getRoot())).isEqualTo(1);
+        File gz = new File(css.getPath() + ".gz");
+        assertThat(gz.isFile()).isTrue();
+        assertThat(read(new GZIPInputStream(Files.newInputStream(gz.toPath())))).isEqualTo(Files.readAllBytes(css.toPath()));
+        assertThat(compression.precompressed(css, "gzip, br")).isEqualTo(gz);
+        assertThat(compression.precompressed(css, "deflate")).isNull();
+        assertThat(compression.hasPrecompressed(css)).isTrue();
+        // already up to date
+        assertThat(compression.precompress(folder.getRoot())).isZero();
+
+        File br = new File(css.getPath() + ".br");
+        Files.write(br.toPath(), new byte[]{1});
+        assertThat(compression.precompressed(css, "gzip, br")).isEqualTo(br);
+        assertThat(ResponseCompression.encodingOf(br)).isEqualTo("br");
+
+        // outdated siblings are ignored
+        assertThat(css.setLastModified(gz.lastModified() + 10_000)).isTrue();
+        assertThat(compression.precompressed(css, "gzip, br")).isNull();
+    }
+
+    @Test
+    public void doesNotPrecompressBinaryFiles() throws IOException {
+        File png = folder.newFile("logo.png");
+        Files.write(png.toPath(), text(4096));
+        assertThat(compression.precompress(folder.getRoot())).isZero();
+    }
+
+    private static byte[] text(int size) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < size; i++) {
+            text.append("<li class=\"item\">item ").append(i).append("</li>\n");
+        }
+        return text.substring(0, size).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static InputStream stream(ByteBuf buffer) {
+        byte[] bytes = bytes(buffer);
+        buffer.release();
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private static byte[] bytes(ByteBuf buffer) {
+        return ByteBufUtil.getBytes(buffer);
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+}
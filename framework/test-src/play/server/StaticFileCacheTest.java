@@ -0,0 +1,131 @@
+package play.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import play.Play;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class StaticFileCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Properties configuration;
+
+    @Before
+    public void setUp() {
+        if (Play.configuration == null) {
+            Play.configuration = new Properties();
+        }
+        configuration = new Properties();
+    }
+
+    private StaticFileCache cache(boolean watch) {
+        return new StaticFileCache(configuration, new ResponseCompression(configuration), watch);
+    }
+
+    @Test
+    public void servesFromMemoryWithGzipVariant() throws IOException {
+        File css = write("app.css", 8192);
+        StaticFileCache cache = cache(false);
+        StaticFileCache.Entry entry = cache.lookup("/public/app.css", () -> css);
+        assertThat(entry).isNotNull();
+        assertThat(cache.lookup("/public/app.css", () -> null)).isSameAs(entry);
+        assertThat(cache.stats().get("hits")).isEqualTo(1L);
+        assertThat(entry.contentType).startsWith("text/css");
+        assertThat(entry.lastModified).isEqualTo(css.lastModified());
+
+        assertThat(entry.encoding("gzip, deflate")).isEqualTo("gzip");
+        assertThat(entry.encoding("deflate")).isNull();
+        assertThat(entry.hasVariants()).isTrue();
+        assertThat(entry.etag("gzip")).isNotEqualTo(entry.etag(null));
+
+        ByteBuf plain = entry.body(null);
+        assertThat(ByteBufUtil.getBytes(plain)).isEqualTo(Files.readAllBytes(css.toPath()));
+        plain.release();
+        ByteBuf gzip = entry.body("gzip");
+        byte[] inflated = new GZIPInputStream(new ByteArrayInputStream(ByteBufUtil.getBytes(gzip))).readAllBytes();
+        gzip.release();
+        assertThat(inflated).isEqualTo(Files.readAllBytes(css.toPath()));
+    }
+
+    @Test
+    public void usesPrecompressedSiblings() throws IOException {
+        File js = write("app.js", 4096);
+        File br = new File(js.getPath() + ".br");
+        Files.write(br.toPath(), new byte[]{1, 2, 3});
+        StaticFileCache.Entry entry = cache(false).lookup(js.getPath(), () -> js);
+        assertThat(entry.encoding("gzip, br")).isEqualTo("br");
+        ByteBuf body = entry.body("br");
+        assertThat(ByteBufUtil.getBytes(body)).isEqualTo(new byte[]{1, 2, 3});
+        body.release();
+    }
+
+    @Test
+    public void skipsBigAndMissingFiles() throws IOException {
+        configuration.setProperty("play.netty.staticCache.maxFileSize", "1KB");
+        File big = write("big.js", 4096);
+        StaticFileCache cache = cache(false);
+        assertThat(cache.lookup("/big.js", () -> big)).isNull();
+        assertThat(cache.lookup("/missing.js", () -> new File(folder.getRoot(), "missing.js"))).isNull();
+        assertThat(cache.lookup("/none.js", () -> null)).isNull();
+
+        File png = write("logo.png", 512);
+        StaticFileCache.Entry entry = cache.lookup("/logo.png", () -> png);
+        assertThat(entry.hasVariants()).isFalse();
+        assertThat(entry.encoding("gzip")).isNull();
+
+        configuration.setProperty("play.netty.staticCache", "false");
+        assertThat(cache(false).lookup("/logo.png", () -> png)).isNull();
+    }
+
+    @Test
+    public void evictionReleasesTheBuffers() throws IOException {
+        configuration.setProperty("play.netty.staticCache.maxSize", "10KB");
+        StaticFileCache cache = cache(false);
+        File png = write("a.png", 8192);
+        StaticFileCache.Entry entry = cache.lookup("/a.png", () -> png);
+        ByteBuf inFlight = entry.body(null);
+        cache.invalidateAll();
+        // a response being written keeps its duplicate
+        assertThat(inFlight.refCnt()).isEqualTo(1);
+        inFlight.release();
+        assertThat(entry.body(null)).isNull();
+    }
+
+    @Test
+    public void devModeDropsChangedFiles() throws Exception {
+        File css = write("dev.css", 2048);
+        StaticFileCache cache = cache(true);
+        assertThat(cache.lookup("/dev.css", () -> css)).isNotNull();
+        Files.write(css.toPath(), "body{}".getBytes(StandardCharsets.UTF_8));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (cache.cache.getIfPresent("/dev.css") != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(cache.cache.getIfPresent("/dev.css")).isNull();
+    }
+
+    private File write(String name, int size) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < size; i++) {
+            text.append(".rule-").append(i).append(" { color: red; }\n");
+        }
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), text.substring(0, size).getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
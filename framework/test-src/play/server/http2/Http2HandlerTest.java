@@ -0,0 +1,237 @@
+package play.server.http2;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http2.DefaultHttp2DataFrame;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
+import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Multiplexed POSTs sent by an HTTP/2 client to the request body handling of {@link Http2Handler}, the action being
+ * replaced by an echo of the body length and CRC.
+ */
+public class Http2HandlerTest {
+
+    private final NioEventLoopGroup group = new NioEventLoopGroup(2);
+    private final AtomicLong serverBytes = new AtomicLong();
+    private CountDownLatch consumers = new CountDownLatch(0);
+    private Channel server;
+    private Channel client;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (client != null) {
+            client.close().sync();
+        }
+        if (server != null) {
+            server.close().sync();
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+
+    private void start(boolean streaming, long maxContentLength, int bufferSize, int window) throws InterruptedException {
+        server = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                serverBytes.addAndGet(((ByteBuf) msg).readableBytes());
+                                ctx.fireChannelRead(msg);
+                            }
+                        });
+                        ch.pipeline().addLast(Http2FrameCodecBuilder.forServer().initialSettings(Http2Settings.defaultSettings().initialWindowSize(window)).build());
+                        ch.pipeline().addLast(new Http2MultiplexHandler(new ChannelInitializer<Http2StreamChannel>() {
+                            @Override
+                            protected void initChannel(Http2StreamChannel stream) {
+                                stream.pipeline().addLast(new Echo(streaming, maxContentLength, bufferSize));
+                            }
+                        }));
+                    }
+                }).bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        client = new Bootstrap().group(group).channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(Http2FrameCodecBuilder.forClient().build());
+                        ch.pipeline().addLast(new Http2MultiplexHandler(new ChannelInboundHandlerAdapter()));
+                    }
+                }).connect(server.localAddress()).sync().channel();
+    }
+
+    @Test
+    public void concurrentPostsAreAssembledPerStream() throws Exception {
+        start(false, -1, 0, 65535);
+        List<byte[]> bodies = new ArrayList<>();
+        List<CompletableFuture<Response>> responses = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            byte[] body = body(50_000 + i * 100, i);
+            bodies.add(body);
+            responses.add(post(body, 10_000, null));
+        }
+        for (int i = 0; i < bodies.size(); i++) {
+            Response response = responses.get(i).get(10, TimeUnit.SECONDS);
+            assertThat(response.status).isEqualTo("200");
+            assertThat(response.body).isEqualTo(echo(bodies.get(i)));
+        }
+    }
+
+    @Test
+    public void bodyOverTheLimitIsRejected() throws Exception {
+        start(false, 16 * 1024, 0, 65535);
+        Response response = post(body(64 * 1024, 1), 4096, null).get(10, TimeUnit.SECONDS);
+        assertThat(response.status).isEqualTo("413");
+
+        response = post(body(8 * 1024, 2), 4096, null).get(10, TimeUnit.SECONDS);
+        assertThat(response.status).isEqualTo("200");
+    }
+
+    @Test
+    public void announcedLengthOverTheLimitIsRejectedBeforeTheBody() throws Exception {
+        start(false, 16 * 1024, 0, 65535);
+        Response response = post(body(1024, 1), 1024, 1024 * 1024L).get(10, TimeUnit.SECONDS);
+        assertThat(response.status).isEqualTo("413");
+    }
+
+    @Test
+    public void slowConsumerHoldsTheClientWithFlowControl() throws Exception {
+        consumers = new CountDownLatch(1);
+        start(true, -1, 8 * 1024, 16 * 1024);
+        byte[] body = body(256 * 1024, 3);
+        CompletableFuture<Response> response = post(body, 4096, null);
+        Thread.sleep(500);
+        // the action does not read: the client is stopped by the stream window, nothing piles up on the server
+        // (the first window may be the default 64KB when the client sends before getting the SETTINGS)
+        assertThat(serverBytes.get()).isLessThan(96 * 1024);
+        assertThat(response.isDone()).isFalse();
+
+        consumers.countDown();
+        Response done = response.get(10, TimeUnit.SECONDS);
+        assertThat(done.status).isEqualTo("200");
+        assertThat(done.body).isEqualTo(echo(body));
+        assertThat(serverBytes.get()).isGreaterThan(body.length);
+    }
+
+    private static byte[] body(int length, int seed) {
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) (i * 31 + seed);
+        }
+        return body;
+    }
+
+    private static String echo(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return body.length + ":" + crc.getValue();
+    }
+
+    private CompletableFuture<Response> post(byte[] body, int frameSize, Long contentLength) throws InterruptedException {
+        CompletableFuture<Response> response = new CompletableFuture<>();
+        Http2StreamChannel stream = new Http2StreamChannelBootstrap(client).handler(new ResponseReader(response)).open().sync().getNow();
+        Http2Headers headers = new DefaultHttp2Headers().method("POST").path("/echo").scheme("http").authority("localhost");
+        if (contentLength != null) {
+            headers.setLong("content-length", contentLength);
+        }
+        stream.write(new DefaultHttp2HeadersFrame(headers));
+        for (int offset = 0; offset < body.length; offset += frameSize) {
+            int length = Math.min(frameSize, body.length - offset);
+            stream.write(new DefaultHttp2DataFrame(Unpooled.wrappedBuffer(body, offset, length), offset + length == body.length));
+        }
+        stream.flush();
+        return response;
+    }
+
+    private class Echo extends Http2Handler {
+        Echo(boolean streaming, long maxContentLength, int bufferSize) {
+            super(false, null, streaming, maxContentLength, bufferSize, -1);
+        }
+
+        @Override
+        void dispatch(ChannelHandlerContext ctx, Http2HeadersFrame headersFrame, InputStream body) {
+            Thread.ofVirtual().start(() -> {
+                Http2Headers headers = new DefaultHttp2Headers();
+                byte[] content;
+                try (body) {
+                    consumers.await();
+                    content = echo(body.readAllBytes()).getBytes(StandardCharsets.UTF_8);
+                    headers.status("200");
+                } catch (Exception e) {
+                    content = e.toString().getBytes(StandardCharsets.UTF_8);
+                    headers.status("500");
+                }
+                ctx.write(new DefaultHttp2HeadersFrame(headers));
+                ctx.writeAndFlush(new DefaultHttp2DataFrame(Unpooled.wrappedBuffer(content), true));
+            });
+        }
+    }
+
+    private static class Response {
+        String status;
+        String body = "";
+    }
+
+    private static class ResponseReader extends ChannelInboundHandlerAdapter {
+        private final CompletableFuture<Response> future;
+        private final Response response = new Response();
+
+        ResponseReader(CompletableFuture<Response> future) {
+            this.future = future;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof Http2HeadersFrame headers) {
+                response.status = headers.headers().status().toString();
+                if (headers.isEndStream()) {
+                    future.complete(response);
+                }
+            } else if (msg instanceof Http2DataFrame data) {
+                response.body += data.content().toString(StandardCharsets.UTF_8);
+                data.release();
+                if (data.isEndStream()) {
+                    future.complete(response);
+                }
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            // reset by the server
+            future.complete(response);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package play.templates;
+
+import play.Play;
+import play.PlayBuilder;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Renders the forum sample index page (layout, list, tags) with a new script per render, then with the scripts
+ * recycled by each template (<code>play.templates.pool</code>), then compiled to Java
+ * (<code>play.templates.static</code>), and prints the time and the bytes allocated per render. The reverse routes of
+ * the sample are replaced by plain links, there is no router here.
+ * <p>
+ * Run with: <code>java -cp ... play.templates.GroovyTemplateBenchmark [forums] [iterations]</code>
+ */
+public class GroovyTemplateBenchmark {
+
+    private static final String LAYOUT = """
+            <!DOCTYPE html>
+            <html>
+                <head>
+                    <title>Play! forums - #{get 'title' /}</title>
+                    <meta http-equiv="Content-Type" content="text/html; charset=${_response_encoding}"/>
+                </head>
+                <body>
+                    <div id="header">
+                        #{if connected}
+                            <p>Welcome <a class="connectedUser" href="/users/${connected.id}">${connected.name}</a></p>
+                        #{/if}
+                        #{else}
+                            <p>Still not a member ? <a href="/signup">Signup</a>.</p>
+                        #{/else}
+                    </div>
+                    <div id="content">
+                        #{doLayout /}
+                    </div>
+                </body>
+            </html>
+            """;
+
+    private static final String INDEX = """
+            #{extends 'main.html' /}
+            #{set title:'Forums' /}
+            <h1 id="title">Forums</h1>
+            <p class="light">
+                <strong>#{pluralize size:postsCount, word:'post' /} in #{pluralize size:topicsCount, word:'topic' /}</strong>
+            </p>
+            <table id="forums-list">
+                #{list items:forums, as:'forum'}
+                    <tr>
+                        <td class="main">
+                            <a href="/forums/${forum.id}">${forum.name}</a>
+                            <p class="light">
+                                #{pluralize size:forum.postsCount, word:'post' /} in #{pluralize size:forum.topicsCount, word:'topic' /}
+                            </p>
+                            ${forum.description}
+                        </td>
+                        <td class="infos">
+                            #{if forum.lastPost}
+                                ${forum.lastPost.postedAt.format('yyyy-MM-dd')} <br />
+                                by <strong>${forum.lastPost.postedBy}</strong>
+                            #{/if}
+                            #{else}
+                                No post
+                            #{/else}
+                        </td>
+                    </tr>
+                #{/list}
+            </table>
+            """;
+
+    private static final String PLURALIZE = "${_size.format('###,###')} ${_word}${_size.pluralize()}";
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        File views = Files.createTempDirectory("views").toFile();
+        write(new File(views, "main.html"), LAYOUT);
+        write(new File(views, "Forums/index.html"), INDEX);
+        write(new File(views, "tags/pluralize.html"), PLURALIZE);
+
+        List<Map<String, Object>> forums = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> forum = new HashMap<>();
+            forum.put("id", i);
+            forum.put("name", "Forum <" + i + ">");
+            forum.put("description", "Talk about subject " + i);
+            forum.put("postsCount", i * 37);
+            forum.put("topicsCount", i * 3);
+            forum.put("lastPost", i % 3 == 0 ? null : Map.of("postedAt", new Date(), "postedBy", "user" + i));
+            forums.add(forum);
+        }
+
+        String expected = null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (String mode : new String[] { "pool 0", "pool 16", "static" }) {
+            Properties configuration = new Properties();
+            configuration.setProperty("play.templates.pool", mode.equals("pool 0") ? "0" : "16");
+            configuration.setProperty("play.templates.static", Boolean.toString(mode.equals("static")));
+            new PlayBuilder().withConfiguration(configuration).build();
+            Play.mode = Play.Mode.PROD;
+            Play.templatesPath.clear();
+            Play.templatesPath.add(views);
+            TemplateLoader.cleanCompiledCache();
+            Template index = TemplateLoader.load("Forums/index.html");
+            String page = index.render(arguments(forums));
+            if (expected != null && !expected.equals(page)) {
+                throw new IllegalStateException(mode + " renders another page");
+            }
+            expected = page;
+            for (int round = 0; round < 3; round++) {
+                long length = 0;
+                long allocated = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    length += index.render(arguments(forums)).length();
+                }
+                long elapsed = (System.nanoTime() - start) / iterations;
+                allocated = (threads.getCurrentThreadAllocatedBytes() - allocated) / iterations;
+                System.out.printf("round %d %-7s %,11d ns/op %,11d bytes/op (%d chars)%n", round, mode, elapsed, allocated, length / iterations);
+            }
+        }
+    }
+
+    private static Map<String, Object> arguments(List<Map<String, Object>> forums) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("forums", forums);
+        args.put("postsCount", 12_345);
+        args.put("topicsCount", 678);
+        args.put("connected", null);
+        return args;
+    }
+
+    private static void write(File file, String content) throws Exception {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
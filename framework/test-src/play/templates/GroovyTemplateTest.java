@@ -1,11 +1,21 @@
 package play.templates;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import play.Play;
 import play.PlayBuilder;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -13,6 +23,9 @@ import static org.junit.Assert.assertEquals;
 
 public class GroovyTemplateTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void init(){
         new PlayBuilder().build();
@@ -124,4 +137,73 @@ public class GroovyTemplateTest {
         new GroovyTemplateCompiler().compile(groovyTemplate);
         assertEquals("123", groovyTemplate.render());
     }
+
+    private GroovyTemplate layoutAndPage(String page) throws IOException {
+        File layout = folder.newFile("layout.html");
+        Files.write(layout.toPath(), "<title>#{get 'title'/}</title>[#{doLayout/}]<footer/>".getBytes(StandardCharsets.UTF_8));
+        Play.templatesPath.clear();
+        Play.templatesPath.add(folder.getRoot());
+        GroovyTemplate t = new GroovyTemplate("Template_page", page);
+        new GroovyTemplateCompiler().compile(t);
+        return t;
+    }
+
+    @Test
+    public void streamingRenderWritesTheBodyInPlaceOfTheLayoutMarker() throws IOException {
+        GroovyTemplate t = layoutAndPage("#{extends 'layout.html'/}#{set title:'Hello'/}body of ${name}");
+        StringWriter out = new StringWriter();
+        t.render(new HashMap<>(Map.of("name", "Morten")), out);
+        assertThat(out.toString()).isEqualTo("<title>Hello</title>[body of Morten]<footer/>");
+        assertThat(out.toString()).isEqualTo(t.render(new HashMap<>(Map.of("name", "Morten"))));
+    }
+
+    @Test
+    public void streamingRenderWritesThroughWithoutLayout() {
+        GroovyTemplate t = new GroovyTemplate("Template_rows", "#{list items:1..5000, as:'i'}row ${i}\n#{/list}");
+        new GroovyTemplateCompiler().compile(t);
+        List<Integer> writes = new ArrayList<>();
+        StringWriter out = new StringWriter() {
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                writes.add(len);
+                super.write(cbuf, off, len);
+            }
+
+            @Override
+            public void write(String str, int off, int len) {
+                writes.add(len);
+                super.write(str, off, len);
+            }
+        };
+        t.render(new HashMap<>(), out);
+        assertThat(out.toString()).isEqualTo(t.render(new HashMap<>()));
+        // the rows go out as they are rendered, past the first buffer
+        assertThat(writes.size()).isGreaterThan(1000);
+    }
+
+    @Test
+    public void scriptsAreRecycledWithoutTheirBinding() {
+        GroovyTemplate t = new GroovyTemplate("Template_recycled", "hello ${name}#{if fail}${fail.missing()}#{/if}");
+        new GroovyTemplateCompiler().compile(t);
+        assertThat(t.render(new HashMap<>(Map.of("name", "one")))).isEqualTo("hello one");
+        GroovyTemplate.ExecutableTemplate script = t.script(new groovy.lang.Binding());
+        t.recycle(script);
+        assertThat(script.getProperty("name")).isNull();
+
+        assertThat(t.render(new HashMap<>(Map.of("name", "two")))).isEqualTo("hello two");
+        assertThat(t.script(new groovy.lang.Binding())).isSameAs(script);
+
+        // a failed render does not give its script back
+        t.recycle(script);
+        Play.Mode mode = Play.mode;
+        Play.mode = Play.Mode.PROD;
+        try {
+            t.render(new HashMap<>(Map.of("name", "three", "fail", new Object())));
+        } catch (RuntimeException expected) {
+            // expected
+        } finally {
+            Play.mode = mode;
+        }
+        assertThat(t.script(new groovy.lang.Binding())).isNotSameAs(script);
+    }
 }
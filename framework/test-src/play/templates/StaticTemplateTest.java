@@ -0,0 +1,156 @@
+package play.templates;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import play.Play;
+import play.PlayBuilder;
+import play.exceptions.TemplateExecutionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class StaticTemplateTest {
+
+    private static final String LAYOUT = """
+            <title>#{get 'title' /}</title>
+            #{if user}<p>Welcome ${user.name}</p>#{/if}
+            #{else}<p>Login</p>#{/else}
+            <div>#{doLayout /}</div>
+            """;
+
+    private static final String PAGE = """
+            #{extends 'main.html' /}
+            #{set title:'Forums & co' /}
+            *{ a comment }*
+            <ul>
+            #{list items:forums, as:'forum'}
+                <li class="${forum_parity}">${forum_index}. ${forum.name} ${forum.posts.format('###,###')}#{count n:forum.posts /}
+                #{if forum.last}${forum.last.at.format('yyyy-MM-dd')} by ${forum.last?.by ?: 'nobody'}#{/if}
+                #{elseif forum.posts}no date#{/elseif}
+                #{else}empty#{/else}
+                ${forum.name.toUpperCase()} ${!forum_isLast}</li>
+            #{/list}
+            #{list items:none, as:'x'}${x}#{/list}
+            #{else}nothing${none?.size()}#{/else}
+            </ul>
+            """;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Play.Mode mode;
+
+    @Before
+    public void init() {
+        new PlayBuilder().build();
+        mode = Play.mode;
+        Play.mode = Play.Mode.PROD;
+        Play.templatesPath.clear();
+        Play.templatesPath.add(folder.getRoot());
+        TemplateLoader.cleanCompiledCache();
+    }
+
+    @After
+    public void restore() {
+        Play.mode = mode;
+        TemplateLoader.cleanCompiledCache();
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(folder.getRoot(), path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Template load(String path, boolean compileToJava) {
+        Play.configuration.setProperty("play.templates.static", Boolean.toString(compileToJava));
+        TemplateLoader.cleanCompiledCache();
+        return TemplateLoader.load(path);
+    }
+
+    private static Map<String, Object> arguments() {
+        List<Map<String, Object>> forums = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Map<String, Object> forum = new HashMap<>();
+            forum.put("name", "Forum <" + i + ">");
+            forum.put("posts", i * 1234);
+            forum.put("last", i % 2 == 0 ? null : Map.of("at", new Date(0), "by", "user" + i));
+            forums.add(forum);
+        }
+        Map<String, Object> args = new HashMap<>();
+        args.put("forums", forums);
+        args.put("none", null);
+        args.put("user", Map.of("name", "<b>Bob</b>"));
+        return args;
+    }
+
+    @Test
+    public void rendersLikeTheGroovyTemplate() throws IOException {
+        write("main.html", LAYOUT);
+        write("Forums/index.html", PAGE.replace(" ?: 'nobody'", ""));
+        write("tags/count.html", "(${_n.pluralize()})");
+
+        Template compiled = load("Forums/index.html", true);
+        assertThat(compiled).isInstanceOf(StaticTemplate.class);
+        assertThat(TemplateLoader.load("main.html")).isInstanceOf(StaticTemplate.class);
+        String html = compiled.render(arguments());
+
+        Template groovy = load("Forums/index.html", false);
+        assertThat(groovy).isInstanceOf(GroovyTemplate.class);
+        assertThat(html).isEqualTo(groovy.render(arguments()));
+        assertThat(html).contains("<title>Forums &amp; co</title>").contains("Welcome &lt;b&gt;Bob&lt;/b&gt;")
+                .contains("<li class=\"even\">2. Forum &lt;1&gt; 1,234(s)").contains("nothing");
+    }
+
+    @Test
+    public void otherConstructsStayGroovy() throws IOException {
+        write("elvis.html", PAGE);
+        write("script.html", "%{ x = 1 }%${x}");
+        write("closure.html", "${items.collect { it }}");
+        write("fastTag.html", "#{a @Application.index()}home#{/a}");
+        write("className.html", "${play.Play.mode}");
+        for (String path : new String[] { "elvis.html", "script.html", "closure.html", "fastTag.html", "className.html" }) {
+            assertThat(load(path, true)).isInstanceOf(GroovyTemplate.class);
+        }
+    }
+
+    @Test
+    public void errorsPointToTheLineOfTheTemplate() throws IOException {
+        write("error.html", "line 1\n${user.name}\n${user.address.city}");
+        Template template = load("error.html", true);
+        assertThat(template).isInstanceOf(StaticTemplate.class);
+        Map<String, Object> args = new HashMap<>();
+        args.put("user", Map.of("name", "Bob"));
+        try {
+            template.render(args);
+            fail("no address");
+        } catch (TemplateExecutionException e) {
+            assertThat(e.getLineNumber()).isEqualTo(3);
+            assertThat(e.getMessage()).contains("Cannot get property 'city' on null object");
+        }
+    }
+
+    @Test
+    public void callSitesResolveEachClass() throws IOException {
+        write("calls.html", "#{list items:values, as:'v'}${v.size()}:${v.capFirst()} #{/list}");
+        Template template = load("calls.html", true);
+        assertThat(template).isInstanceOf(StaticTemplate.class);
+        Map<String, Object> args = new HashMap<>();
+        args.put("values", List.of("abc", List.of(1, 2), Map.of("k", "v")));
+        // String.size() comes from Groovy, capFirst from the JavaExtensions, List.of() is a private class
+        assertThat(template.render(args)).isEqualTo("3:Abc 2:[1, 2] 1:{k=v} ");
+    }
+}